@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.beans;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.eclipse.core.databinding.beans.BeansObservables;
+import org.eclipse.core.databinding.util.Policy;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * Reads and writes a bean property through its accessor methods. The methods
+ * are looked up and made accessible on first use, so that reading the
+ * property of many beans only invokes the read method.
+ * <p>
+ * A property holds its accessor for its lifetime. The accessor can be used
+ * from any thread.
+ * </p>
+ *
+ * @since 1.2
+ */
+public class BeanPropertyAccessor {
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+
+	private final PropertyDescriptor propertyDescriptor;
+
+	// volatile as the methods are made accessible before they are published
+	private volatile Method readMethod;
+
+	private volatile Method writeMethod;
+
+	/**
+	 * @param propertyDescriptor
+	 *            the property being accessed
+	 */
+	public BeanPropertyAccessor(PropertyDescriptor propertyDescriptor) {
+		this.propertyDescriptor = propertyDescriptor;
+	}
+
+	/**
+	 * @return the property being accessed
+	 */
+	public PropertyDescriptor getPropertyDescriptor() {
+		return propertyDescriptor;
+	}
+
+	/**
+	 * Returns the contents of the property for the given bean.
+	 *
+	 * @param source
+	 *            the source bean
+	 * @return the contents of the property for the given bean.
+	 * @see BeanPropertyHelper#readProperty(Object, PropertyDescriptor)
+	 */
+	public Object read(Object source) {
+		try {
+			return getReadMethod().invoke(source, NO_ARGUMENTS);
+		} catch (InvocationTargetException e) {
+			/*
+			 * InvocationTargetException wraps any exception thrown by the
+			 * invoked method.
+			 */
+			throw new RuntimeException(e.getCause());
+		} catch (Exception e) {
+			if (BeansObservables.DEBUG) {
+				Policy
+						.getLog()
+						.log(
+								new Status(
+										IStatus.WARNING,
+										Policy.JFACE_DATABINDING,
+										IStatus.OK,
+										"Could not read value of " + source + "." + propertyDescriptor.getName(), e)); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Sets the contents of the property on the given source object to the
+	 * given value.
+	 *
+	 * @param source
+	 *            the source object which has the property being updated
+	 * @param value
+	 *            the new value of the property
+	 * @see BeanPropertyHelper#writeProperty(Object, PropertyDescriptor, Object)
+	 */
+	public void write(Object source, Object value) {
+		try {
+			getWriteMethod().invoke(source, new Object[] { value });
+		} catch (InvocationTargetException e) {
+			/*
+			 * InvocationTargetException wraps any exception thrown by the
+			 * invoked method.
+			 */
+			throw new RuntimeException(e.getCause());
+		} catch (Exception e) {
+			if (BeansObservables.DEBUG) {
+				Policy
+						.getLog()
+						.log(
+								new Status(
+										IStatus.WARNING,
+										Policy.JFACE_DATABINDING,
+										IStatus.OK,
+										"Could not change value of " + source + "." + propertyDescriptor.getName(), e)); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+	private Method getReadMethod() {
+		Method method = readMethod;
+		if (method == null) {
+			method = propertyDescriptor.getReadMethod();
+			if (method == null) {
+				throw new IllegalArgumentException(propertyDescriptor.getName()
+						+ " property does not have a read method."); //$NON-NLS-1$
+			}
+			if (!method.isAccessible()) {
+				method.setAccessible(true);
+			}
+			readMethod = method;
+		}
+		return method;
+	}
+
+	private Method getWriteMethod() {
+		Method method = writeMethod;
+		if (method == null) {
+			method = propertyDescriptor.getWriteMethod();
+			if (method == null) {
+				throw new IllegalArgumentException(
+						"Missing public setter method for " //$NON-NLS-1$
+								+ propertyDescriptor.getName() + " property"); //$NON-NLS-1$
+			}
+			if (!method.isAccessible()) {
+				method.setAccessible(true);
+			}
+			writeMethod = method;
+		}
+		return method;
+	}
+}
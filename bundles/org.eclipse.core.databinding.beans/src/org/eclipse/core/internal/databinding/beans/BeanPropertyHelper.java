@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 Matthew Hall and others.
+ * Copyright (c) 2008, 2012 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,25 +17,31 @@ import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
-import org.eclipse.core.databinding.beans.BeansObservables;
 import org.eclipse.core.databinding.observable.value.IObservableValue;
-import org.eclipse.core.databinding.util.Policy;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
 
 /**
  * @since 1.2
  * 
  */
 public class BeanPropertyHelper {
+	// the softly referenced property descriptors by name, by bean class
+	private static final Map propertyDescriptorsCache = new WeakHashMap();
+
 	/**
 	 * Sets the contents of the given property on the given source object to the
 	 * given value.
+	 * <p>
+	 * Properties which access many beans should hold a
+	 * {@link BeanPropertyAccessor}, which looks the accessor methods up once.
+	 * </p>
 	 * 
 	 * @param source
 	 *            the source object which has the property being updated
@@ -46,39 +52,15 @@ public class BeanPropertyHelper {
 	 */
 	public static void writeProperty(Object source,
 			PropertyDescriptor propertyDescriptor, Object value) {
-		try {
-			Method writeMethod = propertyDescriptor.getWriteMethod();
-			if (null == writeMethod) {
-				throw new IllegalArgumentException(
-						"Missing public setter method for " //$NON-NLS-1$
-								+ propertyDescriptor.getName() + " property"); //$NON-NLS-1$
-			}
-			if (!writeMethod.isAccessible()) {
-				writeMethod.setAccessible(true);
-			}
-			writeMethod.invoke(source, new Object[] { value });
-		} catch (InvocationTargetException e) {
-			/*
-			 * InvocationTargetException wraps any exception thrown by the
-			 * invoked method.
-			 */
-			throw new RuntimeException(e.getCause());
-		} catch (Exception e) {
-			if (BeansObservables.DEBUG) {
-				Policy
-						.getLog()
-						.log(
-								new Status(
-										IStatus.WARNING,
-										Policy.JFACE_DATABINDING,
-										IStatus.OK,
-										"Could not change value of " + source + "." + propertyDescriptor.getName(), e)); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-		}
+		new BeanPropertyAccessor(propertyDescriptor).write(source, value);
 	}
 
 	/**
 	 * Returns the contents of the given property for the given bean.
+	 * <p>
+	 * Properties which access many beans should hold a
+	 * {@link BeanPropertyAccessor}, which looks the accessor methods up once.
+	 * </p>
 	 * 
 	 * @param source
 	 *            the source bean
@@ -88,35 +70,7 @@ public class BeanPropertyHelper {
 	 */
 	public static Object readProperty(Object source,
 			PropertyDescriptor propertyDescriptor) {
-		try {
-			Method readMethod = propertyDescriptor.getReadMethod();
-			if (readMethod == null) {
-				throw new IllegalArgumentException(propertyDescriptor.getName()
-						+ " property does not have a read method."); //$NON-NLS-1$
-			}
-			if (!readMethod.isAccessible()) {
-				readMethod.setAccessible(true);
-			}
-			return readMethod.invoke(source, null);
-		} catch (InvocationTargetException e) {
-			/*
-			 * InvocationTargetException wraps any exception thrown by the
-			 * invoked method.
-			 */
-			throw new RuntimeException(e.getCause());
-		} catch (Exception e) {
-			if (BeansObservables.DEBUG) {
-				Policy
-						.getLog()
-						.log(
-								new Status(
-										IStatus.WARNING,
-										Policy.JFACE_DATABINDING,
-										IStatus.OK,
-										"Could not read value of " + source + "." + propertyDescriptor.getName(), e)); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-			return null;
-		}
+		return new BeanPropertyAccessor(propertyDescriptor).read(source);
 	}
 
 	/**
@@ -143,44 +97,73 @@ public class BeanPropertyHelper {
 	 */
 	public static PropertyDescriptor getPropertyDescriptor(Class beanClass,
 			String propertyName) {
-		if (!beanClass.isInterface()) {
-			BeanInfo beanInfo;
-			try {
-				beanInfo = Introspector.getBeanInfo(beanClass);
-			} catch (IntrospectionException e) {
-				// cannot introspect, give up
-				return null;
-			}
-			PropertyDescriptor[] propertyDescriptors = beanInfo
-					.getPropertyDescriptors();
-			for (int i = 0; i < propertyDescriptors.length; i++) {
-				PropertyDescriptor descriptor = propertyDescriptors[i];
-				if (descriptor.getName().equals(propertyName)) {
-					return descriptor;
-				}
-			}
-		} else {
-			try {
-				PropertyDescriptor propertyDescriptors[];
+		Map descriptors = getPropertyDescriptors(beanClass);
+		if (descriptors == null) {
+			// cannot introspect, give up
+			return null;
+		}
+		PropertyDescriptor descriptor = (PropertyDescriptor) descriptors
+				.get(propertyName);
+		if (descriptor != null)
+			return descriptor;
+		throw new IllegalArgumentException(
+				"Could not find property with name " + propertyName + " in class " + beanClass); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Returns the property descriptors of the given bean class by name,
+	 * introspecting the class on first use. The descriptors are cached as the
+	 * properties of a class are usually looked up repeatedly, e.g. by the
+	 * anonymous properties for every bean class they observe.
+	 * 
+	 * @param beanClass
+	 * @return the property descriptors by name, or <code>null</code> if the
+	 *         class cannot be introspected
+	 */
+	private static Map getPropertyDescriptors(Class beanClass) {
+		synchronized (propertyDescriptorsCache) {
+			Reference reference = (Reference) propertyDescriptorsCache
+					.get(beanClass);
+			Map descriptors = reference == null ? null : (Map) reference
+					.get();
+			if (descriptors != null)
+				return descriptors;
+		}
+
+		PropertyDescriptor[] propertyDescriptors;
+		try {
+			if (!beanClass.isInterface()) {
+				propertyDescriptors = Introspector.getBeanInfo(beanClass)
+						.getPropertyDescriptors();
+			} else {
 				List pds = new ArrayList();
 				getInterfacePropertyDescriptors(pds, beanClass);
-				if (pds.size() > 0) {
-					propertyDescriptors = (PropertyDescriptor[]) pds
-							.toArray(new PropertyDescriptor[pds.size()]);
-					PropertyDescriptor descriptor;
-					for (int i = 0; i < propertyDescriptors.length; i++) {
-						descriptor = propertyDescriptors[i];
-						if (descriptor.getName().equals(propertyName))
-							return descriptor;
-					}
-				}
-			} catch (IntrospectionException e) {
-				// cannot introspect, give up
-				return null;
+				propertyDescriptors = (PropertyDescriptor[]) pds
+						.toArray(new PropertyDescriptor[pds.size()]);
 			}
+		} catch (IntrospectionException e) {
+			return null;
 		}
-		throw new IllegalArgumentException(
-				"Could not find property with name " + propertyName + " in class " + beanClass); //$NON-NLS-1$ //$NON-NLS-2$
+		Map descriptors = new HashMap();
+		for (int i = 0; i < propertyDescriptors.length; i++) {
+			PropertyDescriptor descriptor = propertyDescriptors[i];
+			// the first descriptor of a name wins, as in a linear search
+			if (!descriptors.containsKey(descriptor.getName()))
+				descriptors.put(descriptor.getName(), descriptor);
+		}
+
+		synchronized (propertyDescriptorsCache) {
+			/*
+			 * The descriptors reference the bean class through their methods,
+			 * so with strong values the weak keys would never be cleared. The
+			 * soft values still keep the class softly reachable: it can only
+			 * be unloaded once the garbage collector has cleared its
+			 * descriptors, which it does before running out of memory.
+			 */
+			propertyDescriptorsCache.put(beanClass, new SoftReference(
+					descriptors));
+		}
+		return descriptors;
 	}
 
 	/**
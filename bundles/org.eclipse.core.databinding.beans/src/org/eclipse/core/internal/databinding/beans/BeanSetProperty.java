@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 Matthew Hall and others.
+ * Copyright (c) 2008, 2012 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,7 @@ import org.eclipse.core.databinding.property.set.SimpleSetProperty;
  */
 public class BeanSetProperty extends SimpleSetProperty {
 	private final PropertyDescriptor propertyDescriptor;
+	private final BeanPropertyAccessor accessor;
 	private final Class elementType;
 
 	/**
@@ -41,6 +42,7 @@ public class BeanSetProperty extends SimpleSetProperty {
 	public BeanSetProperty(PropertyDescriptor propertyDescriptor,
 			Class elementType) {
 		this.propertyDescriptor = propertyDescriptor;
+		this.accessor = new BeanPropertyAccessor(propertyDescriptor);
 		this.elementType = elementType == null ? BeanPropertyHelper
 				.getCollectionPropertyElementType(propertyDescriptor)
 				: elementType;
@@ -51,8 +53,7 @@ public class BeanSetProperty extends SimpleSetProperty {
 	}
 
 	protected Set doGetSet(Object source) {
-		return asSet(BeanPropertyHelper
-				.readProperty(source, propertyDescriptor));
+		return asSet(accessor.read(source));
 	}
 
 	private Set asSet(Object propertyValue) {
@@ -68,8 +69,7 @@ public class BeanSetProperty extends SimpleSetProperty {
 	}
 
 	protected void doSetSet(Object source, Set set) {
-		BeanPropertyHelper.writeProperty(source, propertyDescriptor,
-				convertSetToBeanPropertyType(set));
+		accessor.write(source, convertSetToBeanPropertyType(set));
 	}
 
 	private Object convertSetToBeanPropertyType(Set set) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 Matthew Hall and others.
+ * Copyright (c) 2008, 2012 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -26,6 +26,7 @@ import org.eclipse.core.databinding.property.value.SimpleValueProperty;
  */
 public class BeanValueProperty extends SimpleValueProperty {
 	private final PropertyDescriptor propertyDescriptor;
+	private final BeanPropertyAccessor accessor;
 	private final Class valueType;
 
 	/**
@@ -35,6 +36,7 @@ public class BeanValueProperty extends SimpleValueProperty {
 	public BeanValueProperty(PropertyDescriptor propertyDescriptor,
 			Class valueType) {
 		this.propertyDescriptor = propertyDescriptor;
+		this.accessor = new BeanPropertyAccessor(propertyDescriptor);
 		this.valueType = valueType == null ? propertyDescriptor
 				.getPropertyType() : valueType;
 	}
@@ -44,11 +46,11 @@ public class BeanValueProperty extends SimpleValueProperty {
 	}
 
 	protected Object doGetValue(Object source) {
-		return BeanPropertyHelper.readProperty(source, propertyDescriptor);
+		return accessor.read(source);
 	}
 
 	protected void doSetValue(Object source, Object value) {
-		BeanPropertyHelper.writeProperty(source, propertyDescriptor, value);
+		accessor.write(source, value);
 	}
 
 	public INativePropertyListener adaptListener(
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 Matthew Hall and others.
+ * Copyright (c) 2008, 2012 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,6 +27,7 @@ import org.eclipse.core.databinding.property.map.SimpleMapProperty;
  */
 public class PojoMapProperty extends SimpleMapProperty {
 	private final PropertyDescriptor propertyDescriptor;
+	private final BeanPropertyAccessor accessor;
 	private final Class keyType;
 	private final Class valueType;
 
@@ -38,6 +39,7 @@ public class PojoMapProperty extends SimpleMapProperty {
 	public PojoMapProperty(PropertyDescriptor propertyDescriptor,
 			Class keyType, Class valueType) {
 		this.propertyDescriptor = propertyDescriptor;
+		this.accessor = new BeanPropertyAccessor(propertyDescriptor);
 		this.keyType = keyType;
 		this.valueType = valueType;
 	}
@@ -51,8 +53,7 @@ public class PojoMapProperty extends SimpleMapProperty {
 	}
 
 	protected Map doGetMap(Object source) {
-		return asMap(BeanPropertyHelper
-				.readProperty(source, propertyDescriptor));
+		return asMap(accessor.read(source));
 	}
 
 	private Map asMap(Object propertyValue) {
@@ -66,7 +67,7 @@ public class PojoMapProperty extends SimpleMapProperty {
 	}
 
 	protected void doSetMap(Object source, Map map) {
-		BeanPropertyHelper.writeProperty(source, propertyDescriptor, map);
+		accessor.write(source, map);
 	}
 
 	public INativePropertyListener adaptListener(
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2010 Matthew Hall and others.
+ * Copyright (c) 2008, 2012 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -30,6 +30,7 @@ import org.eclipse.core.databinding.property.set.SimpleSetProperty;
  */
 public class PojoSetProperty extends SimpleSetProperty {
 	private final PropertyDescriptor propertyDescriptor;
+	private final BeanPropertyAccessor accessor;
 	private final Class elementType;
 
 	/**
@@ -39,6 +40,7 @@ public class PojoSetProperty extends SimpleSetProperty {
 	public PojoSetProperty(PropertyDescriptor propertyDescriptor,
 			Class elementType) {
 		this.propertyDescriptor = propertyDescriptor;
+		this.accessor = new BeanPropertyAccessor(propertyDescriptor);
 		this.elementType = elementType == null ? BeanPropertyHelper
 				.getCollectionPropertyElementType(propertyDescriptor)
 				: elementType;
@@ -49,8 +51,7 @@ public class PojoSetProperty extends SimpleSetProperty {
 	}
 
 	protected Set doGetSet(Object source) {
-		return asSet(BeanPropertyHelper
-				.readProperty(source, propertyDescriptor));
+		return asSet(accessor.read(source));
 	}
 
 	private Set asSet(Object propertyValue) {
@@ -66,8 +67,7 @@ public class PojoSetProperty extends SimpleSetProperty {
 	}
 
 	protected void doSetSet(Object source, Set set) {
-		BeanPropertyHelper.writeProperty(source, propertyDescriptor,
-				convertSetToBeanPropertyType(set));
+		accessor.write(source, convertSetToBeanPropertyType(set));
 	}
 
 	private Object convertSetToBeanPropertyType(Set set) {
@@ -0,0 +1,340 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.core.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.list.IObservableList;
+import org.eclipse.core.databinding.observable.list.ListChangeEvent;
+import org.eclipse.core.databinding.observable.list.ListDiffEntry;
+import org.eclipse.core.databinding.observable.map.IObservableMap;
+import org.eclipse.core.databinding.observable.map.MapChangeEvent;
+import org.eclipse.core.databinding.observable.map.MapDiff;
+import org.eclipse.core.databinding.observable.set.IObservableSet;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.internal.databinding.identity.IdentityMap;
+
+/**
+ * The events deferred by {@link Realm#runBatched(Runnable)}. The value, list,
+ * set and map change events of each observable are merged by type, and fired
+ * in the order in which the observables first fired.
+ * <p>
+ * The diffs of the collections are read when their events are fired, as a
+ * lazily computed diff describes the state of its observable when it is read.
+ * A single event of a type is fired as is.
+ * </p>
+ * <p>
+ * The generic change and stale events are not deferred, as computed
+ * observables listen to them to know when their dependencies change, and must
+ * not compute stale values within the batch.
+ * </p>
+ *
+ * @since 1.5
+ */
+/* package */class ChangeBatch {
+
+	private final Thread thread;
+
+	// the pending events by change manager, as the observables may define
+	// equality by contents
+	private final Map pendingEvents = new IdentityMap();
+
+	// the pending events in the order in which the observables first fired
+	private final List pendingEventsOrder = new ArrayList();
+
+	// whether the batch is over and its events are being dispatched
+	private boolean dispatching;
+
+	/**
+	 * @param thread
+	 *            the thread running the batch
+	 */
+	/* package */ChangeBatch(Thread thread) {
+		this.thread = thread;
+	}
+
+	/**
+	 * Defers the event if it is fired during the batch and can be merged. An
+	 * event fired while the pending events are dispatched, or a dispose event,
+	 * is dispatched after the pending events of its observable.
+	 *
+	 * @param changeManager
+	 * @param event
+	 * @return <code>true</code> if the event is deferred, <code>false</code>
+	 *         if it must be dispatched now
+	 */
+	/* package */boolean defer(ChangeManager changeManager,
+			ObservableEvent event) {
+		if (Thread.currentThread() != thread)
+			return false;
+		if (dispatching || event instanceof DisposeEvent) {
+			// listeners see the earlier changes first
+			PendingEvents pending = (PendingEvents) pendingEvents
+					.remove(changeManager);
+			if (pending != null)
+				pending.dispatchOnce();
+			return false;
+		}
+		if (!(event instanceof ValueChangeEvent
+				|| event instanceof ListChangeEvent
+				|| event instanceof SetChangeEvent || event instanceof MapChangeEvent))
+			return false;
+		if (!changeManager.hasListeners(event.getListenerType()))
+			return true;
+
+		PendingEvents pending = (PendingEvents) pendingEvents
+				.get(changeManager);
+		if (pending == null) {
+			pending = new PendingEvents(changeManager);
+			pendingEvents.put(changeManager, pending);
+			pendingEventsOrder.add(pending);
+		}
+		pending.add(event);
+		return true;
+	}
+
+	/**
+	 * Dispatches the pending events. Events fired by the listeners are not
+	 * deferred, as the batch is over, but they follow the pending events of
+	 * their observable.
+	 */
+	/* package */void dispatch() {
+		dispatching = true;
+		for (Iterator it = pendingEventsOrder.iterator(); it.hasNext();) {
+			((PendingEvents) it.next()).dispatchOnce();
+		}
+	}
+
+	/**
+	 * The pending events of a change manager, one per listener type.
+	 */
+	private static class PendingEvents {
+		private final ChangeManager changeManager;
+
+		private final List merges = new ArrayList();
+
+		PendingEvents(ChangeManager changeManager) {
+			this.changeManager = changeManager;
+		}
+
+		void add(ObservableEvent event) {
+			Object listenerType = event.getListenerType();
+			for (Iterator it = merges.iterator(); it.hasNext();) {
+				EventMerge merge = (EventMerge) it.next();
+				if (merge.listenerType == listenerType) {
+					merge.add(event);
+					return;
+				}
+			}
+			merges.add(createMerge(event));
+		}
+
+		void dispatchOnce() {
+			// a listener firing a new event dispatches the remaining ones
+			// first
+			while (!merges.isEmpty()) {
+				EventMerge merge = (EventMerge) merges.remove(0);
+				changeManager.dispatchEvent(merge.getEvent());
+			}
+		}
+
+		private static EventMerge createMerge(ObservableEvent event) {
+			if (event instanceof ValueChangeEvent)
+				return new ValueChangeMerge((ValueChangeEvent) event);
+			if (event instanceof ListChangeEvent)
+				return new ListChangeMerge((ListChangeEvent) event);
+			if (event instanceof SetChangeEvent)
+				return new SetChangeMerge((SetChangeEvent) event);
+			return new MapChangeMerge((MapChangeEvent) event);
+		}
+	}
+
+	private static abstract class EventMerge {
+		final Object listenerType;
+
+		final ObservableEvent first;
+
+		int count = 1;
+
+		EventMerge(ObservableEvent first) {
+			this.first = first;
+			this.listenerType = first.getListenerType();
+		}
+
+		void add(ObservableEvent event) {
+			count++;
+		}
+
+		abstract ObservableEvent getEvent();
+	}
+
+	private static class ValueChangeMerge extends EventMerge {
+		private final Object oldValue;
+
+		private ValueChangeEvent last;
+
+		ValueChangeMerge(ValueChangeEvent first) {
+			super(first);
+			oldValue = first.diff.getOldValue();
+			last = first;
+		}
+
+		void add(ObservableEvent event) {
+			super.add(event);
+			last = (ValueChangeEvent) event;
+		}
+
+		ObservableEvent getEvent() {
+			if (count == 1)
+				return first;
+			return new ValueChangeEvent((IObservableValue) first
+					.getObservable(), Diffs.createValueDiff(oldValue,
+					last.diff.getNewValue()));
+		}
+	}
+
+	private static class ListChangeMerge extends EventMerge {
+		private final List entries = new ArrayList();
+
+		ListChangeMerge(ListChangeEvent first) {
+			super(first);
+			add(first.diff.getDifferences());
+		}
+
+		void add(ObservableEvent event) {
+			super.add(event);
+			add(((ListChangeEvent) event).diff.getDifferences());
+		}
+
+		private void add(ListDiffEntry[] differences) {
+			for (int i = 0; i < differences.length; i++) {
+				entries.add(differences[i]);
+			}
+		}
+
+		ObservableEvent getEvent() {
+			if (count == 1)
+				return first;
+			return new ListChangeEvent((IObservableList) first
+					.getObservable(), Diffs
+					.createListDiff((ListDiffEntry[]) entries
+							.toArray(new ListDiffEntry[entries.size()])));
+		}
+	}
+
+	private static class SetChangeMerge extends EventMerge {
+		private final Set additions = new HashSet();
+
+		private final Set removals = new HashSet();
+
+		SetChangeMerge(SetChangeEvent first) {
+			super(first);
+			merge(first);
+		}
+
+		void add(ObservableEvent event) {
+			super.add(event);
+			merge((SetChangeEvent) event);
+		}
+
+		private void merge(SetChangeEvent event) {
+			for (Iterator it = event.diff.getRemovals().iterator(); it
+					.hasNext();) {
+				Object element = it.next();
+				if (!additions.remove(element))
+					removals.add(element);
+			}
+			for (Iterator it = event.diff.getAdditions().iterator(); it
+					.hasNext();) {
+				Object element = it.next();
+				if (!removals.remove(element))
+					additions.add(element);
+			}
+		}
+
+		ObservableEvent getEvent() {
+			if (count == 1)
+				return first;
+			return new SetChangeEvent(
+					(IObservableSet) first.getObservable(), Diffs
+							.createSetDiff(additions, removals));
+		}
+	}
+
+	private static class MapChangeMerge extends EventMerge {
+		// the first old value of the keys which existed before the batch
+		private final Map oldValues = new HashMap();
+
+		// the last value of the keys which exist after the last event
+		private final Map newValues = new HashMap();
+
+		// the keys which did not exist before the batch
+		private final Set addedKeys = new HashSet();
+
+		private final Set changedKeys = new HashSet();
+
+		MapChangeMerge(MapChangeEvent first) {
+			super(first);
+			merge(first.diff);
+		}
+
+		void add(ObservableEvent event) {
+			super.add(event);
+			merge(((MapChangeEvent) event).diff);
+		}
+
+		private void merge(MapDiff diff) {
+			for (Iterator it = diff.getRemovedKeys().iterator(); it.hasNext();) {
+				Object key = it.next();
+				if (!addedKeys.remove(key) && !changedKeys.contains(key))
+					oldValues.put(key, diff.getOldValue(key));
+				changedKeys.remove(key);
+				newValues.remove(key);
+			}
+			for (Iterator it = diff.getChangedKeys().iterator(); it.hasNext();) {
+				Object key = it.next();
+				if (!addedKeys.contains(key) && changedKeys.add(key))
+					oldValues.put(key, diff.getOldValue(key));
+				newValues.put(key, diff.getNewValue(key));
+			}
+			for (Iterator it = diff.getAddedKeys().iterator(); it.hasNext();) {
+				Object key = it.next();
+				if (oldValues.containsKey(key))
+					changedKeys.add(key);
+				else
+					addedKeys.add(key);
+				newValues.put(key, diff.getNewValue(key));
+			}
+		}
+
+		ObservableEvent getEvent() {
+			if (count == 1)
+				return first;
+			Set removedKeys = new HashSet(oldValues.keySet());
+			removedKeys.removeAll(changedKeys);
+			return new MapChangeEvent((IObservableMap) first.getObservable(),
+					Diffs.createMapDiff(Collections.unmodifiableSet(addedKeys),
+							Collections.unmodifiableSet(removedKeys),
+							Collections.unmodifiableSet(changedKeys),
+							oldValues, newValues));
+		}
+	}
+}
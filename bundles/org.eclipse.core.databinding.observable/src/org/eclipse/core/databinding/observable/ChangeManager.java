@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2009 IBM Corporation and others.
+ * Copyright (c) 2006, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -98,6 +98,16 @@ import org.eclipse.core.runtime.ListenerList;
 		return false;
 	}
 
+	/**
+	 * @param listenerType
+	 * @return whether there are listeners of the type
+	 */
+	/* package */boolean hasListeners(Object listenerType) {
+		int listenerTypeIndex = findListenerTypeIndex(listenerType);
+		return listenerTypeIndex != -1
+				&& listenerLists[listenerTypeIndex].size() > 0;
+	}
+
 	private int findListenerTypeIndex(Object listenerType) {
 		if (listenerTypes != null) {
 			for (int i = 0; i < listenerTypes.length; i++) {
@@ -110,6 +120,18 @@ import org.eclipse.core.runtime.ListenerList;
 	}
 
 	protected void fireEvent(ObservableEvent event) {
+		ChangeBatch batch = realm.batch;
+		if (batch != null && batch.defer(this, event))
+			return;
+		dispatchEvent(event);
+	}
+
+	/**
+	 * Notifies the listeners of the event now.
+	 * 
+	 * @param event
+	 */
+	/* package */void dispatchEvent(ObservableEvent event) {
 		Object listenerType = event.getListenerType();
 		int listenerTypeIndex = findListenerTypeIndex(listenerType);
 		if (listenerTypeIndex != -1) {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2009 IBM Corporation and others.
+ * Copyright (c) 2005, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,10 +11,9 @@
  *******************************************************************************/
 package org.eclipse.core.databinding.observable;
 
-import java.util.Set;
+import java.util.Arrays;
 
 import org.eclipse.core.databinding.util.Policy;
-import org.eclipse.core.internal.databinding.identity.IdentitySet;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -60,20 +59,17 @@ import org.eclipse.core.runtime.Status;
 public class ObservableTracker {
 
 	/**
-	 * Threadlocal storage pointing to the current Set of IObservables, or null
-	 * if none. Note that this is actually the top of a stack. Whenever a method
-	 * changes the current value, it remembers the old value as a local variable
-	 * and restores the old value when the method exits.
+	 * Threadlocal storage pointing to the tracking frames of the thread. The
+	 * top frame holds the current set of IObservables, or null if none, and the
+	 * current listeners. Whenever a method changes the current values, it
+	 * pushes a frame and pops it when the method exits. The frames are reused,
+	 * so that tracking does not allocate.
 	 */
-	private static ThreadLocal currentChangeListener = new ThreadLocal();
-
-	private static ThreadLocal currentStaleListener = new ThreadLocal();
-
-	private static ThreadLocal currentGetterCalledSet = new ThreadLocal();
-
-	private static ThreadLocal currentObservableCreatedSet = new ThreadLocal();
-
-	private static ThreadLocal currentIgnoreCount = new ThreadLocal();
+	private static ThreadLocal currentFrames = new ThreadLocal() {
+		protected Object initialValue() {
+			return new FrameStack();
+		}
+	};
 
 	/**
 	 * Invokes the given runnable, and returns the set of IObservables that were
@@ -92,34 +88,108 @@ public class ObservableTracker {
 	 */
 	public static IObservable[] runAndMonitor(Runnable runnable,
 			IChangeListener changeListener, IStaleListener staleListener) {
-		// Remember the previous value in the listener stack
-		Set lastObservableSet = (Set) currentGetterCalledSet.get();
-		IChangeListener lastChangeListener = (IChangeListener) currentChangeListener
-				.get();
-		IStaleListener lastStaleListener = (IStaleListener) currentStaleListener
-				.get();
-		Integer lastIgnore = (Integer) currentIgnoreCount.get();
-
-		Set observableSet = new IdentitySet();
-		// Push the new listeners to the top of the stack
-		currentGetterCalledSet.set(observableSet);
-		currentChangeListener.set(changeListener);
-		currentStaleListener.set(staleListener);
-		currentIgnoreCount.set(null);
+		FrameStack frames = (FrameStack) currentFrames.get();
+		Frame frame = frames.push();
+		ObservableIdentitySet observableSet = frame.getObservables();
+		frame.getterCalledSet = observableSet;
+		frame.changeListener = changeListener;
+		frame.staleListener = staleListener;
+		try {
+			runnable.run();
+		} finally {
+			checkUnmatchedIgnore(frame, runnable);
+			frames.pop();
+		}
+
+		IObservable[] result = observableSet.toArray();
+		frames.release(frame);
+		return result;
+	}
+
+	/**
+	 * Invokes the given runnable, and returns the set of IObservables that were
+	 * read by the runnable, like
+	 * {@link #runAndMonitor(Runnable, IChangeListener, IStaleListener)}. The
+	 * listeners are registered with the observables read by a previous run of
+	 * the runnable, and are only removed from the ones that are no longer read
+	 * and added to the ones that are newly read, after the runnable.
+	 * 
+	 * @param runnable
+	 *            runnable to execute
+	 * @param dependencies
+	 *            the observables returned by the previous run, which have the
+	 *            listeners, or <code>null</code> if none
+	 * @param changeListener
+	 *            listener to register with all accessed observables, or
+	 *            <code>null</code> if no change listener is to be registered
+	 * @param staleListener
+	 *            listener to register with all accessed observables, or
+	 *            <code>null</code> if no stale listener is to be registered
+	 * @return an array of unique observable objects, the dependencies array
+	 *         if the runnable read the same observables
+	 * @since 1.5
+	 */
+	public static IObservable[] runAndMonitor(Runnable runnable,
+			IObservable[] dependencies, IChangeListener changeListener,
+			IStaleListener staleListener) {
+		FrameStack frames = (FrameStack) currentFrames.get();
+		Frame frame = frames.push();
+		ObservableIdentitySet observableSet = frame.getObservables();
+		frame.getterCalledSet = observableSet;
+		frame.changeListener = null;
+		frame.staleListener = null;
 		try {
 			runnable.run();
 		} finally {
-			// Pop the new listener off the top of the stack (by restoring the
-			// previous listener)
-			currentGetterCalledSet.set(lastObservableSet);
-			currentChangeListener.set(lastChangeListener);
-			currentStaleListener.set(lastStaleListener);
-			checkUnmatchedIgnore(runnable);
-			currentIgnoreCount.set(lastIgnore);
+			checkUnmatchedIgnore(frame, runnable);
+			frames.pop();
 		}
 
-		return (IObservable[]) observableSet
-				.toArray(new IObservable[observableSet.size()]);
+		// the frame is off the stack, so that the listeners can track
+		IObservable[] result = updateDependencies(observableSet, frame
+				.getPreviousObservables(), dependencies, changeListener,
+				staleListener);
+		frames.release(frame);
+		return result;
+	}
+
+	private static IObservable[] updateDependencies(
+			ObservableIdentitySet observableSet, ObservableIdentitySet previousSet,
+			IObservable[] dependencies, IChangeListener changeListener,
+			IStaleListener staleListener) {
+		int kept = 0;
+		if (dependencies != null) {
+			for (int i = 0; i < dependencies.length; i++) {
+				IObservable observable = dependencies[i];
+				if (observableSet.contains(observable)) {
+					kept++;
+				} else {
+					if (changeListener != null)
+						observable.removeChangeListener(changeListener);
+					if (staleListener != null)
+						observable.removeStaleListener(staleListener);
+				}
+			}
+			if (kept == dependencies.length && kept == observableSet.size())
+				return dependencies;
+			for (int i = 0; i < dependencies.length; i++) {
+				previousSet.add(dependencies[i]);
+			}
+		}
+
+		IObservable[] result = observableSet.toArray();
+		if (kept == result.length)
+			return result;
+		for (int i = 0; i < result.length; i++) {
+			IObservable observable = result[i];
+			if (!previousSet.contains(observable)) {
+				if (changeListener != null)
+					observable.addChangeListener(changeListener);
+				if (staleListener != null)
+					observable.addStaleListener(staleListener);
+			}
+		}
+		return result;
 	}
 
 	/**
@@ -139,29 +209,24 @@ public class ObservableTracker {
 	 * @since 1.2
 	 */
 	public static IObservable[] runAndCollect(Runnable runnable) {
-		Set lastObservableCreatedSet = (Set) currentObservableCreatedSet.get();
-		Integer lastIgnore = (Integer) currentIgnoreCount.get();
-
-		Set observableSet = new IdentitySet();
-		// Push the new listeners to the top of the stack
-		currentObservableCreatedSet.set(observableSet);
-		currentIgnoreCount.set(null);
+		FrameStack frames = (FrameStack) currentFrames.get();
+		Frame frame = frames.push();
+		ObservableIdentitySet observableSet = frame.getObservables();
+		frame.observableCreatedSet = observableSet;
 		try {
 			runnable.run();
 		} finally {
-			// Pop the new listener off the top of the stack (by restoring the
-			// previous listener)
-			currentObservableCreatedSet.set(lastObservableCreatedSet);
-			checkUnmatchedIgnore(runnable);
-			currentIgnoreCount.set(lastIgnore);
+			checkUnmatchedIgnore(frame, runnable);
+			frames.pop();
 		}
 
-		return (IObservable[]) observableSet
-				.toArray(new IObservable[observableSet.size()]);
+		IObservable[] result = observableSet.toArray();
+		frames.release(frame);
+		return result;
 	}
 
-	private static void checkUnmatchedIgnore(Runnable runnable) {
-		if (isIgnore()) {
+	private static void checkUnmatchedIgnore(Frame frame, Runnable runnable) {
+		if (frame.ignoreCount > 0) {
 			Policy
 					.getLog()
 					.log(
@@ -169,7 +234,7 @@ public class ObservableTracker {
 									IStatus.ERROR,
 									Policy.JFACE_DATABINDING,
 									"There were " //$NON-NLS-1$
-											+ currentIgnoreCount.get()
+											+ frame.ignoreCount
 											+ " unmatched setIgnore(true) invocations in runnable " //$NON-NLS-1$
 											+ runnable));
 		}
@@ -196,15 +261,14 @@ public class ObservableTracker {
 	 * @since 1.3
 	 */
 	public static void setIgnore(boolean ignore) {
-		Integer lastCount = (Integer) currentIgnoreCount.get();
+		Frame frame = ((FrameStack) currentFrames.get()).top();
 
-		int newCount = (lastCount == null ? 0 : lastCount.intValue())
-				+ (ignore ? 1 : -1);
+		int newCount = frame.ignoreCount + (ignore ? 1 : -1);
 
 		if (newCount < 0)
 			throw new IllegalStateException("Ignore count is already zero"); //$NON-NLS-1$
 
-		currentIgnoreCount.set(newCount == 0 ? null : new Integer(newCount));
+		frame.ignoreCount = newCount;
 	}
 
 	/**
@@ -233,10 +297,6 @@ public class ObservableTracker {
 				+ Integer.toHexString(System.identityHashCode(observable));
 	}
 
-	private static boolean isIgnore() {
-		return currentIgnoreCount.get() != null;
-	}
-
 	/**
 	 * Notifies the ObservableTracker that an observable was read from. The
 	 * JavaDoc for methods that invoke this method should include the following
@@ -256,18 +316,17 @@ public class ObservableTracker {
 			Assert.isTrue(false, "Getter called outside realm of observable " //$NON-NLS-1$
 					+ toString(observable));
 
-		if (isIgnore())
+		Frame frame = ((FrameStack) currentFrames.get()).top();
+		if (frame.ignoreCount > 0)
 			return;
 
-		Set getterCalledSet = (Set) currentGetterCalledSet.get();
+		ObservableIdentitySet getterCalledSet = frame.getterCalledSet;
 		if (getterCalledSet != null && getterCalledSet.add(observable)) {
 			// If anyone is listening for observable usage...
-			IChangeListener changeListener = (IChangeListener) currentChangeListener
-					.get();
+			IChangeListener changeListener = frame.changeListener;
 			if (changeListener != null)
 				observable.addChangeListener(changeListener);
-			IStaleListener staleListener = (IStaleListener) currentStaleListener
-					.get();
+			IStaleListener staleListener = frame.staleListener;
 			if (staleListener != null)
 				observable.addStaleListener(staleListener);
 		}
@@ -281,11 +340,192 @@ public class ObservableTracker {
 	 * @since 1.2
 	 */
 	public static void observableCreated(IObservable observable) {
-		if (isIgnore())
+		Frame frame = ((FrameStack) currentFrames.get()).top();
+		if (frame.ignoreCount > 0)
 			return;
-		Set observableCreatedSet = (Set) currentObservableCreatedSet.get();
+		ObservableIdentitySet observableCreatedSet = frame.observableCreatedSet;
 		if (observableCreatedSet != null) {
 			observableCreatedSet.add(observable);
 		}
 	}
+
+	/**
+	 * The tracking state of a runAndMonitor or runAndCollect invocation. The
+	 * sets and listeners of the enclosing invocation are inherited.
+	 */
+	private static final class Frame {
+		ObservableIdentitySet getterCalledSet;
+
+		IChangeListener changeListener;
+
+		IStaleListener staleListener;
+
+		ObservableIdentitySet observableCreatedSet;
+
+		int ignoreCount;
+
+		private ObservableIdentitySet observables;
+
+		private ObservableIdentitySet previousObservables;
+
+		ObservableIdentitySet getObservables() {
+			if (observables == null)
+				observables = new ObservableIdentitySet();
+			return observables;
+		}
+
+		ObservableIdentitySet getPreviousObservables() {
+			if (previousObservables == null)
+				previousObservables = new ObservableIdentitySet();
+			return previousObservables;
+		}
+
+		void inherit(Frame parent) {
+			getterCalledSet = parent.getterCalledSet;
+			changeListener = parent.changeListener;
+			staleListener = parent.staleListener;
+			observableCreatedSet = parent.observableCreatedSet;
+			ignoreCount = 0;
+		}
+
+		void clear() {
+			getterCalledSet = null;
+			changeListener = null;
+			staleListener = null;
+			observableCreatedSet = null;
+			if (observables != null)
+				observables.clear();
+			if (previousObservables != null)
+				previousObservables.clear();
+		}
+	}
+
+	/**
+	 * The frames of a thread. The bottom frame holds the ignore count outside
+	 * of any invocation. A popped frame is not reused until it is released, as
+	 * its observables are read after it is popped. A frame which is not
+	 * released, if the runnable fails, is left to the garbage collector.
+	 */
+	private static final class FrameStack {
+		private Frame[] frames = new Frame[] { new Frame(), null, null, null };
+
+		private int top = 0;
+
+		Frame top() {
+			return frames[top];
+		}
+
+		Frame push() {
+			Frame parent = frames[top];
+			if (++top == frames.length) {
+				Frame[] grown = new Frame[top * 2];
+				System.arraycopy(frames, 0, grown, 0, top);
+				frames = grown;
+			}
+			Frame frame = frames[top];
+			if (frame == null) {
+				frame = new Frame();
+				frames[top] = frame;
+			}
+			frame.inherit(parent);
+			return frame;
+		}
+
+		void pop() {
+			frames[top--] = null;
+		}
+
+		void release(Frame frame) {
+			frame.clear();
+			if (frames[top + 1] == null)
+				frames[top + 1] = frame;
+		}
+	}
+
+	/**
+	 * A reusable identity set of observables, which keeps the order of
+	 * insertion.
+	 */
+	private static final class ObservableIdentitySet {
+		/**
+		 * The capacity above which the arrays are dropped when the set is
+		 * cleared, rather than kept for the thread.
+		 */
+		private static final int MAX_RETAINED_CAPACITY = 1024;
+
+		private IObservable[] elements = new IObservable[8];
+
+		// the open addressing table of the indices of the elements plus one
+		private int[] table = new int[16];
+
+		private int size = 0;
+
+		int size() {
+			return size;
+		}
+
+		boolean add(IObservable observable) {
+			int mask = table.length - 1;
+			int slot = hash(observable) & mask;
+			for (int index; (index = table[slot]) != 0; slot = (slot + 1) & mask) {
+				if (elements[index - 1] == observable)
+					return false;
+			}
+			if (size == elements.length) {
+				IObservable[] grown = new IObservable[size * 2];
+				System.arraycopy(elements, 0, grown, 0, size);
+				elements = grown;
+			}
+			elements[size++] = observable;
+			table[slot] = size;
+			if (size * 2 > table.length)
+				rehash(table.length * 2);
+			return true;
+		}
+
+		boolean contains(IObservable observable) {
+			int mask = table.length - 1;
+			int slot = hash(observable) & mask;
+			for (int index; (index = table[slot]) != 0; slot = (slot + 1) & mask) {
+				if (elements[index - 1] == observable)
+					return true;
+			}
+			return false;
+		}
+
+		IObservable[] toArray() {
+			IObservable[] result = new IObservable[size];
+			System.arraycopy(elements, 0, result, 0, size);
+			return result;
+		}
+
+		void clear() {
+			if (size == 0)
+				return;
+			if (table.length > MAX_RETAINED_CAPACITY) {
+				elements = new IObservable[8];
+				table = new int[16];
+			} else {
+				Arrays.fill(elements, 0, size, null);
+				Arrays.fill(table, 0);
+			}
+			size = 0;
+		}
+
+		private void rehash(int capacity) {
+			table = new int[capacity];
+			int mask = capacity - 1;
+			for (int i = 0; i < size; i++) {
+				int slot = hash(elements[i]) & mask;
+				while (table[slot] != 0)
+					slot = (slot + 1) & mask;
+				table[slot] = i + 1;
+			}
+		}
+
+		private static int hash(IObservable observable) {
+			int hash = System.identityHashCode(observable);
+			return hash ^ (hash >>> 16);
+		}
+	}
 }
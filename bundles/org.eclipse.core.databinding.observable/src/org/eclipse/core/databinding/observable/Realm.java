@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2009 IBM Corporation and others.
+ * Copyright (c) 2006, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,7 @@ import java.util.TimerTask;
 
 import org.eclipse.core.databinding.util.Policy;
 import org.eclipse.core.internal.databinding.observable.Queue;
+import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.SafeRunner;
@@ -119,6 +120,11 @@ public abstract class Realm {
 	private volatile Timer timer;
 
 	Queue workQueue = new Queue();
+
+	/**
+	 * The batch run by {@link #runBatched(Runnable)}, or <code>null</code>.
+	 */
+	volatile ChangeBatch batch;
 	
 	/**
 	 * Runs the given runnable. If an exception occurs within the runnable, it
@@ -317,6 +323,52 @@ public abstract class Realm {
 		}
 	}
 
+	/**
+	 * Runs the given runnable as a batch of changes. The value, list, set and
+	 * map change events fired by the observables of this realm while the
+	 * runnable runs are deferred until it completes, and merged so that each
+	 * observable notifies each of its listeners once, with a diff describing
+	 * all of its changes. For example, a list to which many elements are added
+	 * fires a single
+	 * {@link org.eclipse.core.databinding.observable.list.ListChangeEvent}
+	 * with all of the additions.
+	 * <p>
+	 * Generic change events and stale events are not deferred, so that
+	 * computed observables read within the batch are up to date. Value
+	 * changing and dispose events, and the events of other types, are not
+	 * deferred either; the deferred events of an observable are fired before
+	 * its dispose event. The events fired by the listeners of the merged
+	 * events are not deferred, and are fired after the deferred events of
+	 * their observable. If this method is called within a batch, the runnable
+	 * is run as part of that batch.
+	 * </p>
+	 * <p>
+	 * This method must be called from within this realm.
+	 * </p>
+	 * 
+	 * @param runnable
+	 * @since 1.5
+	 */
+	public void runBatched(Runnable runnable) {
+		Assert.isTrue(isCurrent(),
+				"This operation must be run within the realm"); //$NON-NLS-1$
+		if (batch != null) {
+			runnable.run();
+			return;
+		}
+		ChangeBatch newBatch = new ChangeBatch(Thread.currentThread());
+		batch = newBatch;
+		try {
+			runnable.run();
+		} finally {
+			try {
+				newBatch.dispatch();
+			} finally {
+				batch = null;
+			}
+		}
+	}
+
 	/**
 	 * Sets the provided <code>realm</code> as the default for the duration of
 	 * {@link Runnable#run()} and resets the previous realm after completion.
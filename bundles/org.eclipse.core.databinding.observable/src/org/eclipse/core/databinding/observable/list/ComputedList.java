@@ -1,5 +1,5 @@
 /************************************************************************************************************
- * Copyright (c) 2007, 2009 Matthew Hall and others.
+ * Copyright (c) 2007, 2012 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -191,8 +191,10 @@ public abstract class ComputedList extends AbstractObservableList {
 			// - Run the calculate method
 			// - While doing so, add any observable that is touched to the
 			// dependencies list
+			// - Afterwards, only hook and unhook the changed dependencies
 			IObservable[] newDependencies = ObservableTracker.runAndMonitor(
-					privateInterface, privateInterface, null);
+					privateInterface, dependencies, privateInterface,
+					privateInterface);
 
 			// If any dependencies are stale, a stale event will be fired here
 			// even if we were already stale before recomputing. This is in case
@@ -205,12 +207,6 @@ public abstract class ComputedList extends AbstractObservableList {
 				}
 			}
 
-			if (!stale) {
-				for (int i = 0; i < newDependencies.length; i++) {
-					newDependencies[i].addStaleListener(privateInterface);
-				}
-			}
-
 			dependencies = newDependencies;
 
 			dirty = false;
@@ -239,8 +235,6 @@ public abstract class ComputedList extends AbstractObservableList {
 
 			makeStale();
 
-			stopListening();
-
 			// copy the old list
 			final List oldList = new ArrayList(cachedList);
 			// Fire the "dirty" event. This implementation recomputes the new
@@ -255,6 +249,14 @@ public abstract class ComputedList extends AbstractObservableList {
 					return differences;
 				}
 			});
+
+			// The dependencies stay hooked until the next calculation,
+			// which then only hooks and unhooks the changed ones. Unless
+			// somebody listens, the list may never be read again, and our
+			// listeners on the dependencies would keep it reachable.
+			if (dirty && !hasListeners()) {
+				stopListening();
+			}
 		}
 	}
 
@@ -312,8 +314,8 @@ public abstract class ComputedList extends AbstractObservableList {
 		// notifications.
 		getRealm().exec(new Runnable() {
 			public void run() {
-				if (dependencies == null) {
-					// We are not currently listening.
+				if (dirty) {
+					// We are not currently up to date.
 					// But someone is listening for changes. Call getValue()
 					// to make sure we start listening to the observables we
 					// depend on.
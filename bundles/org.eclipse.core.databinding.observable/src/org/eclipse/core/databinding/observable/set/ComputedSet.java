@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 Matthew Hall and others.
+ * Copyright (c) 2008, 2012 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -185,8 +185,10 @@ public abstract class ComputedSet extends AbstractObservableSet {
 			// - Run the calculate method
 			// - While doing so, add any observable that is touched to the
 			// dependencies list
+			// - Afterwards, only hook and unhook the changed dependencies
 			IObservable[] newDependencies = ObservableTracker.runAndMonitor(
-					privateInterface, privateInterface, null);
+					privateInterface, dependencies, privateInterface,
+					privateInterface);
 
 			// If any dependencies are stale, a stale event will be fired here
 			// even if we were already stale before recomputing. This is in case
@@ -199,12 +201,6 @@ public abstract class ComputedSet extends AbstractObservableSet {
 				}
 			}
 
-			if (!stale) {
-				for (int i = 0; i < newDependencies.length; i++) {
-					newDependencies[i].addStaleListener(privateInterface);
-				}
-			}
-
 			dependencies = newDependencies;
 
 			dirty = false;
@@ -229,8 +225,6 @@ public abstract class ComputedSet extends AbstractObservableSet {
 
 			makeStale();
 
-			stopListening();
-
 			// copy the old set
 			final Set oldSet = new HashSet(cachedSet);
 			// Fire the "dirty" event. This implementation recomputes the new
@@ -252,6 +246,14 @@ public abstract class ComputedSet extends AbstractObservableSet {
 					return getDelegate().getRemovals();
 				}
 			});
+
+			// The dependencies stay hooked until the next calculation,
+			// which then only hooks and unhooks the changed ones. Unless
+			// somebody listens, the set may never be read again, and our
+			// listeners on the dependencies would keep it reachable.
+			if (dirty && !hasListeners()) {
+				stopListening();
+			}
 		}
 	}
 
@@ -309,8 +311,8 @@ public abstract class ComputedSet extends AbstractObservableSet {
 		// notifications.
 		getRealm().exec(new Runnable() {
 			public void run() {
-				if (dependencies == null) {
-					// We are not currently listening.
+				if (dirty) {
+					// We are not currently up to date.
 					// But someone is listening for changes. Call getValue()
 					// to make sure we start listening to the observables we
 					// depend on.
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2009 IBM Corporation and others.
+ * Copyright (c) 2005, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -156,17 +156,16 @@ public abstract class ComputedValue extends AbstractObservableValue {
 			// - Run the calculate method
 			// - While doing so, add any observable that is touched to the
 			// dependencies list
+			// - Afterwards, only hook and unhook the changed dependencies
 			IObservable[] newDependencies = ObservableTracker.runAndMonitor(
-					privateInterface, privateInterface, null);
+					privateInterface, dependencies, privateInterface,
+					privateInterface);
 
 			stale = false;
 			for (int i = 0; i < newDependencies.length; i++) {
-				IObservable observable = newDependencies[i];
-				// Add a change listener to the new dependency.
-				if (observable.isStale()) {
+				if (newDependencies[i].isStale()) {
 					stale = true;
-				} else {
-					observable.addStaleListener(privateInterface);
+					break;
 				}
 			}
 
@@ -192,8 +191,6 @@ public abstract class ComputedValue extends AbstractObservableValue {
 		if (!dirty) {
 			dirty = true;
 
-			stopListening();
-
 			// copy the old value
 			final Object oldValue = cachedValue;
 			// Fire the "dirty" event. This implementation recomputes the new
@@ -208,6 +205,14 @@ public abstract class ComputedValue extends AbstractObservableValue {
 					return getValue();
 				}
 			});
+
+			// The dependencies stay hooked until the next calculation,
+			// which then only hooks and unhooks the changed ones. Unless
+			// somebody listens, the value may never be read again, and our
+			// listeners on the dependencies would keep it reachable.
+			if (dirty && !hasListeners()) {
+				stopListening();
+			}
 		}
 	}
 
@@ -264,8 +269,8 @@ public abstract class ComputedValue extends AbstractObservableValue {
 	private void computeValueForListeners() {
 		getRealm().exec(new Runnable() {
 			public void run() {
-				if (dependencies == null) {
-					// We are not currently listening.
+				if (dirty) {
+					// We are not currently up to date.
 					if (hasListeners()) {
 						// But someone is listening for changes. Call getValue()
 						// to make sure we start listening to the observables we
@@ -0,0 +1,437 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.list.ListDiffEntry;
+
+/**
+ * Computes the differences between two list states in O((N + R) log N) time,
+ * where N is the length of the lists and R the number of pairs of equal
+ * elements in their differing ranges.
+ * <p>
+ * The elements kept are a longest common subsequence of the lists, found with
+ * the Hunt-Szymanski algorithm over the positions of the elements, which are
+ * looked up by hash. The remaining elements are removed or added; an element
+ * both removed and added is reported as a move, that is a removal immediately
+ * followed by the addition of the same element, which
+ * {@link org.eclipse.core.databinding.observable.list.ListDiff#accept(org.eclipse.core.databinding.observable.list.ListDiffVisitor)}
+ * reports as a move. The positions of the entries are tracked with a Fenwick
+ * tree rather than by applying the entries to a copy of the list.
+ * </p>
+ * <p>
+ * The elements are compared with {@link Object#equals(Object)} and must have
+ * consistent hash codes.
+ * </p>
+ *
+ * @since 1.4
+ */
+public class ListDiffComputer {
+
+	/**
+	 * The number of pairs of equal elements per element above which the
+	 * common subsequence is found greedily rather than exactly, for lists
+	 * with a lot of repeated elements.
+	 */
+	private static final int MAX_PAIRS_PER_ELEMENT = 32;
+
+	private static final ListDiffEntry[] EMPTY_ENTRIES = new ListDiffEntry[0];
+
+	private final Object[] oldElements;
+
+	private final Object[] newElements;
+
+	// the length of the common prefix
+	private int prefix;
+
+	// the end of the differing ranges of the lists
+	private int oldEnd;
+
+	private int newEnd;
+
+	/**
+	 * Returns the entries transforming the old list state into the new one.
+	 *
+	 * @param oldList
+	 *            the old list state
+	 * @param newList
+	 *            the new list state
+	 * @return the entries, in the order they apply
+	 */
+	public static ListDiffEntry[] computeDifferences(List oldList, List newList) {
+		return new ListDiffComputer(oldList.toArray(), newList.toArray())
+				.compute();
+	}
+
+	private ListDiffComputer(Object[] oldElements, Object[] newElements) {
+		this.oldElements = oldElements;
+		this.newElements = newElements;
+	}
+
+	private ListDiffEntry[] compute() {
+		oldEnd = oldElements.length;
+		newEnd = newElements.length;
+		while (prefix < oldEnd && prefix < newEnd
+				&& Util.equals(oldElements[prefix], newElements[prefix])) {
+			prefix++;
+		}
+		while (oldEnd > prefix && newEnd > prefix
+				&& Util.equals(oldElements[oldEnd - 1], newElements[newEnd - 1])) {
+			oldEnd--;
+			newEnd--;
+		}
+		if (prefix == oldEnd && prefix == newEnd) {
+			return EMPTY_ENTRIES;
+		}
+
+		int[] matches = findCommonSubsequence();
+		boolean[] oldKept = new boolean[oldEnd - prefix];
+		boolean[] newKept = new boolean[newEnd - prefix];
+		for (int k = 0; k < matches.length; k += 2) {
+			oldKept[matches[k] - prefix] = true;
+			newKept[matches[k + 1] - prefix] = true;
+		}
+		int[] moveSources = findMoves(oldKept, newKept);
+		return createEntries(matches, moveSources);
+	}
+
+	/**
+	 * Returns the pairs of positions of a common subsequence of the differing
+	 * ranges, ascending.
+	 *
+	 * @return the old and new positions of the kept elements, alternately
+	 */
+	private int[] findCommonSubsequence() {
+		// the ascending positions of the elements in the old range
+		Map positions = new HashMap();
+		for (int i = prefix; i < oldEnd; i++) {
+			IntList list = (IntList) positions.get(oldElements[i]);
+			if (list == null) {
+				list = new IntList();
+				positions.put(oldElements[i], list);
+			}
+			list.add(i);
+		}
+		long pairs = 0;
+		for (int j = prefix; j < newEnd; j++) {
+			IntList list = (IntList) positions.get(newElements[j]);
+			if (list != null) {
+				pairs += list.size;
+			}
+		}
+		int length = Math.max(oldEnd, newEnd) - prefix;
+		if (pairs > (long) length * MAX_PAIRS_PER_ELEMENT) {
+			return findCommonSubsequenceGreedily(positions);
+		}
+
+		// tails[k] is the smallest old position ending a common subsequence
+		// of length k + 1, nodes[k] that subsequence
+		int[] tails = new int[Math.min(oldEnd, newEnd) - prefix];
+		Node[] nodes = new Node[tails.length];
+		int count = 0;
+		for (int j = prefix; j < newEnd; j++) {
+			IntList list = (IntList) positions.get(newElements[j]);
+			if (list == null) {
+				continue;
+			}
+			// descending, so that an element is matched at most once
+			for (int p = list.size - 1; p >= 0; p--) {
+				int i = list.items[p];
+				int k = lowerBound(tails, count, i);
+				if (k == count) {
+					count++;
+				} else if (tails[k] == i) {
+					continue;
+				}
+				tails[k] = i;
+				nodes[k] = new Node(i, j, k > 0 ? nodes[k - 1] : null);
+			}
+		}
+
+		int[] matches = new int[count * 2];
+		Node node = count > 0 ? nodes[count - 1] : null;
+		for (int k = count - 1; k >= 0; k--) {
+			matches[k * 2] = node.oldPosition;
+			matches[k * 2 + 1] = node.newPosition;
+			node = node.previous;
+		}
+		return matches;
+	}
+
+	/**
+	 * Returns the pairs of positions of a common subsequence found by
+	 * matching each new element with the next occurrence of the element in
+	 * the old range. This is linear but not necessarily longest.
+	 *
+	 * @param positions
+	 *            the ascending positions of the elements in the old range
+	 * @return the old and new positions of the kept elements, alternately
+	 */
+	private int[] findCommonSubsequenceGreedily(Map positions) {
+		IntList matches = new IntList();
+		int last = prefix - 1;
+		for (int j = prefix; j < newEnd; j++) {
+			IntList list = (IntList) positions.get(newElements[j]);
+			if (list == null) {
+				continue;
+			}
+			while (list.cursor < list.size && list.items[list.cursor] <= last) {
+				list.cursor++;
+			}
+			if (list.cursor < list.size) {
+				last = list.items[list.cursor++];
+				matches.add(last);
+				matches.add(j);
+			}
+		}
+		return matches.toArray();
+	}
+
+	/**
+	 * Pairs the removed elements with equal added elements.
+	 *
+	 * @param oldKept
+	 * @param newKept
+	 * @return the old position of the element moved to each position of the
+	 *         new range, or -1 for the elements which are not moved
+	 */
+	private int[] findMoves(boolean[] oldKept, boolean[] newKept) {
+		Map removed = new HashMap();
+		for (int i = prefix; i < oldEnd; i++) {
+			if (!oldKept[i - prefix]) {
+				IntList list = (IntList) removed.get(oldElements[i]);
+				if (list == null) {
+					list = new IntList();
+					removed.put(oldElements[i], list);
+				}
+				list.add(i);
+			}
+		}
+		int[] moveSources = new int[newEnd - prefix];
+		for (int j = prefix; j < newEnd; j++) {
+			moveSources[j - prefix] = -1;
+			if (!newKept[j - prefix]) {
+				IntList list = (IntList) removed.get(newElements[j]);
+				if (list != null && list.cursor < list.size) {
+					moveSources[j - prefix] = list.items[list.cursor++];
+				}
+			}
+		}
+		return moveSources;
+	}
+
+	/**
+	 * Creates the entries. Each gap between kept elements gets a slot for
+	 * its new elements followed by a slot for its old elements, in order, so
+	 * the position of an element is the number of present slots before its
+	 * own. The additions and removals of each gap come first, then the moves
+	 * in the order of their new positions.
+	 *
+	 * @param matches
+	 *            the positions of the kept elements
+	 * @param moveSources
+	 *            the old positions of the moved elements
+	 * @return the entries
+	 */
+	private ListDiffEntry[] createEntries(int[] matches, int[] moveSources) {
+		int[] oldSlots = new int[oldEnd - prefix];
+		int[] newSlots = new int[newEnd - prefix];
+		int slotCount = 0;
+		int i = prefix;
+		int j = prefix;
+		for (int k = 0; k <= matches.length; k += 2) {
+			int nextOld = k < matches.length ? matches[k] : oldEnd;
+			int nextNew = k < matches.length ? matches[k + 1] : newEnd;
+			for (; j < nextNew; j++) {
+				newSlots[j - prefix] = slotCount++;
+			}
+			for (; i < nextOld; i++) {
+				oldSlots[i - prefix] = slotCount++;
+			}
+			if (k < matches.length) {
+				oldSlots[i - prefix] = slotCount;
+				newSlots[j - prefix] = slotCount++;
+				i++;
+				j++;
+			}
+		}
+
+		// the old elements are present at first
+		PositionTree present = new PositionTree(slotCount);
+		for (i = 0; i < oldSlots.length; i++) {
+			present.set(oldSlots[i]);
+		}
+		present.build();
+
+		boolean[] moved = new boolean[oldEnd - prefix];
+		for (j = 0; j < moveSources.length; j++) {
+			if (moveSources[j] != -1) {
+				moved[moveSources[j] - prefix] = true;
+			}
+		}
+
+		int entryCount = (oldEnd - prefix) + (newEnd - prefix) - matches.length;
+		ListDiffEntry[] entries = new ListDiffEntry[entryCount];
+		int entry = 0;
+		i = prefix;
+		j = prefix;
+		for (int k = 0; k <= matches.length; k += 2) {
+			int nextOld = k < matches.length ? matches[k] : oldEnd;
+			int nextNew = k < matches.length ? matches[k + 1] : newEnd;
+			for (; j < nextNew; j++) {
+				if (moveSources[j - prefix] == -1) {
+					int slot = newSlots[j - prefix];
+					present.add(slot, 1);
+					entries[entry++] = Diffs.createListDiffEntry(prefix
+							+ present.countBefore(slot), true, newElements[j]);
+				}
+			}
+			for (; i < nextOld; i++) {
+				if (!moved[i - prefix]) {
+					int slot = oldSlots[i - prefix];
+					entries[entry++] = Diffs.createListDiffEntry(prefix
+							+ present.countBefore(slot), false, oldElements[i]);
+					present.add(slot, -1);
+				}
+			}
+			i++;
+			j++;
+		}
+
+		for (j = prefix; j < newEnd; j++) {
+			int source = moveSources[j - prefix];
+			if (source != -1) {
+				int slot = oldSlots[source - prefix];
+				entries[entry++] = Diffs.createListDiffEntry(prefix
+						+ present.countBefore(slot), false, oldElements[source]);
+				present.add(slot, -1);
+				slot = newSlots[j - prefix];
+				present.add(slot, 1);
+				entries[entry++] = Diffs.createListDiffEntry(prefix
+						+ present.countBefore(slot), true, newElements[j]);
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * Returns the index of the first of the count ascending values which is
+	 * not smaller than value.
+	 */
+	private static int lowerBound(int[] values, int count, int value) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (values[middle] < value) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * A pair of positions of equal elements ending a common subsequence.
+	 */
+	private static class Node {
+		final int oldPosition;
+
+		final int newPosition;
+
+		final Node previous;
+
+		Node(int oldPosition, int newPosition, Node previous) {
+			this.oldPosition = oldPosition;
+			this.newPosition = newPosition;
+			this.previous = previous;
+		}
+	}
+
+	/**
+	 * A growable list of ints with a read cursor.
+	 */
+	private static class IntList {
+		int[] items = new int[2];
+
+		int size;
+
+		int cursor;
+
+		void add(int item) {
+			if (size == items.length) {
+				int[] grown = new int[size * 2];
+				System.arraycopy(items, 0, grown, 0, size);
+				items = grown;
+			}
+			items[size++] = item;
+		}
+
+		int[] toArray() {
+			int[] result = new int[size];
+			System.arraycopy(items, 0, result, 0, size);
+			return result;
+		}
+	}
+
+	/**
+	 * A Fenwick tree counting the present slots.
+	 */
+	private static class PositionTree {
+		private final int[] tree;
+
+		PositionTree(int size) {
+			tree = new int[size + 1];
+		}
+
+		/**
+		 * Marks the slot present before {@link #build()}.
+		 */
+		void set(int slot) {
+			tree[slot + 1] = 1;
+		}
+
+		/**
+		 * Turns the marks into the tree, in linear time.
+		 */
+		void build() {
+			for (int i = 1; i < tree.length; i++) {
+				int parent = i + (i & -i);
+				if (parent < tree.length) {
+					tree[parent] += tree[i];
+				}
+			}
+		}
+
+		void add(int slot, int delta) {
+			for (int i = slot + 1; i < tree.length; i += i & -i) {
+				tree[i] += delta;
+			}
+		}
+
+		/**
+		 * Returns the number of present slots before the slot.
+		 */
+		int countBefore(int slot) {
+			int count = 0;
+			for (int i = slot; i > 0; i -= i & -i) {
+				count += tree[i];
+			}
+			return count;
+		}
+	}
+}
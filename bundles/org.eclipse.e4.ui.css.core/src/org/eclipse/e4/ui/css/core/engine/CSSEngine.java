@@ -221,6 +221,36 @@ public interface CSSEngine {
 	public void applyStyles(Object node, boolean applyStylesToChildNodes,
 			boolean computeDefaultStyle);
 
+	/**
+	 * Apply styles to the Object node after its CSS class, id, attributes or
+	 * pseudo class state changed. Only the properties whose values changed are
+	 * applied, and the child nodes are only restyled when the change can
+	 * modify the rules they match. If the styles applied before to the node
+	 * are unknown, this method behaves like
+	 * {@link #applyStyles(Object, boolean)} with child nodes.
+	 * 
+	 * @param node
+	 */
+	public void applyChangedStyles(Object node);
+
+	/**
+	 * Enable or disable the parallel style computation. When enabled,
+	 * {@link #applyStyles(Object, boolean)} with child nodes snapshots the
+	 * tree of elements, computes the styles of the nodes on several threads
+	 * and then applies them on the calling thread. Disabled by default.
+	 *
+	 * @param parallelStyleComputation
+	 */
+	public void setParallelStyleComputation(boolean parallelStyleComputation);
+
+	/**
+	 * Return true if the styles of a tree of elements are computed on several
+	 * threads.
+	 *
+	 * @return
+	 */
+	public boolean isParallelStyleComputation();
+
 	/*--------------- Apply style declaration -----------------*/
 
 	/**
@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.dom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.e4.ui.css.core.dom.CSSStylableElement;
+import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
+import org.eclipse.e4.ui.css.core.impl.sac.AbstractCombinatorCondition;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSAndConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSClassConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSElementSelectorImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSIdConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.ExtendedSelector;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.DescendantSelector;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.css.sac.SiblingSelector;
+import org.w3c.dom.Element;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSStyleRule;
+import org.w3c.dom.css.CSSStyleSheet;
+
+/**
+ * Index of the {@link ExtendedSelector}s of a {@link CSSStyleSheet}. Each
+ * selector is stored in exactly one bucket, chosen from its rightmost simple
+ * selector: the id if it has one, otherwise a CSS class, otherwise the element
+ * local name. Selectors without any of these (ex : <code>*</code>,
+ * <code>:selected</code>) are kept in the universal bucket.
+ * <p>
+ * {@link #getCandidates(Element)} only returns selectors which may match the
+ * element, in stylesheet order, so the cascade computed from the candidates is
+ * the same as the one computed by a full scan of the rule list.
+ * </p>
+ */
+public class CSSRuleIndex {
+
+	/**
+	 * A selector of the stylesheet together with the declaration of the rule
+	 * it belongs to and its position in the stylesheet.
+	 */
+	public static final class Entry {
+
+		public final ExtendedSelector selector;
+		public final CSSStyleDeclaration style;
+		public final int order;
+
+		Entry(ExtendedSelector selector, CSSStyleDeclaration style, int order) {
+			this.selector = selector;
+			this.style = style;
+			this.order = order;
+		}
+	}
+
+	private static final Comparator<Entry> ORDER_COMPARATOR = new Comparator<Entry>() {
+		public int compare(Entry entry1, Entry entry2) {
+			return entry1.order < entry2.order ? -1
+					: (entry1.order == entry2.order ? 0 : 1);
+		}
+	};
+
+	private final CSSRuleList ruleList;
+
+	private final int ruleCount;
+
+	private final Map<String, List<Entry>> idBuckets = new HashMap<String, List<Entry>>();
+
+	private final Map<String, List<Entry>> classBuckets = new HashMap<String, List<Entry>>();
+
+	private final Map<String, List<Entry>> typeBuckets = new HashMap<String, List<Entry>>();
+
+	private final List<Entry> universalBucket = new ArrayList<Entry>();
+
+	private final List<Entry> entries = new ArrayList<Entry>();
+
+	public CSSRuleIndex(CSSStyleSheet styleSheet) {
+		this.ruleList = styleSheet.getCssRules();
+		this.ruleCount = ruleList != null ? ruleList.getLength() : 0;
+		int order = 0;
+		for (int i = 0; i < ruleCount; i++) {
+			CSSRule rule = ruleList.item(i);
+			if (rule.getType() != CSSRule.STYLE_RULE
+					|| !(rule instanceof ExtendedCSSRule)) {
+				continue;
+			}
+			CSSStyleDeclaration style = ((CSSStyleRule) rule).getStyle();
+			SelectorList selectorList = ((ExtendedCSSRule) rule)
+					.getSelectorList();
+			int l = selectorList.getLength();
+			for (int j = 0; j < l; j++) {
+				Selector selector = selectorList.item(j);
+				if (selector instanceof ExtendedSelector) {
+					Entry entry = new Entry((ExtendedSelector) selector, style,
+							order++);
+					entries.add(entry);
+					addEntry(selector, entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return true if this index was built from the current rules of
+	 * <code>styleSheet</code> and false otherwise.
+	 *
+	 * @param styleSheet
+	 * @return
+	 */
+	public boolean isValid(CSSStyleSheet styleSheet) {
+		CSSRuleList rules = styleSheet.getCssRules();
+		return rules == ruleList
+				&& (rules == null ? 0 : rules.getLength()) == ruleCount;
+	}
+
+	/**
+	 * Return all the indexed selectors, in stylesheet order.
+	 *
+	 * @return
+	 */
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Return the selectors which may match <code>element</code>, in
+	 * stylesheet order. The returned selectors must still be matched against
+	 * the element.
+	 *
+	 * @param element
+	 * @return
+	 */
+	public List<Entry> getCandidates(Element element) {
+		List<Entry> candidates = new ArrayList<Entry>(universalBucket);
+		int bucketCount = universalBucket.isEmpty() ? 0 : 1;
+		bucketCount += addAll(candidates, typeBuckets.get(getLocalName(element)));
+		String id = getId(element);
+		if (id != null && id.length() > 0) {
+			bucketCount += addAll(candidates, idBuckets.get(id));
+		}
+		if (!classBuckets.isEmpty()) {
+			String[] classes = getClasses(element);
+			for (int i = 0; i < classes.length; i++) {
+				bucketCount += addAll(candidates, classBuckets.get(classes[i]));
+			}
+		}
+		if (bucketCount > 1) {
+			// several buckets were merged, restore the stylesheet order
+			Collections.sort(candidates, ORDER_COMPARATOR);
+		}
+		return candidates;
+	}
+
+	private static int addAll(List<Entry> candidates, List<Entry> bucket) {
+		if (bucket == null || bucket.isEmpty())
+			return 0;
+		candidates.addAll(bucket);
+		return 1;
+	}
+
+	private void addEntry(Selector selector, Entry entry) {
+		Selector rightmost = getRightmostSelector(selector);
+		if (rightmost instanceof ConditionalSelector) {
+			ConditionalSelector conditionalSelector = (ConditionalSelector) rightmost;
+			Condition condition = conditionalSelector.getCondition();
+			String id = findConditionValue(condition, true);
+			if (id != null) {
+				addToBucket(idBuckets, id, entry);
+				return;
+			}
+			String className = findConditionValue(condition, false);
+			if (className != null) {
+				addToBucket(classBuckets, className, entry);
+				return;
+			}
+			rightmost = conditionalSelector.getSimpleSelector();
+		}
+		if (rightmost instanceof CSSElementSelectorImpl) {
+			String localName = ((CSSElementSelectorImpl) rightmost)
+					.getLocalName();
+			if (localName != null) {
+				addToBucket(typeBuckets, localName, entry);
+				return;
+			}
+		}
+		universalBucket.add(entry);
+	}
+
+	private static void addToBucket(Map<String, List<Entry>> buckets,
+			String key, Entry entry) {
+		List<Entry> bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = new ArrayList<Entry>(2);
+			buckets.put(key, bucket);
+		}
+		bucket.add(entry);
+	}
+
+	/**
+	 * Return the simple selector which is matched against the element itself
+	 * (ex : <code>CTabItem</code> for <code>CTabFolder > CTabItem</code>).
+	 */
+	static Selector getRightmostSelector(Selector selector) {
+		if (selector instanceof DescendantSelector) {
+			return ((DescendantSelector) selector).getSimpleSelector();
+		}
+		if (selector instanceof SiblingSelector) {
+			return ((SiblingSelector) selector).getSiblingSelector();
+		}
+		return selector;
+	}
+
+	/**
+	 * Return the value of an id (or class) condition which is required by
+	 * <code>condition</code>, or null if there is none.
+	 */
+	private static String findConditionValue(Condition condition, boolean id) {
+		if (id && condition instanceof CSSIdConditionImpl) {
+			return ((CSSIdConditionImpl) condition).getValue();
+		}
+		if (!id && condition instanceof CSSClassConditionImpl) {
+			return ((CSSClassConditionImpl) condition).getValue();
+		}
+		if (condition instanceof CSSAndConditionImpl) {
+			AbstractCombinatorCondition andCondition = (AbstractCombinatorCondition) condition;
+			String value = findConditionValue(andCondition.getFirstCondition(),
+					id);
+			if (value == null) {
+				value = findConditionValue(andCondition.getSecondCondition(),
+						id);
+			}
+			return value;
+		}
+		return null;
+	}
+
+	/**
+	 * Return the name used by {@link CSSElementSelectorImpl} to match the
+	 * element.
+	 */
+	public static String getLocalName(Element element) {
+		if (element.getPrefix() == null)
+			return element.getNodeName();
+		return element.getLocalName();
+	}
+
+	/**
+	 * Return the id used by {@link CSSIdConditionImpl} to match the element.
+	 */
+	public static String getId(Element element) {
+		if (element instanceof CSSStylableElement)
+			return ((CSSStylableElement) element).getCSSId();
+		return element.getAttribute("id");
+	}
+
+	/**
+	 * Split the CSS class of the element the same way
+	 * {@link CSSClassConditionImpl} does.
+	 */
+	public static String[] getClasses(Element element) {
+		String attr;
+		if (element instanceof CSSStylableElement)
+			attr = ((CSSStylableElement) element).getCSSClass();
+		else
+			attr = element.getAttribute("class");
+		if (attr == null || attr.length() == 0)
+			return new String[0];
+		List<String> classes = new ArrayList<String>(2);
+		int length = attr.length();
+		int start = -1;
+		for (int i = 0; i <= length; i++) {
+			boolean separator = i == length
+					|| Character.isSpaceChar(attr.charAt(i));
+			if (separator) {
+				if (start != -1) {
+					String className = attr.substring(start, i);
+					if (!classes.contains(className))
+						classes.add(className);
+					start = -1;
+				}
+			} else if (start == -1) {
+				start = i;
+			}
+		}
+		return classes.toArray(new String[classes.size()]);
+	}
+}
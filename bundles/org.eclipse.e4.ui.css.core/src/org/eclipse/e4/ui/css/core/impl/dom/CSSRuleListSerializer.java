@@ -0,0 +1,591 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.dom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.e4.ui.css.core.dom.CSSProperty;
+import org.eclipse.e4.ui.css.core.dom.CSSPropertyList;
+import org.w3c.css.sac.AttributeCondition;
+import org.w3c.css.sac.CombinatorCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionFactory;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.DescendantSelector;
+import org.w3c.css.sac.ElementSelector;
+import org.w3c.css.sac.LangCondition;
+import org.w3c.css.sac.LexicalUnit;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorFactory;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.css.sac.SiblingSelector;
+import org.w3c.css.sac.SimpleSelector;
+import org.w3c.dom.css.CSSPrimitiveValue;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleSheet;
+import org.w3c.dom.css.CSSValue;
+
+/**
+ * Binary serializer of the style rules parsed by the SAC parser. Reading a
+ * serialized {@link CSSRuleList} builds the same selectors (with the SAC
+ * factories of the parser) and the same CSS values as parsing the style sheet
+ * again, without lexing the CSS text.
+ * <p>
+ * Only style rules are supported. {@link #write(CSSRuleList, DataOutput)}
+ * throws an {@link IOException} if the rule list contains anything else.
+ * </p>
+ */
+public class CSSRuleListSerializer {
+
+	private static final int VERSION = 1;
+
+	/*--------------- Write -----------------*/
+
+	/**
+	 * Write the style rules of <code>rules</code> to <code>out</code>.
+	 *
+	 * @param rules
+	 * @param out
+	 * @throws IOException
+	 *             if a rule, selector or value can not be serialized.
+	 */
+	public static void write(CSSRuleList rules, DataOutput out)
+			throws IOException {
+		out.writeInt(VERSION);
+		int length = rules.getLength();
+		out.writeInt(length);
+		for (int i = 0; i < length; i++) {
+			CSSRule rule = rules.item(i);
+			if (!(rule instanceof CSSStyleRuleImpl)) {
+				throw new IOException("Unsupported rule type: "
+						+ rule.getType());
+			}
+			CSSStyleRuleImpl styleRule = (CSSStyleRuleImpl) rule;
+			SelectorList selectors = styleRule.getSelectorList();
+			out.writeInt(selectors.getLength());
+			for (int j = 0; j < selectors.getLength(); j++) {
+				writeSelector(selectors.item(j), out);
+			}
+			CSSPropertyList properties = ((CSSStyleDeclarationImpl) styleRule
+					.getStyle()).getCSSPropertyList();
+			out.writeInt(properties.getLength());
+			for (int j = 0; j < properties.getLength(); j++) {
+				CSSProperty property = properties.item(j);
+				out.writeUTF(property.getName());
+				out.writeBoolean(property.isImportant());
+				writeValue(property.getValue(), out);
+			}
+		}
+	}
+
+	private static void writeSelector(Selector selector, DataOutput out)
+			throws IOException {
+		short type = selector.getSelectorType();
+		out.writeShort(type);
+		switch (type) {
+		case Selector.SAC_CONDITIONAL_SELECTOR:
+			ConditionalSelector conditionalSelector = (ConditionalSelector) selector;
+			writeSelector(conditionalSelector.getSimpleSelector(), out);
+			writeCondition(conditionalSelector.getCondition(), out);
+			break;
+		case Selector.SAC_ANY_NODE_SELECTOR:
+		case Selector.SAC_ROOT_NODE_SELECTOR:
+			break;
+		case Selector.SAC_ELEMENT_NODE_SELECTOR:
+		case Selector.SAC_PSEUDO_ELEMENT_SELECTOR:
+			ElementSelector elementSelector = (ElementSelector) selector;
+			writeString(elementSelector.getNamespaceURI(), out);
+			writeString(elementSelector.getLocalName(), out);
+			break;
+		case Selector.SAC_DESCENDANT_SELECTOR:
+		case Selector.SAC_CHILD_SELECTOR:
+			DescendantSelector descendantSelector = (DescendantSelector) selector;
+			writeSelector(descendantSelector.getAncestorSelector(), out);
+			writeSelector(descendantSelector.getSimpleSelector(), out);
+			break;
+		case Selector.SAC_DIRECT_ADJACENT_SELECTOR:
+			SiblingSelector siblingSelector = (SiblingSelector) selector;
+			out.writeShort(siblingSelector.getNodeType());
+			writeSelector(siblingSelector.getSelector(), out);
+			writeSelector(siblingSelector.getSiblingSelector(), out);
+			break;
+		default:
+			throw new IOException("Unsupported selector type: " + type);
+		}
+	}
+
+	private static void writeCondition(Condition condition, DataOutput out)
+			throws IOException {
+		short type = condition.getConditionType();
+		out.writeShort(type);
+		switch (type) {
+		case Condition.SAC_AND_CONDITION:
+		case Condition.SAC_OR_CONDITION:
+			CombinatorCondition combinatorCondition = (CombinatorCondition) condition;
+			writeCondition(combinatorCondition.getFirstCondition(), out);
+			writeCondition(combinatorCondition.getSecondCondition(), out);
+			break;
+		case Condition.SAC_ATTRIBUTE_CONDITION:
+		case Condition.SAC_ONE_OF_ATTRIBUTE_CONDITION:
+		case Condition.SAC_BEGIN_HYPHEN_ATTRIBUTE_CONDITION:
+		case Condition.SAC_ID_CONDITION:
+		case Condition.SAC_CLASS_CONDITION:
+		case Condition.SAC_PSEUDO_CLASS_CONDITION:
+			AttributeCondition attributeCondition = (AttributeCondition) condition;
+			writeString(attributeCondition.getLocalName(), out);
+			writeString(attributeCondition.getNamespaceURI(), out);
+			out.writeBoolean(attributeCondition.getSpecified());
+			writeString(attributeCondition.getValue(), out);
+			break;
+		case Condition.SAC_LANG_CONDITION:
+			writeString(((LangCondition) condition).getLang(), out);
+			break;
+		default:
+			throw new IOException("Unsupported condition type: " + type);
+		}
+	}
+
+	/**
+	 * Write the lexical units <code>value</code> was created from (see
+	 * {@link CSSValueFactory#newValue(LexicalUnit)}).
+	 */
+	private static void writeValue(CSSValue value, DataOutput out)
+			throws IOException {
+		if (value instanceof CSSValueListImpl) {
+			CSSValueListImpl list = (CSSValueListImpl) value;
+			out.writeInt(list.getLength());
+			for (int i = 0; i < list.getLength(); i++) {
+				writePrimitiveValue(list.item(i), out);
+			}
+		} else {
+			out.writeInt(1);
+			writePrimitiveValue(value, out);
+		}
+	}
+
+	private static void writePrimitiveValue(CSSValue value, DataOutput out)
+			throws IOException {
+		if (value instanceof Measure) {
+			writeLexicalUnit(((Measure) value).value, out);
+		} else if (value instanceof RGBColorImpl) {
+			// RGBColorImpl only keeps the color components
+			RGBColorImpl color = (RGBColorImpl) value;
+			out.writeShort(LexicalUnit.SAC_RGBCOLOR);
+			writeString("rgb", out);
+			out.writeInt(5);
+			writeColorComponent(color.getRed(), out);
+			out.writeShort(LexicalUnit.SAC_OPERATOR_COMMA);
+			writeColorComponent(color.getGreen(), out);
+			out.writeShort(LexicalUnit.SAC_OPERATOR_COMMA);
+			writeColorComponent(color.getBlue(), out);
+		} else {
+			throw new IOException("Unsupported value: "
+					+ (value != null ? value.getClass().getName() : null));
+		}
+	}
+
+	private static void writeColorComponent(CSSPrimitiveValue component,
+			DataOutput out) throws IOException {
+		if (!(component instanceof Measure)) {
+			throw new IOException("Unsupported color component");
+		}
+		writeLexicalUnit(((Measure) component).value, out);
+	}
+
+	private static void writeLexicalUnit(LexicalUnit unit, DataOutput out)
+			throws IOException {
+		short type = unit.getLexicalUnitType();
+		out.writeShort(type);
+		switch (type) {
+		case LexicalUnit.SAC_OPERATOR_COMMA:
+		case LexicalUnit.SAC_OPERATOR_PLUS:
+		case LexicalUnit.SAC_OPERATOR_MINUS:
+		case LexicalUnit.SAC_OPERATOR_MULTIPLY:
+		case LexicalUnit.SAC_OPERATOR_SLASH:
+		case LexicalUnit.SAC_OPERATOR_MOD:
+		case LexicalUnit.SAC_OPERATOR_EXP:
+		case LexicalUnit.SAC_OPERATOR_LT:
+		case LexicalUnit.SAC_OPERATOR_GT:
+		case LexicalUnit.SAC_OPERATOR_LE:
+		case LexicalUnit.SAC_OPERATOR_GE:
+		case LexicalUnit.SAC_OPERATOR_TILDE:
+		case LexicalUnit.SAC_INHERIT:
+			break;
+		case LexicalUnit.SAC_INTEGER:
+			out.writeInt(unit.getIntegerValue());
+			break;
+		case LexicalUnit.SAC_REAL:
+		case LexicalUnit.SAC_EM:
+		case LexicalUnit.SAC_EX:
+		case LexicalUnit.SAC_PIXEL:
+		case LexicalUnit.SAC_INCH:
+		case LexicalUnit.SAC_CENTIMETER:
+		case LexicalUnit.SAC_MILLIMETER:
+		case LexicalUnit.SAC_POINT:
+		case LexicalUnit.SAC_PICA:
+		case LexicalUnit.SAC_PERCENTAGE:
+		case LexicalUnit.SAC_DEGREE:
+		case LexicalUnit.SAC_GRADIAN:
+		case LexicalUnit.SAC_RADIAN:
+		case LexicalUnit.SAC_MILLISECOND:
+		case LexicalUnit.SAC_SECOND:
+		case LexicalUnit.SAC_HERTZ:
+		case LexicalUnit.SAC_KILOHERTZ:
+		case LexicalUnit.SAC_DIMENSION:
+			out.writeFloat(unit.getFloatValue());
+			writeString(unit.getDimensionUnitText(), out);
+			break;
+		case LexicalUnit.SAC_URI:
+		case LexicalUnit.SAC_IDENT:
+		case LexicalUnit.SAC_STRING_VALUE:
+		case LexicalUnit.SAC_ATTR:
+		case LexicalUnit.SAC_UNICODERANGE:
+			writeString(unit.getStringValue(), out);
+			break;
+		case LexicalUnit.SAC_COUNTER_FUNCTION:
+		case LexicalUnit.SAC_COUNTERS_FUNCTION:
+		case LexicalUnit.SAC_RGBCOLOR:
+		case LexicalUnit.SAC_RECT_FUNCTION:
+		case LexicalUnit.SAC_FUNCTION:
+			writeString(unit.getFunctionName(), out);
+			List<LexicalUnit> parameters = new ArrayList<LexicalUnit>();
+			for (LexicalUnit parameter = unit.getParameters(); parameter != null; parameter = parameter
+					.getNextLexicalUnit()) {
+				parameters.add(parameter);
+			}
+			out.writeInt(parameters.size());
+			for (int i = 0; i < parameters.size(); i++) {
+				writeLexicalUnit(parameters.get(i), out);
+			}
+			break;
+		default:
+			throw new IOException("Unsupported lexical unit type: " + type);
+		}
+	}
+
+	private static void writeString(String value, DataOutput out)
+			throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null)
+			out.writeUTF(value);
+	}
+
+	/*--------------- Read -----------------*/
+
+	/**
+	 * Read style rules written by {@link #write(CSSRuleList, DataOutput)}.
+	 * The selectors are created with <code>selectorFactory</code> and
+	 * <code>conditionFactory</code>.
+	 *
+	 * @param in
+	 * @param parentStyleSheet
+	 * @param selectorFactory
+	 * @param conditionFactory
+	 * @return
+	 * @throws IOException
+	 *             if the data can not be read.
+	 */
+	public static CSSRuleList read(DataInput in,
+			CSSStyleSheet parentStyleSheet, SelectorFactory selectorFactory,
+			ConditionFactory conditionFactory) throws IOException {
+		if (in.readInt() != VERSION) {
+			throw new IOException("Unsupported version");
+		}
+		CSSRuleListImpl rules = new CSSRuleListImpl();
+		int length = in.readInt();
+		for (int i = 0; i < length; i++) {
+			int selectorCount = in.readInt();
+			SelectorListImpl selectors = new SelectorListImpl(selectorCount);
+			for (int j = 0; j < selectorCount; j++) {
+				selectors.selectors.add(readSelector(in, selectorFactory,
+						conditionFactory));
+			}
+			CSSStyleRuleImpl rule = new CSSStyleRuleImpl(parentStyleSheet,
+					null, selectors);
+			CSSStyleDeclarationImpl style = new CSSStyleDeclarationImpl(rule);
+			rule.setStyle(style);
+			int propertyCount = in.readInt();
+			for (int j = 0; j < propertyCount; j++) {
+				String name = in.readUTF();
+				boolean important = in.readBoolean();
+				style.addProperty(new CSSPropertyImpl(name, CSSValueFactory
+						.newValue(readLexicalUnits(in)), important));
+			}
+			rules.add(rule);
+		}
+		return rules;
+	}
+
+	private static Selector readSelector(DataInput in,
+			SelectorFactory selectorFactory, ConditionFactory conditionFactory)
+			throws IOException {
+		short type = in.readShort();
+		switch (type) {
+		case Selector.SAC_CONDITIONAL_SELECTOR:
+			SimpleSelector simpleSelector = (SimpleSelector) readSelector(in,
+					selectorFactory, conditionFactory);
+			return selectorFactory.createConditionalSelector(simpleSelector,
+					readCondition(in, conditionFactory));
+		case Selector.SAC_ANY_NODE_SELECTOR:
+			return selectorFactory.createAnyNodeSelector();
+		case Selector.SAC_ROOT_NODE_SELECTOR:
+			return selectorFactory.createRootNodeSelector();
+		case Selector.SAC_ELEMENT_NODE_SELECTOR:
+			return selectorFactory.createElementSelector(readString(in),
+					readString(in));
+		case Selector.SAC_PSEUDO_ELEMENT_SELECTOR:
+			return selectorFactory.createPseudoElementSelector(readString(in),
+					readString(in));
+		case Selector.SAC_DESCENDANT_SELECTOR:
+		case Selector.SAC_CHILD_SELECTOR:
+			Selector ancestor = readSelector(in, selectorFactory,
+					conditionFactory);
+			SimpleSelector descendant = (SimpleSelector) readSelector(in,
+					selectorFactory, conditionFactory);
+			if (type == Selector.SAC_CHILD_SELECTOR)
+				return selectorFactory.createChildSelector(ancestor, descendant);
+			return selectorFactory.createDescendantSelector(ancestor,
+					descendant);
+		case Selector.SAC_DIRECT_ADJACENT_SELECTOR:
+			short nodeType = in.readShort();
+			Selector child = readSelector(in, selectorFactory,
+					conditionFactory);
+			SimpleSelector directAdjacent = (SimpleSelector) readSelector(in,
+					selectorFactory, conditionFactory);
+			return selectorFactory.createDirectAdjacentSelector(nodeType,
+					child, directAdjacent);
+		default:
+			throw new IOException("Unsupported selector type: " + type);
+		}
+	}
+
+	private static Condition readCondition(DataInput in,
+			ConditionFactory conditionFactory) throws IOException {
+		short type = in.readShort();
+		switch (type) {
+		case Condition.SAC_AND_CONDITION:
+		case Condition.SAC_OR_CONDITION:
+			Condition first = readCondition(in, conditionFactory);
+			Condition second = readCondition(in, conditionFactory);
+			if (type == Condition.SAC_OR_CONDITION)
+				return conditionFactory.createOrCondition(first, second);
+			return conditionFactory.createAndCondition(first, second);
+		case Condition.SAC_ATTRIBUTE_CONDITION:
+		case Condition.SAC_ONE_OF_ATTRIBUTE_CONDITION:
+		case Condition.SAC_BEGIN_HYPHEN_ATTRIBUTE_CONDITION:
+		case Condition.SAC_ID_CONDITION:
+		case Condition.SAC_CLASS_CONDITION:
+		case Condition.SAC_PSEUDO_CLASS_CONDITION:
+			String localName = readString(in);
+			String namespaceURI = readString(in);
+			boolean specified = in.readBoolean();
+			String value = readString(in);
+			switch (type) {
+			case Condition.SAC_ONE_OF_ATTRIBUTE_CONDITION:
+				return conditionFactory.createOneOfAttributeCondition(
+						localName, namespaceURI, specified, value);
+			case Condition.SAC_BEGIN_HYPHEN_ATTRIBUTE_CONDITION:
+				return conditionFactory.createBeginHyphenAttributeCondition(
+						localName, namespaceURI, specified, value);
+			case Condition.SAC_ID_CONDITION:
+				return conditionFactory.createIdCondition(value);
+			case Condition.SAC_CLASS_CONDITION:
+				return conditionFactory.createClassCondition(namespaceURI,
+						value);
+			case Condition.SAC_PSEUDO_CLASS_CONDITION:
+				return conditionFactory.createPseudoClassCondition(
+						namespaceURI, value);
+			default:
+				return conditionFactory.createAttributeCondition(localName,
+						namespaceURI, specified, value);
+			}
+		case Condition.SAC_LANG_CONDITION:
+			return conditionFactory.createLangCondition(readString(in));
+		default:
+			throw new IOException("Unsupported condition type: " + type);
+		}
+	}
+
+	/**
+	 * Read a chain of lexical units and return its first unit.
+	 */
+	private static LexicalUnit readLexicalUnits(DataInput in)
+			throws IOException {
+		int length = in.readInt();
+		LexicalUnitImpl first = null;
+		LexicalUnitImpl previous = null;
+		for (int i = 0; i < length; i++) {
+			LexicalUnitImpl unit = readLexicalUnit(in);
+			if (previous == null) {
+				first = unit;
+			} else {
+				previous.next = unit;
+				unit.previous = previous;
+			}
+			previous = unit;
+		}
+		if (first == null) {
+			throw new IOException("Empty value");
+		}
+		return first;
+	}
+
+	private static LexicalUnitImpl readLexicalUnit(DataInput in)
+			throws IOException {
+		LexicalUnitImpl unit = new LexicalUnitImpl(in.readShort());
+		switch (unit.type) {
+		case LexicalUnit.SAC_OPERATOR_COMMA:
+		case LexicalUnit.SAC_OPERATOR_PLUS:
+		case LexicalUnit.SAC_OPERATOR_MINUS:
+		case LexicalUnit.SAC_OPERATOR_MULTIPLY:
+		case LexicalUnit.SAC_OPERATOR_SLASH:
+		case LexicalUnit.SAC_OPERATOR_MOD:
+		case LexicalUnit.SAC_OPERATOR_EXP:
+		case LexicalUnit.SAC_OPERATOR_LT:
+		case LexicalUnit.SAC_OPERATOR_GT:
+		case LexicalUnit.SAC_OPERATOR_LE:
+		case LexicalUnit.SAC_OPERATOR_GE:
+		case LexicalUnit.SAC_OPERATOR_TILDE:
+		case LexicalUnit.SAC_INHERIT:
+			break;
+		case LexicalUnit.SAC_INTEGER:
+			unit.integerValue = in.readInt();
+			break;
+		case LexicalUnit.SAC_REAL:
+		case LexicalUnit.SAC_EM:
+		case LexicalUnit.SAC_EX:
+		case LexicalUnit.SAC_PIXEL:
+		case LexicalUnit.SAC_INCH:
+		case LexicalUnit.SAC_CENTIMETER:
+		case LexicalUnit.SAC_MILLIMETER:
+		case LexicalUnit.SAC_POINT:
+		case LexicalUnit.SAC_PICA:
+		case LexicalUnit.SAC_PERCENTAGE:
+		case LexicalUnit.SAC_DEGREE:
+		case LexicalUnit.SAC_GRADIAN:
+		case LexicalUnit.SAC_RADIAN:
+		case LexicalUnit.SAC_MILLISECOND:
+		case LexicalUnit.SAC_SECOND:
+		case LexicalUnit.SAC_HERTZ:
+		case LexicalUnit.SAC_KILOHERTZ:
+		case LexicalUnit.SAC_DIMENSION:
+			unit.floatValue = in.readFloat();
+			unit.dimensionUnitText = readString(in);
+			break;
+		case LexicalUnit.SAC_URI:
+		case LexicalUnit.SAC_IDENT:
+		case LexicalUnit.SAC_STRING_VALUE:
+		case LexicalUnit.SAC_ATTR:
+		case LexicalUnit.SAC_UNICODERANGE:
+			unit.stringValue = readString(in);
+			break;
+		case LexicalUnit.SAC_COUNTER_FUNCTION:
+		case LexicalUnit.SAC_COUNTERS_FUNCTION:
+		case LexicalUnit.SAC_RGBCOLOR:
+		case LexicalUnit.SAC_RECT_FUNCTION:
+		case LexicalUnit.SAC_FUNCTION:
+			unit.functionName = readString(in);
+			unit.parameters = readLexicalUnits(in);
+			break;
+		default:
+			throw new IOException("Unsupported lexical unit type: "
+					+ unit.type);
+		}
+		return unit;
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	/*--------------- SAC implementations -----------------*/
+
+	private static class SelectorListImpl implements SelectorList {
+
+		private final List<Selector> selectors;
+
+		SelectorListImpl(int length) {
+			selectors = new ArrayList<Selector>(length);
+		}
+
+		public int getLength() {
+			return selectors.size();
+		}
+
+		public Selector item(int index) {
+			if (index < 0 || index >= selectors.size())
+				return null;
+			return selectors.get(index);
+		}
+	}
+
+	private static class LexicalUnitImpl implements LexicalUnit {
+
+		private final short type;
+		private LexicalUnit next;
+		private LexicalUnit previous;
+		private int integerValue;
+		private float floatValue;
+		private String dimensionUnitText;
+		private String stringValue;
+		private String functionName;
+		private LexicalUnit parameters;
+
+		LexicalUnitImpl(short type) {
+			this.type = type;
+		}
+
+		public short getLexicalUnitType() {
+			return type;
+		}
+
+		public LexicalUnit getNextLexicalUnit() {
+			return next;
+		}
+
+		public LexicalUnit getPreviousLexicalUnit() {
+			return previous;
+		}
+
+		public int getIntegerValue() {
+			return integerValue;
+		}
+
+		public float getFloatValue() {
+			return floatValue;
+		}
+
+		public String getDimensionUnitText() {
+			return dimensionUnitText;
+		}
+
+		public String getFunctionName() {
+			return functionName;
+		}
+
+		public LexicalUnit getParameters() {
+			return parameters;
+		}
+
+		public String getStringValue() {
+			return stringValue;
+		}
+
+		public LexicalUnit getSubValues() {
+			return null;
+		}
+	}
+}
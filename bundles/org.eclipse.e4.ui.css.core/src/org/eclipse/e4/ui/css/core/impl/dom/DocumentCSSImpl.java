@@ -42,6 +42,11 @@ public class DocumentCSSImpl implements ExtendedDocumentCSS {
 	 */
 	private Map styleDeclarationMap = null;
 
+	/**
+	 * key=CSSStyleSheet, value = CSSRuleIndex
+	 */
+	private Map<CSSStyleSheet, CSSRuleIndex> ruleIndexes = new HashMap<CSSStyleSheet, CSSRuleIndex>();
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.w3c.dom.stylesheets.DocumentStyle#getStyleSheets()
@@ -64,6 +69,10 @@ public class DocumentCSSImpl implements ExtendedDocumentCSS {
 	 */
 	public void addStyleSheet(StyleSheet styleSheet) {
 		styleSheetList.addStyleSheet(styleSheet);
+		if (styleSheet instanceof CSSStyleSheet) {
+			CSSStyleSheet cssStyleSheet = (CSSStyleSheet) styleSheet;
+			ruleIndexes.put(cssStyleSheet, new CSSRuleIndex(cssStyleSheet));
+		}
 	}
 
 	/*
@@ -73,6 +82,23 @@ public class DocumentCSSImpl implements ExtendedDocumentCSS {
 	public void removeAllStyleSheets() {
 		styleSheetList.removeAllStyleSheets();
 		this.styleDeclarationMap = null;
+		ruleIndexes.clear();
+	}
+
+	/**
+	 * Return the {@link CSSRuleIndex} of <code>styleSheet</code>. The index is
+	 * rebuilt if the rules of the style sheet changed since it was computed.
+	 * 
+	 * @param styleSheet
+	 * @return
+	 */
+	public CSSRuleIndex getRuleIndex(CSSStyleSheet styleSheet) {
+		CSSRuleIndex index = ruleIndexes.get(styleSheet);
+		if (index == null || !index.isValid(styleSheet)) {
+			index = new CSSRuleIndex(styleSheet);
+			ruleIndexes.put(styleSheet, index);
+		}
+		return index;
 	}
 
 	public List queryConditionSelector(int conditionType) {
@@ -12,17 +12,12 @@
 package org.eclipse.e4.ui.css.core.impl.dom;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
-import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
 import org.eclipse.e4.ui.css.core.impl.sac.ExtendedSelector;
-import org.w3c.css.sac.Selector;
-import org.w3c.css.sac.SelectorList;
 import org.w3c.dom.Element;
-import org.w3c.dom.css.CSSRule;
-import org.w3c.dom.css.CSSRuleList;
 import org.w3c.dom.css.CSSStyleDeclaration;
-import org.w3c.dom.css.CSSStyleRule;
 import org.w3c.dom.css.CSSStyleSheet;
 import org.w3c.dom.css.DocumentCSS;
 import org.w3c.dom.css.ViewCSS;
@@ -72,56 +67,45 @@ public class ViewCSSImpl implements ViewCSS {
 
 	public CSSStyleDeclaration getComputedStyle(CSSStyleSheet styleSheet,
 			Element elt, String pseudoElt) {
-		List styleDeclarations = null;
+		if (documentCSS instanceof DocumentCSSImpl) {
+			// Only test the selectors which may match the element
+			CSSRuleIndex index = ((DocumentCSSImpl) documentCSS)
+					.getRuleIndex(styleSheet);
+			return computeStyle(index.getCandidates(elt), elt, pseudoElt);
+		}
+		return computeStyle(new CSSRuleIndex(styleSheet).getEntries(), elt,
+				pseudoElt);
+	}
+
+	/**
+	 * Compute the style of <code>elt</code> from the <code>entries</code>
+	 * sorted in style sheet order.
+	 */
+	protected CSSStyleDeclaration computeStyle(List<CSSRuleIndex.Entry> entries,
+			Element elt, String pseudoElt) {
+		List<StyleWrapper> styleDeclarations = null;
 		StyleWrapper firstStyleDeclaration = null;
-		CSSRuleList ruleList = styleSheet.getCssRules();
-		int length = ruleList.getLength();
 		int position = 0;
-		for (int i = 0; i < length; i++) {
-			CSSRule rule = ruleList.item(i);
-			switch (rule.getType()) {
-			case CSSRule.STYLE_RULE: {
-				CSSStyleRule styleRule = (CSSStyleRule) rule;
-				if (rule instanceof ExtendedCSSRule) {
-					ExtendedCSSRule r = (ExtendedCSSRule) rule;
-					SelectorList selectorList = r.getSelectorList();
-					// Loop for SelectorList
-					int l = selectorList.getLength();
-					for (int j = 0; j < l; j++) {
-						Selector selector = (Selector) selectorList.item(j);
-						if (selector instanceof ExtendedSelector) {
-							ExtendedSelector extendedSelector = (ExtendedSelector) selector;
-							if (extendedSelector.match(elt, pseudoElt)) {
-								CSSStyleDeclaration style = styleRule
-										.getStyle();
-								int specificity = extendedSelector
-										.getSpecificity();
-								StyleWrapper wrapper = new StyleWrapper(style,
-										specificity, position++);
-								if (firstStyleDeclaration == null) {
-									firstStyleDeclaration = wrapper;
-								} else {
-									// There is several Style Declarations which
-									// match the current element
-									if (styleDeclarations == null) {
-										styleDeclarations = new ArrayList();
-										styleDeclarations
-												.add(firstStyleDeclaration);
-									}
-									styleDeclarations.add(wrapper);
-								}
-							}
-						} else {
-							// TODO : selector is not batik ExtendedSelector,
-							// Manage this case...
-						}
-					}
+		for (Iterator<CSSRuleIndex.Entry> iterator = entries.iterator(); iterator
+				.hasNext();) {
+			CSSRuleIndex.Entry entry = iterator.next();
+			ExtendedSelector extendedSelector = entry.selector;
+			if (extendedSelector.match(elt, pseudoElt)) {
+				int specificity = extendedSelector.getSpecificity();
+				StyleWrapper wrapper = new StyleWrapper(entry.style,
+						specificity, position++);
+				if (firstStyleDeclaration == null) {
+					firstStyleDeclaration = wrapper;
 				} else {
-					// TODO : CSS rule is not ExtendedCSSRule,
-					// Manage this case...
+					// There is several Style Declarations which
+					// match the current element
+					if (styleDeclarations == null) {
+						styleDeclarations = new ArrayList<StyleWrapper>();
+						styleDeclarations.add(firstStyleDeclaration);
+					}
+					styleDeclarations.add(wrapper);
 				}
 			}
-			}
 		}
 		if (styleDeclarations != null) {
 			// There is several Style Declarations wich match
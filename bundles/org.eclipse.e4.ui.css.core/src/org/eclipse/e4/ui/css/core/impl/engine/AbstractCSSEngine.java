@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.eclipse.e4.ui.css.core.impl.engine;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -22,9 +23,16 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
@@ -43,7 +51,9 @@ import org.eclipse.e4.ui.css.core.engine.CSSElementContext;
 import org.eclipse.e4.ui.css.core.engine.CSSEngine;
 import org.eclipse.e4.ui.css.core.engine.CSSErrorHandler;
 import org.eclipse.e4.ui.css.core.exceptions.UnsupportedPropertyException;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSPropertyImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.CSSRuleListImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSStyleDeclarationImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.CSSStyleSheetImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.DocumentCSSImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.ViewCSSImpl;
@@ -60,6 +70,7 @@ import org.w3c.css.sac.InputSource;
 import org.w3c.css.sac.Selector;
 import org.w3c.css.sac.SelectorList;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.w3c.dom.css.CSSImportRule;
 import org.w3c.dom.css.CSSRule;
@@ -70,6 +81,7 @@ import org.w3c.dom.css.CSSValue;
 import org.w3c.dom.css.DocumentCSS;
 import org.w3c.dom.css.ViewCSS;
 import org.w3c.dom.stylesheets.StyleSheet;
+import org.w3c.dom.stylesheets.StyleSheetList;
 
 /**
  * Abstract CSS Engine manage style sheet parsing and store the
@@ -101,6 +113,49 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	 */
 	private ViewCSS viewCSS;
 
+	/**
+	 * Cache of the styles computed by the {@link ViewCSS}.
+	 */
+	private ComputedStyleCache computedStyleCache;
+
+	/**
+	 * Key of the {@link AppliedStyles} stored in the {@link CSSElementContext}
+	 * of the styled elements.
+	 */
+	private static final String APPLIED_STYLES_KEY = "org.eclipse.e4.ui.css.core.appliedStyles";
+
+	/**
+	 * The styles last applied to an element and the signatures of the element
+	 * they were computed from.
+	 */
+	private static class AppliedStyles {
+		int generation;
+		String elementSignature;
+		String ancestorSignature;
+		Map<String, CSSStyleDeclaration> styles = new HashMap<String, CSSStyleDeclaration>();
+	}
+
+	/**
+	 * Key of the {@link AppliedValues} of an element, stored in its
+	 * {@link CSSElementContext}.
+	 */
+	private static final String APPLIED_VALUES_KEY = "org.eclipse.e4.ui.css.core.appliedValues";
+
+	/**
+	 * The {@link CSSValue}s last applied to an element, by property and pseudo
+	 * instance, with the style sheets generation they were applied for.
+	 */
+	private static class AppliedValues {
+		int generation;
+		Map<String, CSSValue> values = new HashMap<String, CSSValue>();
+	}
+
+	/**
+	 * Number of properties which were not applied because their value did not
+	 * change since the last time they were applied.
+	 */
+	private int unchangedPropertyCount;
+
 	/**
 	 * {@link IElementProvider} used to retrieve w3c Element linked to the
 	 * widget.
@@ -134,6 +189,49 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	protected HashMap widgetsMap = new HashMap();
 	
 	private boolean parseImport;
+
+	private StyleSheetCache styleSheetCache;
+
+	/**
+	 * URIs of the style sheets imported by the style sheet being parsed, when
+	 * it is stored in the {@link #styleSheetCache}.
+	 */
+	private List<String> importedStyleSheets;
+
+	/**
+	 * Minimum number of styles to compute before the computation is shared
+	 * between several threads.
+	 */
+	private static final int PARALLEL_COMPUTATION_THRESHOLD = 32;
+
+	private boolean parallelStyleComputation;
+
+	/**
+	 * True while the styles of a tree of elements are applied after being
+	 * computed in parallel.
+	 */
+	private boolean applyingPrecomputedStyles;
+
+	private ExecutorService styleComputationExecutor;
+
+	/**
+	 * A style to compute in parallel, for an element snapshot and a pseudo
+	 * instance.
+	 */
+	private static class PendingStyle {
+		final String signature;
+		final ElementSnapshot snapshot;
+		final String pseudoElt;
+		CSSStyleDeclaration style;
+		boolean computed;
+
+		PendingStyle(String signature, ElementSnapshot snapshot,
+				String pseudoElt) {
+			this.signature = signature;
+			this.snapshot = snapshot;
+			this.pseudoElt = pseudoElt;
+		}
+	}
 	
 	public AbstractCSSEngine() {
 		this(new DocumentCSSImpl());
@@ -142,6 +240,7 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	public AbstractCSSEngine(ExtendedDocumentCSS documentCSS) {
 		this.documentCSS = documentCSS;
 		this.viewCSS = new ViewCSSImpl(documentCSS);
+		this.computedStyleCache = new ComputedStyleCache(documentCSS, viewCSS);
 	}
 
 	/*--------------- Parse style sheet -----------------*/
@@ -176,6 +275,25 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	public StyleSheet parseStyleSheet(InputSource source) throws IOException {
 		// Check that CharacterStream or ByteStream is not null
 		checkInputSource(source);
+		byte[] content = null;
+		if (!parseImport) {
+			importedStyleSheets = null;
+			if (styleSheetCache != null && source.getURI() != null
+					&& source.getCharacterStream() == null) {
+				content = StyleSheetCache.readContent(source.getByteStream());
+				source.setByteStream(new ByteArrayInputStream(content));
+				CSSStyleSheetImpl s = new CSSStyleSheetImpl();
+				CSSRuleList rules = styleSheetCache.get(source.getURI(),
+						content, s, makeCSSParser());
+				if (rules != null) {
+					s.setRuleList(rules);
+					documentCSS.addStyleSheet(s);
+					computedStyleCache.clear();
+					return s;
+				}
+				importedStyleSheets = new ArrayList<String>();
+			}
+		}
 		CSSParser parser = makeCSSParser();
 		CSSStyleSheet styleSheet = parser.parseStyleSheet(source);
 		
@@ -201,6 +319,9 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		    		url = new URL(path);
 		    	}
 		    }
+			if (importedStyleSheets != null) {
+				importedStyleSheets.add(url.toString());
+			}
 			InputStream stream = url.openStream();
 			InputSource tempStream = new InputSource();
 			tempStream.setURI(url.toString());
@@ -225,11 +346,33 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		if (documentCSS instanceof ExtendedDocumentCSS) {
 			if (!parseImport) {
 				documentCSS.addStyleSheet(s);
+				computedStyleCache.clear();
 			}
 		}
+		if (content != null) {
+			styleSheetCache.put(source.getURI(), content, importedStyleSheets,
+					masterList);
+			importedStyleSheets = null;
+		}
 		return s;
 	}
 
+	/**
+	 * Set the cache used to avoid parsing again the style sheets which did
+	 * not change, or null to always parse the style sheets. Only style sheets
+	 * parsed from an {@link InputSource} with an URI and a byte stream are
+	 * cached.
+	 * 
+	 * @param styleSheetCache
+	 */
+	public void setStyleSheetCache(StyleSheetCache styleSheetCache) {
+		this.styleSheetCache = styleSheetCache;
+	}
+
+	public StyleSheetCache getStyleSheetCache() {
+		return styleSheetCache;
+	}
+
 	/**
 	 * Return true if <code>source</code> is valid and false otherwise.
 	 * 
@@ -414,11 +557,24 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	public void applyStyles(Object element, boolean applyStylesToChildNodes,
 			boolean computeDefaultStyle) {
 		Element elt = getElement(element);
+		if (elt != null && applyStylesToChildNodes && parallelStyleComputation
+				&& !applyingPrecomputedStyles) {
+			applyingPrecomputedStyles = true;
+			try {
+				precomputeStyles(elt);
+				applyStyles(element, applyStylesToChildNodes,
+						computeDefaultStyle);
+			} finally {
+				applyingPrecomputedStyles = false;
+			}
+			return;
+		}
 		if (elt != null) {
 			/*
 			 * Compute new Style to apply.
 			 */
-			CSSStyleDeclaration style = viewCSS.getComputedStyle(elt, null);
+			CSSStyleDeclaration style = computedStyleCache.getComputedStyle(elt,
+					null);
 			if (computeDefaultStyle) {
 				if (applyStylesToChildNodes)
 					this.computeDefaultStyle = computeDefaultStyle;
@@ -437,7 +593,7 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 				// apply styles for each pseudo instance.
 				for (int i = 0; i < pseudoInstances.length; i++) {
 					String pseudoInstance = pseudoInstances[i];
-					CSSStyleDeclaration styleWithPseudoInstance = viewCSS
+					CSSStyleDeclaration styleWithPseudoInstance = computedStyleCache
 							.getComputedStyle(elt, pseudoInstance);
 					if (computeDefaultStyle) {
 						/*
@@ -471,6 +627,8 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 				handleExceptions(e);
 			}
 
+			rememberAppliedStyles(elt, style, pseudoInstances);
+
 			if (applyStylesToChildNodes) {
 				/*
 				 * Style all children recursive.
@@ -486,8 +644,339 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		}
 
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.e4.ui.css.core.engine.CSSEngine#setParallelStyleComputation(boolean)
+	 */
+	public void setParallelStyleComputation(boolean parallelStyleComputation) {
+		this.parallelStyleComputation = parallelStyleComputation;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.e4.ui.css.core.engine.CSSEngine#isParallelStyleComputation()
+	 */
+	public boolean isParallelStyleComputation() {
+		return parallelStyleComputation;
+	}
+
+	/**
+	 * Compute the styles of <code>elt</code> and of all its descendants which
+	 * are not cached yet on several threads, and store them in the
+	 * {@link ComputedStyleCache}. The elements are read on the calling thread
+	 * to create {@link ElementSnapshot}s, only the snapshots and the style
+	 * sheets are used by the other threads.
+	 */
+	private void precomputeStyles(Element elt) {
+		if (!computedStyleCache.isEnabled()
+				|| !computedStyleCache.isSignatureSupported()) {
+			// styles can only be shared through the cache
+			return;
+		}
+		if (documentCSS instanceof DocumentCSSImpl) {
+			// rule indexes are built lazily, build them before sharing them
+			StyleSheetList styleSheetList = documentCSS.getStyleSheets();
+			for (int i = 0; i < styleSheetList.getLength(); i++) {
+				((DocumentCSSImpl) documentCSS)
+						.getRuleIndex((CSSStyleSheet) styleSheetList.item(i));
+			}
+		}
+		String[] attributes = computedStyleCache.getAttributes();
+		String[] pseudoClasses = computedStyleCache.getPseudoClasses();
+		List<Element> ancestors = new ArrayList<Element>();
+		for (Node node = elt.getParentNode(); node instanceof Element; node = node
+				.getParentNode()) {
+			ancestors.add(0, (Element) node);
+		}
+		ElementSnapshot parent = null;
+		for (int i = 0; i < ancestors.size(); i++) {
+			parent = new ElementSnapshot(ancestors.get(i), parent, attributes,
+					pseudoClasses, this);
+		}
+		Map<String, PendingStyle> pendingStyles = new LinkedHashMap<String, PendingStyle>();
+		collectPendingStyles(elt, parent, attributes, pseudoClasses,
+				pendingStyles);
+		if (pendingStyles.size() < PARALLEL_COMPUTATION_THRESHOLD) {
+			// not worth it, the styles are computed while they are applied
+			return;
+		}
+		List<PendingStyle> styles = new ArrayList<PendingStyle>(pendingStyles
+				.values());
+		computeStyles(styles);
+		for (Iterator<PendingStyle> iterator = styles.iterator(); iterator
+				.hasNext();) {
+			PendingStyle pendingStyle = iterator.next();
+			if (pendingStyle.computed) {
+				computedStyleCache.putComputedStyle(pendingStyle.signature,
+						pendingStyle.style);
+			}
+		}
+	}
+
+	private void collectPendingStyles(Element elt, ElementSnapshot parent,
+			String[] attributes, String[] pseudoClasses,
+			Map<String, PendingStyle> pendingStyles) {
+		ElementSnapshot snapshot = new ElementSnapshot(elt, parent, attributes,
+				pseudoClasses, this);
+		addPendingStyle(elt, snapshot, null, pendingStyles);
+		String[] pseudoInstances = getStaticPseudoInstances(elt);
+		if (pseudoInstances != null) {
+			for (int i = 0; i < pseudoInstances.length; i++) {
+				addPendingStyle(elt, snapshot, pseudoInstances[i],
+						pendingStyles);
+			}
+		}
+		NodeList nodes = elt.getChildNodes();
+		if (nodes != null) {
+			for (int k = 0; k < nodes.getLength(); k++) {
+				Element child = getElement(nodes.item(k));
+				if (child != null) {
+					collectPendingStyles(child, snapshot, attributes,
+							pseudoClasses, pendingStyles);
+				}
+			}
+		}
+	}
+
+	private void addPendingStyle(Element elt, ElementSnapshot snapshot,
+			String pseudoElt, Map<String, PendingStyle> pendingStyles) {
+		String signature = computedStyleCache.getSignature(elt, pseudoElt);
+		if (!pendingStyles.containsKey(signature)
+				&& !computedStyleCache.isCached(signature)) {
+			pendingStyles.put(signature, new PendingStyle(signature, snapshot,
+					pseudoElt));
+		}
+	}
+
+	/**
+	 * Compute the pending styles with the style computation executor and wait
+	 * for the result. Styles whose computation failed are left uncomputed.
+	 */
+	private void computeStyles(final List<PendingStyle> styles) {
+		int threadCount = Runtime.getRuntime().availableProcessors();
+		// several chunks per thread to balance the work
+		int chunkSize = Math.max(1, styles.size() / (threadCount * 4));
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int start = 0; start < styles.size(); start += chunkSize) {
+			final int from = start;
+			final int to = Math.min(start + chunkSize, styles.size());
+			tasks.add(new Callable<Object>() {
+				public Object call() throws Exception {
+					for (int i = from; i < to; i++) {
+						PendingStyle pendingStyle = styles.get(i);
+						pendingStyle.style = viewCSS.getComputedStyle(
+								pendingStyle.snapshot, pendingStyle.pseudoElt);
+						pendingStyle.computed = true;
+					}
+					return null;
+				}
+			});
+		}
+		try {
+			List<Future<Object>> futures = getStyleComputationExecutor()
+					.invokeAll(tasks);
+			for (Iterator<Future<Object>> iterator = futures.iterator(); iterator
+					.hasNext();) {
+				try {
+					iterator.next().get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					handleExceptions(cause instanceof Exception ? (Exception) cause
+							: e);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private ExecutorService getStyleComputationExecutor() {
+		if (styleComputationExecutor == null) {
+			styleComputationExecutor = Executors.newFixedThreadPool(Runtime
+					.getRuntime().availableProcessors(), new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "CSS Style Computation");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return styleComputationExecutor;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.e4.ui.css.core.engine.CSSEngine#applyChangedStyles(java.lang.Object)
+	 */
+	public void applyChangedStyles(Object element) {
+		applyChangedStyles(element, false);
+	}
+
+	private void applyChangedStyles(Object element, boolean ancestorChanged) {
+		Element elt = getElement(element);
+		if (elt == null)
+			return;
+		CSSElementContext elementContext = getCSSElementContext(elt);
+		AppliedStyles appliedStyles = elementContext != null ? (AppliedStyles) elementContext
+				.getData(APPLIED_STYLES_KEY) : null;
+		if (appliedStyles == null
+				|| appliedStyles.generation != computedStyleCache
+						.getGeneration() || computeDefaultStyle
+				|| !computedStyleCache.isSignatureSupported()) {
+			// the styles applied before are unknown or outdated
+			applyStyles(element, true);
+			return;
+		}
+		String elementSignature = computedStyleCache.getElementSignature(elt);
+		String ancestorSignature = computedStyleCache.getAncestorSignature(elt);
+		if (ancestorChanged
+				|| !elementSignature.equals(appliedStyles.elementSignature)) {
+			String[] pseudoInstances = getStaticPseudoInstances(elt);
+			if (pseudoInstances != null) {
+				for (int i = 0; i < pseudoInstances.length; i++) {
+					String pseudoInstance = pseudoInstances[i];
+					CSSStyleDeclaration styleWithPseudoInstance = computedStyleCache
+							.getComputedStyle(elt, pseudoInstance);
+					CSSStyleDeclaration changedStyle = getChangedStyle(
+							appliedStyles.styles.get(pseudoInstance),
+							styleWithPseudoInstance);
+					if (changedStyle == null)
+						continue;
+					CSSRule parentRule = styleWithPseudoInstance.getParentRule();
+					if (!(parentRule instanceof ExtendedCSSRule)
+							|| isConditionalPseudoStyle(
+									(ExtendedCSSRule) parentRule,
+									pseudoInstance)) {
+						applyStyleDeclaration(elt, changedStyle, pseudoInstance);
+					}
+				}
+			}
+			CSSStyleDeclaration style = computedStyleCache.getComputedStyle(
+					elt, null);
+			CSSStyleDeclaration changedStyle = getChangedStyle(
+					appliedStyles.styles.get(null), style);
+			if (changedStyle != null) {
+				applyStyleDeclaration(elt, changedStyle, null);
+				try {
+					// Inline style must keep precedence over the changed properties
+					applyInlineStyle(elt, false);
+				} catch (Exception e) {
+					handleExceptions(e);
+				}
+			}
+			rememberAppliedStyles(elt, style, pseudoInstances);
+		}
+		if (ancestorChanged
+				|| !ancestorSignature.equals(appliedStyles.ancestorSignature)) {
+			// descendant selectors may match the children differently
+			NodeList nodes = elt.getChildNodes();
+			if (nodes != null) {
+				for (int k = 0; k < nodes.getLength(); k++) {
+					applyChangedStyles(nodes.item(k), true);
+				}
+				onStylesAppliedToChildNodes(elt, nodes);
+			}
+		} else {
+			applyStylesToUnstyledDescendants(elt);
+		}
+	}
+
+	/**
+	 * Apply the styles to the descendants of <code>elt</code> which were not
+	 * styled for the current style sheets, e.g. the children created since
+	 * <code>elt</code> was styled. The styled descendants keep their styles.
+	 */
+	private void applyStylesToUnstyledDescendants(Element elt) {
+		NodeList nodes = elt.getChildNodes();
+		if (nodes == null)
+			return;
+		for (int k = 0; k < nodes.getLength(); k++) {
+			Node node = nodes.item(k);
+			CSSElementContext elementContext = getCSSElementContext(node);
+			AppliedStyles appliedStyles = elementContext != null ? (AppliedStyles) elementContext
+					.getData(APPLIED_STYLES_KEY) : null;
+			if (appliedStyles == null
+					|| appliedStyles.generation != computedStyleCache
+							.getGeneration()) {
+				applyStyles(node, true);
+			} else if (node instanceof Element) {
+				applyStylesToUnstyledDescendants((Element) node);
+			}
+		}
+	}
+
+	/**
+	 * Return a style declaration with the properties of <code>newStyle</code>
+	 * whose value differs from the one in <code>oldStyle</code>, or null if
+	 * there is none.
+	 */
+	private CSSStyleDeclaration getChangedStyle(CSSStyleDeclaration oldStyle,
+			CSSStyleDeclaration newStyle) {
+		if (newStyle == null || newStyle == oldStyle)
+			return null;
+		if (oldStyle == null)
+			return newStyle;
+		CSSStyleDeclarationImpl changedStyle = null;
+		for (int i = 0; i < newStyle.getLength(); i++) {
+			String property = newStyle.item(i);
+			CSSValue value = newStyle.getPropertyCSSValue(property);
+			CSSValue oldValue = oldStyle.getPropertyCSSValue(property);
+			if (value == null
+					|| (oldValue != null && value.getCssText().equals(
+							oldValue.getCssText()))) {
+				continue;
+			}
+			if (changedStyle == null)
+				changedStyle = new CSSStyleDeclarationImpl(newStyle
+						.getParentRule());
+			changedStyle.addProperty(new CSSPropertyImpl(property, value,
+					"important".equals(newStyle.getPropertyPriority(property))));
+		}
+		return changedStyle;
+	}
+
+	/**
+	 * Remember the styles applied to <code>elt</code> and the signature they
+	 * were computed from, for {@link #applyChangedStyles(Object)}.
+	 */
+	private void rememberAppliedStyles(Element elt, CSSStyleDeclaration style,
+			String[] pseudoInstances) {
+		CSSElementContext elementContext = getCSSElementContext(elt);
+		if (elementContext == null)
+			return;
+		if (!computedStyleCache.isSignatureSupported()) {
+			elementContext.setData(APPLIED_STYLES_KEY, null);
+			return;
+		}
+		AppliedStyles appliedStyles = new AppliedStyles();
+		appliedStyles.generation = computedStyleCache.getGeneration();
+		appliedStyles.elementSignature = computedStyleCache
+				.getElementSignature(elt);
+		appliedStyles.ancestorSignature = computedStyleCache
+				.getAncestorSignature(elt);
+		appliedStyles.styles.put(null, style);
+		if (pseudoInstances != null) {
+			for (int i = 0; i < pseudoInstances.length; i++) {
+				appliedStyles.styles.put(pseudoInstances[i], computedStyleCache
+						.getComputedStyle(elt, pseudoInstances[i]));
+			}
+		}
+		elementContext.setData(APPLIED_STYLES_KEY, appliedStyles);
+	}
 	
 	private void applyConditionalPseudoStyle(ExtendedCSSRule parentRule, String pseudoInstance, Object element, CSSStyleDeclaration styleWithPseudoInstance) {
+		if (isConditionalPseudoStyle(parentRule, pseudoInstance)) {
+			// if we match the pseudo, apply the style
+			applyStyleDeclaration(element, styleWithPseudoInstance,
+					pseudoInstance);
+		}
+	}
+
+	private boolean isConditionalPseudoStyle(ExtendedCSSRule parentRule, String pseudoInstance) {
 		SelectorList selectorList = parentRule.getSelectorList();
 		for (int j = 0; j < selectorList.getLength(); j++) {
 			Selector item = selectorList.item(j);
@@ -498,14 +987,12 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 				if (condition instanceof AttributeCondition) {
 					String value = ((AttributeCondition) condition).getValue();
 					if (value.equals(pseudoInstance)) {
-						// if we match the pseudo, apply the style
-						applyStyleDeclaration(element, styleWithPseudoInstance,
-								pseudoInstance);
-						return;
+						return true;
 					}										
 				}
 			}
 		}
+		return false;
 	}
 
 	protected String[] getStaticPseudoInstances(Element element) {
@@ -768,6 +1255,17 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		}
 
 		element = getElement(element); // in case we're passed a node
+		Map<String, CSSValue> appliedValues = getAppliedValues(element);
+		String key = pseudo != null ? property + ':' + pseudo : property;
+		if (appliedValues != null && isSameValue(appliedValues.get(key), value)) {
+			// CSS Property was already applied with the same value, avoid
+			// setting the same native resource again.
+			unchangedPropertyCount++;
+			if (currentCSSPropertiesApplyed != null) {
+				currentCSSPropertiesApplyed.put(property, property);
+			}
+			return null;
+		}
 		for (ICSSPropertyHandlerProvider provider : propertyHandlerProviders) {
 			Collection<ICSSPropertyHandler> handlers = provider
 					.getCSSPropertyHandlers(element, property);
@@ -785,6 +1283,9 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 						if (currentCSSPropertiesApplyed != null) {
 							currentCSSPropertiesApplyed.put(property, property);
 						}
+						if (appliedValues != null) {
+							appliedValues.put(key, value);
+						}
 						return handler;
 					}
 				} catch (Exception e) {
@@ -798,6 +1299,51 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		return null;
 	}
 
+	/**
+	 * Return the map of the {@link CSSValue}s last applied to
+	 * <code>element</code>, or null if the element has no context. The values
+	 * applied before a {@link #reset()} or a style sheet change are forgotten,
+	 * as the element may no longer show them, e.g. after a theme switch.
+	 */
+	private Map<String, CSSValue> getAppliedValues(Object element) {
+		if (element == null)
+			return null;
+		CSSElementContext elementContext = getCSSElementContext(element);
+		if (elementContext == null)
+			return null;
+		AppliedValues appliedValues = (AppliedValues) elementContext
+				.getData(APPLIED_VALUES_KEY);
+		int generation = computedStyleCache.getGeneration();
+		if (appliedValues == null || appliedValues.generation != generation) {
+			appliedValues = new AppliedValues();
+			appliedValues.generation = generation;
+			elementContext.setData(APPLIED_VALUES_KEY, appliedValues);
+		}
+		return appliedValues.values;
+	}
+
+	private static boolean isSameValue(CSSValue oldValue, CSSValue newValue) {
+		if (oldValue == null || newValue == null)
+			return false;
+		if (oldValue == newValue)
+			return true;
+		String cssText = newValue.getCssText();
+		return cssText != null && cssText.equals(oldValue.getCssText());
+	}
+
+	/**
+	 * Return the number of properties which were not applied because their
+	 * value did not change since the last time they were applied to the
+	 * element.
+	 */
+	public int getUnchangedPropertyCount() {
+		return unchangedPropertyCount;
+	}
+
+	public void resetUnchangedPropertyCount() {
+		unchangedPropertyCount = 0;
+	}
+
 	public String retrieveCSSProperty(Object element, String property,
 			String pseudo) {
 		try {
@@ -1041,8 +1587,22 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		return viewCSS;
 	}
 
+	/**
+	 * Return the cache of the styles computed while applying styles. It gives
+	 * access to the hit/miss counters of the cache.
+	 * 
+	 * @return
+	 */
+	public ComputedStyleCache getComputedStyleCache() {
+		return computedStyleCache;
+	}
+
 	public void dispose() {
 		reset();
+		if (styleComputationExecutor != null) {
+			styleComputationExecutor.shutdown();
+			styleComputationExecutor = null;
+		}
 		// Call dispose for each CSSStylableElement which was registered
 		Collection<CSSElementContext> contexts = elementsContext.values();
 		for (Iterator<CSSElementContext> iterator = contexts.iterator(); iterator
@@ -1062,6 +1622,8 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	public void reset() {
 		// Remove All Style Sheets
 		((ExtendedDocumentCSS) documentCSS).removeAllStyleSheets();
+		// (also forgets the styles and values applied to the elements)
+		computedStyleCache.clear();
 	}
 
 	/*--------------- Resources Registry -----------------*/
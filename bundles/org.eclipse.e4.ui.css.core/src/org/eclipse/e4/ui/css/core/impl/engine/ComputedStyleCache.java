@@ -0,0 +1,485 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.engine;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.e4.ui.css.core.dom.CSSStylableElement;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSRuleIndex;
+import org.eclipse.e4.ui.css.core.impl.dom.DocumentCSSImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSClassConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSIdConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSPseudoClassConditionImpl;
+import org.w3c.css.sac.AttributeCondition;
+import org.w3c.css.sac.CombinatorCondition;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.ConditionalSelector;
+import org.w3c.css.sac.DescendantSelector;
+import org.w3c.css.sac.ElementSelector;
+import org.w3c.css.sac.LangCondition;
+import org.w3c.css.sac.Selector;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSStyleSheet;
+import org.w3c.dom.css.DocumentCSS;
+import org.w3c.dom.css.ViewCSS;
+import org.w3c.dom.stylesheets.StyleSheetList;
+
+/**
+ * Cache of the {@link CSSStyleDeclaration}s computed by a {@link ViewCSS}.
+ * <p>
+ * Styles are cached by the "style signature" of the element: its local name,
+ * namespace, id, CSS class, the values of the attributes and the state of the
+ * pseudo classes used by the selectors of the style sheets, and the same
+ * information for its ancestors when the style sheets use descendant or child
+ * selectors. Elements with the same signature match the same selectors, so
+ * identical siblings (ex : all the CTabItem of a CTabFolder) compute their
+ * style once.
+ * </p>
+ * <p>
+ * Since the CSS class and the pseudo class state are part of the signature, an
+ * element whose class or state changes simply resolves another entry. The
+ * cache must be cleared with {@link #clear()} when the style sheets change.
+ * Style sheets using selectors whose result cannot be derived from the
+ * signature (ex : sibling selectors) disable the cache.
+ * </p>
+ * <p>
+ * The cache also records which classes, attributes and pseudo classes are
+ * used by the ancestor part of descendant and child selectors (ex :
+ * <code>.active</code> in <code>CTabFolder.active CTabItem</code>).
+ * {@link #getElementSignature(Element)} and
+ * {@link #getAncestorSignature(Element)} let the engine find out whether a
+ * change of an element can modify its own style and the style of its
+ * descendants.
+ * </p>
+ */
+public class ComputedStyleCache {
+
+	/**
+	 * Maximum number of cached signatures, the cache is cleared when this size
+	 * is reached.
+	 */
+	private static final int MAX_ENTRIES = 4096;
+
+	private static final char FIELD_SEPARATOR = '\u0001';
+
+	private static final char NODE_SEPARATOR = '\u0002';
+
+	private final DocumentCSS documentCSS;
+
+	private final ViewCSS viewCSS;
+
+	private final Map<String, CSSStyleDeclaration> styles = new HashMap<String, CSSStyleDeclaration>();
+
+	private boolean enabled = true;
+
+	private boolean analyzed = false;
+
+	private boolean cacheable;
+
+	private boolean useAncestors;
+
+	private String[] attributes;
+
+	private String[] pseudoClasses;
+
+	private int generation;
+
+	private boolean ancestorUsesId;
+
+	private Set<String> ancestorClasses;
+
+	private String[] ancestorAttributes;
+
+	private String[] ancestorPseudoClasses;
+
+	private int hitCount;
+
+	private int missCount;
+
+	public ComputedStyleCache(DocumentCSS documentCSS, ViewCSS viewCSS) {
+		this.documentCSS = documentCSS;
+		this.viewCSS = viewCSS;
+	}
+
+	/**
+	 * Return the computed style of <code>elt</code> for the given pseudo
+	 * element, from the cache if an element with the same signature was
+	 * already computed.
+	 *
+	 * @param elt
+	 * @param pseudoElt
+	 * @return
+	 */
+	public CSSStyleDeclaration getComputedStyle(Element elt, String pseudoElt) {
+		if (!enabled) {
+			return viewCSS.getComputedStyle(elt, pseudoElt);
+		}
+		if (!analyzed) {
+			analyzeStyleSheets();
+		}
+		if (!cacheable) {
+			return viewCSS.getComputedStyle(elt, pseudoElt);
+		}
+		String signature = getSignature(elt, pseudoElt);
+		CSSStyleDeclaration style = styles.get(signature);
+		if (style != null || styles.containsKey(signature)) {
+			hitCount++;
+			return style;
+		}
+		missCount++;
+		style = viewCSS.getComputedStyle(elt, pseudoElt);
+		if (styles.size() >= MAX_ENTRIES) {
+			styles.clear();
+		}
+		styles.put(signature, style);
+		return style;
+	}
+
+	/**
+	 * Remove all the cached styles. Must be called when the style sheets of
+	 * the document change.
+	 */
+	public void clear() {
+		styles.clear();
+		generation++;
+		analyzed = false;
+		attributes = null;
+		pseudoClasses = null;
+		ancestorClasses = null;
+		ancestorAttributes = null;
+		ancestorPseudoClasses = null;
+	}
+
+	/**
+	 * Return a number which changes each time the cache is cleared, so styles
+	 * computed before a style sheet change can be recognized.
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Return true if the computed styles of an element can be derived from
+	 * its signature with the current style sheets.
+	 */
+	public boolean isSignatureSupported() {
+		if (!analyzed) {
+			analyzeStyleSheets();
+		}
+		return cacheable;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled) {
+			clear();
+		}
+	}
+
+	/**
+	 * Return the number of computed styles returned from the cache.
+	 */
+	public int getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Return the number of computed styles which were not found in the cache.
+	 */
+	public int getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Return the number of cached signatures.
+	 */
+	public int size() {
+		return styles.size();
+	}
+
+	public void resetCounters() {
+		hitCount = 0;
+		missCount = 0;
+	}
+
+	/*--------------- Precomputed styles -----------------*/
+
+	/**
+	 * Return the attributes used by the selectors of the style sheets.
+	 */
+	String[] getAttributes() {
+		if (!analyzed) {
+			analyzeStyleSheets();
+		}
+		return attributes;
+	}
+
+	/**
+	 * Return the pseudo classes used by the selectors of the style sheets.
+	 */
+	String[] getPseudoClasses() {
+		if (!analyzed) {
+			analyzeStyleSheets();
+		}
+		return pseudoClasses;
+	}
+
+	/**
+	 * Return true if a style is cached for <code>signature</code>.
+	 */
+	boolean isCached(String signature) {
+		return styles.containsKey(signature);
+	}
+
+	/**
+	 * Cache a style computed outside of this cache (ex : by another thread)
+	 * for <code>signature</code>.
+	 */
+	void putComputedStyle(String signature, CSSStyleDeclaration style) {
+		if (styles.size() >= MAX_ENTRIES) {
+			styles.clear();
+		}
+		missCount++;
+		styles.put(signature, style);
+	}
+
+	/*--------------- Signature -----------------*/
+
+	/**
+	 * Return the signature of <code>elt</code> alone, without its ancestors.
+	 * The computed styles of the element can only change when this signature
+	 * or the signature of one of its ancestors changes.
+	 *
+	 * @param elt
+	 * @return
+	 */
+	public String getElementSignature(Element elt) {
+		if (!analyzed) {
+			analyzeStyleSheets();
+		}
+		StringBuilder signature = new StringBuilder();
+		appendSignature(signature, elt);
+		return signature.toString();
+	}
+
+	/**
+	 * Return the part of the signature of <code>elt</code> used by the
+	 * ancestor part of descendant and child selectors. The computed styles of
+	 * the descendants of the element can only change when this signature
+	 * changes.
+	 *
+	 * @param elt
+	 * @return
+	 */
+	public String getAncestorSignature(Element elt) {
+		if (!analyzed) {
+			analyzeStyleSheets();
+		}
+		StringBuilder signature = new StringBuilder();
+		if (!useAncestors) {
+			return signature.toString();
+		}
+		if (ancestorUsesId) {
+			signature.append(CSSRuleIndex.getId(elt));
+		}
+		if (!ancestorClasses.isEmpty()) {
+			String[] classes = CSSRuleIndex.getClasses(elt);
+			Set<String> usedClasses = new TreeSet<String>();
+			for (int i = 0; i < classes.length; i++) {
+				if (ancestorClasses.contains(classes[i]))
+					usedClasses.add(classes[i]);
+			}
+			for (Iterator<String> iterator = usedClasses.iterator(); iterator
+					.hasNext();) {
+				signature.append(FIELD_SEPARATOR);
+				signature.append(iterator.next());
+			}
+		}
+		signature.append(NODE_SEPARATOR);
+		for (int i = 0; i < ancestorAttributes.length; i++) {
+			signature.append(FIELD_SEPARATOR);
+			signature.append(elt.getAttribute(ancestorAttributes[i]));
+		}
+		appendPseudoClassStates(signature, elt, ancestorPseudoClasses);
+		return signature.toString();
+	}
+
+	protected String getSignature(Element elt, String pseudoElt) {
+		StringBuilder signature = new StringBuilder();
+		signature.append(pseudoElt);
+		Node node = elt;
+		while (node instanceof Element) {
+			signature.append(NODE_SEPARATOR);
+			appendSignature(signature, (Element) node);
+			if (!useAncestors) {
+				break;
+			}
+			node = node.getParentNode();
+		}
+		return signature.toString();
+	}
+
+	private void appendSignature(StringBuilder signature, Element element) {
+		signature.append(CSSRuleIndex.getLocalName(element));
+		signature.append(FIELD_SEPARATOR);
+		signature.append(element.getNamespaceURI());
+		signature.append(FIELD_SEPARATOR);
+		signature.append(CSSRuleIndex.getId(element));
+		signature.append(FIELD_SEPARATOR);
+		if (element instanceof CSSStylableElement) {
+			signature.append(((CSSStylableElement) element).getCSSClass());
+		} else {
+			signature.append(element.getAttribute("class"));
+		}
+		for (int i = 0; i < attributes.length; i++) {
+			signature.append(FIELD_SEPARATOR);
+			signature.append(element.getAttribute(attributes[i]));
+		}
+		appendPseudoClassStates(signature, element, pseudoClasses);
+	}
+
+	private static void appendPseudoClassStates(StringBuilder signature,
+			Element element, String[] pseudoClasses) {
+		if (pseudoClasses.length == 0
+				|| !(element instanceof CSSStylableElement)) {
+			return;
+		}
+		signature.append(FIELD_SEPARATOR);
+		CSSStylableElement stylableElement = (CSSStylableElement) element;
+		for (int i = 0; i < pseudoClasses.length; i++) {
+			int state = 0;
+			if (stylableElement.isPseudoInstanceOf(pseudoClasses[i]))
+				state |= 1;
+			if (stylableElement.isStaticPseudoInstance(pseudoClasses[i]))
+				state |= 2;
+			signature.append(state);
+		}
+	}
+
+	/*--------------- Style sheets analysis -----------------*/
+
+	/**
+	 * Collect the attributes and pseudo classes used by the selectors of the
+	 * style sheets.
+	 */
+	private void analyzeStyleSheets() {
+		Set<String> attributeSet = new TreeSet<String>();
+		Set<String> pseudoClassSet = new TreeSet<String>();
+		Set<String> ancestorAttributeSet = new TreeSet<String>();
+		Set<String> ancestorPseudoClassSet = new TreeSet<String>();
+		ancestorClasses = new HashSet<String>();
+		ancestorUsesId = false;
+		cacheable = true;
+		useAncestors = false;
+		StyleSheetList styleSheetList = documentCSS.getStyleSheets();
+		int l = styleSheetList.getLength();
+		for (int i = 0; i < l && cacheable; i++) {
+			CSSStyleSheet styleSheet = (CSSStyleSheet) styleSheetList.item(i);
+			CSSRuleIndex index = documentCSS instanceof DocumentCSSImpl ? ((DocumentCSSImpl) documentCSS)
+					.getRuleIndex(styleSheet)
+					: new CSSRuleIndex(styleSheet);
+			List<CSSRuleIndex.Entry> entries = index.getEntries();
+			for (Iterator<CSSRuleIndex.Entry> iterator = entries.iterator(); iterator
+					.hasNext()
+					&& cacheable;) {
+				CSSRuleIndex.Entry entry = iterator.next();
+				analyzeSelector((Selector) entry.selector, false, attributeSet,
+						pseudoClassSet);
+				analyzeAncestorSelector((Selector) entry.selector,
+						ancestorAttributeSet, ancestorPseudoClassSet);
+			}
+		}
+		attributes = attributeSet.toArray(new String[attributeSet.size()]);
+		pseudoClasses = pseudoClassSet
+				.toArray(new String[pseudoClassSet.size()]);
+		ancestorAttributes = ancestorAttributeSet
+				.toArray(new String[ancestorAttributeSet.size()]);
+		ancestorPseudoClasses = ancestorPseudoClassSet
+				.toArray(new String[ancestorPseudoClassSet.size()]);
+		analyzed = true;
+	}
+
+	/**
+	 * Collect the features used by the ancestor parts of
+	 * <code>selector</code>.
+	 */
+	private void analyzeAncestorSelector(Selector selector,
+			Set<String> attributeSet, Set<String> pseudoClassSet) {
+		if (selector instanceof DescendantSelector) {
+			DescendantSelector descendantSelector = (DescendantSelector) selector;
+			analyzeSelector(descendantSelector.getAncestorSelector(), true,
+					attributeSet, pseudoClassSet);
+		}
+	}
+
+	private void analyzeSelector(Selector selector, boolean ancestor,
+			Set<String> attributeSet, Set<String> pseudoClassSet) {
+		if (selector instanceof ConditionalSelector) {
+			ConditionalSelector conditionalSelector = (ConditionalSelector) selector;
+			analyzeSelector(conditionalSelector.getSimpleSelector(), ancestor,
+					attributeSet, pseudoClassSet);
+			analyzeCondition(conditionalSelector.getCondition(), ancestor,
+					attributeSet, pseudoClassSet);
+		} else if (selector instanceof DescendantSelector) {
+			DescendantSelector descendantSelector = (DescendantSelector) selector;
+			useAncestors = true;
+			analyzeSelector(descendantSelector.getAncestorSelector(), ancestor,
+					attributeSet, pseudoClassSet);
+			analyzeSelector(descendantSelector.getSimpleSelector(), ancestor,
+					attributeSet, pseudoClassSet);
+		} else if (!(selector instanceof ElementSelector)) {
+			// sibling selectors depend on the siblings of the element
+			cacheable = false;
+		}
+	}
+
+	private void analyzeCondition(Condition condition, boolean ancestor,
+			Set<String> attributeSet, Set<String> pseudoClassSet) {
+		if (condition instanceof CombinatorCondition) {
+			CombinatorCondition combinatorCondition = (CombinatorCondition) condition;
+			analyzeCondition(combinatorCondition.getFirstCondition(), ancestor,
+					attributeSet, pseudoClassSet);
+			analyzeCondition(combinatorCondition.getSecondCondition(),
+					ancestor, attributeSet, pseudoClassSet);
+		} else if (condition instanceof CSSPseudoClassConditionImpl) {
+			pseudoClassSet.add(((CSSPseudoClassConditionImpl) condition)
+					.getValue());
+		} else if (condition instanceof CSSClassConditionImpl) {
+			// the class is always part of the element signature
+			if (ancestor)
+				ancestorClasses.add(((CSSClassConditionImpl) condition)
+						.getValue());
+		} else if (condition instanceof CSSIdConditionImpl) {
+			// the id is always part of the element signature
+			if (ancestor)
+				ancestorUsesId = true;
+		} else if (condition instanceof AttributeCondition
+				&& ((AttributeCondition) condition).getLocalName() != null) {
+			attributeSet.add(((AttributeCondition) condition).getLocalName());
+		} else if (condition instanceof LangCondition) {
+			attributeSet.add("lang");
+		} else {
+			cacheable = false;
+		}
+	}
+}
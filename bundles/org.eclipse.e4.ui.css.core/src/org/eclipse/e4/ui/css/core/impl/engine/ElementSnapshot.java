@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.engine;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.e4.ui.css.core.dom.CSSStylableElement;
+import org.eclipse.e4.ui.css.core.dom.ElementAdapter;
+import org.eclipse.e4.ui.css.core.engine.CSSEngine;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSRuleIndex;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Immutable copy of the information of an {@link Element} read by the
+ * selectors of the style sheets : names, id, CSS class, the attributes and
+ * pseudo classes used by the selectors, and the snapshot of its parent.
+ * <p>
+ * Snapshots are created on the thread which owns the elements (ex : the SWT
+ * UI thread) and can then be matched against the selectors by other threads.
+ * </p>
+ */
+final class ElementSnapshot extends ElementAdapter {
+
+	private final ElementSnapshot parent;
+
+	private final String localName;
+
+	private final String nodeName;
+
+	private final String namespaceURI;
+
+	private final String prefix;
+
+	private final String id;
+
+	private final String cssClass;
+
+	private final Map<String, String> attributes = new HashMap<String, String>();
+
+	private final Set<String> pseudoInstances = new HashSet<String>();
+
+	private final Set<String> staticPseudoInstances = new HashSet<String>();
+
+	ElementSnapshot(Element element, ElementSnapshot parent,
+			String[] attributeNames, String[] pseudoClasses, CSSEngine engine) {
+		super(element instanceof CSSStylableElement ? ((CSSStylableElement) element)
+				.getNativeWidget()
+				: element, engine);
+		this.parent = parent;
+		this.localName = element.getLocalName();
+		this.nodeName = element.getNodeName();
+		this.namespaceURI = element.getNamespaceURI();
+		this.prefix = element.getPrefix();
+		this.id = CSSRuleIndex.getId(element);
+		if (element instanceof CSSStylableElement) {
+			this.cssClass = ((CSSStylableElement) element).getCSSClass();
+		} else {
+			this.cssClass = element.getAttribute("class");
+		}
+		for (int i = 0; i < attributeNames.length; i++) {
+			attributes.put(attributeNames[i], element
+					.getAttribute(attributeNames[i]));
+		}
+		if (element instanceof CSSStylableElement) {
+			CSSStylableElement stylableElement = (CSSStylableElement) element;
+			for (int i = 0; i < pseudoClasses.length; i++) {
+				if (stylableElement.isPseudoInstanceOf(pseudoClasses[i]))
+					pseudoInstances.add(pseudoClasses[i]);
+				if (stylableElement.isStaticPseudoInstance(pseudoClasses[i]))
+					staticPseudoInstances.add(pseudoClasses[i]);
+			}
+		}
+	}
+
+	public String getLocalName() {
+		return localName;
+	}
+
+	public String getNodeName() {
+		return nodeName;
+	}
+
+	public String getNamespaceURI() {
+		return namespaceURI;
+	}
+
+	public String getPrefix() {
+		return prefix;
+	}
+
+	public String getAttribute(String name) {
+		String value = attributes.get(name);
+		return value != null ? value : "";
+	}
+
+	public Node getParentNode() {
+		return parent;
+	}
+
+	public NodeList getChildNodes() {
+		return null;
+	}
+
+	public String getCSSId() {
+		return id;
+	}
+
+	public String getCSSClass() {
+		return cssClass;
+	}
+
+	public String getCSSStyle() {
+		return null;
+	}
+
+	public boolean isPseudoInstanceOf(String s) {
+		return pseudoInstances.contains(s);
+	}
+
+	public boolean isStaticPseudoInstance(String s) {
+		return staticPseudoInstances.contains(s);
+	}
+}
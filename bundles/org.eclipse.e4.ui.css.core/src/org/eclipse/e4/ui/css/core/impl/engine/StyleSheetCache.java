@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import org.eclipse.e4.ui.css.core.dom.parsers.CSSParser;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSRuleListSerializer;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleSheet;
+
+/**
+ * Cache of parsed style sheets stored in a directory. An entry is stored per
+ * style sheet URI and is only used while the content of the style sheet and
+ * the content of every style sheet it imports are the same as when the entry
+ * was written.
+ * <p>
+ * Any problem while reading an entry is reported as a cache miss, so the
+ * caller falls back to parsing the style sheet.
+ * </p>
+ */
+public class StyleSheetCache {
+
+	private static final int MAGIC = 0x45344353; // "E4CS"
+
+	private final File directory;
+
+	private int hitCount;
+
+	private int missCount;
+
+	public StyleSheetCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Return the directory where the entries are stored.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Return the rules cached for the style sheet <code>uri</code>, or null if
+	 * there is no entry or if the style sheet or one of its imports changed.
+	 *
+	 * @param uri
+	 *            the URI of the style sheet.
+	 * @param content
+	 *            the current content of the style sheet.
+	 * @param parentStyleSheet
+	 *            the style sheet the rules will belong to.
+	 * @param parser
+	 *            the parser whose SAC factories create the selectors.
+	 * @return
+	 */
+	public CSSRuleList get(String uri, byte[] content,
+			CSSStyleSheet parentStyleSheet, CSSParser parser) {
+		File file = getFile(uri);
+		if (!file.exists()) {
+			missCount++;
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			try {
+				if (in.readInt() != MAGIC || !uri.equals(in.readUTF())
+						|| !getHash(content).equals(in.readUTF())) {
+					missCount++;
+					return null;
+				}
+				int importCount = in.readInt();
+				for (int i = 0; i < importCount; i++) {
+					String importURI = in.readUTF();
+					String hash = in.readUTF();
+					if (!hash.equals(getContentHash(importURI))) {
+						missCount++;
+						return null;
+					}
+				}
+				CSSRuleList rules = CSSRuleListSerializer.read(in,
+						parentStyleSheet, parser.getSelectorFactory(), parser
+								.getConditionFactory());
+				hitCount++;
+				return rules;
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			// corrupted or outdated entry, parse the style sheet again
+			missCount++;
+			return null;
+		}
+	}
+
+	/**
+	 * Store the rules parsed from the style sheet <code>uri</code>. Style
+	 * sheets which can not be serialized are not cached.
+	 *
+	 * @param uri
+	 *            the URI of the style sheet.
+	 * @param content
+	 *            the content the rules were parsed from.
+	 * @param importURIs
+	 *            the URIs of the style sheets imported while parsing.
+	 * @param rules
+	 *            the parsed rules, including the imported ones.
+	 */
+	public void put(String uri, byte[] content, List<String> importURIs,
+			CSSRuleList rules) {
+		File file = getFile(uri);
+		File tempFile = new File(directory, file.getName() + ".tmp");
+		try {
+			if (!directory.exists() && !directory.mkdirs()) {
+				return;
+			}
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeUTF(uri);
+				out.writeUTF(getHash(content));
+				out.writeInt(importURIs.size());
+				for (int i = 0; i < importURIs.size(); i++) {
+					String importURI = importURIs.get(i);
+					out.writeUTF(importURI);
+					out.writeUTF(getContentHash(importURI));
+				}
+				CSSRuleListSerializer.write(rules, out);
+			} finally {
+				out.close();
+			}
+			file.delete();
+			if (!tempFile.renameTo(file)) {
+				tempFile.delete();
+			}
+		} catch (Exception e) {
+			// the style sheet can not be cached
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * Remove all the entries of the cache.
+	 */
+	public void clear() {
+		File[] files = directory.listFiles();
+		if (files == null)
+			return;
+		for (int i = 0; i < files.length; i++) {
+			files[i].delete();
+		}
+	}
+
+	/**
+	 * Return the number of style sheets read from the cache.
+	 */
+	public int getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Return the number of style sheets which were not found in the cache.
+	 */
+	public int getMissCount() {
+		return missCount;
+	}
+
+	/*--------------- Helpers -----------------*/
+
+	private File getFile(String uri) {
+		return new File(directory, getHash(uri.getBytes()) + ".bin");
+	}
+
+	private static String getContentHash(String uri) throws IOException {
+		InputStream stream = new URL(uri).openStream();
+		try {
+			return getHash(readContent(stream));
+		} finally {
+			stream.close();
+		}
+	}
+
+	private static String getHash(byte[] content) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+		byte[] hash = digest.digest(content);
+		StringBuilder result = new StringBuilder(hash.length * 2);
+		for (int i = 0; i < hash.length; i++) {
+			int b = hash[i] & 0xFF;
+			if (b < 0x10)
+				result.append('0');
+			result.append(Integer.toHexString(b));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Return the remaining content of <code>stream</code>. The stream is not
+	 * closed.
+	 */
+	static byte[] readContent(InputStream stream) throws IOException {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = stream.read(buffer)) != -1) {
+			content.write(buffer, 0, read);
+		}
+		return content.toByteArray();
+	}
+}
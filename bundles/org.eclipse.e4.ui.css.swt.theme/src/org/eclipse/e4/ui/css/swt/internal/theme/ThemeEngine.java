@@ -457,6 +457,15 @@ public class ThemeEngine implements IThemeEngine {
 		}
 	}
 
+	public void applyChangedStyles(Object widget) {
+		for (CSSEngine engine : cssEngines) {
+			Object element = engine.getElement(widget);
+			if (element != null) {
+				engine.applyChangedStyles(element);
+			}
+		}
+	}
+
 	private String getPreferenceThemeId() {
 		return getPreferences().get(THEMEID_KEY, null);
 	}
@@ -10,16 +10,28 @@
  *******************************************************************************/
 package org.eclipse.e4.ui.css.swt.internal.theme;
 
+import java.io.File;
+
 import org.eclipse.e4.ui.css.core.engine.CSSEngine;
 import org.eclipse.e4.ui.css.core.engine.CSSErrorHandler;
+import org.eclipse.e4.ui.css.core.impl.engine.StyleSheetCache;
 import org.eclipse.e4.ui.css.swt.dom.WidgetElement;
 import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
 import org.eclipse.e4.ui.css.swt.theme.IThemeEngine;
 import org.eclipse.e4.ui.css.swt.theme.IThemeManager;
 import org.eclipse.swt.widgets.Display;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
 
 public class ThemeEngineManager implements IThemeManager {
 	private static final String KEY = "org.eclipse.e4.ui.css.swt.theme";
+
+	/**
+	 * System property enabling the computation of the styles in parallel, off
+	 * by default.
+	 */
+	private static final String PARALLEL_STYLE_COMPUTATION = "org.eclipse.e4.ui.css.parallelStyleComputation"; //$NON-NLS-1$
 	
 	public IThemeEngine getEngineForDisplay(Display display) {
 		IThemeEngine engine = (IThemeEngine) display.getData(KEY);
@@ -37,7 +49,14 @@ public class ThemeEngineManager implements IThemeManager {
 		if (cssEngine != null) {
 			return cssEngine;
 		}
-		cssEngine = new CSSSWTEngineImpl(display, true);
+		CSSSWTEngineImpl swtEngine = new CSSSWTEngineImpl(display, true);
+		File cacheLocation = getStyleSheetCacheLocation();
+		if (cacheLocation != null) {
+			swtEngine.setStyleSheetCache(new StyleSheetCache(cacheLocation));
+		}
+		swtEngine.setParallelStyleComputation(Boolean
+				.getBoolean(PARALLEL_STYLE_COMPUTATION));
+		cssEngine = swtEngine;
 		cssEngine.setErrorHandler(new CSSErrorHandler() {
 			public void error(Exception e) {
 				// TODO Use the logger
@@ -47,4 +66,15 @@ public class ThemeEngineManager implements IThemeManager {
 		WidgetElement.setEngine(display, cssEngine);
 		return cssEngine;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Return the directory where the parsed theme style sheets are cached, or
+	 * null if the bundle has no data area.
+	 */
+	private File getStyleSheetCacheLocation() {
+		Bundle bundle = FrameworkUtil.getBundle(ThemeEngineManager.class);
+		BundleContext context = bundle != null ? bundle.getBundleContext()
+				: null;
+		return context != null ? context.getDataFile("stylesheets") : null; //$NON-NLS-1$
+	}
+}
@@ -152,6 +152,16 @@ public interface IThemeEngine {
 	 */
 	public void applyStyles(Object widget, boolean applyStylesToChildNodes);
 
+	/**
+	 * Reapply the style to the widget after its CSS class, id or state
+	 * changed. Only the changed properties are applied, and the children are
+	 * only updated when their styles depend on the change.
+	 * 
+	 * @param widget
+	 *            the widget
+	 */
+	public void applyChangedStyles(Object widget);
+
 	/**
 	 * Get the style currently active for a widget
 	 * 
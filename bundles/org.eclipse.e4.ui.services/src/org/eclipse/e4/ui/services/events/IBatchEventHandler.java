@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.services.events;
+
+import java.util.List;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * An event handler which receives the events of a batch in one call. Events sent outside of a
+ * batch are still delivered one by one through {@link #handleEvent(Event)}.
+ * 
+ * @see IBatchingEventBroker
+ */
+public interface IBatchEventHandler extends EventHandler {
+
+	/**
+	 * Called once when a batch is closed with the events of the batch which match the topic and
+	 * the filter of the subscription.
+	 * 
+	 * @param events
+	 *            the coalesced events, in the order they were sent
+	 */
+	public void handleEvents(List<Event> events);
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.services.events;
+
+import org.eclipse.e4.core.services.events.IEventBroker;
+
+/**
+ * An event broker which can buffer the events sent during a series of changes and deliver them
+ * once the changes are complete.
+ * <p>
+ * While a batch is open on a thread, the events {@link #send(String, Object) sent} from that
+ * thread are kept until the outermost batch is closed. Successive events of the
+ * {@link #setCoalescedEvents(String, String, String, String, String) coalesced} type with the
+ * same topic and element are merged into a single event carrying the first old value and the
+ * last new value, which is dropped if both values are equal. The remaining events are delivered
+ * in the order they were sent. Subscribers implementing {@link IBatchEventHandler} receive all
+ * the events of the batch in one call instead.
+ * </p>
+ * <p>
+ * Events {@link #post(String, Object) posted} asynchronously are never buffered.
+ * </p>
+ * 
+ * @noimplement This interface is not intended to be implemented by clients.
+ */
+public interface IBatchingEventBroker extends IEventBroker {
+
+	/**
+	 * Declare the events which are coalesced in the batches opened afterwards. The broker does not
+	 * know the event tags of the model events, the workbench declares them.
+	 * 
+	 * @param typeTag
+	 *            the event tag of the event type
+	 * @param type
+	 *            the type of the events which are coalesced
+	 * @param elementTag
+	 *            the event tag of the changed element
+	 * @param oldValueTag
+	 *            the event tag of the old value
+	 * @param newValueTag
+	 *            the event tag of the new value
+	 */
+	public void setCoalescedEvents(String typeTag, String type, String elementTag,
+			String oldValueTag, String newValueTag);
+
+	/**
+	 * Start buffering the events sent from the calling thread. Batches can be nested, each call
+	 * must be balanced by a call to {@link #endBatch()}.
+	 */
+	public void beginBatch();
+
+	/**
+	 * Close the batch opened by the matching {@link #beginBatch()}. Closing the outermost batch
+	 * delivers the buffered events.
+	 */
+	public void endBatch();
+
+	/**
+	 * @return <code>true</code> if a batch is open on the calling thread
+	 */
+	public boolean isBatching();
+}
@@ -14,32 +14,60 @@ import org.eclipse.e4.ui.di.UISynchronize;
 
 import org.eclipse.e4.core.di.annotations.Optional;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import org.eclipse.e4.core.services.events.IEventBroker;
 import org.eclipse.e4.core.services.log.Logger;
 import org.eclipse.e4.ui.internal.services.Activator;
 import org.eclipse.e4.ui.internal.services.ServiceMessages;
+import org.eclipse.e4.ui.services.events.IBatchEventHandler;
+import org.eclipse.e4.ui.services.events.IBatchingEventBroker;
 import org.eclipse.osgi.util.NLS;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleException;
+import org.osgi.framework.Filter;
+import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 
-public class EventBroker implements IEventBroker {
-	
+public class EventBroker implements IBatchingEventBroker {
+
+	/**
+	 * Property added to the events delivered when a batch is closed. Batch handlers receive these
+	 * events through {@link IBatchEventHandler#handleEvents(List)} and skip them in
+	 * {@link EventHandler#handleEvent(Event)}.
+	 */
+	static final String BATCHED = "org.eclipse.e4.ui.services.events.batched"; //$NON-NLS-1$
+
+	/**
+	 * The batch handlers of all the brokers. Every broker delivers its events to all the
+	 * subscribers of the event admin, so the batches are also delivered to all of them.
+	 */
+	private static List<BatchSubscription> batchSubscriptions =
+			new CopyOnWriteArrayList<BatchSubscription>();
+
+	/**
+	 * The events coalesced in the batches of all the brokers, or <code>null</code> if none are
+	 */
+	private static volatile CoalescedEvents coalescedEvents;
+
 	// TBD synchronization
 	private Map<EventHandler, ServiceRegistration> registrations = new HashMap<EventHandler, ServiceRegistration>();
 
+	private ThreadLocal<EventBatch> batch = new ThreadLocal<EventBatch>();
+
 	@Inject
 	Logger logger;
 	
@@ -73,6 +101,11 @@ public class EventBroker implements IEventBroker {
 
 	public boolean send(String topic, Object data) {
 		Event event = constructEvent(topic, data);
+		EventBatch currentBatch = batch.get();
+		if (currentBatch != null) {
+			currentBatch.add(event);
+			return true;
+		}
 		EventAdmin eventAdmin = Activator.getDefault().getEventAdmin();
 		if (eventAdmin == null) {
 			logger.error(NLS.bind(ServiceMessages.NO_EVENT_ADMIN, event.toString()));
@@ -125,6 +158,19 @@ public class EventBroker implements IEventBroker {
 		d.put(EventConstants.EVENT_TOPIC, topics);
 		if (filter != null)
 			d.put(EventConstants.EVENT_FILTER, filter);
+		if (eventHandler instanceof IBatchEventHandler) {
+			Filter eventFilter = null;
+			if (filter != null) {
+				try {
+					eventFilter = bundleContext.createFilter(filter);
+				} catch (InvalidSyntaxException e) {
+					logger.error(e);
+					return false;
+				}
+			}
+			batchSubscriptions.add(new BatchSubscription(this, topic, eventFilter,
+					(IBatchEventHandler) eventHandler, headless ? null : uiSync));
+		}
 		EventHandler wrappedHandler = new UIEventHandler(eventHandler, headless ? null : uiSync);
 		ServiceRegistration registration = bundleContext.registerService(EventHandler.class.getName(), wrappedHandler, d);
 		registrations.put(eventHandler, registration);
@@ -135,18 +181,245 @@ public class EventBroker implements IEventBroker {
 		ServiceRegistration registration = (ServiceRegistration) registrations.remove(eventHandler);
 		if (registration == null)
 			return false;
+		if (eventHandler instanceof IBatchEventHandler)
+			removeBatchSubscriptions(eventHandler);
 		registration.unregister();
 		return true;
 	}
+
+	public void setCoalescedEvents(String typeTag, String type, String elementTag,
+			String oldValueTag, String newValueTag) {
+		coalescedEvents = new CoalescedEvents(typeTag, type, elementTag, oldValueTag, newValueTag);
+	}
+
+	public void beginBatch() {
+		EventBatch currentBatch = batch.get();
+		if (currentBatch == null) {
+			currentBatch = new EventBatch(coalescedEvents);
+			batch.set(currentBatch);
+		}
+		currentBatch.depth++;
+	}
+
+	public void endBatch() {
+		EventBatch currentBatch = batch.get();
+		if (currentBatch == null)
+			throw new IllegalStateException("No batch to end"); //$NON-NLS-1$
+		if (--currentBatch.depth > 0)
+			return;
+		batch.remove();
+		deliver(currentBatch.getEvents());
+	}
+
+	public boolean isBatching() {
+		return batch.get() != null;
+	}
+
+	private void deliver(List<Event> events) {
+		if (events.isEmpty())
+			return;
+		EventAdmin eventAdmin = Activator.getDefault().getEventAdmin();
+		if (eventAdmin == null) {
+			logger.error(NLS.bind(ServiceMessages.NO_EVENT_ADMIN, events.get(0).toString()));
+			return;
+		}
+		for (Event event : events) {
+			eventAdmin.sendEvent(event);
+		}
+		for (BatchSubscription subscription : batchSubscriptions) {
+			subscription.deliver(events);
+		}
+	}
+
+	private void removeBatchSubscriptions(EventHandler eventHandler) {
+		// the list does not support Iterator.remove()
+		List<BatchSubscription> removed = new ArrayList<BatchSubscription>();
+		for (BatchSubscription subscription : batchSubscriptions) {
+			if (subscription.broker == this
+					&& (eventHandler == null || subscription.handler == eventHandler))
+				removed.add(subscription);
+		}
+		batchSubscriptions.removeAll(removed);
+	}
 	
 	@PreDestroy
 	void dispose() {
 		Collection<ServiceRegistration> values = registrations.values();
 		ServiceRegistration[] array = values.toArray(new ServiceRegistration[values.size()]);
 		registrations.clear();
+		removeBatchSubscriptions(null);
 		for (int i = 0; i < array.length; i++) {
 			//System.out.println("EventBroker dispose:" + array[i] + ")");
 			array[i].unregister();
 		}
 	}
+
+	/**
+	 * The events sent from one thread while a batch is open.
+	 */
+	private static class EventBatch {
+		int depth;
+
+		private final CoalescedEvents coalesced;
+
+		private List<Event> events = new ArrayList<Event>();
+
+		/**
+		 * The position in {@link #events} of the last coalesced event of each topic and element
+		 */
+		private Map<CoalescingKey, Integer> coalescedIndexes =
+				new HashMap<CoalescingKey, Integer>();
+
+		EventBatch(CoalescedEvents coalesced) {
+			this.coalesced = coalesced;
+		}
+
+		void add(Event event) {
+			if (coalesced == null) {
+				events.add(event);
+				return;
+			}
+			Object element = event.getProperty(coalesced.elementTag);
+			if (element == null || !coalesced.type.equals(event.getProperty(coalesced.typeTag))) {
+				events.add(event);
+				return;
+			}
+			CoalescingKey key = new CoalescingKey(event.getTopic(), element);
+			Integer index = coalescedIndexes.get(key);
+			if (index != null) {
+				// keep the original old value, the new value comes from the last event
+				Event previous = events.set(index.intValue(), null);
+				Map<String, Object> properties = getProperties(event);
+				Object oldValue = previous.getProperty(coalesced.oldValueTag);
+				if (oldValue == null)
+					properties.remove(coalesced.oldValueTag);
+				else
+					properties.put(coalesced.oldValueTag, oldValue);
+				if (isUnchanged(oldValue, properties.get(coalesced.newValueTag))) {
+					// the changes cancel each other out
+					coalescedIndexes.remove(key);
+					return;
+				}
+				event = new Event(event.getTopic(), properties);
+			}
+			coalescedIndexes.put(key, Integer.valueOf(events.size()));
+			events.add(event);
+		}
+
+		private static boolean isUnchanged(Object oldValue, Object newValue) {
+			return oldValue == null ? newValue == null : oldValue.equals(newValue);
+		}
+
+		List<Event> getEvents() {
+			List<Event> result = new ArrayList<Event>(events.size());
+			for (Event event : events) {
+				if (event == null)
+					continue;
+				Map<String, Object> properties = getProperties(event);
+				properties.put(BATCHED, Boolean.TRUE);
+				result.add(new Event(event.getTopic(), properties));
+			}
+			return result;
+		}
+
+		private static Map<String, Object> getProperties(Event event) {
+			String[] names = event.getPropertyNames();
+			Map<String, Object> properties = new HashMap<String, Object>(names.length + 1);
+			for (String name : names) {
+				properties.put(name, event.getProperty(name));
+			}
+			return properties;
+		}
+	}
+
+	/**
+	 * The event tags and the type of the events coalesced in a batch
+	 */
+	private static class CoalescedEvents {
+		final String typeTag;
+		final String type;
+		final String elementTag;
+		final String oldValueTag;
+		final String newValueTag;
+
+		CoalescedEvents(String typeTag, String type, String elementTag, String oldValueTag,
+				String newValueTag) {
+			this.typeTag = typeTag;
+			this.type = type;
+			this.elementTag = elementTag;
+			this.oldValueTag = oldValueTag;
+			this.newValueTag = newValueTag;
+		}
+	}
+
+	/**
+	 * The topic and the changed element of a coalesced event. Elements are compared by identity.
+	 */
+	private static class CoalescingKey {
+		private final String topic;
+		private final Object element;
+
+		CoalescingKey(String topic, Object element) {
+			this.topic = topic;
+			this.element = element;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CoalescingKey))
+				return false;
+			CoalescingKey other = (CoalescingKey) obj;
+			return element == other.element && topic.equals(other.topic);
+		}
+
+		@Override
+		public int hashCode() {
+			return topic.hashCode() * 31 + System.identityHashCode(element);
+		}
+	}
+
+	private static class BatchSubscription {
+		final EventBroker broker;
+		final String topic;
+		final Filter filter;
+		final IBatchEventHandler handler;
+		final UISynchronize uiSync;
+
+		BatchSubscription(EventBroker broker, String topic, Filter filter,
+				IBatchEventHandler handler, UISynchronize uiSync) {
+			this.broker = broker;
+			this.topic = topic;
+			this.filter = filter;
+			this.handler = handler;
+			this.uiSync = uiSync;
+		}
+
+		void deliver(List<Event> events) {
+			final List<Event> matching = new ArrayList<Event>();
+			for (Event event : events) {
+				if (matches(event))
+					matching.add(event);
+			}
+			if (matching.isEmpty())
+				return;
+			if (uiSync == null) {
+				handler.handleEvents(matching);
+			} else {
+				uiSync.syncExec(new Runnable() {
+					public void run() {
+						handler.handleEvents(matching);
+					}
+				});
+			}
+		}
+
+		private boolean matches(Event event) {
+			if (filter != null && !event.matches(filter))
+				return false;
+			// same rules as the event admin: an exact topic or a prefix followed by '*'
+			if (topic.endsWith("*")) //$NON-NLS-1$
+				return event.getTopic().startsWith(topic.substring(0, topic.length() - 1));
+			return topic.equals(event.getTopic());
+		}
+	}
 }
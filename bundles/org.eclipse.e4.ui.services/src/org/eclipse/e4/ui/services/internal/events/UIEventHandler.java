@@ -11,6 +11,7 @@
 package org.eclipse.e4.ui.services.internal.events;
 
 import org.eclipse.e4.ui.di.UISynchronize;
+import org.eclipse.e4.ui.services.events.IBatchEventHandler;
 
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
@@ -32,6 +33,10 @@ public class UIEventHandler implements EventHandler {
 	 * @see org.osgi.service.event.EventHandler#handleEvent(org.osgi.service.event.Event)
 	 */
 	public void handleEvent(final Event event) {
+		// batch handlers receive the events of a batch all at once
+		if (eventHandler instanceof IBatchEventHandler
+				&& event.getProperty(EventBroker.BATCHED) != null)
+			return;
 		if (uiSync == null)
 			eventHandler.handleEvent(event);
 		else {
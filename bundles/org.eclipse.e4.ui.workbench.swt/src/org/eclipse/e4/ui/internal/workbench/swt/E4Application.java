@@ -100,10 +100,14 @@ public class E4Application implements IApplication {
 	private static final String WORKSPACE_VERSION_KEY = "org.eclipse.core.runtime"; //$NON-NLS-1$
 	private static final String WORKSPACE_VERSION_VALUE = "2"; //$NON-NLS-1$
 	private static final String APPLICATION_MODEL_PATH_DEFAULT = "Application.e4xmi";
+	// Minutes between the automatic saves of the model, off unless an
+	// interval is given
+	private static final int DEFAULT_SAVE_INTERVAL = 0;
 
 	private String[] args;
 
 	private IModelResourceHandler handler;
+	private Runnable autoSave;
 	private Display display = null;
 	private E4Workbench workbench = null;
 
@@ -166,6 +170,8 @@ public class E4Application implements IApplication {
 	}
 
 	public void saveModel() {
+		// Stop the automatic saves, the handler waits for a running one
+		autoSave = null;
 		try {
 			handler.save();
 		} catch (IOException e) {
@@ -301,11 +307,46 @@ public class E4Application implements IApplication {
 		}
 		appContext.set(E4Workbench.PRESENTATION_URI_ARG, presentationURI);
 
+		// Save the model periodically without blocking the UI
+		scheduleAutoSave(display,
+				getArgValue(E4Workbench.SAVE_INTERVAL, applicationContext, false));
+
 		// Instantiate the Workbench (which is responsible for
 		// 'running' the UI (if any)...
 		return workbench = new E4Workbench(appModel, appContext);
 	}
 
+	/**
+	 * Save the model in the background every <code>interval</code> minutes
+	 * until {@link #saveModel()} is called. The model is copied on the UI
+	 * thread, if it changed since the last save, and written by a job. The
+	 * automatic saves are disabled unless a positive interval is given.
+	 */
+	private void scheduleAutoSave(final Display display, String interval) {
+		if (!(handler instanceof ResourceHandler))
+			return;
+		int minutes = DEFAULT_SAVE_INTERVAL;
+		if (interval != null) {
+			try {
+				minutes = Integer.parseInt(interval);
+			} catch (NumberFormatException e) {
+				// keep the default interval
+			}
+		}
+		if (minutes <= 0)
+			return;
+		final int milliseconds = minutes * 60 * 1000;
+		autoSave = new Runnable() {
+			public void run() {
+				if (autoSave != this || display.isDisposed())
+					return;
+				((ResourceHandler) handler).saveInBackground();
+				display.timerExec(milliseconds, this);
+			}
+		};
+		display.timerExec(milliseconds, autoSave);
+	}
+
 	private MApplication loadApplicationModel(IApplicationContext appContext,
 			IEclipseContext eclipseContext) {
 		MApplication theApp = null;
@@ -353,6 +394,13 @@ public class E4Application implements IApplication {
 		eclipseContext.set(E4Workbench.DELTA_RESTORE,
 				Boolean.valueOf(deltaRestore));
 
+		// Binary model format
+		boolean binaryModelFormat;
+		value = getArgValue(E4Workbench.BINARY_MODEL_FORMAT, appContext, false);
+		binaryModelFormat = value != null && Boolean.parseBoolean(value);
+		eclipseContext.set(E4Workbench.BINARY_MODEL_FORMAT,
+				Boolean.valueOf(binaryModelFormat));
+
 		String resourceHandler = getArgValue(
 				E4Workbench.MODEL_RESOURCE_HANDLER, appContext, false);
 
@@ -1138,12 +1138,12 @@ public class PartRenderingEngine implements IPresentationEngine {
 			appContext.set(IStylingEngine.SERVICE_NAME, new IStylingEngine() {
 				public void setClassname(Object widget, String classname) {
 					WidgetElement.setCSSClass((Widget) widget, classname);
-					engine.applyStyles((Widget) widget, true);
+					engine.applyChangedStyles((Widget) widget);
 				}
 
 				public void setId(Object widget, String id) {
 					WidgetElement.setID((Widget) widget, id);
-					engine.applyStyles((Widget) widget, true);
+					engine.applyChangedStyles((Widget) widget);
 				}
 
 				public void style(Object widget) {
@@ -1158,7 +1158,7 @@ public class PartRenderingEngine implements IPresentationEngine {
 						String id) {
 					WidgetElement.setCSSClass((Widget) widget, classname);
 					WidgetElement.setID((Widget) widget, id);
-					engine.applyStyles((Widget) widget, true);
+					engine.applyChangedStyles((Widget) widget);
 				}
 
 			});
@@ -1176,12 +1176,12 @@ public class PartRenderingEngine implements IPresentationEngine {
 			appContext.set(IStylingEngine.SERVICE_NAME, new IStylingEngine() {
 				public void setClassname(Object widget, String classname) {
 					WidgetElement.setCSSClass((Widget) widget, classname);
-					engine.applyStyles((Widget) widget, true);
+					engine.applyChangedStyles((Widget) widget);
 				}
 
 				public void setId(Object widget, String id) {
 					WidgetElement.setID((Widget) widget, id);
-					engine.applyStyles((Widget) widget, true);
+					engine.applyChangedStyles((Widget) widget);
 				}
 
 				public void style(Object widget) {
@@ -1201,7 +1201,7 @@ public class PartRenderingEngine implements IPresentationEngine {
 						String id) {
 					WidgetElement.setCSSClass((Widget) widget, classname);
 					WidgetElement.setID((Widget) widget, id);
-					engine.applyStyles((Widget) widget, true);
+					engine.applyChangedStyles((Widget) widget);
 				}
 
 			});
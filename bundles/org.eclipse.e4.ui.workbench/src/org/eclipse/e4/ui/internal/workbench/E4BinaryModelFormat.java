@@ -0,0 +1,374 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.internal.workbench;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.FeatureMapUtil;
+
+/**
+ * Compact binary serialization of the contents of an {@link E4XMIResource}. Elements are written
+ * in containment order with their XMI id and the features XMI would save. Class names, feature
+ * names and values are written once in a string table and then referenced by index, and
+ * references inside the resource are written as element indexes instead of URI fragments.
+ * <p>
+ * Loading a binary model skips the XML parsing and the name lookups of the XMI loader. Feature
+ * names rather than feature ids are stored so a model written with a previous version of the
+ * model packages can still be read.
+ * </p>
+ */
+final class E4BinaryModelFormat {
+
+	static final int MAGIC = 0x45344D42; // "E4MB"
+
+	private static final int VERSION = 1;
+
+	private static final int NULL_STRING = -1;
+
+	private static final int NEW_STRING = -2;
+
+	private static final byte NO_VALUE = 0;
+
+	private static final byte LOCAL_REFERENCE = 1;
+
+	private static final byte EXTERNAL_REFERENCE = 2;
+
+	private E4BinaryModelFormat() {
+	}
+
+	/**
+	 * @param in
+	 *            a stream supporting mark and reset
+	 * @return <code>true</code> if the stream starts with a binary model
+	 */
+	static boolean isBinaryModel(InputStream in) throws IOException {
+		in.mark(4);
+		try {
+			int magic = 0;
+			for (int i = 0; i < 4; i++) {
+				int b = in.read();
+				if (b == -1)
+					return false;
+				magic = (magic << 8) | b;
+			}
+			return magic == MAGIC;
+		} finally {
+			in.reset();
+		}
+	}
+
+	static void write(E4XMIResource resource, OutputStream outputStream) throws IOException {
+		new Writer(resource, new DataOutputStream(outputStream)).write();
+	}
+
+	static void read(E4XMIResource resource, InputStream inputStream) throws IOException {
+		new Reader(resource, new DataInputStream(inputStream)).read();
+	}
+
+	/**
+	 * Return true if the feature is part of the serialized state of the element, the same way
+	 * XMI decides.
+	 */
+	private static boolean isSaved(EObject eObject, EStructuralFeature feature) {
+		if (feature.isTransient() || feature.isDerived() || !eObject.eIsSet(feature))
+			return false;
+		if (feature instanceof EReference && ((EReference) feature).isContainer())
+			return false;
+		return true;
+	}
+
+	private static class Writer {
+		private final E4XMIResource resource;
+		private final DataOutputStream out;
+		private final Map<String, Integer> strings = new HashMap<String, Integer>();
+		private final Map<EObject, Integer> objects = new HashMap<EObject, Integer>();
+
+		Writer(E4XMIResource resource, DataOutputStream out) {
+			this.resource = resource;
+			this.out = out;
+		}
+
+		void write() throws IOException {
+			List<EObject> contents = resource.getContents();
+			// number the elements first so that forward references can be written
+			for (EObject eObject : contents) {
+				number(eObject);
+			}
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(contents.size());
+			for (EObject eObject : contents) {
+				writeObject(eObject);
+			}
+			out.flush();
+		}
+
+		private void number(EObject eObject) {
+			objects.put(eObject, Integer.valueOf(objects.size()));
+			for (EStructuralFeature feature : eObject.eClass().getEAllStructuralFeatures()) {
+				if (!(feature instanceof EReference) || !((EReference) feature).isContainment()
+						|| !isSaved(eObject, feature))
+					continue;
+				for (EObject child : getReferences(eObject, (EReference) feature)) {
+					number(child);
+				}
+			}
+		}
+
+		private void writeObject(EObject eObject) throws IOException {
+			writeClass(eObject.eClass());
+			writeString(resource.getID(eObject));
+			for (EStructuralFeature feature : eObject.eClass().getEAllStructuralFeatures()) {
+				if (!isSaved(eObject, feature))
+					continue;
+				if (FeatureMapUtil.isFeatureMap(feature))
+					throw new IOException("Feature maps are not supported: " + feature.getName()); //$NON-NLS-1$
+				writeString(feature.getName());
+				if (feature instanceof EAttribute) {
+					writeAttribute(eObject, (EAttribute) feature);
+				} else {
+					EReference reference = (EReference) feature;
+					List<EObject> values = getReferences(eObject, reference);
+					out.writeInt(values.size());
+					for (EObject value : values) {
+						if (reference.isContainment()) {
+							writeObject(value);
+						} else {
+							writeReference(value);
+						}
+					}
+				}
+			}
+			writeString(null);
+		}
+
+		private void writeAttribute(EObject eObject, EAttribute attribute) throws IOException {
+			Object value = eObject.eGet(attribute);
+			List<?> values = attribute.isMany() ? (List<?>) value : Collections
+					.singletonList(value);
+			out.writeInt(values.size());
+			for (Object item : values) {
+				writeString(item == null ? null : EcoreUtil.convertToString(
+						attribute.getEAttributeType(), item));
+			}
+		}
+
+		private void writeReference(EObject value) throws IOException {
+			if (value == null) {
+				out.writeByte(NO_VALUE);
+				return;
+			}
+			Integer index = objects.get(value);
+			if (index != null) {
+				out.writeByte(LOCAL_REFERENCE);
+				out.writeInt(index.intValue());
+			} else {
+				out.writeByte(EXTERNAL_REFERENCE);
+				writeClass(value.eClass());
+				writeString(EcoreUtil.getURI(value).toString());
+			}
+		}
+
+		private void writeClass(EClass eClass) throws IOException {
+			writeString(eClass.getEPackage().getNsURI());
+			writeString(eClass.getName());
+		}
+
+		private void writeString(String value) throws IOException {
+			if (value == null) {
+				out.writeInt(NULL_STRING);
+				return;
+			}
+			Integer index = strings.get(value);
+			if (index != null) {
+				out.writeInt(index.intValue());
+				return;
+			}
+			strings.put(value, Integer.valueOf(strings.size()));
+			byte[] bytes = value.getBytes("UTF-8"); //$NON-NLS-1$
+			out.writeInt(NEW_STRING);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		@SuppressWarnings("unchecked")
+		private static List<EObject> getReferences(EObject eObject, EReference reference) {
+			Object value = eObject.eGet(reference, false);
+			if (reference.isMany())
+				return (List<EObject>) value;
+			List<EObject> values = new ArrayList<EObject>(1);
+			values.add((EObject) value);
+			return values;
+		}
+	}
+
+	private static class Reader {
+		private final E4XMIResource resource;
+		private final DataInputStream in;
+		private final List<String> strings = new ArrayList<String>();
+		private final List<EObject> objects = new ArrayList<EObject>();
+		private final Map<String, EClass> classes = new HashMap<String, EClass>();
+		// references are set once all the elements exist, in the order they were read
+		private final List<Object[]> references = new ArrayList<Object[]>();
+
+		Reader(E4XMIResource resource, DataInputStream in) {
+			this.resource = resource;
+			this.in = in;
+		}
+
+		void read() throws IOException {
+			if (in.readInt() != MAGIC)
+				throw new IOException("Not a binary workbench model"); //$NON-NLS-1$
+			int version = in.readInt();
+			if (version != VERSION)
+				throw new IOException("Unsupported binary workbench model version: " + version); //$NON-NLS-1$
+			int count = in.readInt();
+			List<EObject> contents = new ArrayList<EObject>(count);
+			for (int i = 0; i < count; i++) {
+				contents.add(readObject());
+			}
+			for (Object[] reference : references) {
+				EObject owner = (EObject) reference[0];
+				EReference feature = (EReference) reference[1];
+				Object target = reference[2];
+				EObject value = target instanceof Integer ? objects.get(((Integer) target)
+						.intValue()) : (EObject) target;
+				if (feature.isMany()) {
+					getList(owner, feature).add(value);
+				} else {
+					owner.eSet(feature, value);
+				}
+			}
+			resource.getContents().addAll(contents);
+		}
+
+		private EObject readObject() throws IOException {
+			EClass eClass = readClass();
+			EObject eObject = EcoreUtil.create(eClass);
+			objects.add(eObject);
+			String id = readString();
+			if (id != null)
+				resource.setID(eObject, id);
+			String featureName;
+			while ((featureName = readString()) != null) {
+				EStructuralFeature feature = eClass.getEStructuralFeature(featureName);
+				if (feature == null)
+					throw new IOException("Unknown feature " + eClass.getName() + '.' //$NON-NLS-1$
+							+ featureName);
+				int count = in.readInt();
+				if (feature instanceof EAttribute) {
+					readAttribute(eObject, (EAttribute) feature, count);
+				} else {
+					EReference reference = (EReference) feature;
+					for (int i = 0; i < count; i++) {
+						if (reference.isContainment()) {
+							EObject child = readObject();
+							if (reference.isMany()) {
+								getList(eObject, reference).add(child);
+							} else {
+								eObject.eSet(reference, child);
+							}
+						} else {
+							readReference(eObject, reference);
+						}
+					}
+				}
+			}
+			return eObject;
+		}
+
+		private void readAttribute(EObject eObject, EAttribute attribute, int count)
+				throws IOException {
+			for (int i = 0; i < count; i++) {
+				String literal = readString();
+				Object value = literal == null ? null : EcoreUtil.createFromString(
+						attribute.getEAttributeType(), literal);
+				if (attribute.isMany()) {
+					getList(eObject, attribute).add(value);
+				} else {
+					eObject.eSet(attribute, value);
+				}
+			}
+		}
+
+		private void readReference(EObject owner, EReference reference) throws IOException {
+			byte kind = in.readByte();
+			Object target;
+			if (kind == NO_VALUE) {
+				target = null;
+			} else if (kind == LOCAL_REFERENCE) {
+				target = Integer.valueOf(in.readInt());
+			} else if (kind == EXTERNAL_REFERENCE) {
+				EObject proxy = EcoreUtil.create(readClass());
+				((InternalEObject) proxy).eSetProxyURI(URI.createURI(readString()));
+				target = proxy;
+			} else {
+				throw new IOException("Invalid reference kind: " + kind); //$NON-NLS-1$
+			}
+			references.add(new Object[] { owner, reference, target });
+		}
+
+		private EClass readClass() throws IOException {
+			String nsURI = readString();
+			String name = readString();
+			String key = nsURI + '#' + name;
+			EClass eClass = classes.get(key);
+			if (eClass == null) {
+				EPackage ePackage = resource.getResourceSet() != null ? resource
+						.getResourceSet().getPackageRegistry().getEPackage(nsURI)
+						: EPackage.Registry.INSTANCE.getEPackage(nsURI);
+				if (ePackage == null)
+					throw new IOException("Unknown package " + nsURI); //$NON-NLS-1$
+				eClass = (EClass) ePackage.getEClassifier(name);
+				if (eClass == null)
+					throw new IOException("Unknown class " + name); //$NON-NLS-1$
+				classes.put(key, eClass);
+			}
+			return eClass;
+		}
+
+		private String readString() throws IOException {
+			int index = in.readInt();
+			if (index == NULL_STRING)
+				return null;
+			if (index != NEW_STRING)
+				return strings.get(index);
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			String value = new String(bytes, "UTF-8"); //$NON-NLS-1$
+			strings.add(value);
+			return value;
+		}
+
+		@SuppressWarnings("unchecked")
+		private static List<Object> getList(EObject eObject, EStructuralFeature feature) {
+			return (List<Object>) eObject.eGet(feature);
+		}
+	}
+}
@@ -46,6 +46,8 @@ public class E4Workbench implements IWorkbench {
 
 	public static final String CLEAR_PERSISTED_STATE = "clearPersistedState"; //$NON-NLS-1$
 	public static final String DELTA_RESTORE = "deltaRestore"; //$NON-NLS-1$
+	public static final String BINARY_MODEL_FORMAT = "binaryModelFormat"; //$NON-NLS-1$
+	public static final String SAVE_INTERVAL = "saveInterval"; //$NON-NLS-1$
 
 	public static final String RTL_MODE = "dir"; //$NON-NLS-1$
 
@@ -71,6 +73,7 @@ public class E4Workbench implements IWorkbench {
 
 		uiEventPublisher = new UIEventPublisher(appContext);
 		((Notifier) uiRoot).eAdapters().add(uiEventPublisher);
+		appContext.set(ModelElementIndex.class, uiEventPublisher.getElementIndex());
 	}
 
 	/**
@@ -128,6 +131,7 @@ public class E4Workbench implements IWorkbench {
 		}
 		if (uiEventPublisher != null && appModel != null) {
 			((Notifier) appModel).eAdapters().remove(uiEventPublisher);
+			appContext.remove(ModelElementIndex.class);
 			uiEventPublisher = null;
 		}
 		return true;
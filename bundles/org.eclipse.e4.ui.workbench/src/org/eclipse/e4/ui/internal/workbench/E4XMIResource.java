@@ -11,6 +11,10 @@
 
 package org.eclipse.e4.ui.internal.workbench;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.WeakHashMap;
@@ -23,6 +27,8 @@ public class E4XMIResource extends XMIResourceImpl {
 
 	private Map<EObject, String> objectMap = new WeakHashMap<EObject, String>();
 
+	private boolean binaryFormat;
+
 	public E4XMIResource() {
 	}
 
@@ -30,6 +36,44 @@ public class E4XMIResource extends XMIResourceImpl {
 		super(uri);
 	}
 
+	/**
+	 * Set whether the resource is saved in the compact binary format instead of XMI. Both formats
+	 * are always accepted when loading.
+	 * 
+	 * @param binaryFormat
+	 *            <code>true</code> to save the resource in the binary format
+	 */
+	public void setBinaryFormat(boolean binaryFormat) {
+		this.binaryFormat = binaryFormat;
+	}
+
+	/**
+	 * @return <code>true</code> if the resource is saved in the binary format
+	 */
+	public boolean isBinaryFormat() {
+		return binaryFormat;
+	}
+
+	@Override
+	public void doLoad(InputStream inputStream, Map<?, ?> options) throws IOException {
+		InputStream in = inputStream.markSupported() ? inputStream : new BufferedInputStream(
+				inputStream);
+		if (E4BinaryModelFormat.isBinaryModel(in)) {
+			E4BinaryModelFormat.read(this, in);
+		} else {
+			super.doLoad(in, options);
+		}
+	}
+
+	@Override
+	public void doSave(OutputStream outputStream, Map<?, ?> options) throws IOException {
+		if (binaryFormat) {
+			E4BinaryModelFormat.write(this, outputStream);
+		} else {
+			super.doSave(outputStream, options);
+		}
+	}
+
 	public void setInternalId(EObject object, String id) {
 		objectMap.put(object, id);
 	}
@@ -17,8 +17,26 @@ import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
 
 public class E4XMIResourceFactory extends XMIResourceFactoryImpl {
 
+	private final boolean binaryFormat;
+
+	public E4XMIResourceFactory() {
+		this(false);
+	}
+
+	/**
+	 * @param binaryFormat
+	 *            <code>true</code> if the created resources are saved in the compact binary format
+	 *            instead of XMI
+	 * @see E4XMIResource#setBinaryFormat(boolean)
+	 */
+	public E4XMIResourceFactory(boolean binaryFormat) {
+		this.binaryFormat = binaryFormat;
+	}
+
 	@Override
 	public Resource createResource(URI uri) {
-		return new E4XMIResource(uri);
+		E4XMIResource resource = new E4XMIResource(uri);
+		resource.setBinaryFormat(binaryFormat);
+		return resource;
 	}
 }
@@ -31,12 +31,14 @@ import org.eclipse.e4.core.contexts.EclipseContextFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.di.annotations.Execute;
 import org.eclipse.e4.core.services.contributions.IContributionFactory;
+import org.eclipse.e4.core.services.events.IEventBroker;
 import org.eclipse.e4.core.services.log.Logger;
 import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.e4.ui.model.application.MApplicationElement;
 import org.eclipse.e4.ui.model.fragment.MModelFragment;
 import org.eclipse.e4.ui.model.fragment.MModelFragments;
 import org.eclipse.e4.ui.model.fragment.impl.FragmentPackageImpl;
+import org.eclipse.e4.ui.services.events.IBatchingEventBroker;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.common.util.URI;
@@ -89,96 +91,107 @@ public class ModelAssembler {
 			}
 		}
 
-		for (IExtension extension : extensions) {
-			IConfigurationElement[] ces = extension.getConfigurationElements();
-			for (IConfigurationElement ce : ces) {
-				if (!"fragment".equals(ce.getName())) { //$NON-NLS-1$
-					continue;
-				}
-				IContributor contributor = ce.getContributor();
-				String attrURI = ce.getAttribute("uri"); //$NON-NLS-1$
-				if (attrURI == null) {
-					logger.warn("Unable to find location for the model extension \"{0}\"", //$NON-NLS-1$
-							contributor.getName());
-					continue;
-				}
-
-				URI uri;
-				String bundleName = contributor.getName();
-				String path = bundleName + '/' + attrURI;
-				try {
-					uri = URI.createPlatformPluginURI(path, false);
-				} catch (RuntimeException e) {
-					logger.warn(e, "Model extension has invalid location"); //$NON-NLS-1$
-					continue;
-				}
+		// Deliver the events of the merged elements once they are all in the model
+		IEventBroker eventBroker = context.get(IEventBroker.class);
+		IBatchingEventBroker batchingBroker = eventBroker instanceof IBatchingEventBroker
+				? (IBatchingEventBroker) eventBroker : null;
+		if (batchingBroker != null)
+			batchingBroker.beginBatch();
+		try {
+			for (IExtension extension : extensions) {
+				IConfigurationElement[] ces = extension.getConfigurationElements();
+				for (IConfigurationElement ce : ces) {
+					if (!"fragment".equals(ce.getName())) { //$NON-NLS-1$
+						continue;
+					}
+					IContributor contributor = ce.getContributor();
+					String attrURI = ce.getAttribute("uri"); //$NON-NLS-1$
+					if (attrURI == null) {
+						logger.warn("Unable to find location for the model extension \"{0}\"", //$NON-NLS-1$
+								contributor.getName());
+						continue;
+					}
 
-				String contributorURI = URIHelper.constructPlatformURI(contributor);
-				Resource resource;
-				try {
-					resource = resourceSet.getResource(uri, true);
-				} catch (RuntimeException e) {
-					logger.warn(e, "Unable to read model extension"); //$NON-NLS-1$
-					continue;
-				}
+					URI uri;
+					String bundleName = contributor.getName();
+					String path = bundleName + '/' + attrURI;
+					try {
+						uri = URI.createPlatformPluginURI(path, false);
+					} catch (RuntimeException e) {
+						logger.warn(e, "Model extension has invalid location"); //$NON-NLS-1$
+						continue;
+					}
 
-				EList<?> contents = resource.getContents();
-				if (contents.isEmpty()) {
-					continue;
-				}
+					String contributorURI = URIHelper.constructPlatformURI(contributor);
+					Resource resource;
+					try {
+						resource = resourceSet.getResource(uri, true);
+					} catch (RuntimeException e) {
+						logger.warn(e, "Unable to read model extension"); //$NON-NLS-1$
+						continue;
+					}
 
-				Object extensionRoot = contents.get(0);
+					EList<?> contents = resource.getContents();
+					if (contents.isEmpty()) {
+						continue;
+					}
 
-				if (!(extensionRoot instanceof MModelFragments)) {
-					logger.warn("Unable to create model extension \"{0}\"", //$NON-NLS-1$
-							contributor.getName());
-					continue;
-				}
+					Object extensionRoot = contents.get(0);
 
-				MModelFragments fragmentsContainer = (MModelFragments) extensionRoot;
-				List<MModelFragment> fragments = fragmentsContainer.getFragments();
-				boolean evalImports = false;
-				for (MModelFragment fragment : fragments) {
-					List<MApplicationElement> elements = fragment.getElements();
-					if (elements.size() == 0) {
+					if (!(extensionRoot instanceof MModelFragments)) {
+						logger.warn("Unable to create model extension \"{0}\"", //$NON-NLS-1$
+								contributor.getName());
 						continue;
 					}
 
-					for (MApplicationElement el : elements) {
-						EObject o = (EObject) el;
+					MModelFragments fragmentsContainer = (MModelFragments) extensionRoot;
+					List<MModelFragment> fragments = fragmentsContainer.getFragments();
+					boolean evalImports = false;
+					for (MModelFragment fragment : fragments) {
+						List<MApplicationElement> elements = fragment.getElements();
+						if (elements.size() == 0) {
+							continue;
+						}
+
+						for (MApplicationElement el : elements) {
+							EObject o = (EObject) el;
 
-						E4XMIResource r = (E4XMIResource) o.eResource();
-						applicationResource.setID(o, r.getID(o));
+							E4XMIResource r = (E4XMIResource) o.eResource();
+							applicationResource.setID(o, r.getID(o));
 
-						if (contributorURI != null)
-							el.setContributorURI(contributorURI);
+							if (contributorURI != null)
+								el.setContributorURI(contributorURI);
 
-						// Remember IDs of subitems
-						TreeIterator<EObject> treeIt = EcoreUtil.getAllContents(o, true);
-						while (treeIt.hasNext()) {
-							EObject eObj = treeIt.next();
-							r = (E4XMIResource) eObj.eResource();
-							if (contributorURI != null && (eObj instanceof MApplicationElement))
-								((MApplicationElement) eObj).setContributorURI(contributorURI);
-							applicationResource.setID(eObj, r.getInternalId(eObj));
+							// Remember IDs of subitems
+							TreeIterator<EObject> treeIt = EcoreUtil.getAllContents(o, true);
+							while (treeIt.hasNext()) {
+								EObject eObj = treeIt.next();
+								r = (E4XMIResource) eObj.eResource();
+								if (contributorURI != null && (eObj instanceof MApplicationElement))
+									((MApplicationElement) eObj).setContributorURI(contributorURI);
+								applicationResource.setID(eObj, r.getInternalId(eObj));
+							}
 						}
-					}
 
-					List<MApplicationElement> merged = fragment.merge(application);
+						List<MApplicationElement> merged = fragment.merge(application);
 
-					if (merged.size() > 0) {
-						evalImports = true;
-						addedElements.addAll(merged);
+						if (merged.size() > 0) {
+							evalImports = true;
+							addedElements.addAll(merged);
+						}
 					}
-				}
 
-				if (evalImports) {
-					List<MApplicationElement> localImports = fragmentsContainer.getImports();
-					if (localImports != null) {
-						imports.addAll(localImports);
+					if (evalImports) {
+						List<MApplicationElement> localImports = fragmentsContainer.getImports();
+						if (localImports != null) {
+							imports.addAll(localImports);
+						}
 					}
 				}
 			}
+		} finally {
+			if (batchingBroker != null)
+				batchingBroker.endBatch();
 		}
 
 		for (IExtension extension : extensions) {
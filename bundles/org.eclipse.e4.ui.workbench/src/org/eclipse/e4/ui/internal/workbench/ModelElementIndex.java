@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.internal.workbench;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.e4.ui.model.application.ui.MUIElement;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPlaceholder;
+
+/**
+ * Lookup tables from element id, tag and concrete type to the {@link MUIElement}s of the
+ * application model, and from the shared elements to the {@link MPlaceholder}s referencing them.
+ * The index is maintained by the {@link UIEventPublisher} as elements are added to and removed
+ * from the model and as their id, tags and references change.
+ * <p>
+ * The index only tells which elements carry an id, a tag or a type. Whether an element can be
+ * reached from a given search root is left to the {@link ModelServiceImpl}.
+ * </p>
+ */
+public class ModelElementIndex {
+
+	private Map<String, Set<MUIElement>> elementsById = new HashMap<String, Set<MUIElement>>();
+
+	private Map<String, Set<MUIElement>> elementsByTag = new HashMap<String, Set<MUIElement>>();
+
+	private Map<Class<?>, Set<MUIElement>> elementsByType = new HashMap<Class<?>, Set<MUIElement>>();
+
+	/**
+	 * The id and the tags each element is currently indexed with
+	 */
+	private Map<MUIElement, List<String>> indexedKeys = new HashMap<MUIElement, List<String>>();
+
+	private Map<MUIElement, List<MPlaceholder>> placeholdersByRef = new HashMap<MUIElement, List<MPlaceholder>>();
+
+	/**
+	 * The reference each placeholder is currently indexed with
+	 */
+	private Map<MPlaceholder, MUIElement> indexedRefs = new HashMap<MPlaceholder, MUIElement>();
+
+	/**
+	 * Add the element to the index, or update its entries if it is already indexed.
+	 *
+	 * @param element
+	 *            the element to index
+	 */
+	public void add(MUIElement element) {
+		if (indexedKeys.containsKey(element)) {
+			update(element);
+			return;
+		}
+		List<String> keys = getKeys(element);
+		indexedKeys.put(element, keys);
+		addKeys(element, keys);
+		addToSet(elementsByType, element.getClass(), element);
+		if (element instanceof MPlaceholder)
+			updateReference((MPlaceholder) element);
+	}
+
+	/**
+	 * Remove the element from the index.
+	 *
+	 * @param element
+	 *            the element to remove
+	 */
+	public void remove(MUIElement element) {
+		List<String> keys = indexedKeys.remove(element);
+		if (keys == null)
+			return;
+		removeKeys(element, keys);
+		removeFromSet(elementsByType, element.getClass(), element);
+		if (element instanceof MPlaceholder)
+			removeReference((MPlaceholder) element);
+	}
+
+	/**
+	 * Update the entries of an indexed element after its id or its tags changed.
+	 *
+	 * @param element
+	 *            the changed element
+	 */
+	public void update(MUIElement element) {
+		List<String> oldKeys = indexedKeys.get(element);
+		if (oldKeys == null)
+			return;
+		List<String> keys = getKeys(element);
+		if (keys.equals(oldKeys))
+			return;
+		removeKeys(element, oldKeys);
+		indexedKeys.put(element, keys);
+		addKeys(element, keys);
+	}
+
+	/**
+	 * Update the entry of an indexed placeholder after its reference changed.
+	 *
+	 * @param placeholder
+	 *            the changed placeholder
+	 */
+	public void updateReference(MPlaceholder placeholder) {
+		if (!indexedKeys.containsKey(placeholder))
+			return;
+		MUIElement ref = placeholder.getRef();
+		if (ref == indexedRefs.get(placeholder))
+			return;
+		removeReference(placeholder);
+		if (ref != null) {
+			indexedRefs.put(placeholder, ref);
+			List<MPlaceholder> placeholders = placeholdersByRef.get(ref);
+			if (placeholders == null) {
+				placeholders = new ArrayList<MPlaceholder>(1);
+				placeholdersByRef.put(ref, placeholders);
+			}
+			placeholders.add(placeholder);
+		}
+	}
+
+	/**
+	 * @param element
+	 * @return the indexed placeholders referencing the element, <code>null</code> if there are
+	 *         none
+	 */
+	public List<MPlaceholder> getPlaceholders(MUIElement element) {
+		return placeholdersByRef.get(element);
+	}
+
+	/**
+	 * @return <code>true</code> iff an indexed placeholder references an element which is not
+	 *         indexed
+	 */
+	public boolean hasUnindexedReferences() {
+		for (MUIElement ref : placeholdersByRef.keySet()) {
+			if (!indexedKeys.containsKey(ref))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param element
+	 * @return <code>true</code> iff the element is indexed
+	 */
+	public boolean contains(MUIElement element) {
+		return indexedKeys.containsKey(element);
+	}
+
+	/**
+	 * @return the number of indexed elements
+	 */
+	public int size() {
+		return indexedKeys.size();
+	}
+
+	/**
+	 * Return the indexed elements which may match the given criteria. The returned elements carry
+	 * the given id or one of the given tags, or are instances of the given class, but must still be
+	 * matched against all the criteria.
+	 *
+	 * @param id
+	 *            The Id, may be <code>null</code>
+	 * @param clazz
+	 *            The class the elements must be an instance of, may be <code>null</code>
+	 * @param tagsToMatch
+	 *            The tags the elements must have, may be <code>null</code>
+	 * @return the candidate elements or <code>null</code> if no criteria restricts the candidates
+	 */
+	public Collection<MUIElement> getCandidates(String id, Class<?> clazz, List<String> tagsToMatch) {
+		Collection<MUIElement> candidates = null;
+		if (id != null) {
+			candidates = getSet(elementsById, id);
+		}
+		if (tagsToMatch != null) {
+			for (String tag : tagsToMatch) {
+				Set<MUIElement> tagged = getSet(elementsByTag, tag);
+				if (candidates == null || tagged.size() < candidates.size())
+					candidates = tagged;
+			}
+		}
+		if (candidates == null && clazz != null) {
+			candidates = getElements(clazz);
+		}
+		return candidates;
+	}
+
+	/**
+	 * @param clazz
+	 * @return the indexed elements which are instances of the given class
+	 */
+	public Collection<MUIElement> getElements(Class<?> clazz) {
+		Collection<MUIElement> elements = new ArrayList<MUIElement>();
+		for (Map.Entry<Class<?>, Set<MUIElement>> entry : elementsByType.entrySet()) {
+			if (clazz.isAssignableFrom(entry.getKey()))
+				elements.addAll(entry.getValue());
+		}
+		return elements;
+	}
+
+	/**
+	 * Remove all the elements from the index.
+	 */
+	public void clear() {
+		elementsById.clear();
+		elementsByTag.clear();
+		elementsByType.clear();
+		indexedKeys.clear();
+		placeholdersByRef.clear();
+		indexedRefs.clear();
+	}
+
+	private void removeReference(MPlaceholder placeholder) {
+		MUIElement ref = indexedRefs.remove(placeholder);
+		if (ref == null)
+			return;
+		List<MPlaceholder> placeholders = placeholdersByRef.get(ref);
+		placeholders.remove(placeholder);
+		if (placeholders.isEmpty())
+			placeholdersByRef.remove(ref);
+	}
+
+	private List<String> getKeys(MUIElement element) {
+		// the id comes first, followed by the tags
+		List<String> keys = new ArrayList<String>(element.getTags().size() + 1);
+		keys.add(element.getElementId());
+		keys.addAll(element.getTags());
+		return keys;
+	}
+
+	private void addKeys(MUIElement element, List<String> keys) {
+		if (keys.get(0) != null)
+			addToSet(elementsById, keys.get(0), element);
+		for (int i = 1; i < keys.size(); i++) {
+			addToSet(elementsByTag, keys.get(i), element);
+		}
+	}
+
+	private void removeKeys(MUIElement element, List<String> keys) {
+		if (keys.get(0) != null)
+			removeFromSet(elementsById, keys.get(0), element);
+		for (int i = 1; i < keys.size(); i++) {
+			removeFromSet(elementsByTag, keys.get(i), element);
+		}
+	}
+
+	private static <K> void addToSet(Map<K, Set<MUIElement>> map, K key, MUIElement element) {
+		Set<MUIElement> elements = map.get(key);
+		if (elements == null) {
+			elements = new HashSet<MUIElement>();
+			map.put(key, elements);
+		}
+		elements.add(element);
+	}
+
+	private static <K> void removeFromSet(Map<K, Set<MUIElement>> map, K key, MUIElement element) {
+		Set<MUIElement> elements = map.get(key);
+		if (elements == null)
+			return;
+		elements.remove(element);
+		if (elements.isEmpty())
+			map.remove(key);
+	}
+
+	private static Set<MUIElement> getSet(Map<String, Set<MUIElement>> map, String key) {
+		Set<MUIElement> elements = map.get(key);
+		if (elements == null)
+			return Collections.emptySet();
+		return elements;
+	}
+}
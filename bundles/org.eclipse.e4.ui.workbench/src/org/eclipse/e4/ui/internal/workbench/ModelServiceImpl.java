@@ -12,7 +12,14 @@
 package org.eclipse.e4.ui.internal.workbench;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.services.events.IEventBroker;
@@ -40,6 +47,7 @@ import org.eclipse.e4.ui.model.application.ui.basic.MWindowElement;
 import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
 import org.eclipse.e4.ui.model.application.ui.menu.MToolControl;
 import org.eclipse.e4.ui.model.internal.ModelUtils;
+import org.eclipse.e4.ui.services.events.IBatchingEventBroker;
 import org.eclipse.e4.ui.workbench.IPresentationEngine;
 import org.eclipse.e4.ui.workbench.UIEvents;
 import org.eclipse.e4.ui.workbench.UIEvents.EventTags;
@@ -47,6 +55,7 @@ import org.eclipse.e4.ui.workbench.modeling.EModelService;
 import org.eclipse.e4.ui.workbench.modeling.EPartService;
 import org.eclipse.e4.ui.workbench.modeling.EPlaceholderResolver;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
@@ -57,6 +66,23 @@ import org.osgi.service.event.EventHandler;
 public class ModelServiceImpl implements EModelService {
 	private static String HOSTED_ELEMENT = "HostedElement"; //$NON-NLS-1$
 
+	// Search key of the elements whose location can't be checked through the index
+	private static final int[] UNSUPPORTED_KEY = new int[] { -1 };
+
+	private static final Comparator<int[]> SEARCH_KEY_COMPARATOR = new Comparator<int[]>() {
+		public int compare(int[] key1, int[] key2) {
+			int length = Math.min(key1.length, key2.length);
+			for (int i = 0; i < length; i++) {
+				if (key1[i] != key2[i])
+					return key1[i] < key2[i] ? -1 : 1;
+			}
+			// ancestors are found before their descendants
+			return key1.length - key2.length;
+		}
+	};
+
+	private IEclipseContext appContext;
+
 	// Cleans up after a hosted element is disposed
 	private EventHandler hostedElementHandler = new EventHandler() {
 
@@ -85,6 +111,7 @@ public class ModelServiceImpl implements EModelService {
 	 *            The applicationContext to get teh eventBroker from
 	 */
 	public ModelServiceImpl(IEclipseContext appContext) {
+		this.appContext = appContext;
 		if (appContext == null)
 			return;
 
@@ -209,23 +236,161 @@ public class ModelServiceImpl implements EModelService {
 	 */
 	public <T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch) {
-		List<T> elements = new ArrayList<T>();
-		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, ANYWHERE);
-		return elements;
+		return findElements(searchRoot, id, clazz, tagsToMatch, ANYWHERE);
 	}
 
 	public <T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch, int searchFlags) {
 		List<T> elements = new ArrayList<T>();
-		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, searchFlags);
+		if (!findIndexedElements(searchRoot, id, clazz, tagsToMatch, elements, searchFlags))
+			findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, searchFlags);
 		return elements;
 	}
 
 	private <T> List<T> findPerspectiveElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch) {
-		List<T> elements = new ArrayList<T>();
-		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, PRESENTATION);
-		return elements;
+		return findElements(searchRoot, id, clazz, tagsToMatch, PRESENTATION);
+	}
+
+	/**
+	 * Find the elements through the {@link ModelElementIndex} maintained by the
+	 * {@link UIEventPublisher}. The candidates of the index are kept if they can be reached from
+	 * the search root the same way {@link #findElementsRecursive} would reach them, and are
+	 * returned in the order the recursive search would find them.
+	 * 
+	 * @return <code>false</code> if the index can't be used for this search, the elements must
+	 *         then be searched recursively
+	 */
+	private <T> boolean findIndexedElements(MUIElement searchRoot, String id,
+			Class<? extends T> type, List<String> tagsToMatch, List<T> elements, int searchFlags) {
+		Assert.isLegal(searchRoot != null);
+		ModelElementIndex index = appContext == null ? null : appContext
+				.get(ModelElementIndex.class);
+		if (index == null || searchFlags == 0 || !index.contains(searchRoot))
+			return false;
+		Collection<MUIElement> candidates = index.getCandidates(id, type, tagsToMatch);
+		if (candidates == null || candidates.size() > index.size() / 2) {
+			// not selective enough, walking the model is as fast
+			return false;
+		}
+
+		// the recursive search would follow a reference out of the indexed model
+		if (index.hasUnindexedReferences())
+			return false;
+
+		final Map<MUIElement, int[]> keys = new HashMap<MUIElement, int[]>();
+		Map<MUIElement, int[]> knownKeys = new HashMap<MUIElement, int[]>();
+		Set<MUIElement> visiting = new HashSet<MUIElement>();
+		List<MUIElement> found = new ArrayList<MUIElement>();
+		for (MUIElement candidate : candidates) {
+			if (!match(candidate, id, type, tagsToMatch))
+				continue;
+			int[] key = getSearchKey(candidate, searchRoot, searchFlags, index, knownKeys,
+					visiting);
+			if (key == UNSUPPORTED_KEY)
+				return false;
+			if (key != null) {
+				keys.put(candidate, key);
+				found.add(candidate);
+			}
+		}
+		Collections.sort(found, new Comparator<MUIElement>() {
+			public int compare(MUIElement element1, MUIElement element2) {
+				return SEARCH_KEY_COMPARATOR.compare(keys.get(element1), keys.get(element2));
+			}
+		});
+		for (MUIElement element : found) {
+			elements.add((T) element);
+		}
+		return true;
+	}
+
+	/**
+	 * Return the position at which {@link #findElementsRecursive} reaches the element from the
+	 * search root, as the list of (kind, index) steps of the path from the root. The kinds are
+	 * ordered the way the recursive search visits them: children, trim bars, detached windows and
+	 * placeholder references.
+	 * 
+	 * @return the key, <code>null</code> if the element can't be reached or
+	 *         {@link #UNSUPPORTED_KEY} if the search must be done recursively
+	 */
+	private int[] getSearchKey(MUIElement element, MUIElement searchRoot, int searchFlags,
+			ModelElementIndex index, Map<MUIElement, int[]> knownKeys,
+			Set<MUIElement> visiting) {
+		if (element == searchRoot)
+			return new int[0];
+		if (knownKeys.containsKey(element))
+			return knownKeys.get(element);
+		if (!visiting.add(element))
+			return null;
+
+		int[] key = null;
+		EObject eObject = (EObject) element;
+		EObject container = eObject.eContainer();
+		EStructuralFeature feature = eObject.eContainmentFeature();
+		if (container instanceof MUIElement && feature != null) {
+			String featureName = feature.getName();
+			int kind = -1;
+			if (container instanceof MElementContainer<?> && "children".equals(featureName)) { //$NON-NLS-1$
+				if (!(container instanceof MPerspectiveStack)
+						|| (searchFlags & IN_ANY_PERSPECTIVE) != 0) {
+					kind = 0;
+				} else if ((searchFlags & IN_ACTIVE_PERSPECTIVE) != 0) {
+					if (((MPerspectiveStack) container).getSelectedElement() == element)
+						kind = 0;
+				} else if ((searchFlags & IN_SHARED_AREA) != 0) {
+					// shared areas are searched anywhere below the perspective stack
+					key = UNSUPPORTED_KEY;
+				}
+			} else if (container instanceof MTrimmedWindow && "trimBars".equals(featureName)) { //$NON-NLS-1$
+				if ((searchFlags & IN_TRIM) != 0)
+					kind = 1;
+			} else if ((container instanceof MWindow || container instanceof MPerspective)
+					&& "windows".equals(featureName)) { //$NON-NLS-1$
+				kind = 2;
+			}
+			if (kind != -1) {
+				int[] parentKey = getSearchKey((MUIElement) container, searchRoot, searchFlags,
+						index, knownKeys, visiting);
+				if (parentKey == UNSUPPORTED_KEY) {
+					key = UNSUPPORTED_KEY;
+				} else if (parentKey != null) {
+					int position = ((List<?>) container.eGet(feature)).indexOf(element);
+					key = appendSearchStep(parentKey, kind, position);
+				}
+			}
+		}
+
+		// Shared elements are reached through the placeholders referencing them
+		List<MPlaceholder> placeholders = index.getPlaceholders(element);
+		if (key != UNSUPPORTED_KEY && placeholders != null
+				&& (!(element instanceof MArea) || (searchFlags & IN_SHARED_AREA) != 0)) {
+			for (MPlaceholder placeholder : placeholders) {
+				int[] placeholderKey = getSearchKey(placeholder, searchRoot, searchFlags,
+						index, knownKeys, visiting);
+				if (placeholderKey == UNSUPPORTED_KEY) {
+					key = UNSUPPORTED_KEY;
+					break;
+				}
+				if (placeholderKey != null) {
+					int[] refKey = appendSearchStep(placeholderKey, 3, 0);
+					if (key == null || SEARCH_KEY_COMPARATOR.compare(refKey, key) < 0)
+						key = refKey;
+				}
+			}
+		}
+
+		visiting.remove(element);
+		knownKeys.put(element, key);
+		return key;
+	}
+
+	private static int[] appendSearchStep(int[] key, int kind, int position) {
+		int[] result = new int[key.length + 2];
+		System.arraycopy(key, 0, result, 0, key.length);
+		result[key.length] = kind;
+		result[key.length + 1] = position;
+		return result;
 	}
 
 	/*
@@ -497,20 +662,40 @@ public class ModelServiceImpl implements EModelService {
 	 */
 	public void move(MUIElement element, MElementContainer<MUIElement> newParent, int index,
 			boolean leavePlaceholder) {
-		// Cache where we were
-		MElementContainer<MUIElement> curParent = element.getParent();
-		int curIndex = curParent.getChildren().indexOf(element);
-
-		// Move the model element
-		newParent.getChildren().add(index, element);
-
-		if (leavePlaceholder) {
-			MPlaceholder ph = MAdvancedFactory.INSTANCE.createPlaceholder();
-			ph.setRef(element);
-			curParent.getChildren().add(curIndex, ph);
+		IBatchingEventBroker batchingBroker = getBatchingBroker();
+		if (batchingBroker != null)
+			batchingBroker.beginBatch();
+		try {
+			// Cache where we were
+			MElementContainer<MUIElement> curParent = element.getParent();
+			int curIndex = curParent.getChildren().indexOf(element);
+
+			// Move the model element
+			newParent.getChildren().add(index, element);
+
+			if (leavePlaceholder) {
+				MPlaceholder ph = MAdvancedFactory.INSTANCE.createPlaceholder();
+				ph.setRef(element);
+				curParent.getChildren().add(curIndex, ph);
+			}
+		} finally {
+			if (batchingBroker != null)
+				batchingBroker.endBatch();
 		}
 	}
 
+	/**
+	 * @return the event broker buffering the events of the bulk model changes, or
+	 *         <code>null</code> if the events are delivered one by one
+	 */
+	private IBatchingEventBroker getBatchingBroker() {
+		if (appContext == null)
+			return null;
+		IEventBroker eventBroker = appContext.get(IEventBroker.class);
+		return eventBroker instanceof IBatchingEventBroker ? (IBatchingEventBroker) eventBroker
+				: null;
+	}
+
 	private void combine(MPartSashContainerElement toInsert, MPartSashContainerElement relTo,
 			MPartSashContainer newSash, boolean newFirst, float ratio) {
 		MElementContainer<MUIElement> curParent = relTo.getParent();
@@ -828,7 +1013,15 @@ public class ModelServiceImpl implements EModelService {
 	}
 
 	public void resetPerspectiveModel(MPerspective persp, MWindow window) {
-		resetPerspectiveModel(persp, window, true);
+		IBatchingEventBroker batchingBroker = getBatchingBroker();
+		if (batchingBroker != null)
+			batchingBroker.beginBatch();
+		try {
+			resetPerspectiveModel(persp, window, true);
+		} finally {
+			if (batchingBroker != null)
+				batchingBroker.endBatch();
+		}
 	}
 
 	private void resetPerspectiveModel(MPerspective persp, MWindow window,
@@ -11,8 +11,11 @@
 
 package org.eclipse.e4.ui.internal.workbench;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.net.URLConnection;
 import java.util.Collection;
@@ -23,7 +26,11 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.xml.parsers.DocumentBuilderFactory;
 import org.eclipse.core.internal.runtime.PlatformURLPluginConnection;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.URIUtil;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.services.log.Logger;
@@ -39,13 +46,18 @@ import org.eclipse.e4.ui.workbench.IModelResourceHandler;
 import org.eclipse.e4.ui.workbench.modeling.IModelReconcilingService;
 import org.eclipse.e4.ui.workbench.modeling.ModelDelta;
 import org.eclipse.e4.ui.workbench.modeling.ModelReconciler;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.URIConverter;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EContentAdapter;
 import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMLResource;
 import org.eclipse.osgi.service.datalocation.Location;
 import org.osgi.framework.Bundle;
 import org.w3c.dom.Document;
@@ -81,6 +93,21 @@ public class ResourceHandler implements IModelResourceHandler {
 	final private boolean saveAndRestore;
 	final private boolean clearPersistedState;
 
+	/**
+	 * The most recent snapshot of the model which is waiting to be written by the
+	 * {@link #saveJob}.
+	 */
+	private Resource pendingSnapshot;
+	private final Object snapshotLock = new Object();
+	private Job saveJob;
+
+	/**
+	 * Whether the model changed since it was last saved. The changes are only tracked once the
+	 * model is saved in the background, by the {@link #changeTracker}.
+	 */
+	private boolean modelChanged = true;
+	private Adapter changeTracker;
+
 	/**
 	 * Constructor.
 	 * 
@@ -100,8 +127,10 @@ public class ResourceHandler implements IModelResourceHandler {
 	@PostConstruct
 	void init() {
 		resourceSetImpl = new ResourceSetImpl();
+		boolean binaryFormat = Boolean.TRUE.equals(context.get(E4Workbench.BINARY_MODEL_FORMAT));
 		resourceSetImpl.getResourceFactoryRegistry().getExtensionToFactoryMap()
-				.put(Resource.Factory.Registry.DEFAULT_EXTENSION, new E4XMIResourceFactory());
+				.put(Resource.Factory.Registry.DEFAULT_EXTENSION,
+						new E4XMIResourceFactory(binaryFormat));
 
 		resourceSetImpl.getPackageRegistry().put(ApplicationPackageImpl.eNS_URI,
 				ApplicationPackageImpl.eINSTANCE);
@@ -223,8 +252,144 @@ public class ResourceHandler implements IModelResourceHandler {
 	}
 
 	public void save() throws IOException {
-		if (saveAndRestore)
-			resource.save(null);
+		if (!saveAndRestore)
+			return;
+		// A background save must not overwrite the state written now
+		if (saveJob != null) {
+			synchronized (snapshotLock) {
+				pendingSnapshot = null;
+			}
+			saveJob.cancel();
+			try {
+				saveJob.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		writeResource(resource);
+		modelChanged = false;
+	}
+
+	/**
+	 * Save the model without blocking the caller for the serialization. The model is copied on the
+	 * calling thread, which must be the thread owning the model, and the copy is written by a
+	 * background job. Snapshots taken while the job is still writing a previous one are coalesced
+	 * and only the most recent is written. Nothing is copied if the model did not change since the
+	 * last save.
+	 * 
+	 * @return the job writing the model, or <code>null</code> if the model is not persisted or did
+	 *         not change
+	 */
+	public Job saveInBackground() {
+		if (!saveAndRestore)
+			return null;
+		trackChanges();
+		if (!modelChanged)
+			return null;
+		modelChanged = false;
+		Resource snapshot = createSnapshot();
+		synchronized (snapshotLock) {
+			pendingSnapshot = snapshot;
+		}
+		if (saveJob == null) {
+			saveJob = new Job("Saving workbench model") { //$NON-NLS-1$
+				@Override
+				protected IStatus run(IProgressMonitor monitor) {
+					Resource snapshot;
+					synchronized (snapshotLock) {
+						snapshot = pendingSnapshot;
+						pendingSnapshot = null;
+					}
+					if (snapshot == null || monitor.isCanceled())
+						return Status.OK_STATUS;
+					try {
+						writeResource(snapshot);
+					} catch (IOException e) {
+						return new Status(IStatus.ERROR, Activator.PI_WORKBENCH,
+								"Unable to save the workbench model", e); //$NON-NLS-1$
+					}
+					return Status.OK_STATUS;
+				}
+			};
+			saveJob.setSystem(true);
+		}
+		saveJob.schedule();
+		return saveJob;
+	}
+
+	/**
+	 * Start tracking the changes of the model. Changes to transient features, such as the widgets
+	 * and renderers of the elements, are not saved and are ignored.
+	 */
+	private void trackChanges() {
+		if (changeTracker != null)
+			return;
+		changeTracker = new EContentAdapter() {
+			@Override
+			public void notifyChanged(Notification notification) {
+				super.notifyChanged(notification);
+				if (notification.isTouch())
+					return;
+				Object feature = notification.getFeature();
+				if (feature instanceof EStructuralFeature
+						&& ((EStructuralFeature) feature).isTransient())
+					return;
+				modelChanged = true;
+			}
+		};
+		resource.eAdapters().add(changeTracker);
+	}
+
+	/**
+	 * Copy the model into a resource which is not shared with the application. The copies keep the
+	 * ids of the original elements so they are serialized exactly like the model.
+	 */
+	private Resource createSnapshot() {
+		E4XMIResource snapshot = new E4XMIResource(resource.getURI());
+		if (resource instanceof E4XMIResource)
+			snapshot.setBinaryFormat(((E4XMIResource) resource).isBinaryFormat());
+		EcoreUtil.Copier copier = new EcoreUtil.Copier();
+		Collection<EObject> contents = copier.copyAll(resource.getContents());
+		copier.copyReferences();
+		snapshot.getContents().addAll(contents);
+		if (resource instanceof XMLResource) {
+			XMLResource xmlResource = (XMLResource) resource;
+			for (Map.Entry<EObject, EObject> entry : copier.entrySet()) {
+				String id = xmlResource.getID(entry.getKey());
+				if (id != null)
+					snapshot.setID(entry.getValue(), id);
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Write the resource to a temporary file which then replaces the saved model, so an
+	 * interrupted save never leaves a truncated model behind.
+	 */
+	private void writeResource(Resource resourceToSave) throws IOException {
+		URI uri = resourceToSave.getURI();
+		if (!uri.isFile()) {
+			resourceToSave.save(null);
+			return;
+		}
+		File file = new File(uri.toFileString());
+		File tempFile = new File(file.getParentFile(), file.getName() + ".tmp"); //$NON-NLS-1$
+		file.getParentFile().mkdirs();
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+		try {
+			resourceToSave.save(out, null);
+		} finally {
+			out.close();
+		}
+		if (!tempFile.renameTo(file)) {
+			// the target can't be replaced on some platforms
+			file.delete();
+			if (!tempFile.renameTo(file)) {
+				tempFile.delete();
+				throw new IOException("Unable to replace " + file); //$NON-NLS-1$
+			}
+		}
 	}
 
 	// Ensures that even models with error are loaded!
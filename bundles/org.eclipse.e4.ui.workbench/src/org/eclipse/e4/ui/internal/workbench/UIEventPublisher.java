@@ -19,10 +19,13 @@ import org.eclipse.e4.ui.model.application.MApplicationElement;
 import org.eclipse.e4.ui.model.application.impl.StringToObjectMapImpl;
 import org.eclipse.e4.ui.model.application.impl.StringToStringMapImpl;
 import org.eclipse.e4.ui.model.application.ui.MUIElement;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPlaceholder;
+import org.eclipse.e4.ui.services.events.IBatchingEventBroker;
 import org.eclipse.e4.ui.workbench.UIEvents;
 import org.eclipse.e4.ui.workbench.UIEvents.EventTags;
 import org.eclipse.e4.ui.workbench.UIEvents.EventTypes;
 import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.Notifier;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.util.EContentAdapter;
@@ -34,11 +37,39 @@ public class UIEventPublisher extends EContentAdapter {
 
 	private IEclipseContext context;
 
+	private ModelElementIndex elementIndex = new ModelElementIndex();
+
 	/**
 	 * @param e4Context
 	 */
 	public UIEventPublisher(IEclipseContext e4Context) {
 		this.context = e4Context;
+
+		// Let the broker coalesce the SET events sent in a batch
+		IEventBroker eventBroker = e4Context.get(IEventBroker.class);
+		if (eventBroker instanceof IBatchingEventBroker) {
+			((IBatchingEventBroker) eventBroker).setCoalescedEvents(EventTags.TYPE,
+					EventTypes.SET, EventTags.ELEMENT, EventTags.OLD_VALUE, EventTags.NEW_VALUE);
+		}
+	}
+
+	/**
+	 * @return the index of the elements this adapter is attached to
+	 */
+	public ModelElementIndex getElementIndex() {
+		return elementIndex;
+	}
+
+	public void setTarget(Notifier target) {
+		super.setTarget(target);
+		if (target instanceof MUIElement)
+			elementIndex.add((MUIElement) target);
+	}
+
+	public void unsetTarget(Notifier target) {
+		super.unsetTarget(target);
+		if (target instanceof MUIElement)
+			elementIndex.remove((MUIElement) target);
 	}
 
 	public void notifyChanged(Notification notification) {
@@ -48,6 +79,27 @@ public class UIEventPublisher extends EContentAdapter {
 		if (notification.isTouch())
 			return;
 
+		// Keep the index current before the event handlers search the model
+		if (notification.getNotifier() instanceof MUIElement
+				&& notification.getFeature() instanceof EStructuralFeature) {
+			String featureName = ((EStructuralFeature) notification.getFeature()).getName();
+			if (UIEvents.ApplicationElement.ELEMENTID.equals(featureName)
+					|| UIEvents.ApplicationElement.TAGS.equals(featureName)) {
+				elementIndex.update((MUIElement) notification.getNotifier());
+			} else if (UIEvents.Placeholder.REF.equals(featureName)
+					&& notification.getNotifier() instanceof MPlaceholder) {
+				elementIndex.updateReference((MPlaceholder) notification.getNotifier());
+			}
+		}
+
+		// Only the notifications formatted below are published, skip building the arguments of
+		// the others
+		Object notifier = notification.getNotifier();
+		if (!(notifier instanceof MApplicationElement)
+				&& !(notifier instanceof StringToObjectMapImpl)
+				&& !(notifier instanceof StringToStringMapImpl))
+			return;
+
 		// Format the EMF event as an E4 UIEvent
 		Map<String, Object> argMap = new HashMap<String, Object>();
 
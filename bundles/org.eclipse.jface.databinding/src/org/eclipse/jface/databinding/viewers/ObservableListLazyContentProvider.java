@@ -0,0 +1,356 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.databinding.viewers;
+
+import java.util.Map;
+
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.Observables;
+import org.eclipse.core.databinding.observable.list.IListChangeListener;
+import org.eclipse.core.databinding.observable.list.IObservableList;
+import org.eclipse.core.databinding.observable.list.ListChangeEvent;
+import org.eclipse.core.databinding.observable.list.ListDiffVisitor;
+import org.eclipse.core.databinding.observable.masterdetail.IObservableFactory;
+import org.eclipse.core.databinding.observable.masterdetail.MasterDetailObservables;
+import org.eclipse.core.databinding.observable.set.IObservableSet;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.eclipse.core.runtime.Assert;
+import org.eclipse.jface.databinding.swt.SWTObservables;
+import org.eclipse.jface.internal.databinding.viewers.ObservableViewerElementSet;
+import org.eclipse.jface.internal.databinding.viewers.ViewerElementMap;
+import org.eclipse.jface.viewers.AbstractTableViewer;
+import org.eclipse.jface.viewers.IElementComparer;
+import org.eclipse.jface.viewers.ILazyContentProvider;
+import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * A {@link ILazyContentProvider lazy content provider} for
+ * {@link AbstractTableViewer} with the {@link SWT#VIRTUAL} style that provides
+ * elements of an {@link IObservableList} when set as the viewer's input.
+ * Elements are only read from the list when the viewer shows their rows.
+ * <p>
+ * Objects of this class listen for changes to the observable list and
+ * translate them into updates of the item count and of the rows the viewer
+ * has realized. Rows which are not realized are left to the viewer, which
+ * requests them when they become visible. The content provider only keeps
+ * track of the realized rows, so its memory does not depend on the size of the
+ * list.
+ * </p>
+ * <p>
+ * As with any lazy content provider, the viewer must not have a sorter or
+ * filters.
+ * </p>
+ *
+ * @noextend This class is not intended to be subclassed by clients.
+ * @since 1.7
+ */
+public class ObservableListLazyContentProvider implements ILazyContentProvider {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private Display display;
+
+	private IObservableValue viewerObservable;
+
+	private AbstractTableViewer viewer;
+
+	private IElementComparer comparer;
+
+	private IObservableList observableList;
+
+	private IObservableSet knownElements;
+
+	private IObservableSet unmodifiableKnownElements;
+
+	/**
+	 * The item count the viewer was last given.
+	 */
+	private int itemCount;
+
+	/**
+	 * The ascending indices of the realized rows, and the elements the viewer
+	 * was given for them.
+	 */
+	private int[] realizedIndices;
+	private Object[] realizedRows;
+	private int realizedCount;
+
+	/**
+	 * The number of realized rows of each known element.
+	 */
+	private Map rowCounts;
+
+	private IListChangeListener listener = new IListChangeListener() {
+		public void handleListChange(ListChangeEvent event) {
+			if (isViewerDisposed())
+				return;
+			ObservableListLazyContentProvider.this.handleListChange(event);
+		}
+	};
+
+	/**
+	 * Constructs an ObservableListLazyContentProvider. Must be called from the
+	 * display thread.
+	 */
+	public ObservableListLazyContentProvider() {
+		display = Display.getDefault();
+		viewerObservable = new WritableValue(SWTObservables.getRealm(display));
+		knownElements = MasterDetailObservables.detailSet(viewerObservable,
+				new IObservableFactory() {
+					public IObservable createObservable(Object target) {
+						IElementComparer comparer = null;
+						if (target instanceof StructuredViewer)
+							comparer = ((StructuredViewer) target)
+									.getComparer();
+						return ObservableViewerElementSet.withComparer(
+								SWTObservables.getRealm(display), null,
+								comparer);
+					}
+				}, null);
+		unmodifiableKnownElements = Observables
+				.unmodifiableObservableSet(knownElements);
+		clearRealizedRows();
+	}
+
+	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+		if (!(viewer instanceof AbstractTableViewer))
+			throw new IllegalArgumentException(
+					"This content provider only works with AbstractTableViewer"); //$NON-NLS-1$
+		if (newInput != null)
+			Assert.isTrue(newInput instanceof IObservableList,
+					"This content provider only works with input of type IObservableList"); //$NON-NLS-1$
+
+		if (observableList != null) {
+			observableList.removeListChangeListener(listener);
+			observableList = null;
+		}
+		if (viewer != this.viewer) {
+			this.viewer = (AbstractTableViewer) viewer;
+			comparer = this.viewer.getComparer();
+			viewerObservable.setValue(viewer); // (clears knownElements)
+		}
+		clearRealizedRows();
+		knownElements.clear();
+
+		observableList = (IObservableList) newInput;
+		if (observableList != null)
+			observableList.addListChangeListener(listener);
+		itemCount = observableList == null ? 0 : observableList.size();
+		if (!isViewerDisposed())
+			this.viewer.setItemCount(itemCount);
+	}
+
+	public void updateElement(int index) {
+		if (observableList == null || index >= itemCount)
+			return;
+		Object element = observableList.get(index);
+		Object oldElement = realizeRow(index, element);
+		viewer.replace(element, index);
+		if (oldElement != null)
+			unrealizeRow(oldElement);
+	}
+
+	private void handleListChange(ListChangeEvent event) {
+		// the rows from the first added or removed row on have shifted, the
+		// replaced rows before it are updated in place
+		final int[] firstShifted = new int[] { Integer.MAX_VALUE };
+		final int[][] replaced = new int[][] { new int[INITIAL_CAPACITY] };
+		final int[] replacedCount = new int[] { 0 };
+		event.diff.accept(new ListDiffVisitor() {
+			public void handleAdd(int index, Object element) {
+				firstShifted[0] = Math.min(firstShifted[0], index);
+			}
+
+			public void handleRemove(int index, Object element) {
+				firstShifted[0] = Math.min(firstShifted[0], index);
+			}
+
+			public void handleReplace(int index, Object oldElement,
+					Object newElement) {
+				if (replacedCount[0] == replaced[0].length) {
+					int[] grown = new int[replacedCount[0] * 2];
+					System.arraycopy(replaced[0], 0, grown, 0,
+							replacedCount[0]);
+					replaced[0] = grown;
+				}
+				replaced[0][replacedCount[0]++] = index;
+			}
+		});
+
+		int newItemCount = observableList.size();
+		int first = findRealizedRow(firstShifted[0]);
+		if (first < 0)
+			first = -first - 1;
+		int shiftedCount = realizedCount - first;
+		Object[] shiftedRows = new Object[shiftedCount];
+		System.arraycopy(realizedRows, first, shiftedRows, 0, shiftedCount);
+		int clearLimit = Math.min(itemCount, newItemCount);
+		for (int i = first; i < realizedCount; i++) {
+			if (realizedIndices[i] < clearLimit)
+				viewer.clear(realizedIndices[i]);
+			realizedRows[i] = null;
+		}
+		realizedCount = first;
+		if (newItemCount != itemCount) {
+			itemCount = newItemCount;
+			viewer.setItemCount(itemCount);
+		}
+
+		for (int i = 0; i < replacedCount[0]; i++) {
+			int index = replaced[0][i];
+			if (index < firstShifted[0] && findRealizedRow(index) >= 0) {
+				Object element = observableList.get(index);
+				Object oldElement = realizeRow(index, element);
+				viewer.replace(element, index);
+				unrealizeRow(oldElement);
+			}
+		}
+		for (int i = 0; i < shiftedCount; i++) {
+			unrealizeRow(shiftedRows[i]);
+		}
+	}
+
+	/**
+	 * Records the element of a realized row, adding it to the known elements
+	 * before the viewer sees it.
+	 *
+	 * @return the element previously realized at the index, or
+	 *         <code>null</code> if the row was not realized
+	 */
+	private Object realizeRow(int index, Object element) {
+		int[] count = (int[]) rowCounts.get(element);
+		if (count == null) {
+			knownElements.add(element);
+			rowCounts.put(element, new int[] { 1 });
+		} else {
+			count[0]++;
+		}
+
+		int position = findRealizedRow(index);
+		if (position >= 0) {
+			Object oldElement = realizedRows[position];
+			realizedRows[position] = element;
+			return oldElement;
+		}
+		position = -position - 1;
+		if (realizedCount == realizedIndices.length) {
+			int[] grownIndices = new int[realizedCount * 2];
+			System.arraycopy(realizedIndices, 0, grownIndices, 0,
+					realizedCount);
+			realizedIndices = grownIndices;
+			Object[] grownRows = new Object[realizedCount * 2];
+			System.arraycopy(realizedRows, 0, grownRows, 0, realizedCount);
+			realizedRows = grownRows;
+		}
+		System.arraycopy(realizedIndices, position, realizedIndices,
+				position + 1, realizedCount - position);
+		System.arraycopy(realizedRows, position, realizedRows, position + 1,
+				realizedCount - position);
+		realizedIndices[position] = index;
+		realizedRows[position] = element;
+		realizedCount++;
+		return null;
+	}
+
+	/**
+	 * Forgets a row of the element after the viewer no longer shows it,
+	 * removing the element from the known elements with its last row.
+	 */
+	private void unrealizeRow(Object element) {
+		int[] count = (int[]) rowCounts.get(element);
+		if (--count[0] == 0) {
+			rowCounts.remove(element);
+			knownElements.remove(element);
+		}
+	}
+
+	/**
+	 * @return the position of the realized row, or
+	 *         <code>-(insertion point) - 1</code> if the row is not realized
+	 */
+	private int findRealizedRow(int index) {
+		int low = 0;
+		int high = realizedCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int midIndex = realizedIndices[mid];
+			if (midIndex < index)
+				low = mid + 1;
+			else if (midIndex > index)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
+	}
+
+	private void clearRealizedRows() {
+		realizedIndices = new int[INITIAL_CAPACITY];
+		realizedRows = new Object[INITIAL_CAPACITY];
+		realizedCount = 0;
+		rowCounts = ViewerElementMap.withComparer(comparer);
+	}
+
+	private boolean isViewerDisposed() {
+		return viewer == null || viewer.getControl() == null
+				|| viewer.getControl().isDisposed();
+	}
+
+	/**
+	 * Disposes of this content provider. This is called by the viewer when a
+	 * content provider is replaced, or when the viewer itself is disposed.
+	 * <p>
+	 * The viewer should not be updated during this call, as it is in the
+	 * process of being disposed.
+	 * </p>
+	 * <p>
+	 * <em>Note:</em> Data binding content providers become unusable on
+	 * disposal.
+	 * </p>
+	 */
+	public void dispose() {
+		if (observableList != null) {
+			observableList.removeListChangeListener(listener);
+			observableList = null;
+		}
+		if (viewerObservable != null) {
+			viewerObservable.dispose();
+			viewerObservable = null;
+		}
+		viewer = null;
+		comparer = null;
+		knownElements = null;
+		unmodifiableKnownElements = null;
+		realizedIndices = null;
+		realizedRows = null;
+		rowCounts = null;
+		display = null;
+	}
+
+	/**
+	 * Returns the set of elements known to this content provider, which are
+	 * the elements of the rows the viewer has realized. Label providers may
+	 * track this set if they need to be notified about additions before the
+	 * viewer sees the added element, and notified about removals after the
+	 * element was removed from the viewer. Unlike
+	 * {@link ObservableListContentProvider#getKnownElements()}, the set does
+	 * not contain the elements of the rows the viewer has not requested yet.
+	 *
+	 * @return unmodifiable observable set of items that will need labels
+	 */
+	public IObservableSet getKnownElements() {
+		return unmodifiableKnownElements;
+	}
+}
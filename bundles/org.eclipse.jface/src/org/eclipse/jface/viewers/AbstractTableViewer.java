@@ -254,6 +254,8 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 	 */
 	public void add(Object[] elements) {
 		assertElementsNotNull(elements);
+		if (recordAdd(null, elements))
+			return;
 		if (checkBusy())
 			return;
 		Object[] filtered = filter(elements);
@@ -316,6 +318,25 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 		add(new Object[] { element });
 	}
 
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.jface.viewers.StructuredViewer#batchAdd(java.lang.Object,
+	 *      java.lang.Object[])
+	 */
+	void batchAdd(Object parent, Object[] children) {
+		add(children);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.jface.viewers.StructuredViewer#batchRemove(java.lang.Object[])
+	 */
+	void batchRemove(Object[] elements) {
+		remove(elements);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -586,6 +607,7 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 	 *      java.lang.Object)
 	 */
 	protected void inputChanged(Object input, Object oldInput) {
+		discardBatch();
 		getControl().setRedraw(false);
 		try {
 			preservingSelection(new Runnable() {
@@ -620,6 +642,7 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 			add(element);
 			return;
 		}
+		flushBatch();
 		if (position == -1) {
 			position = doGetItemCount();
 		}
@@ -825,6 +848,8 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 	 */
 	public void remove(final Object[] elements) {
 		assertElementsNotNull(elements);
+		if (recordRemove(elements))
+			return;
 		if (checkBusy())
 			return;
 		if (elements.length == 0) {
@@ -864,6 +889,7 @@ public abstract class AbstractTableViewer extends ColumnViewer {
 	 */
 	public void reveal(Object element) {
 		Assert.isNotNull(element);
+		flushBatch();
 		Widget w = findItem(element);
 		if (w instanceof Item) {
 			doShowItem((Item) w);
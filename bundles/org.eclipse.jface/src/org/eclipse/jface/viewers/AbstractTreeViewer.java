@@ -143,6 +143,8 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	public void add(Object parentElementOrTreePath, Object[] childElements) {
 		Assert.isNotNull(parentElementOrTreePath);
 		assertElementsNotNull(childElements);
+		if (recordAdd(parentElementOrTreePath, childElements))
+			return;
 		if (checkBusy())
 			return;
 		Widget[] widgets = internalFindItems(parentElementOrTreePath);
@@ -617,7 +619,11 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	 * @see org.eclipse.jface.viewers.StructuredViewer#getSortedChildren(java.lang.Object)
 	 */
 	protected Object[] getSortedChildren(Object parentElementOrTreePath) {
-		Object[] result = getFilteredChildren(parentElementOrTreePath);
+		Object[] result = takeSortedAndFiltered(parentElementOrTreePath);
+		if (result != null) {
+			return result;
+		}
+		result = getFilteredChildren(parentElementOrTreePath);
 		ViewerComparator comparator = getComparator();
 		if (parentElementOrTreePath != null
 				&& comparator instanceof TreePathViewerSorter) {
@@ -667,6 +673,25 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		add(parentElementOrTreePath, new Object[] { childElement });
 	}
 
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.jface.viewers.StructuredViewer#batchAdd(java.lang.Object,
+	 *      java.lang.Object[])
+	 */
+	void batchAdd(Object parent, Object[] children) {
+		add(parent, children);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.jface.viewers.StructuredViewer#batchRemove(java.lang.Object[])
+	 */
+	void batchRemove(Object[] elements) {
+		remove(elements);
+	}
+
 	/**
 	 * Adds the given SWT selection listener to the given SWT control.
 	 *
@@ -1070,6 +1095,7 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	public void expandToLevel(Object elementOrTreePath, int level) {
 		if (checkBusy())
 			return;
+		flushBatch();
 		Widget w = internalExpand(elementOrTreePath, true);
 		if (w != null) {
 			internalExpandToLevel(w, level);
@@ -1522,6 +1548,7 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	 * tree and handles the automatic expand feature.
 	 */
 	protected void inputChanged(Object input, Object oldInput) {
+		discardBatch();
 		preservingSelection(new Runnable() {
 			public void run() {
 	            Control tree = getControl();
@@ -2217,6 +2244,8 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		if (elementsOrTreePaths.length == 0) {
 			return;
 		}
+		if (recordRemove(elementsOrTreePaths))
+			return;
 		if (checkBusy())
 			return;
 		preservingSelection(new Runnable() {
@@ -2249,6 +2278,7 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		if (elements.length == 0) {
 			return;
 		}
+		flushBatch();
 		if (checkBusy())
 			return;
 		preservingSelection(new Runnable() {
@@ -2300,6 +2330,7 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 	 */
 	public void reveal(Object elementOrTreePath) {
 		Assert.isNotNull(elementOrTreePath);
+		flushBatch();
 		Widget w = internalExpand(elementOrTreePath, true);
 		if (w instanceof Item) {
 			showItem((Item) w);
@@ -2414,6 +2445,7 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		if (checkBusy()) {
 			return;
 		}
+		flushBatch();
 		CustomHashtable expandedElements = newHashtable(elements.length * 2 + 1);
 		for (int i = 0; i < elements.length; ++i) {
 			Object element = elements[i];
@@ -2494,6 +2526,7 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 		Assert.isNotNull(elementOrTreePath);
 		if (checkBusy())
 			return;
+		flushBatch();
 		Widget item = internalExpand(elementOrTreePath, false);
 		if (item instanceof Item) {
 			if (expanded) {
@@ -3034,6 +3067,7 @@ public abstract class AbstractTreeViewer extends ColumnViewer {
 			add(parentElementOrTreePath, new Object[] { element });
 			return;
 		}
+		flushBatch();
 		Widget[] items;
 		if (internalIsInputOrEmptyPath(parentElementOrTreePath)) {
 			items = new Widget[] { getControl() };
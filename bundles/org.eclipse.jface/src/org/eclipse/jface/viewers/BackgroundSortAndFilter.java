@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.viewers;
+
+import org.eclipse.jface.util.Policy;
+import org.eclipse.jface.util.SafeRunnable;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Sorts and filters the children of a structured viewer's input in a
+ * background thread, see {@link StructuredViewer#setSortAndFilterInBackground}.
+ * <p>
+ * The children are read from the content provider on the UI thread, then the
+ * viewer's filters and comparator are applied to this snapshot in a daemon
+ * thread. The result is handed to the viewer on the UI thread, where it is
+ * used by the next call to <code>getSortedChildren</code> for the input.
+ * Each request has a generation number; a computation is abandoned as soon
+ * as a newer request is made, and a result is dropped if it is not the
+ * latest one when it reaches the UI thread.
+ * </p>
+ */
+/* package */final class BackgroundSortAndFilter {
+
+	private static final String THREAD_NAME = "Viewer sorting and filtering"; //$NON-NLS-1$
+
+	/**
+	 * The number of elements passed to a filter at once. The computation
+	 * checks whether it became stale between two chunks.
+	 */
+	private static final int CHUNK_SIZE = 1000;
+
+	private final StructuredViewer viewer;
+
+	/**
+	 * The generation of the latest request. Only changed on the UI thread.
+	 */
+	private volatile int generation;
+
+	/**
+	 * The latest request which is not applied yet, or <code>null</code>.
+	 * Only accessed on the UI thread.
+	 */
+	private Request outstanding;
+
+	/**
+	 * The result being applied, or <code>null</code>. Only accessed on the
+	 * UI thread.
+	 */
+	private Request applying;
+
+	/**
+	 * Protects {@link #next} and {@link #threadStarted}.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * The request waiting for the background thread, or <code>null</code>.
+	 */
+	private Request next;
+
+	private boolean threadStarted;
+
+	/**
+	 * A snapshot of the state needed to sort and filter the children of a
+	 * parent, and the result once computed.
+	 */
+	final class Request {
+		final int requestGeneration;
+
+		final Object parent;
+
+		final boolean updateLabels;
+
+		final Object[] rawChildren;
+
+		final ViewerFilter[] filters;
+
+		final ViewerComparator comparator;
+
+		final Display display;
+
+		Object[] filteredChildren;
+
+		Object[] sortedChildren;
+
+		Request(int requestGeneration, Object parent, boolean updateLabels,
+				Display display) {
+			this.requestGeneration = requestGeneration;
+			this.parent = parent;
+			this.updateLabels = updateLabels;
+			this.display = display;
+			// copy the children, the content provider may reuse its array
+			rawChildren = (Object[]) viewer.getRawChildren(parent).clone();
+			filters = viewer.getFilters();
+			comparator = viewer.getComparator();
+		}
+
+		boolean isStale() {
+			return requestGeneration != generation;
+		}
+
+		/**
+		 * Runs in the background thread.
+		 *
+		 * @return <code>false</code> if the computation was abandoned
+		 */
+		boolean compute() {
+			Object[] result = rawChildren;
+			for (int i = 0; i < filters.length; i++) {
+				result = filter(filters[i], result);
+				if (result == null) {
+					return false;
+				}
+			}
+			filteredChildren = result;
+			if (comparator != null) {
+				result = (Object[]) result.clone();
+				if (comparator instanceof TreePathViewerSorter) {
+					// the parent is the input, root elements have no parent path
+					((TreePathViewerSorter) comparator).sort(viewer, null,
+							result);
+				} else {
+					comparator.sort(viewer, result);
+				}
+			}
+			if (isStale()) {
+				return false;
+			}
+			sortedChildren = result;
+			return true;
+		}
+
+		private Object[] filter(ViewerFilter filter, Object[] elements) {
+			if (elements.length <= CHUNK_SIZE) {
+				return isStale() ? null : filter.filter(viewer, parent,
+						elements);
+			}
+			Object[] result = new Object[elements.length];
+			int count = 0;
+			Object[] chunk = new Object[CHUNK_SIZE];
+			for (int start = 0; start < elements.length; start += CHUNK_SIZE) {
+				if (isStale()) {
+					return null;
+				}
+				int length = Math.min(CHUNK_SIZE, elements.length - start);
+				if (length != chunk.length) {
+					chunk = new Object[length];
+				}
+				System.arraycopy(elements, start, chunk, 0, length);
+				Object[] selected = filter.filter(viewer, parent, chunk);
+				System.arraycopy(selected, 0, result, count, selected.length);
+				count += selected.length;
+			}
+			Object[] trimmed = new Object[count];
+			System.arraycopy(result, 0, trimmed, 0, count);
+			return trimmed;
+		}
+	}
+
+	private final class ComputeThread extends Thread {
+		ComputeThread() {
+			super(THREAD_NAME);
+		}
+
+		public void run() {
+			while (true) {
+				final Request request;
+				synchronized (lock) {
+					if (next == null) {
+						threadStarted = false;
+						return;
+					}
+					request = next;
+					next = null;
+				}
+				try {
+					if (!request.isStale() && request.compute()) {
+						request.display.asyncExec(new Runnable() {
+							public void run() {
+								apply(request);
+							}
+						});
+					}
+				} catch (SWTException e) {
+					// the display was disposed
+				} catch (RuntimeException e) {
+					Policy.logException(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param viewer
+	 *            the viewer
+	 */
+	BackgroundSortAndFilter(StructuredViewer viewer) {
+		this.viewer = viewer;
+	}
+
+	/**
+	 * Takes a snapshot of the children of the given parent and starts sorting
+	 * and filtering them. Must be called on the UI thread.
+	 *
+	 * @param parent
+	 *            the parent element
+	 * @param updateLabels
+	 *            whether the refresh applying the result updates the labels
+	 *            of existing elements
+	 */
+	void schedule(Object parent, boolean updateLabels) {
+		Control control = viewer.getControl();
+		if (outstanding != null) {
+			// keep updating the labels if an outstanding refresh would have
+			updateLabels |= outstanding.updateLabels;
+		}
+		Request request = new Request(++generation, parent, updateLabels,
+				control.getDisplay());
+		outstanding = request;
+		synchronized (lock) {
+			next = request;
+			if (!threadStarted) {
+				threadStarted = true;
+				Thread thread = new ComputeThread();
+				thread.setDaemon(true);
+				thread.setPriority(Thread.NORM_PRIORITY - 1);
+				thread.start();
+			}
+		}
+	}
+
+	/**
+	 * Takes a new snapshot if a request is outstanding, because the elements
+	 * of the viewer were changed. Must be called on the UI thread.
+	 */
+	void structureChanged() {
+		if (outstanding != null && applying == null) {
+			schedule(outstanding.parent, outstanding.updateLabels);
+		}
+	}
+
+	/**
+	 * Abandons the outstanding request. Must be called on the UI thread.
+	 */
+	void cancel() {
+		generation++;
+		outstanding = null;
+		synchronized (lock) {
+			next = null;
+		}
+	}
+
+	/**
+	 * Returns the result being applied for the given parent, once.
+	 *
+	 * @param parent
+	 *            the parent element
+	 * @return the request holding the result, or <code>null</code>
+	 */
+	Request takeResult(Object parent) {
+		Request request = applying;
+		if (request == null || request.parent != parent) {
+			return null;
+		}
+		applying = null;
+		return request;
+	}
+
+	private void apply(final Request request) {
+		Control control = viewer.getControl();
+		if (request.isStale() || control == null || control.isDisposed()
+				|| viewer.getRoot() != request.parent) {
+			return;
+		}
+		outstanding = null;
+		applying = request;
+		SafeRunnable.run(new SafeRunnable() {
+			public void run() {
+				try {
+					viewer.applySortedAndFiltered(request.parent,
+							request.updateLabels);
+				} finally {
+					applying = null;
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.viewers;
+
+import org.eclipse.swt.widgets.Widget;
+
+/**
+ * The map from the elements of a structured viewer to their items. Elements
+ * are compared using an optional {@link IElementComparer}.
+ * <p>
+ * The map uses open addressing with linear probing. The keys, the values and
+ * the hash codes are stored in parallel arrays, so no object is allocated per
+ * entry and the comparer's <code>hashCode</code> is called only once for each
+ * element added. An element shown by a single item (the common case) maps to
+ * the {@link Widget} itself. An element shown by several items maps to a
+ * <code>Widget[]</code>.
+ * </p>
+ */
+/* package */final class ElementMap {
+
+	/**
+	 * The default capacity used when not specified.
+	 */
+	static final int DEFAULT_CAPACITY = 16;
+
+	private static final Widget[] NO_WIDGETS = new Widget[0];
+
+	private final IElementComparer comparer;
+
+	private Object[] keys;
+
+	private Object[] values;
+
+	private int[] hashes;
+
+	private int size;
+
+	private int threshold;
+
+	/**
+	 * Creates an empty map.
+	 *
+	 * @param capacity
+	 *            the number of elements that can be added without growing the
+	 *            map
+	 * @param comparer
+	 *            the element comparer, or <code>null</code> to use the
+	 *            elements' <code>equals</code> and <code>hashCode</code>
+	 *            methods
+	 */
+	ElementMap(int capacity, IElementComparer comparer) {
+		this.comparer = comparer;
+		int length = 2;
+		while (length * 3 / 4 < capacity) {
+			length <<= 1;
+		}
+		allocate(length);
+	}
+
+	/**
+	 * Creates a map with the entries of the given map, using another element
+	 * comparer.
+	 *
+	 * @param map
+	 *            the map to copy
+	 * @param comparer
+	 *            the element comparer, or <code>null</code> to use the
+	 *            elements' <code>equals</code> and <code>hashCode</code>
+	 *            methods
+	 */
+	ElementMap(ElementMap map, IElementComparer comparer) {
+		this(map.size, comparer);
+		for (int i = 0; i < map.keys.length; i++) {
+			if (map.keys[i] != null) {
+				put(map.keys[i], map.values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the items of the given element.
+	 *
+	 * @param element
+	 *            the element
+	 * @return the {@link Widget} or the <code>Widget[]</code> showing the
+	 *         element, or <code>null</code> if the element is not mapped
+	 */
+	Object get(Object element) {
+		int index = indexOf(element, hash(element));
+		return index < 0 ? null : values[index];
+	}
+
+	/**
+	 * Returns the items of the given element as an array.
+	 *
+	 * @param element
+	 *            the element
+	 * @return the items showing the element, an empty array if the element is
+	 *         not mapped
+	 */
+	Widget[] getItems(Object element) {
+		Object widgetOrWidgets = get(element);
+		if (widgetOrWidgets == null) {
+			return NO_WIDGETS;
+		}
+		if (widgetOrWidgets instanceof Widget) {
+			return new Widget[] { (Widget) widgetOrWidgets };
+		}
+		return (Widget[]) widgetOrWidgets;
+	}
+
+	/**
+	 * Adds an item to the items of the given element. Does nothing if the
+	 * element already maps to the item.
+	 *
+	 * @param element
+	 *            the element
+	 * @param item
+	 *            the item showing the element
+	 */
+	void add(Object element, Widget item) {
+		int hash = hash(element);
+		int index = indexOf(element, hash);
+		if (index < 0) {
+			insert(element, item, hash);
+			return;
+		}
+		Object widgetOrWidgets = values[index];
+		if (widgetOrWidgets instanceof Widget) {
+			if (widgetOrWidgets != item) {
+				values[index] = new Widget[] { (Widget) widgetOrWidgets, item };
+			}
+		} else {
+			Widget[] widgets = (Widget[]) widgetOrWidgets;
+			for (int i = 0; i < widgets.length; i++) {
+				if (widgets[i] == item) {
+					return;
+				}
+			}
+			Widget[] newWidgets = new Widget[widgets.length + 1];
+			System.arraycopy(widgets, 0, newWidgets, 0, widgets.length);
+			newWidgets[widgets.length] = item;
+			values[index] = newWidgets;
+		}
+		// keep the most recent key, see bug 30607
+		keys[index] = element;
+	}
+
+	/**
+	 * Associates the element with the given value, replacing the previous one.
+	 *
+	 * @param element
+	 *            the element
+	 * @param widgetOrWidgets
+	 *            a {@link Widget} or a non-empty <code>Widget[]</code>
+	 */
+	void put(Object element, Object widgetOrWidgets) {
+		int hash = hash(element);
+		int index = indexOf(element, hash);
+		if (index < 0) {
+			insert(element, widgetOrWidgets, hash);
+		} else {
+			keys[index] = element;
+			values[index] = widgetOrWidgets;
+		}
+	}
+
+	/**
+	 * Removes the element and all its items.
+	 *
+	 * @param element
+	 *            the element
+	 */
+	void remove(Object element) {
+		int index = indexOf(element, hash(element));
+		if (index >= 0) {
+			delete(index);
+		}
+	}
+
+	/**
+	 * Removes the given item from the items of the element. Does nothing if the
+	 * element does not map to the item.
+	 *
+	 * @param element
+	 *            the element
+	 * @param item
+	 *            the item to remove
+	 */
+	void remove(Object element, Widget item) {
+		int index = indexOf(element, hash(element));
+		if (index < 0) {
+			return;
+		}
+		Object widgetOrWidgets = values[index];
+		if (widgetOrWidgets instanceof Widget) {
+			if (widgetOrWidgets == item) {
+				delete(index);
+			}
+			return;
+		}
+		Widget[] widgets = (Widget[]) widgetOrWidgets;
+		int indexOfItem = -1;
+		for (int i = 0; i < widgets.length; i++) {
+			if (widgets[i] == item) {
+				indexOfItem = i;
+				break;
+			}
+		}
+		if (indexOfItem == -1) {
+			return;
+		}
+		int length = widgets.length;
+		if (length == 1) {
+			delete(index);
+		} else if (length == 2) {
+			// back to the single item representation
+			values[index] = widgets[1 - indexOfItem];
+		} else {
+			Widget[] updatedWidgets = new Widget[length - 1];
+			System.arraycopy(widgets, 0, updatedWidgets, 0, indexOfItem);
+			System.arraycopy(widgets, indexOfItem + 1, updatedWidgets,
+					indexOfItem, length - indexOfItem - 1);
+			values[index] = updatedWidgets;
+		}
+	}
+
+	/**
+	 * @return the number of mapped elements
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the element comparer or <code>null</code>
+	 */
+	IElementComparer getComparer() {
+		return comparer;
+	}
+
+	private int hash(Object element) {
+		int h = comparer == null ? element.hashCode() : comparer
+				.hashCode(element);
+		// spread the bits, the table only uses the low bits of the hash
+		h ^= (h >>> 16);
+		h *= 0x85ebca6b;
+		h ^= (h >>> 13);
+		return h;
+	}
+
+	private int indexOf(Object element, int hash) {
+		int mask = keys.length - 1;
+		int index = hash & mask;
+		Object key;
+		while ((key = keys[index]) != null) {
+			if (hashes[index] == hash
+					&& (comparer == null ? element.equals(key) : comparer
+							.equals(element, key))) {
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void insert(Object element, Object value, int hash) {
+		if (size >= threshold) {
+			resize(keys.length << 1);
+		}
+		int mask = keys.length - 1;
+		int index = hash & mask;
+		while (keys[index] != null) {
+			index = (index + 1) & mask;
+		}
+		keys[index] = element;
+		values[index] = value;
+		hashes[index] = hash;
+		size++;
+	}
+
+	/**
+	 * Removes the entry at the given index and moves back the entries of the
+	 * same probe sequence, so lookups never need to skip deleted slots.
+	 */
+	private void delete(int index) {
+		int mask = keys.length - 1;
+		int hole = index;
+		int next = index;
+		while (true) {
+			next = (next + 1) & mask;
+			if (keys[next] == null) {
+				break;
+			}
+			int home = hashes[next] & mask;
+			// the entry stays if its home slot is cyclically in (hole, next]
+			boolean stays = hole <= next ? hole < home && home <= next
+					: hole < home || home <= next;
+			if (!stays) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hashes[hole] = hashes[next];
+				hole = next;
+			}
+		}
+		keys[hole] = null;
+		values[hole] = null;
+		hashes[hole] = 0;
+		size--;
+	}
+
+	private void resize(int length) {
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		int[] oldHashes = hashes;
+		allocate(length);
+		int mask = length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int index = oldHashes[i] & mask;
+				while (keys[index] != null) {
+					index = (index + 1) & mask;
+				}
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+				hashes[index] = oldHashes[i];
+			}
+		}
+	}
+
+	private void allocate(int length) {
+		keys = new Object[length];
+		values = new Object[length];
+		hashes = new int[length];
+		threshold = length * 3 / 4;
+	}
+}
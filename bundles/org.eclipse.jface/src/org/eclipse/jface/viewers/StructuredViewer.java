@@ -63,7 +63,21 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 * <code>Object</code>, value type: <code>Widget</code>, or <code>Widget[]</code>).
 	 * <code>null</code> means that the element map is disabled.
 	 */
-	private CustomHashtable elementMap;
+	private ElementMap elementMap;
+
+	/**
+	 * The changes recorded by {@link #batch(Runnable)}, or <code>null</code>
+	 * if no batch is running.
+	 */
+	private ViewerBatch batch;
+
+	/**
+	 * Sorts and filters the input's children in the background, or
+	 * <code>null</code> if refreshes are synchronous.
+	 * 
+	 * @see #setSortAndFilterInBackground(boolean)
+	 */
+	private BackgroundSortAndFilter backgroundSortAndFilter;
 
 	/**
 	 * The comparer to use for comparing elements, or <code>null</code> to use
@@ -813,14 +827,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		}
 		// if we have an element map use it, otherwise search for the item.
 		if (usingElementMap()) {
-			Object widgetOrWidgets = elementMap.get(element);
-			if (widgetOrWidgets==null) {
-				return NO_WIDGETS;
-			} else if (widgetOrWidgets instanceof Widget) {
-				return new Widget[] {(Widget) widgetOrWidgets};
-			} else {
-				return (Widget[])widgetOrWidgets;
-			}
+			return elementMap.getItems(element);
 		}
 		result = doFindItem(element);
 		return result == null ? NO_WIDGETS : new Widget[] { result };
@@ -1064,7 +1071,11 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 * @return a sorted and filtered array of child elements
 	 */
 	protected Object[] getSortedChildren(Object parent) {
-		Object[] result = getFilteredChildren(parent);
+		Object[] result = takeSortedAndFiltered(parent);
+		if (result != null) {
+			return result;
+		}
+		result = getFilteredChildren(parent);
 		if (sorter != null) {
 			// be sure we're not modifying the original array from the model
 			result = (Object[]) result.clone();
@@ -1313,25 +1324,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 */
 	protected void mapElement(Object element, Widget item) {
 		if (elementMap != null) {
-			Object widgetOrWidgets = elementMap.get(element);
-			if (widgetOrWidgets == null) {
-				elementMap.put(element, item);
-			} else if (widgetOrWidgets instanceof Widget) {
-				if (widgetOrWidgets != item) {
-					elementMap.put(element, new Widget[] {
-							(Widget) widgetOrWidgets, item });
-				}
-			} else {
-				Widget[] widgets = (Widget[]) widgetOrWidgets;
-				int indexOfItem = Arrays.asList(widgets).indexOf(item);
-				if (indexOfItem == -1) {
-					int length = widgets.length;
-					System.arraycopy(widgets, 0,
-							widgets = new Widget[length + 1], 0, length);
-					widgets[length] = item;
-					elementMap.put(element, widgets);
-				}
-			}
+			elementMap.add(element, item);
 		}
 	}
 
@@ -1458,6 +1451,287 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		}
 	}
 	
+	/**
+	 * Runs the given runnable and applies the additions, removals and updates
+	 * it makes to this viewer at once when it completes.
+	 * <p>
+	 * Calls to <code>add</code>, <code>remove</code> and <code>update</code>
+	 * with elements are recorded instead of being applied immediately.
+	 * Additions are grouped by parent, and removals and updates are merged per
+	 * element. An element removed after being added is not added. When the
+	 * runnable completes, all the removed elements are removed in one call,
+	 * the children of each parent are added in one call so they are sorted
+	 * into place in a single pass, and each updated element is updated once.
+	 * Redraw is turned off on the control while the changes are applied.
+	 * </p>
+	 * <p>
+	 * The operations which depend on the items of the viewer first apply the
+	 * changes recorded so far: <code>refresh</code>, <code>setSelection</code>,
+	 * <code>reveal</code>, the methods expanding elements and the methods
+	 * taking tree paths. Setting a new input discards the changes recorded
+	 * so far. Nested calls run as part of the outermost batch.
+	 * </p>
+	 * 
+	 * @param runnable
+	 *            the runnable making the changes
+	 * 
+	 * @since 3.9
+	 */
+	public void batch(Runnable runnable) {
+		if (batch != null) {
+			runnable.run();
+			return;
+		}
+		batch = new ViewerBatch(getComparer());
+		try {
+			runnable.run();
+		} finally {
+			ViewerBatch recorded = batch;
+			batch = null;
+			applyBatch(recorded);
+		}
+	}
+
+	/**
+	 * Records the addition of children if a batch is running.
+	 * 
+	 * @param parent
+	 *            the parent element, or <code>null</code> if the viewer has
+	 *            no parent elements
+	 * @param children
+	 *            the added elements
+	 * @return <code>true</code> if the addition was recorded and must not be
+	 *         applied now
+	 */
+	boolean recordAdd(Object parent, Object[] children) {
+		if (backgroundSortAndFilter != null) {
+			backgroundSortAndFilter.structureChanged();
+		}
+		if (batch == null) {
+			return false;
+		}
+		if (parent instanceof TreePath) {
+			flushBatch();
+			return false;
+		}
+		assertElementsNotNull(children);
+		batch.add(parent, children);
+		return true;
+	}
+
+	/**
+	 * Records the removal of elements if a batch is running.
+	 * 
+	 * @param elements
+	 *            the removed elements
+	 * @return <code>true</code> if the removal was recorded and must not be
+	 *         applied now
+	 */
+	boolean recordRemove(Object[] elements) {
+		if (backgroundSortAndFilter != null) {
+			backgroundSortAndFilter.structureChanged();
+		}
+		if (batch == null) {
+			return false;
+		}
+		for (int i = 0; i < elements.length; i++) {
+			if (elements[i] instanceof TreePath) {
+				flushBatch();
+				return false;
+			}
+		}
+		assertElementsNotNull(elements);
+		batch.remove(elements);
+		return true;
+	}
+
+	/**
+	 * Applies the changes recorded so far if a batch is running. The batch
+	 * keeps recording the following changes.
+	 */
+	void flushBatch() {
+		if (batch == null || batch.isEmpty()) {
+			return;
+		}
+		ViewerBatch recorded = batch;
+		batch = null;
+		try {
+			applyBatch(recorded);
+		} finally {
+			batch = new ViewerBatch(getComparer());
+		}
+	}
+
+	/**
+	 * Discards the changes recorded so far if a batch is running. The items
+	 * of a new input are created from its content, so the changes recorded
+	 * for the old input no longer apply. The batch keeps recording the
+	 * following changes.
+	 */
+	void discardBatch() {
+		if (batch != null && !batch.isEmpty()) {
+			batch = new ViewerBatch(getComparer());
+		}
+	}
+
+	private void applyBatch(ViewerBatch recorded) {
+		Control control = getControl();
+		if (recorded.isEmpty() || control == null || control.isDisposed()) {
+			return;
+		}
+		control.setRedraw(false);
+		try {
+			recorded.apply(this);
+		} finally {
+			control.setRedraw(true);
+		}
+	}
+
+	/**
+	 * Adds the children recorded by a batch. Subclasses supporting
+	 * {@link #batch(Runnable)} override this method.
+	 * 
+	 * @param parent
+	 *            the parent element, or <code>null</code> if the viewer has
+	 *            no parent elements
+	 * @param children
+	 *            the elements to add
+	 */
+	void batchAdd(Object parent, Object[] children) {
+		// structural changes are only recorded by the subclasses
+	}
+
+	/**
+	 * Removes the elements recorded by a batch. Subclasses supporting
+	 * {@link #batch(Runnable)} override this method.
+	 * 
+	 * @param elements
+	 *            the elements to remove
+	 */
+	void batchRemove(Object[] elements) {
+		// structural changes are only recorded by the subclasses
+	}
+
+	/**
+	 * Sets whether refreshing the whole viewer sorts and filters the children
+	 * of the input in a background thread.
+	 * <p>
+	 * When enabled, <code>refresh()</code>, <code>refresh(boolean)</code>
+	 * and <code>refresh(Object)</code> or
+	 * <code>refresh(Object, boolean)</code> called with the input read the
+	 * input's children from the content provider and return immediately.
+	 * The viewer's filters and comparator are applied to this snapshot in a
+	 * background thread, and the viewer is refreshed with the result on the
+	 * UI thread. A computation that is not applied yet is abandoned when the
+	 * viewer is refreshed again, for instance when a filter changes, and a
+	 * new snapshot is taken when elements are added or removed in the
+	 * meantime. Refreshing other elements, and setting the input, remain
+	 * synchronous.
+	 * </p>
+	 * <p>
+	 * The <code>select</code> and <code>filter</code> methods of the
+	 * {@link ViewerFilter}s and the <code>sort</code> and <code>compare</code>
+	 * methods of the {@link ViewerComparator} are called in the background
+	 * thread, so they and the providers they use must be thread-safe.
+	 * Background sorting and filtering is not available with lazy content
+	 * providers.
+	 * </p>
+	 * <p>
+	 * The default is <code>false</code>.
+	 * </p>
+	 * 
+	 * @param enable
+	 *            <code>true</code> to sort and filter in the background
+	 * 
+	 * @since 3.9
+	 */
+	public void setSortAndFilterInBackground(boolean enable) {
+		if (enable == (backgroundSortAndFilter != null)) {
+			return;
+		}
+		if (enable) {
+			backgroundSortAndFilter = new BackgroundSortAndFilter(this);
+		} else {
+			backgroundSortAndFilter.cancel();
+			backgroundSortAndFilter = null;
+		}
+	}
+
+	/**
+	 * Returns whether refreshing the whole viewer sorts and filters the
+	 * children of the input in a background thread.
+	 * 
+	 * @return <code>true</code> if sorting and filtering run in the
+	 *         background
+	 * @see #setSortAndFilterInBackground(boolean)
+	 * 
+	 * @since 3.9
+	 */
+	public boolean isSortAndFilterInBackground() {
+		return backgroundSortAndFilter != null;
+	}
+
+	/**
+	 * Starts sorting and filtering the children of the given element in the
+	 * background if it is the input and background sorting is enabled.
+	 * 
+	 * @return <code>true</code> if the refresh is deferred
+	 */
+	private boolean scheduleSortAndFilter(Object element, boolean updateLabels) {
+		Control control = getControl();
+		Object root = getRoot();
+		if (backgroundSortAndFilter == null || root == null || element != root
+				|| control == null || control.isDisposed()
+				|| !(getContentProvider() instanceof IStructuredContentProvider)
+				|| getContentProvider() instanceof ILazyContentProvider) {
+			return false;
+		}
+		backgroundSortAndFilter.schedule(root, updateLabels);
+		return true;
+	}
+
+	/**
+	 * Refreshes the given parent once its children were sorted and filtered in
+	 * the background. The result is returned by the next call to
+	 * {@link #getSortedChildren(Object)} for the parent.
+	 * 
+	 * @param parent
+	 *            the parent element
+	 * @param updateLabels
+	 *            whether to update the labels of existing elements
+	 */
+	void applySortedAndFiltered(final Object parent, final boolean updateLabels) {
+		preservingSelection(new Runnable() {
+			public void run() {
+				internalRefresh(parent, updateLabels);
+			}
+		});
+	}
+
+	/**
+	 * Returns the children of the given parent sorted and filtered in the
+	 * background if they are being applied.
+	 * 
+	 * @param parent
+	 *            the parent element
+	 * @return the sorted and filtered children, or <code>null</code>
+	 */
+	Object[] takeSortedAndFiltered(Object parent) {
+		if (backgroundSortAndFilter == null) {
+			return null;
+		}
+		BackgroundSortAndFilter.Request result = backgroundSortAndFilter
+				.takeResult(parent);
+		if (result == null) {
+			return null;
+		}
+		if (associateListener != null
+				&& result.filteredChildren.length != result.rawChildren.length) {
+			notifyFilteredOut(result.rawChildren, result.filteredChildren);
+		}
+		return result.sortedChildren;
+	}
+
 	/*
 	 * Non-Javadoc. Method declared on Viewer.
 	 */
@@ -1503,6 +1777,10 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 *            the element
 	 */
 	public void refresh(final Object element) {
+		flushBatch();
+		if (scheduleSortAndFilter(element, true)) {
+			return;
+		}
 		preservingSelection(new Runnable() {
 			public void run() {
 				internalRefresh(element);
@@ -1530,6 +1808,10 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 * @since 2.0
 	 */
 	public void refresh(final Object element, final boolean updateLabels) {
+		flushBatch();
+		if (scheduleSortAndFilter(element, updateLabels)) {
+			return;
+		}
 		preservingSelection(new Runnable() {
 			public void run() {
 				internalRefresh(element, updateLabels);
@@ -1719,6 +2001,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		if (control == null || control.isDisposed()) {
 			return;
 		}
+		flushBatch();
 		if (!inChange) {
 			setSelectionToWidget(selection, reveal);
 			ISelection sel = getSelection();
@@ -1822,7 +2105,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		Assert.isTrue(getInput() == null,
 				"Can only enable the hash look up before input has been set");//$NON-NLS-1$
 		if (enable) {
-			elementMap = newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+			elementMap = new ElementMap(ElementMap.DEFAULT_CAPACITY, getComparer());
 		} else {
 			elementMap = null;
 		}
@@ -1840,7 +2123,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	public void setComparer(IElementComparer comparer) {
 		this.comparer = comparer;
 		if (elementMap != null) {
-			elementMap = new CustomHashtable(elementMap, comparer);
+			elementMap = new ElementMap(elementMap, comparer);
 		}
 	}
 
@@ -1909,7 +2192,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 */
 	protected void unmapAllElements() {
 		if (elementMap != null) {
-			elementMap = newHashtable(CustomHashtable.DEFAULT_CAPACITY);
+			elementMap = new ElementMap(ElementMap.DEFAULT_CAPACITY, getComparer());
 		}
 	}
 
@@ -1949,36 +2232,7 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 		// double-check that the element actually maps to the given item before
 		// unmapping it
 		if (elementMap != null) {
-			Object widgetOrWidgets = elementMap.get(element);
-			if (widgetOrWidgets == null) {
-				// item was not mapped, return
-				return;
-			} else if (widgetOrWidgets instanceof Widget) {
-				if (item == widgetOrWidgets) {
-					elementMap.remove(element);
-				}
-			} else {
-				Widget[] widgets = (Widget[]) widgetOrWidgets;
-				int indexOfItem = Arrays.asList(widgets).indexOf(item);
-				if (indexOfItem == -1) {
-					return;
-				}
-				int length = widgets.length;
-				if (indexOfItem == 0) {
-					if(length == 1) {
-						elementMap.remove(element);
-					} else {
-						Widget[] updatedWidgets = new Widget[length - 1];
-						System.arraycopy(widgets, 1, updatedWidgets, 0, length -1 );
-						elementMap.put(element, updatedWidgets);
-					}
-				} else {
-					Widget[] updatedWidgets = new Widget[length - 1];
-					System.arraycopy(widgets, 0, updatedWidgets, 0, indexOfItem);
-					System.arraycopy(widgets, indexOfItem + 1, updatedWidgets, indexOfItem, length - indexOfItem - 1);
-					elementMap.put(element, updatedWidgets);
-				}
-			}
+			elementMap.remove(element, item);
 		}
 	}
 
@@ -2026,6 +2280,11 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 *            indicate unknown
 	 */
 	public void update(Object[] elements, String[] properties) {
+		if (batch != null) {
+			assertElementsNotNull(elements);
+			batch.update(elements, properties);
+			return;
+		}
 		boolean previousValue = refreshOccurred;
 		refreshOccurred = false;
 		try {
@@ -2082,6 +2341,10 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	 */
 	public void update(Object element, String[] properties) {
 		Assert.isNotNull(element);
+		if (batch != null) {
+			batch.update(new Object[] { element }, properties);
+			return;
+		}
 		Widget[] items = findItems(element);
 
 		boolean mayExitEarly = !refreshOccurred;
@@ -2326,11 +2589,14 @@ public abstract class StructuredViewer extends ContentViewer implements IPostSel
 	
 	protected void handleDispose(DisposeEvent event) {
 		super.handleDispose(event);
+		if (backgroundSortAndFilter != null) {
+			backgroundSortAndFilter.cancel();
+		}
 		sorter = null;
 		comparer = null;
 		if (filters != null)
 			filters.clear();
-		elementMap = newHashtable(1);
+		elementMap = new ElementMap(1, null);
 		openListeners.clear();
 		doubleClickListeners.clear();
 		colorAndFontCollector.clear();
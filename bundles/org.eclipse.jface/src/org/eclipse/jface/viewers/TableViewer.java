@@ -377,6 +377,8 @@ public class TableViewer extends AbstractTableViewer {
 	 */
 	public void remove(Object[] elements) {
 		assertElementsNotNull(elements);
+		if (recordRemove(elements))
+			return;
 		if (checkBusy())
 			return;
 		if (elements.length == 0) {
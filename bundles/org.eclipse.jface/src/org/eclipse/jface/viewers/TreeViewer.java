@@ -15,11 +15,13 @@
 
 package org.eclipse.jface.viewers;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.eclipse.core.runtime.Assert;
 import org.eclipse.jface.util.Policy;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.DisposeEvent;
@@ -61,6 +63,10 @@ import org.eclipse.swt.widgets.Widget;
  * {@link #setUseHashlookup(boolean)}.
  * </p>
  * <p>
+ * As of 3.9, a virtual tree viewer with an <code>ITreeContentProvider</code>
+ * can also create its items lazily, see {@link #setUseVirtualItems(boolean)}.
+ * </p>
+ * <p>
  * Users setting up an editable tree with more than 1 column <b>have</b> to pass the
  * SWT.FULL_SELECTION style bit
  * </p>
@@ -85,6 +91,14 @@ public class TreeViewer extends AbstractTreeViewer {
 
 	private boolean contentProviderIsTreeBased;
 
+	/**
+	 * Serves the children of the tree content provider lazily, or
+	 * <code>null</code> if items are created eagerly.
+	 *
+	 * @see #setUseVirtualItems(boolean)
+	 */
+	private VirtualTreeContentProvider virtualContentProvider;
+
 	/**
 	 * The row object reused
 	 */
@@ -385,7 +399,7 @@ public class TreeViewer extends AbstractTreeViewer {
 	}
 
 	protected Object[] getRawChildren(Object parent) {
-		if (contentProviderIsLazy) {
+		if (contentProviderIsLazy && virtualContentProvider == null) {
 			return new Object[0];
 		}
 		return super.getRawChildren(parent);
@@ -593,8 +607,7 @@ public class TreeViewer extends AbstractTreeViewer {
 		setBusy(true);
 		try {
 			if (contentProviderIsLazy && !contentProviderIsTreeBased && !(element instanceof TreePath)) {
-				ILazyTreeContentProvider lazyTreeContentProvider = (ILazyTreeContentProvider) getContentProvider();
-				return lazyTreeContentProvider.getParent(element);
+				return getLazyTreeContentProvider().getParent(element);
 			}
 			if (contentProviderIsLazy && contentProviderIsTreeBased && !(element instanceof TreePath)) {
 				ILazyTreePathContentProvider lazyTreePathContentProvider = (ILazyTreePathContentProvider) getContentProvider();
@@ -646,6 +659,11 @@ public class TreeViewer extends AbstractTreeViewer {
 
 	protected void internalAdd(Widget widget, Object parentElement,
 			Object[] childElements) {
+		if (virtualContentProvider != null) {
+			// the children are sorted and filtered, recompute them
+			virtualRefreshChildren(widget, parentElement);
+			return;
+		}
 		if (contentProviderIsLazy) {
 			if (widget instanceof TreeItem) {
 				TreeItem ti = (TreeItem) widget;
@@ -694,6 +712,9 @@ public class TreeViewer extends AbstractTreeViewer {
 	 */
 	protected void internalRefreshStruct(Widget widget, Object element,
 			boolean updateLabels) {
+		if (virtualContentProvider != null) {
+			virtualContentProvider.clear();
+		}
 		if (contentProviderIsLazy) {
 			// clear all starting with the given widget
 			if (widget instanceof Tree) {
@@ -824,6 +845,9 @@ public class TreeViewer extends AbstractTreeViewer {
 	 * @see org.eclipse.jface.viewers.AbstractTreeViewer#internalInitializeTree(org.eclipse.swt.widgets.Control)
 	 */
 	protected void internalInitializeTree(Control widget) {
+		if (virtualContentProvider != null) {
+			virtualContentProvider.clear();
+		}
 		if (contentProviderIsLazy) {
 			if (widget instanceof Tree && widget.getData() != null) {
 				virtualLazyUpdateChildCount(widget, 0);
@@ -853,6 +877,97 @@ public class TreeViewer extends AbstractTreeViewer {
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.viewers.AbstractTreeViewer#add(java.lang.Object, java.lang.Object[])
+	 */
+	public void add(Object parentElementOrTreePath, Object[] childElements) {
+		if (virtualContentProvider != null) {
+			// the cached children of a parent without items are stale too
+			virtualContentProvider.clear();
+		}
+		super.add(parentElementOrTreePath, childElements);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.viewers.AbstractTreeViewer#internalRemove(java.lang.Object[])
+	 */
+	protected void internalRemove(Object[] elementsOrPaths) {
+		if (virtualContentProvider == null || getRoot() == null) {
+			super.internalRemove(elementsOrPaths);
+			return;
+		}
+		// removed elements may not have items, recount the children of their
+		// parents
+		List parents = new ArrayList();
+		for (int i = 0; i < elementsOrPaths.length; i++) {
+			Object parent = getParentElement(elementsOrPaths[i]);
+			if (parent == null) {
+				// the parent is unknown, recount all the children
+				parents = null;
+				break;
+			}
+			if (!containsParent(parents, parent)) {
+				parents.add(parent);
+			}
+		}
+		super.internalRemove(elementsOrPaths);
+		if (parents == null) {
+			internalRefreshStruct(getTree(), getRoot(), false);
+			return;
+		}
+		for (Iterator it = parents.iterator(); it.hasNext();) {
+			Object parent = it.next();
+			Widget[] parentItems = internalFindItems(parent);
+			for (int i = 0; i < parentItems.length; i++) {
+				virtualRefreshChildren(parentItems[i], parentItems[i].getData());
+			}
+		}
+	}
+
+	private boolean containsParent(List parents, Object parent) {
+		for (Iterator it = parents.iterator(); it.hasNext();) {
+			Object next = it.next();
+			if (parent instanceof TreePath ? parent.equals(next)
+					: !(next instanceof TreePath) && equals(parent, next)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.jface.viewers.AbstractTreeViewer#internalRemove(java.lang.Object, java.lang.Object[])
+	 */
+	protected void internalRemove(Object parent, Object[] elements) {
+		super.internalRemove(parent, elements);
+		if (virtualContentProvider != null) {
+			Widget[] parentItems = internalFindItems(parent);
+			for (int i = 0; i < parentItems.length; i++) {
+				virtualRefreshChildren(parentItems[i], parent);
+			}
+		}
+	}
+
+	/**
+	 * Recounts the children of the given widget and clears its child items
+	 * after a structural change, when items are created lazily for a tree
+	 * content provider.
+	 *
+	 * @param widget
+	 *            the tree or an item
+	 * @param element
+	 *            the element of the widget
+	 */
+	private void virtualRefreshChildren(Widget widget, Object element) {
+		virtualContentProvider.clear();
+		if (widget instanceof TreeItem && !((TreeItem) widget).getExpanded()) {
+			((TreeItem) widget).clearAll(true);
+			updatePlus((Item) widget, element);
+		} else {
+			internalRefreshStruct(widget, element, false);
+		}
+	}
+
 	/**
 	 * Removes the element at the specified index of the parent.  The selection is updated if required.
 	 *
@@ -967,7 +1082,8 @@ public class TreeViewer extends AbstractTreeViewer {
 	 */
 	public void setContentProvider(IContentProvider provider) {
 		contentProviderIsLazy = (provider instanceof ILazyTreeContentProvider)
-				|| (provider instanceof ILazyTreePathContentProvider);
+				|| (provider instanceof ILazyTreePathContentProvider)
+				|| (virtualContentProvider != null && provider instanceof ITreeContentProvider);
 		contentProviderIsTreeBased = provider instanceof ILazyTreePathContentProvider;
 		super.setContentProvider(provider);
 	}
@@ -1047,8 +1163,8 @@ public class TreeViewer extends AbstractTreeViewer {
 				((ILazyTreePathContentProvider) getContentProvider())
 						.updateElement(treePath, index);
 			} else {
-				((ILazyTreeContentProvider) getContentProvider()).updateElement(
-						widget.getData(), index);
+				getLazyTreeContentProvider().updateElement(widget.getData(),
+						index);
 			}
 		} finally {
 			setBusy(oldBusy);
@@ -1074,7 +1190,7 @@ public class TreeViewer extends AbstractTreeViewer {
 				((ILazyTreePathContentProvider) getContentProvider())
 				.updateChildCount(treePath, currentChildCount);
 			} else {
-				((ILazyTreeContentProvider) getContentProvider()).updateChildCount(widget.getData(), currentChildCount);
+				getLazyTreeContentProvider().updateChildCount(widget.getData(), currentChildCount);
 			}
 		} finally {
 			setBusy(oldBusy);
@@ -1102,13 +1218,80 @@ public class TreeViewer extends AbstractTreeViewer {
 					.updateChildCount(treePath, currentChildCount);
 				}
 			} else {
-				((ILazyTreeContentProvider) getContentProvider()).updateChildCount(item.getData(), currentChildCount);
+				getLazyTreeContentProvider().updateChildCount(item.getData(), currentChildCount);
 			}
 		} finally {
 			setBusy(oldBusy);
 		}
 	}
 
+	/**
+	 * Returns the lazy content provider serving the children of the elements.
+	 *
+	 * @return the content provider, or the adapter of the tree content
+	 *         provider if items are created lazily for it
+	 */
+	private ILazyTreeContentProvider getLazyTreeContentProvider() {
+		if (virtualContentProvider != null) {
+			return virtualContentProvider;
+		}
+		return (ILazyTreeContentProvider) getContentProvider();
+	}
+
+	/**
+	 * Sets whether this viewer creates the items of an
+	 * {@link ITreeContentProvider} lazily. The tree must be created with the
+	 * {@link SWT#VIRTUAL} style bit.
+	 * <p>
+	 * When enabled, expanding an element only sets the number of child items,
+	 * and the items are filled with elements when they become visible, the
+	 * same way as with an {@link ILazyTreeContentProvider}. The children of
+	 * each parent are still obtained from the tree content provider, and
+	 * sorted and filtered using this viewer's comparator and filters. The
+	 * result is cached until the next refresh or structural change, so
+	 * filling the items of a parent sorts and filters its children only once.
+	 * </p>
+	 * <p>
+	 * Elements whose items were not created yet cannot be found by
+	 * <code>testFindItem</code> and are not included in the expanded
+	 * elements, like with lazy content providers. Hash lookup must be enabled
+	 * by calling {@link #setUseHashlookup(boolean)}. This method must be
+	 * called before the input is set. The default is <code>false</code>.
+	 * </p>
+	 *
+	 * @param enable
+	 *            <code>true</code> to create the items lazily
+	 *
+	 * @since 3.9
+	 */
+	public void setUseVirtualItems(boolean enable) {
+		Assert.isTrue(getInput() == null,
+				"Can only change the virtual items before input has been set");//$NON-NLS-1$
+		Assert.isTrue(!enable || (getTree().getStyle() & SWT.VIRTUAL) != 0,
+				"Virtual items need a tree with the VIRTUAL style bit"); //$NON-NLS-1$
+		virtualContentProvider = enable ? new VirtualTreeContentProvider(this)
+				: null;
+		IContentProvider provider = getContentProvider();
+		if (provider != null) {
+			contentProviderIsLazy = (provider instanceof ILazyTreeContentProvider)
+					|| (provider instanceof ILazyTreePathContentProvider)
+					|| (virtualContentProvider != null && provider instanceof ITreeContentProvider);
+		}
+	}
+
+	/**
+	 * Returns whether this viewer creates the items of an
+	 * {@link ITreeContentProvider} lazily.
+	 *
+	 * @return <code>true</code> if the items are created lazily
+	 * @see #setUseVirtualItems(boolean)
+	 *
+	 * @since 3.9
+	 */
+	public boolean getUseVirtualItems() {
+		return virtualContentProvider != null;
+	}
+
 	protected void disassociate(Item item) {
 		if (contentProviderIsLazy) {
 			// avoid causing a callback:
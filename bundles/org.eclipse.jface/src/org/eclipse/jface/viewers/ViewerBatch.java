@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.viewers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The structural changes recorded by {@link StructuredViewer#batch(Runnable)}.
+ * <p>
+ * Additions are grouped by parent and removals and updates are merged per
+ * element, using the viewer's element comparer. When the batch is applied,
+ * all the removed elements are removed in one call, the children added to
+ * each parent are added in one call, and the elements are updated once with
+ * the union of their changed properties. An element removed after it was
+ * added is not added at all.
+ * </p>
+ */
+/* package */final class ViewerBatch {
+
+	/**
+	 * Marks an element updated with unknown properties.
+	 */
+	private static final Object ALL_PROPERTIES = new Object();
+
+	private final IElementComparer comparer;
+
+	/**
+	 * Orders the additions and the removals of an element.
+	 */
+	private int sequence;
+
+	/**
+	 * The sequence number of the last removal of each removed element.
+	 */
+	private CustomHashtable removals;
+
+	private List removedElements = new ArrayList();
+
+	/**
+	 * The additions to each parent element (key type: <code>Object</code>,
+	 * value type: <code>Additions</code>).
+	 */
+	private CustomHashtable additionsByParent;
+
+	private List parents = new ArrayList();
+
+	/**
+	 * The additions of a viewer which has no parent elements, like a table.
+	 */
+	private Additions rootAdditions;
+
+	/**
+	 * The changed properties of each updated element (key type:
+	 * <code>Object</code>, value type: <code>String[]</code> or
+	 * {@link #ALL_PROPERTIES}).
+	 */
+	private CustomHashtable updates;
+
+	private List updatedElements = new ArrayList();
+
+	private class Additions {
+		List children = new ArrayList();
+
+		CustomHashtable sequences = new CustomHashtable(comparer);
+
+		void add(Object child) {
+			if (!sequences.containsKey(child)) {
+				children.add(child);
+			}
+			sequences.put(child, new Integer(++sequence));
+		}
+
+		/**
+		 * Returns the children which were not removed after being added.
+		 */
+		Object[] getChildren() {
+			List result = new ArrayList(children.size());
+			for (int i = 0; i < children.size(); i++) {
+				Object child = children.get(i);
+				Integer removal = (Integer) removals.get(child);
+				if (removal == null
+						|| removal.intValue() < ((Integer) sequences.get(child))
+								.intValue()) {
+					result.add(child);
+				}
+			}
+			return result.toArray();
+		}
+	}
+
+	/**
+	 * Creates an empty batch.
+	 *
+	 * @param comparer
+	 *            the element comparer of the viewer, or <code>null</code>
+	 */
+	ViewerBatch(IElementComparer comparer) {
+		this.comparer = comparer;
+		removals = new CustomHashtable(comparer);
+		additionsByParent = new CustomHashtable(comparer);
+		updates = new CustomHashtable(comparer);
+	}
+
+	/**
+	 * Records the addition of children.
+	 *
+	 * @param parent
+	 *            the parent element, or <code>null</code> if the viewer has
+	 *            no parent elements
+	 * @param children
+	 *            the added elements
+	 */
+	void add(Object parent, Object[] children) {
+		Additions additions;
+		if (parent == null) {
+			if (rootAdditions == null) {
+				rootAdditions = new Additions();
+			}
+			additions = rootAdditions;
+		} else {
+			additions = (Additions) additionsByParent.get(parent);
+			if (additions == null) {
+				additions = new Additions();
+				additionsByParent.put(parent, additions);
+				parents.add(parent);
+			}
+		}
+		for (int i = 0; i < children.length; i++) {
+			additions.add(children[i]);
+		}
+	}
+
+	/**
+	 * Records the removal of elements.
+	 *
+	 * @param elements
+	 *            the removed elements
+	 */
+	void remove(Object[] elements) {
+		for (int i = 0; i < elements.length; i++) {
+			Object element = elements[i];
+			if (removals.put(element, new Integer(++sequence)) == null) {
+				removedElements.add(element);
+			}
+		}
+	}
+
+	/**
+	 * Records the update of elements.
+	 *
+	 * @param elements
+	 *            the updated elements
+	 * @param properties
+	 *            the changed properties, or <code>null</code> if unknown
+	 */
+	void update(Object[] elements, String[] properties) {
+		for (int i = 0; i < elements.length; i++) {
+			Object element = elements[i];
+			Object previous = updates.get(element);
+			if (previous == null) {
+				updatedElements.add(element);
+				updates.put(element, properties == null ? ALL_PROPERTIES
+						: properties);
+			} else if (previous != ALL_PROPERTIES) {
+				updates.put(element, properties == null ? ALL_PROPERTIES
+						: merge((String[]) previous, properties));
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if no change was recorded
+	 */
+	boolean isEmpty() {
+		return removedElements.isEmpty() && parents.isEmpty()
+				&& rootAdditions == null && updatedElements.isEmpty();
+	}
+
+	/**
+	 * Applies the recorded changes to the viewer: removals first, then the
+	 * additions to each parent, then the updates.
+	 *
+	 * @param viewer
+	 *            the viewer
+	 */
+	void apply(StructuredViewer viewer) {
+		if (!removedElements.isEmpty()) {
+			viewer.batchRemove(removedElements.toArray());
+		}
+		for (int i = 0; i < parents.size(); i++) {
+			Object parent = parents.get(i);
+			Object[] children = ((Additions) additionsByParent.get(parent))
+					.getChildren();
+			if (children.length > 0) {
+				viewer.batchAdd(parent, children);
+			}
+		}
+		if (rootAdditions != null) {
+			Object[] children = rootAdditions.getChildren();
+			if (children.length > 0) {
+				viewer.batchAdd(null, children);
+			}
+		}
+		List fullUpdates = new ArrayList();
+		for (int i = 0; i < updatedElements.size(); i++) {
+			Object element = updatedElements.get(i);
+			Object properties = updates.get(element);
+			if (properties == ALL_PROPERTIES) {
+				fullUpdates.add(element);
+			} else {
+				viewer.update(element, (String[]) properties);
+			}
+		}
+		if (!fullUpdates.isEmpty()) {
+			viewer.update(fullUpdates.toArray(), null);
+		}
+	}
+
+	private static String[] merge(String[] properties, String[] moreProperties) {
+		List result = new ArrayList(properties.length + moreProperties.length);
+		for (int i = 0; i < properties.length; i++) {
+			result.add(properties[i]);
+		}
+		for (int i = 0; i < moreProperties.length; i++) {
+			if (!result.contains(moreProperties[i])) {
+				result.add(moreProperties[i]);
+			}
+		}
+		return (String[]) result.toArray(new String[result.size()]);
+	}
+}
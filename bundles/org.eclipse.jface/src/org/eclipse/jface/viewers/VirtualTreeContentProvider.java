@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.viewers;
+
+/**
+ * Serves the children of a regular {@link ITreeContentProvider} the way an
+ * {@link ILazyTreeContentProvider} would, so that a virtual tree viewer only
+ * creates and fills the items which become visible, see
+ * {@link TreeViewer#setUseVirtualItems(boolean)}.
+ * <p>
+ * The sorted and filtered children of each parent are computed once with the
+ * viewer's filters and comparator and cached until the next structural change
+ * of the viewer.
+ * </p>
+ */
+/* package */final class VirtualTreeContentProvider implements
+		ILazyTreeContentProvider {
+
+	private final TreeViewer viewer;
+
+	/**
+	 * The sorted and filtered children of the parents shown so far (key type:
+	 * <code>Object</code>, value type: <code>Object[]</code>), or
+	 * <code>null</code>.
+	 */
+	private CustomHashtable sortedChildren;
+
+	/**
+	 * @param viewer
+	 *            the viewer
+	 */
+	VirtualTreeContentProvider(TreeViewer viewer) {
+		this.viewer = viewer;
+	}
+
+	/**
+	 * Forgets the cached children, called when the viewer's structure or its
+	 * filters or comparator change.
+	 */
+	void clear() {
+		sortedChildren = null;
+	}
+
+	private Object[] getSortedChildren(Object parent) {
+		if (sortedChildren == null) {
+			sortedChildren = new CustomHashtable(viewer.getComparer());
+		}
+		Object[] children = (Object[]) sortedChildren.get(parent);
+		if (children == null) {
+			children = viewer.getSortedChildren(parent);
+			sortedChildren.put(parent, children);
+		}
+		return children;
+	}
+
+	private ITreeContentProvider getTreeContentProvider() {
+		return (ITreeContentProvider) viewer.getContentProvider();
+	}
+
+	public void updateElement(Object parent, int index) {
+		Object[] children = getSortedChildren(parent);
+		if (index < children.length) {
+			Object element = children[index];
+			viewer.replace(parent, index, element);
+			viewer.setHasChildren(element, getTreeContentProvider()
+					.hasChildren(element));
+		}
+	}
+
+	public void updateChildCount(Object element, int currentChildCount) {
+		int count = getSortedChildren(element).length;
+		if (count != currentChildCount) {
+			viewer.setChildCount(element, count);
+		}
+	}
+
+	public Object getParent(Object element) {
+		return getTreeContentProvider().getParent(element);
+	}
+
+	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+		// the viewer calls the tree content provider itself
+	}
+
+	public void dispose() {
+		// the viewer calls the tree content provider itself
+	}
+}
@@ -1026,6 +1026,15 @@ public class FilteredResourcesSelectionDialog extends
 					&& (this.showDerived || !resource.isDerived());
 		}
 
+		/**
+		 * Matching only reads the resources and the patterns of the filter.
+		 * 
+		 * @see org.eclipse.ui.dialogs.FilteredItemsSelectionDialog.ItemsFilter#isMatchItemThreadSafe()
+		 */
+		public boolean isMatchItemThreadSafe() {
+			return true;
+		}
+
 		private boolean matchName(IResource resource) {
 			String name = resource.getName();
 			if (nameMatches(name)) {
@@ -11,6 +11,8 @@
 package org.eclipse.ui.internal.views.markers;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -42,6 +44,13 @@ public class CachedMarkerBuilder {
 	private static final String TAG_CATEGORY_GROUP = "categoryGroup"; //$NON-NLS-1$
 	private static final String VALUE_NONE = "none"; //$NON-NLS-1$
 
+	/**
+	 * The system property enabling the incremental updates of the markers
+	 * views. They are disabled by default, the views gather all the markers
+	 * on each change. The property is read when a view is created.
+	 */
+	public static final String INCREMENTAL_UPDATES = "org.eclipse.ui.ide.markers.incrementalUpdates"; //$NON-NLS-1$
+
 	// The MarkerContentGenerator we are using for building
 	private MarkerContentGenerator generator; 
 	private MarkerUpdateJob updateJob;
@@ -71,6 +80,14 @@ public class CachedMarkerBuilder {
 	
 	private IMemento memento;
 	
+	// Whether the viewer has to be refreshed completely on the next UI update
+	private boolean fullViewerRefresh = true;
+	// The entries changed by incremental updates since the last UI update
+	private Collection viewerChanges;
+	private final Object viewerChangesLock = new Object();
+	
+	private final boolean incremental;
+	
 
 	/**
 	 * Create a new instance of the receiver. Update using the updateJob.
@@ -83,6 +100,7 @@ public class CachedMarkerBuilder {
 		markers = new Markers(this);
 		markerListener = new MarkersChangeListener(view, this);
 		scheduler = new MarkerUpdateScheduler(view, this);
+		incremental = Boolean.getBoolean(INCREMENTAL_UPDATES);
 	}
 	
 	void restoreState(IMemento memento) {
@@ -134,10 +152,8 @@ public class CachedMarkerBuilder {
 			.removePropertyChangeListener(getWorkingSetListener());
 		}
 		
-		if (isIncremental()) {
-			if(incrementJob!=null){
-				incrementJob.clearEntries();
-			}
+		if (updateJob instanceof IncrementUpdateJob) {
+			((IncrementUpdateJob) updateJob).clearEntries();
 		}
 	}
 
@@ -462,18 +478,7 @@ public class CachedMarkerBuilder {
 			if (generator == null || !active) {
 				return null;
 			}
-			if (updateJob != null) {
-				// ensure cancellation before calling the method
-				// updateJob.cancel();
-			} else {
-				/*
-				 * updateJob = isIncremental() ? new IncrementUpdateJob(this):
-				 * new MarkerUpdateJob(this);
-				 */
-				updateJob = new MarkerUpdateJob(this);
-				updateJob.setPriority(Job.LONG);
-				updateJob.setSystem(true);
-			}
+			getUpdateJob();
 			if (clean) {
 				updateJob.setClean();
 			}
@@ -486,6 +491,22 @@ public class CachedMarkerBuilder {
 		}
 	}
 	
+	/**
+	 * Return the update job, create it if needed. Must be called with the
+	 * scheduling lock.
+	 * 
+	 * @return MarkerUpdateJob
+	 */
+	private MarkerUpdateJob getUpdateJob() {
+		if (updateJob == null) {
+			updateJob = isIncremental() ? new IncrementUpdateJob(this)
+					: new MarkerUpdateJob(this);
+			updateJob.setPriority(Job.LONG);
+			updateJob.setSystem(true);
+		}
+		return updateJob;
+	}
+
 	/**
 	 * The method should not be called directly, see
 	 * {@link MarkerUpdateScheduler}
@@ -613,20 +634,16 @@ public class CachedMarkerBuilder {
 	}
 	 
 ///////	<Incremental update code>///////
-		private IncrementUpdateJob incrementJob;
 	/**
-	 * Checks whether the builder should perform incrementally Note : Incremental
-	 * updating method is NOT used and tested yet but left out for further
-	 * investigation(*).
+	 * Checks whether the builder should perform incrementally. The markers
+	 * are gathered when a clean is requested, the marker changes received
+	 * in between are applied to them incrementally. Enabled by the
+	 * {@link #INCREMENTAL_UPDATES} system property.
 	 * 
 	 * @return Returns true if we should collect markers incrementally.
 	 */
 	boolean isIncremental() {
-		/*
-		 * We do not update incrementally. We have 
-		 * code for further investigation(*) for this anyway.
-		 */
-		return false;
+		return incremental;
 	}
 	
 	/**
@@ -656,12 +673,59 @@ public class CachedMarkerBuilder {
 	 * @param update
 	 */
 	void incrementalUpdate(MarkerUpdate update) {
+		MarkerUpdateJob job;
 		synchronized (getUpdateScheduler().getSchedulingLock()) {
-			if (incrementJob == null) {
-				scheduleUpdateJob(MarkerUpdateScheduler.SHORT_DELAY, true);
+			job = getUpdateJob();
+		}
+		if (job instanceof IncrementUpdateJob) {
+			((IncrementUpdateJob) job).addUpdate(update);
+		}
+	}
+
+	/**
+	 * Refresh the viewer completely on the next UI update, the markers were
+	 * gathered or sorted again.
+	 */
+	void requestFullViewerRefresh() {
+		synchronized (viewerChangesLock) {
+			fullViewerRefresh = true;
+			viewerChanges = null;
+		}
+	}
+
+	/**
+	 * Add the entries changed by an incremental update, their labels are
+	 * updated on the next UI update.
+	 * 
+	 * @param entries
+	 *            the changed {@link MarkerEntry}(s)
+	 */
+	void addViewerChanges(Collection entries) {
+		synchronized (viewerChangesLock) {
+			if (fullViewerRefresh) {
+				return;
 			}
+			if (viewerChanges == null) {
+				viewerChanges = new ArrayList();
+			}
+			viewerChanges.addAll(entries);
+		}
+	}
+
+	/**
+	 * Return the entries changed by incremental updates since the last UI
+	 * update and reset them.
+	 * 
+	 * @return the changed {@link MarkerEntry}(s), or <code>null</code> if
+	 *         the viewer has to be refreshed completely
+	 */
+	Collection takeViewerChanges() {
+		synchronized (viewerChangesLock) {
+			Collection changes = fullViewerRefresh ? null : viewerChanges;
+			fullViewerRefresh = false;
+			viewerChanges = null;
+			return changes;
 		}
-		incrementJob.addUpdate(update);
 	}
 ///////	</Incremental update code>///////
 	
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,26 +12,33 @@
 package org.eclipse.ui.internal.views.markers;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.ui.views.markers.internal.MarkerMessages;
 
 /**
- * The job that performs incremental update. Once the processing is complete it
- * schedules an UI update. If it'll be possible and beneficial switch to
- * incremental updatation, this has been left out for further investigation(*).
- * only, and not used currently.
- * 
+ * The job that performs incremental update. When a clean is requested it
+ * gathers all the markers like the {@link MarkerUpdateJob}, otherwise it
+ * applies the {@link MarkerUpdate}s queued by the
+ * {@link MarkersChangeListener} to the sorted and grouped markers. Once the
+ * processing is complete it schedules an UI update of the changed entries.
+ *
  * @since 3.6
- * 
+ *
  */
 class IncrementUpdateJob extends MarkerUpdateJob {
 
-	private LinkedList incrementEntryList;
 	private LinkedList updateQueue;
 
 	/**
@@ -39,232 +46,152 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 	 */
 	public IncrementUpdateJob(CachedMarkerBuilder builder) {
 		super(builder);
-		incrementEntryList = new LinkedList();
+		// the first run gathers the markers
+		setClean();
 	}
 
 	/*
 	 * (non-Javadoc)
-	 * 
+	 *
 	 * @seeorg.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.
 	 * IProgressMonitor)
 	 */
 	protected IStatus run(IProgressMonitor monitor) {
-		monitor.beginTask(MarkerMessages.MarkerView_processUpdates,
-				IProgressMonitor.UNKNOWN);
-		boolean clean= isClean();
-		if (clean) {
-			clearEntries();
-		}
-		Collection markerEntries = incrementalEntries();
-		if (clean) {
+		if (takeClean()) {
+			monitor.beginTask(MarkerMessages.MarkerView_searching_for_markers,
+					IProgressMonitor.UNKNOWN);
 			/*
-			 * Unfortunately we cannot lock marker operations between gathering
-			 * and updation. We have this code in place only for further
-			 * investigation
+			 * The gathered markers include the queued changes. Changes which
+			 * arrive while gathering are applied on the next run, applying a
+			 * change twice is harmless.
 			 */
-			clean = !clean(markerEntries, monitor);
-			LinkedList queue = getUpdatesQueue();
-			synchronized (queue) {
-				queue.clear();
-			}
-		}
-		if (monitor.isCanceled()) {
-			return Status.CANCEL_STATUS;
-		}
-		if (!clean) {
-			builder.registerTypesToListener();
-			if (!processUpdates(monitor)) {
+			clearEntries();
+			if (!buildMarkers(monitor)) {
+				setClean();
 				return Status.CANCEL_STATUS;
 			}
+			return Status.OK_STATUS;
 		}
-		if (!processMarkerEntries(markerEntries, monitor)) {
-			return Status.CANCEL_STATUS;
-		}
-		if (monitor.isCanceled()) {
-			return Status.CANCEL_STATUS;
-		}
-		// update with sorted entries
-		updateIncrementalList(markerEntries);
-
+		monitor.beginTask(MarkerMessages.MarkerView_processUpdates,
+				IProgressMonitor.UNKNOWN);
 		if (monitor.isCanceled()) {
 			return Status.CANCEL_STATUS;
 		}
+		// the updates are applied at once, they are not cancelled halfway
+		processUpdates(takeUpdates(), monitor);
 		builder.getUpdateScheduler().scheduleUIUpdate(
 				MarkerUpdateScheduler.SHORT_DELAY);
-		if (monitor.isCanceled()) {
-			return Status.CANCEL_STATUS;
-		}
 		builder.setBuilding(false);
 		updateDone();
 		return Status.OK_STATUS;
 	}
 
-	/**
-	 * Update the list
-	 * 
-	 * @param markerEntries
-	 */
-	private boolean updateIncrementalList(Collection markerEntries) {
-		markerEntries.clear();
-		Markers clone = builder.getMarkers();
-		synchronized (clone) {
-			clone = clone.getClone();
-		}
-		MarkerEntry[] entries = clone.getMarkerEntryArray();
-		for (int i = 0; i < entries.length; i++) {
-			markerEntries.add(entries[i]);
-		}
-		return true;
-	}
-
 	/**
 	 * Process the incremental updates
-	 * 
+	 *
+	 * @param updates
+	 *            the {@link MarkerUpdate}s in the order they were received
 	 * @param monitor
+	 * @return <code>true</code> if the markers changed
 	 */
-	private boolean processUpdates(IProgressMonitor monitor) {
-		Collection markerEntries = incrementalEntries();
-		int addCount = 0, removedCount = 0, changedCount = 0, size = 0, newSize = 0;
-		LinkedList queue = getUpdatesQueue();
-		MarkerUpdate next = null;
-		do {
-			synchronized (queue) {
-				if (!queue.isEmpty()) {
-					next = (MarkerUpdate) queue.removeFirst();
-				} else {
-					next = null;
-				}
-			}
-			if (monitor.isCanceled() || next == null) {
-				break;
-			}
-			/**
-			 * The following performs incremental updation of the markers that
-			 * were gathered intially, and keeps them synched at any point with
-			 * the markers of interest in Workspace
-			 */
-			// unfortunately marker operations cannot be locked
-			// so locking between gathering of markers and
-			// marker deltas is not possible
-			size = markerEntries.size();
-			handleRemovedEntries(markerEntries, next.removed, monitor);
-			newSize = markerEntries.size();
-			removedCount += size - newSize;
-
-			handleChangedEntries(markerEntries, next.changed, monitor);
-			changedCount += next.changed.size();
-
-			size = newSize;
-			handleAddedEntries(markerEntries, next.added, monitor);
-			newSize = markerEntries.size();
-			removedCount += newSize - size;
-		} while (next != null);
-		boolean[] changeFlags = new boolean[] { addCount > 0, removedCount > 0,
-				changedCount > 0 };
-		for (int i = 0; i < changeFlags.length; i++) {
-			if (changeFlags[i]) {
-				builder.updateChangeFlags(changeFlags);
-				return true;
-			}
+	private boolean processUpdates(List updates, IProgressMonitor monitor) {
+		if (updates.isEmpty()) {
+			return false;
+		}
+		// The markers whose current entries are removed
+		Set removedMarkers = new HashSet();
+		// The latest entry of the added and changed markers
+		Map latestEntries = new LinkedHashMap();
+		int addedCount = 0, removedCount = 0, changedCount = 0;
+		Iterator iterator = updates.iterator();
+		while (iterator.hasNext()) {
+			MarkerUpdate next = (MarkerUpdate) iterator.next();
+			removedCount += handleRemovedEntries(removedMarkers, latestEntries,
+					next.removed);
+			changedCount += handleEntries(removedMarkers, latestEntries,
+					next.changed);
+			addedCount += handleEntries(removedMarkers, latestEntries,
+					next.added);
 		}
-		return false;
-	}
 
-	/**
-	 * @param added
-	 * @param monitor
-	 */
-	private void handleAddedEntries(Collection markerEntries, Collection added,
-			IProgressMonitor monitor) {
+		// Only the entries the view shows are merged
 		MarkerContentGenerator generator = builder.getGenerator();
-		Iterator iterator = added.iterator();
+		Collection newEntries = new LinkedList();
+		// the strings shared by the entries
+		Map strings = new HashMap();
+		iterator = latestEntries.values().iterator();
 		while (iterator.hasNext()) {
 			MarkerEntry entry = (MarkerEntry) iterator.next();
+			entry.prefetch(strings);
 			if (generator.select(entry)) {
-				markerEntries.add(entry);
+				newEntries.add(entry);
 			}
 		}
+		if (!builder.getMarkers().updateWithChanges(removedMarkers,
+				newEntries, monitor)) {
+			return false;
+		}
+		builder.addViewerChanges(newEntries);
+		builder.updateChangeFlags(new boolean[] { addedCount > 0,
+				removedCount > 0, changedCount > 0 });
+		return true;
 	}
 
 	/**
-	 * @param changed
-	 * @param monitor
+	 * Record the removed entries.
+	 *
+	 * @return the number of entries
 	 */
-	private void handleChangedEntries(Collection markerEntries,
-			Collection changed, IProgressMonitor monitor) {
-		MarkerContentGenerator generator = builder.getGenerator();
-		Iterator iterator = changed.iterator();
+	private int handleRemovedEntries(Set removedMarkers, Map latestEntries,
+			Collection removed) {
+		Iterator iterator = removed.iterator();
 		while (iterator.hasNext()) {
-			MarkerEntry entry = (MarkerEntry) iterator.next();
-			Iterator iterator2 = markerEntries.iterator();
-			while (iterator2.hasNext()) {
-				MarkerEntry oldEntry = (MarkerEntry) iterator2.next();
-				if (oldEntry.getMarker().equals(entry.getMarker())) {
-					iterator2.remove();
-				}
-			}
-			if (!generator.select(entry)) {
-				iterator.remove();
-			}
+			IMarker marker = ((MarkerEntry) iterator.next()).getMarker();
+			removedMarkers.add(marker);
+			latestEntries.remove(marker);
 		}
-		markerEntries.addAll(changed);
+		return removed.size();
 	}
 
 	/**
-	 * @param removed
-	 * @param monitor
+	 * Record the added or changed entries, they replace the current entries
+	 * of their markers.
+	 *
+	 * @return the number of entries
 	 */
-	private void handleRemovedEntries(Collection markerEntries,
-			Collection removed, IProgressMonitor monitor) {
-		boolean found = false;
-		Iterator iterator = markerEntries.iterator();
+	private int handleEntries(Set removedMarkers, Map latestEntries,
+			Collection entries) {
+		Iterator iterator = entries.iterator();
 		while (iterator.hasNext()) {
 			MarkerEntry entry = (MarkerEntry) iterator.next();
-			found = entry.getStaleState();
-			if (found) {
-				iterator.remove();
-			}
-			if (removed.isEmpty()) {
-				continue;
-			}
-			Iterator iterator2 = removed.iterator();
-			while (iterator2.hasNext()) {
-				MarkerEntry stale = (MarkerEntry) iterator2.next();
-				if (stale.getMarker().equals(entry.getMarker())) {
-					iterator2.remove();
-					if (!found) {
-						iterator.remove();
-					}
-					break;
-				}
-			}
-		}
-		if (removed.isEmpty()) {
-			// TODO: do we check for residuals?
-			return;
-		}
-		// TODO: do we check for residuals?
-		iterator = markerEntries.iterator();
-		while (iterator.hasNext()) {
-			MarkerEntry entry = (MarkerEntry) iterator.next();
-			if (entry.getMarker() != null && !entry.getMarker().exists()) {
-				iterator.remove();
-			}
+			removedMarkers.add(entry.getMarker());
+			latestEntries.put(entry.getMarker(), entry);
 		}
+		return entries.size();
 	}
 
 	/**
 	 * Clean
 	 */
 	void clearEntries() {
-		incrementEntryList = new LinkedList();
+		LinkedList queue = getUpdatesQueue();
+		synchronized (queue) {
+			queue.clear();
+		}
 	}
 
 	/**
-	 * @return Returns the incrementEntryies.
+	 * Remove the queued updates.
+	 *
+	 * @return the {@link MarkerUpdate}s in the order they were received
 	 */
-	Collection incrementalEntries() {
-		return incrementEntryList;
+	private List takeUpdates() {
+		LinkedList queue = getUpdatesQueue();
+		synchronized (queue) {
+			List updates = new LinkedList(queue);
+			queue.clear();
+			return updates;
+		}
 	}
 
 	/**
@@ -281,7 +208,7 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 
 	/**
 	 * Add update to the list
-	 * 
+	 *
 	 * @param update
 	 */
 	void addUpdate(MarkerUpdate update) {
@@ -293,7 +220,7 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 
 	/*
 	 * (non-Javadoc)
-	 * 
+	 *
 	 * @see org.eclipse.core.runtime.jobs.Job#belongsTo(java.lang.Object)
 	 */
 	public boolean belongsTo(Object family) {
@@ -302,4 +229,4 @@ class IncrementUpdateJob extends MarkerUpdateJob {
 		}
 		return super.belongsTo(family);
 	}
-}
\ No newline at end of file
+}
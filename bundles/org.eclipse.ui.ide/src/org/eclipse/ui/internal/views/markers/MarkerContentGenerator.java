@@ -18,11 +18,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
@@ -1124,6 +1126,8 @@ public class MarkerContentGenerator {
 		IResource[] selected = getSelectedResources();
 		Collection filters = getEnabledFilters();
 		boolean andFilters = andFilters();
+		// the strings shared by the entries
+		Map strings = new HashMap();
 		Iterator iterator = resources.iterator();
 		while (iterator.hasNext()) {
 			IMarker[] markers = null;
@@ -1147,6 +1151,7 @@ public class MarkerContentGenerator {
 			int lenght =  markers.length;
 			for (int i = 0; i < lenght; i++) {
 				entry = new MarkerEntry(markers[i]);
+				entry.prefetch(strings);
 				if (select(entry, selected, filters, andFilters)) {
 					result.add(entry);
 				}
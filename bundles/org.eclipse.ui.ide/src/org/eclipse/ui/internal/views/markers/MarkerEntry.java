@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,7 @@ import org.eclipse.osgi.util.NLS;
 import org.eclipse.ui.internal.ide.Policy;
 import org.eclipse.ui.views.markers.MarkerViewUtil;
 import org.eclipse.ui.views.markers.internal.MarkerMessages;
+import org.eclipse.ui.views.markers.internal.MarkerType;
 import org.eclipse.ui.views.markers.internal.MarkerTypesModel;
 
 import com.ibm.icu.text.CollationKey;
@@ -66,6 +67,12 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	}
 	// The key for the string we built for display
 	private static final Object LOCATION_STRING = "LOCATION_STRING"; //$NON-NLS-1$
+	// The value of a prefetched int attribute that is not set
+	private static final int UNSET = Integer.MIN_VALUE;
+	// The attributes read at once by prefetch(Map)
+	private static final String[] PREFETCHED_ATTRIBUTES = new String[] {
+			IMarker.SEVERITY, IMarker.LINE_NUMBER, IMarker.PRIORITY,
+			IMarker.LOCATION, MarkerViewUtil.PATH_ATTRIBUTE };
 	private MarkerCategory category;
 	private Map cache = null;
 	
@@ -82,6 +89,20 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 */
 	private IMarker marker;
 
+	/*
+	 * The values the comparators and filters use the most. They are
+	 * prefetched when the markers are gathered so that sorting neither goes
+	 * to the workspace nor allocates, and they are kept when the cache is
+	 * cleared.
+	 */
+	private boolean prefetched;
+	private int severity = UNSET;
+	private int lineNumber = UNSET;
+	private int priority = UNSET;
+	private String location;
+	private String typeId;
+	private String path;
+
 	/**
 	 * Create a new instance of the receiver.
 	 * 
@@ -123,6 +144,14 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 *      int)
 	 */
 	public int getAttributeValue(String attribute, int defaultValue) {
+		if (prefetched) {
+			if (IMarker.SEVERITY.equals(attribute))
+				return severity == UNSET ? defaultValue : severity;
+			if (IMarker.LINE_NUMBER.equals(attribute))
+				return lineNumber == UNSET ? defaultValue : lineNumber;
+			if (IMarker.PRIORITY.equals(attribute))
+				return priority == UNSET ? defaultValue : priority;
+		}
 
 		Object value = getAttributeValue(attribute);
 		if (value == null)
@@ -164,6 +193,9 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 * @see org.eclipse.ui.internal.views.markers.MarkerSupportItem#getAttributeValue(java.lang.String, java.lang.String)
 	 */
 	public String getAttributeValue(String attribute, String defaultValue) {
+		if (prefetched && IMarker.LOCATION.equals(attribute)) {
+			return location == null ? defaultValue : location;
+		}
 
 		Object value = getAttributeValue(attribute);
 		if (value == null)
@@ -318,21 +350,35 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 			return NLS.bind(MarkerMessages.FieldMessage_WrongType, marker
 					.toString());
 		}
-		try {
-			return MarkerTypesModel.getInstance().getType(marker.getType())
-					.getLabel();
-		} catch (CoreException e) {
-			checkIfMarkerStale() ;
-			Policy.handle(e);
+		String type;
+		if (prefetched) {
+			type = typeId;
+		} else {
+			try {
+				type = marker.getType();
+			} catch (CoreException e) {
+				checkIfMarkerStale() ;
+				Policy.handle(e);
+				return NLS.bind(MarkerMessages.FieldMessage_WrongType, marker
+						.toString());
+			}
+		}
+		// the type may not be declared
+		MarkerType markerType = MarkerTypesModel.getInstance().getType(type);
+		if (markerType == null) {
 			return NLS.bind(MarkerMessages.FieldMessage_WrongType, marker
 					.toString());
 		}
+		return markerType.getLabel();
 	}
 	String getMarkerTypeId() {
 		if(stale){
 			return NLS.bind(MarkerMessages.FieldMessage_WrongType, marker
 					.toString());
 		}
+		if (prefetched) {
+			return typeId;
+		}
 		try {
 			return marker.getType();
 		} catch (CoreException e) {
@@ -358,6 +404,9 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 * @see org.eclipse.ui.views.markers.MarkerItem#getPath()
 	 */
 	public String getPath() {
+		if (prefetched) {
+			return path;
+		}
 		String folder = getAttributeValue(MarkerViewUtil.PATH_ATTRIBUTE, null);
 		if (folder != null) {
 			return folder;
@@ -365,18 +414,101 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 		if (stale||checkIfMarkerStale()) {
 			return MarkerSupportInternalUtilities.UNKNOWN_ATRRIBTE_VALUE_STRING;
 		}
-		IPath path = marker.getResource().getFullPath();
-		int n = path.segmentCount() - 1; // n is the number of segments
-		// in container, not path
-		if (n <= 0) {
+		folder = getFolder(marker.getResource().getFullPath());
+		if (folder == null) {
 			return super.getPath();
 		}
-		folder = path.removeLastSegments(1).removeTrailingSeparator()
-				.toString();
 		getCache().put(MarkerViewUtil.PATH_ATTRIBUTE, folder);
 		return folder;
 	}
 
+	/**
+	 * Return the folder of the resource path.
+	 * 
+	 * @param resourcePath
+	 * @return String or <code>null</code> if the resource is not in a folder
+	 */
+	private static String getFolder(IPath resourcePath) {
+		int n = resourcePath.segmentCount() - 1; // n is the number of segments
+		// in container, not path
+		if (n <= 0) {
+			return null;
+		}
+		return resourcePath.removeLastSegments(1).removeTrailingSeparator()
+				.toString();
+	}
+
+	/**
+	 * Read the values the comparators and filters use the most from the
+	 * marker at once. The type, location and path strings are shared with the
+	 * other entries through strings, so that the equal strings of a large
+	 * number of markers are held once.
+	 * 
+	 * @param strings
+	 *            the shared strings, mapping each string to itself
+	 */
+	void prefetch(Map strings) {
+		if (stale) {
+			return;
+		}
+		Object[] values;
+		String type;
+		try {
+			values = marker.getAttributes(PREFETCHED_ATTRIBUTES);
+			type = marker.getType();
+		} catch (CoreException e) {
+			checkIfMarkerStale();
+			return;
+		}
+		severity = toInt(values[0]);
+		lineNumber = toInt(values[1]);
+		priority = toInt(values[2]);
+		location = values[3] == null ? null : share(strings, values[3]
+				.toString());
+		typeId = share(strings, type);
+		String folder;
+		if (values[4] != null) {
+			folder = values[4].toString();
+		} else {
+			folder = getFolder(marker.getResource().getFullPath());
+			if (folder == null) {
+				folder = super.getPath();
+			}
+		}
+		path = share(strings, folder);
+		prefetched = true;
+	}
+
+	/**
+	 * Return the value of a prefetched int attribute.
+	 * 
+	 * @param value
+	 * @return int or {@link #UNSET} if the attribute is not set
+	 */
+	private static int toInt(Object value) {
+		if (value instanceof Integer) {
+			return ((Integer) value).intValue();
+		}
+		return UNSET;
+	}
+
+	/**
+	 * Return the string in strings that is equal to value, adding value if
+	 * there is none.
+	 * 
+	 * @param strings
+	 * @param value
+	 * @return String
+	 */
+	private static String share(Map strings, String value) {
+		String shared = (String) strings.get(value);
+		if (shared == null) {
+			strings.put(value, value);
+			return value;
+		}
+		return shared;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -406,6 +538,10 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 		this.marker = marker;
 		// reset stale
 		stale = false;
+		prefetched = false;
+		location = null;
+		typeId = null;
+		path = null;
 		clearCache();
 	}
 
@@ -421,7 +557,8 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	}
 
 	/**
-	 * Clear the cached values for performance reasons.
+	 * Clear the cached values for performance reasons. The prefetched values
+	 * are kept.
 	 */
 	void clearCache() {
 		cache = null;		
@@ -62,11 +62,13 @@ class MarkerUpdateJob extends Job {
 	 * gather all markers needed by the view.
 	 * 
 	 * @param monitor
+	 * @return <code>true</code> if all the markers were gathered and the
+	 *         markers updated
 	 */
-	void buildMarkers(IProgressMonitor monitor) {
+	boolean buildMarkers(IProgressMonitor monitor) {
 		//check for cancellation before we start
 		if (monitor.isCanceled()) {
-			return;
+			return false;
 		}
 		// builder.getUpdateScheduler().cancelQueuedUIUpdates();
 		// builder.getUpdateScheduler().indicateStatus(
@@ -74,27 +76,29 @@ class MarkerUpdateJob extends Job {
 
 		Collection markerEntries = new LinkedList();
 		//this is not incremental clean every time
-		clean = !clean(markerEntries, monitor);
+		boolean gathered = clean(markerEntries, monitor);
 		if (monitor.isCanceled()) {
-			return;
+			return false;
 		}
 		// builder.getUpdateScheduler().indicateStatus(
 		// MarkerMessages.MarkerView_processUpdates, false);
 		
 		monitor.setTaskName(MarkerMessages.MarkerView_processUpdates);
 		if (!processMarkerEntries(markerEntries, monitor)) {
-			return;
+			return false;
 		}
 		if (monitor.isCanceled()) {
-			return;
+			return false;
 		}
+		builder.requestFullViewerRefresh();
 		builder.getUpdateScheduler().scheduleUIUpdate(
 				MarkerUpdateScheduler.SHORT_DELAY);
 		if (monitor.isCanceled()) {
-			return;
+			return false;
 		}
 		builder.setBuilding(false);
 		updateDone();
+		return gathered;
 	}
 
 	/**
@@ -165,17 +169,28 @@ class MarkerUpdateJob extends Job {
 	/**
 	 * @return Returns if the a clean is requested.
 	 */
-	boolean isClean() {
+	synchronized boolean isClean() {
 		return clean;
 	}
 
 	/**
 	 * Request a clean
 	 */
-	void setClean() {
+	synchronized void setClean() {
 		this.clean = true;
 	}
 
+	/**
+	 * Return whether a clean is requested and reset the request.
+	 * 
+	 * @return Returns if the a clean was requested.
+	 */
+	synchronized boolean takeClean() {
+		boolean requested = clean;
+		clean = false;
+		return requested;
+	}
+
 	/**
 	 * @return last update time
 	 */
@@ -211,6 +226,7 @@ class SortingJob extends MarkerUpdateJob {
 		// builder.getUpdateScheduler().indicateStatus(
 		// MarkerMessages.MarkerView_19, false);
 		builder.getMarkers().sortMarkerEntries(monitor);
+		builder.requestFullViewerRefresh();
 		builder.getUpdateScheduler().scheduleUIUpdate(0L);
 		if (monitor.isCanceled()) {
 			return Status.CANCEL_STATUS;
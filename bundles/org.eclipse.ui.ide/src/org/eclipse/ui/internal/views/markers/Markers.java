@@ -12,12 +12,14 @@
 package org.eclipse.ui.internal.views.markers;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.eclipse.core.resources.IMarker;
@@ -106,6 +108,199 @@ class Markers {
 		}
 	}
 
+	/**
+	 * Update the sorted and grouped marker entries with the changes of an
+	 * incremental update. The entries of the removed markers are taken out and
+	 * the new entries are merged into their categories, so that only the
+	 * changed entries are compared.
+	 * 
+	 * @param removedMarkers
+	 *            the {@link IMarker}s whose entries are removed
+	 * @param newEntries
+	 *            the new {@link MarkerEntry}(s), replacing the entries of
+	 *            the same markers if any
+	 * @param monitor
+	 * @return <code>true</code> if the entries were updated
+	 */
+	synchronized boolean updateWithChanges(Set removedMarkers,
+			Collection newEntries, IProgressMonitor monitor) {
+		boolean initialVal = inChange;
+		try {
+			inChange = true;
+			if (markerToEntryMap != null) {
+				markerToEntryMap.clear();
+				markerToEntryMap = null;
+			}
+			markerCounts = null;
+			if (builder.isShowingHierarchy()) {
+				mergeIntoCategories(removedMarkers, newEntries, monitor);
+			} else {
+				List kept = keptEntries(0, markerEntryArray.length - 1,
+						removedMarkers);
+				markerEntryArray = mergeEntries(kept, newEntries, builder
+						.getComparator(), monitor);
+				categories = EMPTY_CATEGORY_ARRAY;
+			}
+			return true;
+		} finally {
+			inChange = initialVal;
+		}
+	}
+
+	/**
+	 * Merge the new entries into the categories, creating and dropping
+	 * categories as needed.
+	 * 
+	 * @param removedMarkers
+	 * @param newEntries
+	 * @param monitor
+	 */
+	private void mergeIntoCategories(Set removedMarkers, Collection newEntries,
+			IProgressMonitor monitor) {
+		MarkerGroup group = builder.getCategoryGroup();
+		// grouping entry -> {kept entries, new entries}
+		TreeMap segments = new TreeMap(group.getEntriesComparator());
+		for (int i = 0; i < categories.length; i++) {
+			List kept = keptEntries(categories[i].start, categories[i].end,
+					removedMarkers);
+			Iterator iterator = kept.iterator();
+			while (iterator.hasNext()) {
+				MarkerGroupingEntry key = findGroupValue(group,
+						(MarkerEntry) iterator.next());
+				if (key != null) {
+					getSegment(segments, key)[0] = kept;
+					break;
+				}
+			}
+		}
+		Iterator iterator = newEntries.iterator();
+		while (iterator.hasNext()) {
+			MarkerEntry entry = (MarkerEntry) iterator.next();
+			MarkerGroupingEntry key = findGroupValue(group, entry);
+			if (key != null) {
+				getSegment(segments, key)[1].add(entry);
+			}
+		}
+
+		Comparator comparator = builder.getComparator().getFieldsComparator();
+		List entries = new ArrayList();
+		List markerCategories = new ArrayList(segments.size());
+		iterator = segments.values().iterator();
+		while (iterator.hasNext()) {
+			List[] segment = (List[]) iterator.next();
+			MarkerEntry[] merged = mergeEntries(segment[0], segment[1],
+					comparator, monitor);
+			if (merged.length == 0) {
+				continue;
+			}
+			int start = entries.size();
+			entries.addAll(Arrays.asList(merged));
+			markerCategories.add(new MarkerCategory(this, start, entries
+					.size() - 1, group.getMarkerField().getValue(merged[0])));
+		}
+		markerEntryArray = (MarkerEntry[]) entries
+				.toArray(new MarkerEntry[entries.size()]);
+		categories = (MarkerCategory[]) markerCategories
+				.toArray(new MarkerCategory[markerCategories.size()]);
+	}
+
+	/**
+	 * Return the {kept entries, new entries} lists of the category key.
+	 */
+	private List[] getSegment(Map segments, MarkerGroupingEntry key) {
+		List[] segment = (List[]) segments.get(key);
+		if (segment == null) {
+			segment = new List[] { new ArrayList(), new ArrayList() };
+			segments.put(key, segment);
+		}
+		return segment;
+	}
+
+	/**
+	 * Return the grouping entry of the entry or <code>null</code> if its
+	 * marker no longer exists.
+	 */
+	private MarkerGroupingEntry findGroupValue(MarkerGroup group,
+			MarkerEntry entry) {
+		IMarker marker = entry.getMarker();
+		if (marker == null) {
+			return null;
+		}
+		try {
+			return group.findGroupValue(marker.getType(), marker);
+		} catch (CoreException e) {
+			entry.checkIfMarkerStale();
+			return null;
+		}
+	}
+
+	/**
+	 * Return the entries in [start,end] which are not stale and whose markers
+	 * are not in removedMarkers, in their current order.
+	 */
+	private List keptEntries(int start, int end, Set removedMarkers) {
+		List kept = new ArrayList(Math.max(end - start + 1, 0));
+		for (int i = start; i <= end; i++) {
+			MarkerEntry entry = markerEntryArray[i];
+			IMarker marker = entry.getMarker();
+			if (marker != null && !entry.getStaleState()
+					&& !removedMarkers.contains(marker)) {
+				kept.add(entry);
+			}
+		}
+		return kept;
+	}
+
+	/**
+	 * Merge the new entries with the kept entries, which are in sorted order.
+	 * When no marker limit applies the sorted new entries are merged in linear
+	 * time, otherwise the entries showing are sorted again.
+	 * 
+	 * @param kept
+	 * @param added
+	 * @param comparator
+	 * @param monitor
+	 * @return the merged entries
+	 */
+	private MarkerEntry[] mergeEntries(List kept, Collection added,
+			Comparator comparator, IProgressMonitor monitor) {
+		MarkerEntry[] merged = new MarkerEntry[kept.size() + added.size()];
+		if (builder.getGenerator().isMarkerLimitsEnabled()) {
+			kept.toArray(merged);
+			Iterator iterator = added.iterator();
+			for (int i = kept.size(); i < merged.length; i++) {
+				merged[i] = (MarkerEntry) iterator.next();
+			}
+			MarkerSortUtil.sortStartingKElement(merged, comparator, 0,
+					merged.length - 1, getShowingLimit(merged.length),
+					monitor);
+		} else {
+			MarkerEntry[] sortedAdded = (MarkerEntry[]) added
+					.toArray(new MarkerEntry[added.size()]);
+			Arrays.sort(sortedAdded, comparator);
+			int i = 0, j = 0, k = 0;
+			while (i < kept.size() && j < sortedAdded.length) {
+				MarkerEntry next = (MarkerEntry) kept.get(i);
+				if (comparator.compare(sortedAdded[j], next) < 0) {
+					merged[k++] = sortedAdded[j++];
+				} else {
+					merged[k++] = next;
+					i++;
+				}
+			}
+			while (i < kept.size()) {
+				merged[k++] = (MarkerEntry) kept.get(i++);
+			}
+			while (j < sortedAdded.length) {
+				merged[k++] = sortedAdded[j++];
+			}
+		}
+		for (int i = 0; i < merged.length; i++) {
+			merged[i].clearCache();
+		}
+		return merged;
+	}
+
 	/**
 	 * Sort the contained marker entries and build categories if required.
 	 * 
@@ -184,10 +184,8 @@ class MarkersChangeListener implements IResourceChangeListener {
 	 * of the markers that were gathered initially, and keeps them synched at
 	 * any point with the markers of interest in Workspace. Unfortunately marker
 	 * operations cannot be locked so locking between gathering of markers and
-	 * marker deltas is not possible.
-	 * 
-	 * Note : this method of updating is NOT used and tested yet and has holes
-	 * but left out SOLELY for further investigation(*).
+	 * marker deltas is not possible, the {@link IncrementUpdateJob} applies
+	 * the changes so that applying a change twice is harmless.
 	 * 
 	 * @param event
 	 */
@@ -545,6 +543,19 @@ class MarkerUpdateScheduler {
 		// updateTimer.reset();
 	}
 
+	/**
+	 * Schedule marker update for the marker changes received by the listener,
+	 * the changes are applied incrementally unless a clean is requested.
+	 */
+	void scheduleIncrementalUpdate(long delay, boolean cancelPrevious) {
+		builder.setBuilding(true);
+		if (cancelPrevious) {
+			cancelQueuedUIUpdates();
+			cancelUpdate();
+		}
+		updateJob = builder.scheduleUpdateJob(delay, !builder.isIncremental());
+	}
+
 	/**
 	 * Schedule marker update.
 	 */
@@ -808,7 +819,7 @@ class MarkerUpdateScheduler {
 
 		private void go(long delay, boolean cancelPrevious) {
 			timeB4Update = System.currentTimeMillis() + delay;
-			scheduleUpdate(delay + AFTER_MARGIN, cancelPrevious);
+			scheduleIncrementalUpdate(delay + AFTER_MARGIN, cancelPrevious);
 		}
 	}
 }
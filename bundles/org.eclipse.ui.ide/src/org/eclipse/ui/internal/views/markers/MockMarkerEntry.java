@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010 IBM Corporation and others.
+ * Copyright (c) 2010, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -9,9 +9,13 @@
  *     IBM Corporation - initial API and implementation
  *******************************************************************************/
 package org.eclipse.ui.internal.views.markers;
+
+import java.util.HashMap;
+
+import org.eclipse.core.resources.IMarker;
 /**
  * @since 3.4
- *	Mock Class needed for testing Sort
+ *	Mock Class needed for testing Sort and the prefetched attributes
  */
 public class MockMarkerEntry extends MarkerEntry{
 	/**
@@ -25,6 +29,20 @@ public class MockMarkerEntry extends MarkerEntry{
 		super(null);
 		this.name=name;
 	}
+	/**
+	 * @param marker
+	 */
+	public MockMarkerEntry(IMarker marker) {
+		super(marker);
+		this.name=marker.toString();
+	}
+	/**
+	 * Read the attributes used to sort and filter at once, like the
+	 * gathered entries.
+	 */
+	public void prefetch() {
+		prefetch(new HashMap());
+	}
 	/* (non-Javadoc)
 	 * @see java.lang.Object#equals(java.lang.Object)
 	 */
@@ -11,6 +11,8 @@
 
 package org.eclipse.ui.internal.views.markers;
 
+import java.util.Collection;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -105,7 +107,16 @@ class UIUpdateJob extends WorkbenchJob {
 			IContentProvider contentProvider = viewer.getContentProvider();
 			contentProvider.inputChanged(viewer, view.getViewerInput(), clone);
 			viewer.getTree().setRedraw(false);
-			viewer.refresh(true);
+			Collection changes = view.getBuilder().takeViewerChanges();
+			if (changes == null) {
+				viewer.refresh(true);
+			} else {
+				// only the changed entries and the categories, whose labels
+				// show the counts, need new labels
+				viewer.refresh(false);
+				viewer.update(changes.toArray(), null);
+				viewer.update(clone.getCategories(), null);
+			}
 			if (!monitor.isCanceled()) {
 				//do not expand if canceled
 				view.reexpandCategories();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -122,6 +122,8 @@ import org.eclipse.ui.internal.IWorkbenchGraphicConstants;
 import org.eclipse.ui.internal.WorkbenchImages;
 import org.eclipse.ui.internal.WorkbenchMessages;
 import org.eclipse.ui.internal.WorkbenchPlugin;
+import org.eclipse.ui.internal.dialogs.FilterChunkJob;
+import org.eclipse.ui.internal.dialogs.PartialSort;
 import org.eclipse.ui.progress.UIJob;
 import org.eclipse.ui.statushandlers.StatusManager;
 
@@ -144,6 +146,29 @@ public abstract class FilteredItemsSelectionDialog extends
 
 	private static final String DIALOG_WIDTH = "DIALOG_WIDTH"; //$NON-NLS-1$
 
+	/**
+	 * The minimum number of cached items matched in parallel, for filters
+	 * supporting it.
+	 */
+	private static final int PARALLEL_FILTERING_THRESHOLD = 10000;
+
+	/**
+	 * The number of jobs matching the cached items in parallel.
+	 */
+	private static final int PARALLEL_FILTERING_JOBS = Math.max(2, Math.min(8,
+			Runtime.getRuntime().availableProcessors()));
+
+	/**
+	 * The minimum number of items for which the first items are shown before
+	 * all of them are sorted.
+	 */
+	private static final int PROGRESSIVE_REFRESH_THRESHOLD = 5000;
+
+	/**
+	 * The number of items shown before all of the items are sorted.
+	 */
+	private static final int TOP_ITEMS_COUNT = 100;
+
 	/**
 	 * Represents an empty selection in the pattern input field (used only for
 	 * initial pattern).
@@ -1001,6 +1026,20 @@ public abstract class FilteredItemsSelectionDialog extends
 		}
 	}
 
+	/**
+	 * Shows the first items of a large list in their final order, before all
+	 * of the items are sorted by {@link #reloadCache(boolean, IProgressMonitor)}.
+	 * 
+	 * @return <code>true</code> if the first items were loaded
+	 */
+	private boolean reloadTopItems() {
+		if (list != null && !list.getTable().isDisposed()
+				&& contentProvider != null) {
+			return contentProvider.reloadTopItems(TOP_ITEMS_COUNT);
+		}
+		return false;
+	}
+
 	/**
 	 * Schedule refresh job.
 	 */
@@ -1497,6 +1536,10 @@ public abstract class FilteredItemsSelectionDialog extends
 			}
 
 			if (FilteredItemsSelectionDialog.this != null) {
+				// show the first items while the others are sorted
+				if (reloadTopItems() && !monitor.isCanceled()) {
+					refreshJob.schedule();
+				}
 				GranualProgressMonitor wrappedMonitor = new GranualProgressMonitor(
 						monitor);
 				FilteredItemsSelectionDialog.this.reloadCache(true,
@@ -2144,6 +2187,13 @@ public abstract class FilteredItemsSelectionDialog extends
 				throws CoreException {
 
 			if (lastCompletedFilter != null
+					&& lastCompletedFilter.isSubFilter(this.itemsFilter)
+					&& itemsFilter.isMatchItemThreadSafe()
+					&& lastCompletedResult.size() >= PARALLEL_FILTERING_THRESHOLD) {
+
+				filterContentInParallel(monitor);
+
+			} else if (lastCompletedFilter != null
 					&& lastCompletedFilter.isSubFilter(this.itemsFilter)) {
 
 				int length = lastCompletedResult.size() / 500;
@@ -2190,6 +2240,50 @@ public abstract class FilteredItemsSelectionDialog extends
 
 		}
 
+		/**
+		 * Filters the items of the last completed filter in chunks matched by
+		 * parallel jobs.
+		 * 
+		 * @param monitor
+		 *            for monitoring progress
+		 */
+		private void filterContentInParallel(GranualProgressMonitor monitor) {
+			final ItemsFilter matchingFilter = itemsFilter;
+			Object[] cachedItems = lastCompletedResult.toArray();
+			monitor
+					.beginTask(
+							WorkbenchMessages.FilteredItemsSelectionDialog_cacheSearchJob_taskName,
+							PARALLEL_FILTERING_JOBS);
+
+			FilterChunkJob[] jobs = FilterChunkJob.createJobs(
+					new FilterChunkJob.ItemMatcher() {
+						public boolean matchItem(Object item) {
+							return matchingFilter.matchItem(item);
+						}
+					}, cachedItems, PARALLEL_FILTERING_JOBS, monitor);
+			for (int i = 0; i < jobs.length; i++) {
+				jobs[i].schedule();
+			}
+
+			for (int i = 0; i < jobs.length; i++) {
+				try {
+					jobs[i].join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					monitor.setCanceled(true);
+				}
+				if (monitor.isCanceled()) {
+					for (int j = i; j < jobs.length; j++) {
+						jobs[j].cancel();
+					}
+					return;
+				}
+				contentProvider.addMatches(jobs[i].getMatches(),
+						matchingFilter);
+				monitor.worked(1);
+			}
+		}
+
 	}
 
 	/**
@@ -2539,6 +2633,20 @@ public abstract class FilteredItemsSelectionDialog extends
 		 */
 		public abstract boolean isConsistentItem(Object item);
 
+		/**
+		 * Returns whether {@link #matchItem(Object)} can be called from
+		 * several threads at once. When it can, the dialog matches a large
+		 * number of cached items in parallel chunks when the pattern is
+		 * refined. The default implementation returns <code>false</code>.
+		 * 
+		 * @return <code>true</code> if the filter can match items
+		 *         concurrently, <code>false</code> otherwise
+		 * @since 3.105
+		 */
+		public boolean isMatchItemThreadSafe() {
+			return false;
+		}
+
 	}
 
 	/**
@@ -2626,6 +2734,16 @@ public abstract class FilteredItemsSelectionDialog extends
 		 */
 		private boolean reset;
 
+		/**
+		 * The items arranged by the last <code>reloadTopItems(int)</code>:
+		 * the first <code>partiallySortedCount</code> items are sorted and
+		 * precede the others, which are not. The sorting of all of the items
+		 * continues from there.
+		 */
+		private Object[] partiallySortedItems;
+
+		private int partiallySortedCount;
+
 		/**
 		 * Creates new instance of <code>ContentProvider</code>.
 		 */
@@ -2662,6 +2780,7 @@ public abstract class FilteredItemsSelectionDialog extends
 			this.items.clear();
 			this.duplicates.clear();
 			this.lastSortedItems.clear();
+			this.partiallySortedItems = null;
 		}
 
 		/**
@@ -2689,6 +2808,20 @@ public abstract class FilteredItemsSelectionDialog extends
 			}
 		}
 
+		/**
+		 * Adds items already matched by the filter.
+		 * 
+		 * @param matches
+		 *            the matching items
+		 * @param itemsFilter
+		 *            the filter that matched the items
+		 */
+		public void addMatches(List matches, ItemsFilter itemsFilter) {
+			if (itemsFilter == filter) {
+				this.items.addAll(matches);
+			}
+		}
+
 		/**
 		 * Add all history items to <code>contentProvider</code>.
 		 * 
@@ -2739,6 +2872,7 @@ public abstract class FilteredItemsSelectionDialog extends
 			}
 
 			synchronized (lastSortedItems) {
+				partiallySortedItems = null;
 				Collections.sort(lastSortedItems, getHistoryComparator());
 			}
 			return item;
@@ -2759,6 +2893,7 @@ public abstract class FilteredItemsSelectionDialog extends
 				this.lastSortedItems.remove(item);
 			}
 			synchronized (lastSortedItems) {
+				partiallySortedItems = null;
 				Collections.sort(lastSortedItems, getHistoryComparator());
 			}
 			this.refresh();
@@ -2834,14 +2969,73 @@ public abstract class FilteredItemsSelectionDialog extends
 		private Object[] getSortedItems() {
 			if (lastSortedItems.size() != items.size()) {
 				synchronized (lastSortedItems) {
+					Object[] partial = partiallySortedItems;
+					partiallySortedItems = null;
 					lastSortedItems.clear();
-					lastSortedItems.addAll(items);
-					Collections.sort(lastSortedItems, getHistoryComparator());
+					if (partial != null && partial.length == items.size()) {
+						// only the items after the first ones need sorting
+						Arrays.sort(partial, partiallySortedCount,
+								partial.length, getHistoryComparator());
+						lastSortedItems.addAll(Arrays.asList(partial));
+					} else {
+						lastSortedItems.addAll(items);
+						Collections.sort(lastSortedItems,
+								getHistoryComparator());
+					}
 				}
 			}
 			return lastSortedItems.toArray();
 		}
 
+		/**
+		 * Gets the first items in their sorted order without sorting the
+		 * others, using a partial selection. The other items are kept for
+		 * <code>getSortedItems()</code>.
+		 * 
+		 * @param count
+		 *            the number of items
+		 * @return the first items, or <code>null</code> if there are too few
+		 *         items to bother or they are already sorted
+		 */
+		private Object[] getTopItems(int count) {
+			if (items.size() < PROGRESSIVE_REFRESH_THRESHOLD
+					|| lastSortedItems.size() == items.size()) {
+				return null;
+			}
+			Object[] all = items.toArray();
+			if (all.length <= count) {
+				return null;
+			}
+			PartialSort.sortFirst(all, count, getHistoryComparator());
+			synchronized (lastSortedItems) {
+				partiallySortedItems = all;
+				partiallySortedCount = count;
+			}
+			Object[] top = new Object[count];
+			System.arraycopy(all, 0, top, 0, count);
+			return top;
+		}
+
+		/**
+		 * Loads the first items of a large list in their final order so that
+		 * they can be shown while the others are being sorted by
+		 * <code>reloadCache(boolean, IProgressMonitor)</code>.
+		 * 
+		 * @param count
+		 *            the number of items
+		 * @return <code>true</code> if the first items were loaded
+		 */
+		public boolean reloadTopItems(int count) {
+			reset = false;
+			Object[] top = getTopItems(count);
+			if (top == null || reset) {
+				return false;
+			}
+			lastFilteredItems = Arrays.asList(prepareItems(list.getInput(),
+					top, 1, new NullProgressMonitor()));
+			return true;
+		}
+
 		/**
 		 * Remember result of filtering.
 		 * 
@@ -3017,6 +3211,25 @@ public abstract class FilteredItemsSelectionDialog extends
 
 			monitor.worked(ticks);
 
+			return prepareItems(parent, filteredElements, ticks, monitor);
+		}
+
+		/**
+		 * Returns the sorted items filtered using the provided
+		 * <code>ViewerFilter</code>s with a separator added.
+		 * 
+		 * @param parent
+		 *            the parent
+		 * @param filteredElements
+		 *            the sorted items
+		 * @param ticks
+		 *            the work of each filter and of adding the separator
+		 * @param monitor
+		 *            progress monitor
+		 * @return an array of filtered items
+		 */
+		private Object[] prepareItems(Object parent, Object[] filteredElements,
+				int ticks, IProgressMonitor monitor) {
 			// filter the elements using provided ViewerFilters
 			if (filters != null && filteredElements != null) {
 				for (Iterator iter = filters.iterator(); iter.hasNext();) {
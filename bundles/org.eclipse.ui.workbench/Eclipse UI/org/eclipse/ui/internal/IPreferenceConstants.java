@@ -234,4 +234,18 @@ public interface IPreferenceConstants {
 	 */
 	public static final String USE_32_THREADING = "use32Threading"; //$NON-NLS-1$
 
+	/**
+	 * Workbench preference id for whether lightweight decorations are
+	 * computed in parallel. When <code>true</code>, several elements are
+	 * decorated at once, each decorator runs in its own thread, and a slow
+	 * decorator does not hold back the decorations of the others.
+	 * <p>
+	 * The default is <code>false</code>. The preference is read when the
+	 * workbench starts.
+	 * </p>
+	 * 
+	 * @since 3.105
+	 */
+	public static final String PARALLEL_DECORATION = "parallelDecoration"; //$NON-NLS-1$
+
 }
@@ -57,6 +57,7 @@ import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
 import org.eclipse.e4.ui.model.application.ui.basic.MWindowElement;
 import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
 import org.eclipse.e4.ui.services.EContextService;
+import org.eclipse.e4.ui.services.events.IBatchingEventBroker;
 import org.eclipse.e4.ui.workbench.IPresentationEngine;
 import org.eclipse.e4.ui.workbench.UIEvents;
 import org.eclipse.e4.ui.workbench.modeling.EModelService;
@@ -3309,34 +3310,44 @@ public class WorkbenchPage extends CompatibleWorkbenchPage implements
 		// getWorkbenchWindow()).getCoolBarManager2())
 		// .resetItemOrder();
 
-		// Hide placeholders for parts that exist in the 'global' areas
-		modelService.hideLocalPlaceholders(window, dummyPerspective);
+		// Swap the layouts in one batch of model events
+		IBatchingEventBroker batchingBroker = broker instanceof IBatchingEventBroker
+				? (IBatchingEventBroker) broker : null;
+		if (batchingBroker != null)
+			batchingBroker.beginBatch();
+		try {
+			// Hide placeholders for parts that exist in the 'global' areas
+			modelService.hideLocalPlaceholders(window, dummyPerspective);
 
-		int dCount = dummyPerspective.getChildren().size();
-		while (dummyPerspective.getChildren().size() > 0) {
-			MPartSashContainerElement dChild = dummyPerspective.getChildren().remove(0);
-			persp.getChildren().add(dChild);
-		}
+			int dCount = dummyPerspective.getChildren().size();
+			while (dummyPerspective.getChildren().size() > 0) {
+				MPartSashContainerElement dChild = dummyPerspective.getChildren().remove(0);
+				persp.getChildren().add(dChild);
+			}
 
-		while (persp.getChildren().size() > dCount) {
-			MUIElement child = persp.getChildren().get(0);
-			child.setToBeRendered(false);
-			persp.getChildren().remove(0);
-		}
+			while (persp.getChildren().size() > dCount) {
+				MUIElement child = persp.getChildren().get(0);
+				child.setToBeRendered(false);
+				persp.getChildren().remove(0);
+			}
 
-		List<MWindow> existingDetachedWindows = new ArrayList<MWindow>();
-		existingDetachedWindows.addAll(persp.getWindows());
+			List<MWindow> existingDetachedWindows = new ArrayList<MWindow>();
+			existingDetachedWindows.addAll(persp.getWindows());
 
-		// Move any detached windows from template to perspective
-		while (dummyPerspective.getWindows().size() > 0) {
-			MWindow detachedWindow = dummyPerspective.getWindows().remove(0);
-			persp.getWindows().add(detachedWindow);
-		}
+			// Move any detached windows from template to perspective
+			while (dummyPerspective.getWindows().size() > 0) {
+				MWindow detachedWindow = dummyPerspective.getWindows().remove(0);
+				persp.getWindows().add(detachedWindow);
+			}
 		
-		// Remove original windows.  Can't remove them first or the MParts will be disposed
-		for (MWindow detachedWindow : existingDetachedWindows) {
-			detachedWindow.setToBeRendered(false);
-			persp.getWindows().remove(detachedWindow);
+			// Remove original windows.  Can't remove them first or the MParts will be disposed
+			for (MWindow detachedWindow : existingDetachedWindows) {
+				detachedWindow.setToBeRendered(false);
+				persp.getWindows().remove(detachedWindow);
+			}
+		} finally {
+			if (batchingBroker != null)
+				batchingBroker.endBatch();
 		}
 
 		// deactivate and activate other action sets as
@@ -99,6 +99,7 @@ public class WorkbenchPreferenceInitializer extends
 		node.putInt(IHeapStatusConstants.PREF_UPDATE_INTERVAL, 500);
 		node.putBoolean(IHeapStatusConstants.PREF_SHOW_MAX, false);
 		node.putBoolean(IPreferenceConstants.OVERRIDE_PRESENTATION, false);
+		node.putBoolean(IPreferenceConstants.PARALLEL_DECORATION, false);
 		
 		IEclipsePreferences rootNode = (IEclipsePreferences) Platform
 				.getPreferencesService().getRootNode()
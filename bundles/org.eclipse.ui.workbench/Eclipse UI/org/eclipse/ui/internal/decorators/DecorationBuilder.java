@@ -118,11 +118,12 @@ public class DecorationBuilder implements IDecoration {
 	}
 
 	/**
-	 * Clear the current values and return a DecorationResult.
+	 * Clear the current values and return a DecorationResult. This method is
+	 * public for use by the test suites.
 	 * 
 	 * @return DecorationResult
 	 */
-	DecorationResult createResult() {
+	public DecorationResult createResult() {
 		// check whether the context says that replacement should happen
 		boolean clearReplacementImage = true;
 		if (context != null) {
@@ -185,6 +186,37 @@ public class DecorationBuilder implements IDecoration {
 		valueSet = true;
 	}
 
+	/**
+	 * Add the decorations of a single decorator computed in a separate
+	 * builder, as if the decorator had been applied to the receiver.
+	 * 
+	 * @param decoration
+	 *            the builder used by the decorator
+	 */
+	void merge(DecorationBuilder decoration) {
+		if (!decoration.valueSet) {
+			return;
+		}
+		prefixes.addAll(decoration.prefixes);
+		suffixes.addAll(decoration.suffixes);
+		for (int i = 0; i < descriptors.length; i++) {
+			// the first overlay in a quadrant wins
+			if (descriptors[i] == null) {
+				descriptors[i] = decoration.descriptors[i];
+			}
+		}
+		if (decoration.foregroundColor != null) {
+			foregroundColor = decoration.foregroundColor;
+		}
+		if (decoration.backgroundColor != null) {
+			backgroundColor = decoration.backgroundColor;
+		}
+		if (decoration.font != null) {
+			font = decoration.font;
+		}
+		valueSet = true;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
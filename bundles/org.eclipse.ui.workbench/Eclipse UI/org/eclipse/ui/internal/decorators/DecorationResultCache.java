@@ -0,0 +1,348 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.decorators;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.commands.util.Tracing;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.viewers.IDecorationContext;
+import org.eclipse.ui.internal.misc.Policy;
+
+/**
+ * The DecorationResultCache holds the decoration results computed by the
+ * {@link DecorationScheduler}. It is bounded both by its number of entries and
+ * by the estimated memory of its results, and evicts the least recently used
+ * results first.
+ * <p>
+ * Elements can be pinned while their label updates are on their way to the
+ * viewers. Eviction passes over the results of pinned elements, so the cache
+ * may exceed its bounds while they are pinned.
+ * </p>
+ * <p>
+ * The elements shown by the viewers are not pinned: the scheduler is not told
+ * which items are visible, it only sees the label requests of the viewers.
+ * Each of these requests reads the result of the element and makes it the
+ * most recently used one, so the results of the shown elements are the last
+ * to be evicted. Pinning only covers the time between the computation of a
+ * result and the label request of the viewer that follows the update. A shown
+ * element evicted anyway is decorated again on its next label request, which
+ * costs a computation but never shows a wrong decoration.
+ * </p>
+ * <p>
+ * All the methods are synchronized as the decoration jobs and the UI thread
+ * access the cache concurrently. The class and its methods are public for use
+ * by the test suites and are not intended to be referenced by other workbench
+ * internals.
+ * </p>
+ */
+public class DecorationResultCache {
+
+	/**
+	 * The maximum number of results kept.
+	 */
+	public static final int MAX_ENTRIES = 10000;
+
+	/**
+	 * The maximum estimated memory of the results kept, in bytes.
+	 */
+	public static final long MAX_MEMORY = 4 * 1024 * 1024;
+
+	private static final String TRACING_COMPONENT = "DECORATIONS"; //$NON-NLS-1$
+
+	// Estimated size of an entry without its strings and overlays
+	private static final int ENTRY_SIZE = 128;
+
+	// Estimated size of a string without its characters
+	private static final int STRING_SIZE = 40;
+
+	// Estimated size of an overlay descriptor
+	private static final int OVERLAY_SIZE = 64;
+
+	// Estimated size of the decorated image of a result with overlays, a
+	// 16x16 image with 32 bits per pixel
+	private static final int IMAGE_SIZE = 16 * 16 * 4;
+
+	/**
+	 * The cache entry of a result.
+	 */
+	private static class Entry {
+		final DecorationResult result;
+
+		final long size;
+
+		Entry(DecorationResult result, long size) {
+			this.result = result;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * The key of a result, an element in a decoration context.
+	 */
+	private static class Key {
+		final Object element;
+
+		final IDecorationContext context;
+
+		Key(Object element, IDecorationContext context) {
+			this.element = element;
+			this.context = context;
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return element.equals(other.element)
+					&& context.equals(other.context);
+		}
+
+		public int hashCode() {
+			return element.hashCode() * 31 + context.hashCode();
+		}
+	}
+
+	private final int maxEntries;
+
+	private final long maxMemory;
+
+	// The entries by Key, in access order
+	private final LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+
+	// The pin count of the pinned elements
+	private final Map pinned = new HashMap();
+
+	private long memory = 0;
+
+	private int hits = 0;
+
+	private int misses = 0;
+
+	private int evictions = 0;
+
+	/**
+	 * Create a cache with the default bounds.
+	 */
+	public DecorationResultCache() {
+		this(MAX_ENTRIES, MAX_MEMORY);
+	}
+
+	/**
+	 * Create a cache with the given bounds.
+	 *
+	 * @param maxEntries
+	 *            the maximum number of results
+	 * @param maxMemory
+	 *            the maximum estimated memory of the results, in bytes
+	 */
+	public DecorationResultCache(int maxEntries, long maxMemory) {
+		this.maxEntries = maxEntries;
+		this.maxMemory = maxMemory;
+	}
+
+	/**
+	 * Return the result of the element in the context.
+	 *
+	 * @param element
+	 * @param context
+	 * @return DecorationResult or <code>null</code> if there is none
+	 */
+	public synchronized DecorationResult get(Object element,
+			IDecorationContext context) {
+		Entry entry = (Entry) entries.get(new Key(element, context));
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.result;
+	}
+
+	/**
+	 * Add the result of the element in the context and evict the least
+	 * recently used results if the cache is over its bounds.
+	 *
+	 * @param element
+	 * @param context
+	 * @param result
+	 */
+	public synchronized void put(Object element, IDecorationContext context,
+			DecorationResult result) {
+		Entry entry = new Entry(result, estimateSize(result));
+		Entry old = (Entry) entries.put(new Key(element, context), entry);
+		if (old != null) {
+			memory -= old.size;
+		}
+		memory += entry.size;
+		evict();
+	}
+
+	/**
+	 * Remove the result of the element in the context.
+	 *
+	 * @param element
+	 * @param context
+	 */
+	public synchronized void remove(Object element,
+			IDecorationContext context) {
+		Entry old = (Entry) entries.remove(new Key(element, context));
+		if (old != null) {
+			memory -= old.size;
+		}
+	}
+
+	/**
+	 * Remove all of the results. The pinned elements stay pinned.
+	 */
+	public synchronized void clear() {
+		if (Policy.DEBUG_DECORATION_CACHE && (hits + misses) > 0) {
+			Tracing.printTrace(TRACING_COMPONENT, "cleared " //$NON-NLS-1$
+					+ entries.size() + " results (" + memory //$NON-NLS-1$
+					+ " bytes), hits: " + hits + ", misses: " + misses //$NON-NLS-1$ //$NON-NLS-2$
+					+ ", evictions: " + evictions); //$NON-NLS-1$
+		}
+		entries.clear();
+		memory = 0;
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	/**
+	 * Keep the results of the element until it is unpinned as many times as
+	 * it was pinned.
+	 *
+	 * @param element
+	 */
+	public synchronized void pin(Object element) {
+		Integer count = (Integer) pinned.get(element);
+		pinned.put(element, new Integer(count == null ? 1
+				: count.intValue() + 1));
+	}
+
+	/**
+	 * Release a pin of the element.
+	 *
+	 * @param element
+	 */
+	public synchronized void unpin(Object element) {
+		Integer count = (Integer) pinned.get(element);
+		if (count == null) {
+			return;
+		}
+		if (count.intValue() == 1) {
+			pinned.remove(element);
+		} else {
+			pinned.put(element, new Integer(count.intValue() - 1));
+		}
+	}
+
+	/**
+	 * Return the number of results in the cache.
+	 *
+	 * @return int
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Return the estimated memory of the results in the cache, in bytes.
+	 *
+	 * @return long
+	 */
+	public synchronized long getMemory() {
+		return memory;
+	}
+
+	/**
+	 * Return the number of results evicted since the cache was last cleared.
+	 *
+	 * @return int
+	 */
+	public synchronized int getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Evict the least recently used results of unpinned elements until the
+	 * cache is within its bounds.
+	 */
+	private void evict() {
+		if (entries.size() <= maxEntries && memory <= maxMemory) {
+			return;
+		}
+		Set skipped = null;
+		Iterator iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()
+				&& (entries.size() > maxEntries || memory > maxMemory)) {
+			Map.Entry next = (Map.Entry) iterator.next();
+			Key key = (Key) next.getKey();
+			if (pinned.containsKey(key.element)) {
+				if (skipped == null) {
+					skipped = new HashSet();
+				}
+				skipped.add(key.element);
+				continue;
+			}
+			iterator.remove();
+			memory -= ((Entry) next.getValue()).size;
+			evictions++;
+		}
+		if (skipped != null && Policy.DEBUG_DECORATION_CACHE) {
+			Tracing.printTrace(TRACING_COMPONENT, "kept " + skipped.size() //$NON-NLS-1$
+					+ " pinned elements over the bounds, " + entries.size() //$NON-NLS-1$
+					+ " results (" + memory + " bytes)"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Estimate the memory used by the result and by the decorated image
+	 * created for its overlays.
+	 *
+	 * @param result
+	 * @return the estimated size in bytes
+	 */
+	private static long estimateSize(DecorationResult result) {
+		long size = ENTRY_SIZE + estimateSize(result.getPrefixes())
+				+ estimateSize(result.getSuffixes());
+		ImageDescriptor[] descriptors = result.getDescriptors();
+		if (descriptors != null) {
+			size += IMAGE_SIZE;
+			for (int i = 0; i < descriptors.length; i++) {
+				if (descriptors[i] != null) {
+					size += OVERLAY_SIZE;
+				}
+			}
+		}
+		return size;
+	}
+
+	private static long estimateSize(List strings) {
+		long size = 0;
+		for (Iterator iterator = strings.iterator(); iterator.hasNext();) {
+			Object next = iterator.next();
+			size += STRING_SIZE;
+			if (next instanceof String) {
+				size += ((String) next).length() * 2;
+			}
+		}
+		return size;
+	}
+}
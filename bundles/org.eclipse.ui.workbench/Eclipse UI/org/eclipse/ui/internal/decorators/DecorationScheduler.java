@@ -12,12 +12,11 @@
  *******************************************************************************/
 package org.eclipse.ui.internal.decorators;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 
@@ -35,7 +34,9 @@ import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.internal.IPreferenceConstants;
 import org.eclipse.ui.internal.WorkbenchMessages;
+import org.eclipse.ui.internal.WorkbenchPlugin;
 import org.eclipse.ui.progress.UIJob;
 import org.eclipse.ui.progress.WorkbenchJob;
 
@@ -48,11 +49,14 @@ public class DecorationScheduler {
 	static final ILabelProviderListener[] EMPTY_LISTENER_LIST = new ILabelProviderListener[0];
 
 	// When decorations are computed they are added to this cache via
-	// decorated() method
-	Map resultCache = new HashMap();
+	// decorated() method. The cache is bounded and synchronized as several
+	// decoration jobs may write to it.
+	DecorationResultCache resultCache = new DecorationResultCache();
 
-	// Objects that need an icon and text computed for display to the user
-	List awaitingDecoration = new ArrayList();
+	// Objects that need an icon and text computed for display to the user,
+	// in the order they were queued. awaitingDecorationValues holds the
+	// references of the queued objects.
+	LinkedList awaitingDecoration = new LinkedList();
 
 	// Objects that are awaiting a label update.
 	Set pendingUpdate = new HashSet();
@@ -68,6 +72,16 @@ public class DecorationScheduler {
 
 	Job decorationJob;
 
+	// The decoration jobs of the parallel mode, the first one is
+	// decorationJob
+	Job[] decorationJobs;
+
+	// The workers running the decorators in parallel mode, null otherwise
+	DecoratorWorkers workers;
+
+	// The number of elements the decoration jobs are decorating
+	private int decorating = 0;
+
 	UIJob updateJob;
 
 	private Collection removedListeners = Collections
@@ -81,6 +95,10 @@ public class DecorationScheduler {
 	/** Amount of time to delay the update notification when max reached. */
 	static final int UPDATE_DELAY = 100;
 
+	/** The number of elements decorated at once in parallel mode. */
+	static final int PARALLEL_JOBS = Math.max(2, Math.min(4, Runtime
+			.getRuntime().availableProcessors()));
+
 	/**
 	 * Return a new instance of the receiver configured for the supplied
 	 * DecoratorManager.
@@ -89,7 +107,40 @@ public class DecorationScheduler {
 	 */
 	DecorationScheduler(DecoratorManager manager) {
 		decoratorManager = manager;
-		createDecorationJob();
+		boolean parallel = WorkbenchPlugin.getDefault().getPreferenceStore()
+				.getBoolean(IPreferenceConstants.PARALLEL_DECORATION);
+		if (parallel) {
+			workers = new DecoratorWorkers(
+					new DecoratorWorkers.DecoratorRunner() {
+						public void decorate(Object element, Object decorator,
+								DecorationBuilder builder) {
+							LightweightDecoratorDefinition definition = (LightweightDecoratorDefinition) decorator;
+							builder.setCurrentDefinition(definition);
+							decoratorManager.getLightweightManager().decorate(
+									element, builder, definition);
+						}
+
+						public String getName(Object decorator) {
+							return ((LightweightDecoratorDefinition) decorator)
+									.getName();
+						}
+					}, new DecoratorWorkers.LateDecorationListener() {
+						public void lateDecorationReady(Object element,
+								Object adaptedElement,
+								IDecorationContext context) {
+							DecorationScheduler.this.lateDecorationReady(
+									element, adaptedElement, context);
+						}
+					});
+			decorationJobs = new Job[PARALLEL_JOBS];
+		} else {
+			decorationJobs = new Job[1];
+		}
+		for (int i = 0; i < decorationJobs.length; i++) {
+			decorationJobs[i] = createDecorationJob();
+		}
+		decorationJob = decorationJobs[0];
+		decorationJob.schedule();
 	}
 
 	/**
@@ -152,11 +203,13 @@ public class DecorationScheduler {
 			reference.setForceUpdate(forceUpdate);
 			reference.setUndecoratedText(undecoratedText);
 			awaitingDecorationValues.put(element, reference);
-			awaitingDecoration.add(element);
+			awaitingDecoration.addLast(element);
 			if (shutdown) {
 				return;
 			}
-			decorationJob.schedule();
+			// Wake up one more job for each element queued, up to all of them
+			decorationJobs[Math.min(awaitingDecoration.size(),
+					decorationJobs.length) - 1].schedule();
 		}
 
 	}
@@ -219,21 +272,47 @@ public class DecorationScheduler {
 
 	private DecorationResult internalGetResult(Object element,
 			IDecorationContext context) {
-		Map results = (Map) resultCache.get(context);
-		if (results != null) {
-			return (DecorationResult) results.get(element);
-		}
-		return null;
+		return resultCache.get(element, context);
 	}
 
 	protected void internalPutResult(Object element,
 			IDecorationContext context, DecorationResult result) {
-		Map results = (Map) resultCache.get(context);
-		if (results == null) {
-			results = new HashMap();
-			resultCache.put(context, results);
+		resultCache.put(element, context, result);
+	}
+
+	private void clearResultCache() {
+		resultCache.clear();
+	}
+
+	/**
+	 * Add the element to the pending label updates. Its results are pinned in
+	 * the cache until the update is delivered to the listeners.
+	 * 
+	 * @param element
+	 */
+	private void addPendingUpdate(Object element) {
+		synchronized (pendingKey) {
+			if (pendingUpdate.add(element)) {
+				resultCache.pin(element);
+			}
 		}
-		results.put(element, result);
+	}
+
+	/**
+	 * A decorator which did not answer in time while the element was
+	 * decorated in parallel mode completed. Decorate the element again to
+	 * include the late decoration.
+	 * 
+	 * @param element
+	 * @param adaptedElement
+	 *            The adapted value of element. May be null.
+	 * @param context
+	 *            The decoration context
+	 */
+	void lateDecorationReady(Object element, Object adaptedElement,
+			IDecorationContext context) {
+		resultCache.remove(element, context);
+		queueForDecoration(element, adaptedElement, true, null, context);
 	}
 
 	/**
@@ -260,6 +339,9 @@ public class DecorationScheduler {
 	 */
 	synchronized void shutdown() {
 		shutdown = true;
+		if (workers != null) {
+			workers.shutdown();
+		}
 	}
 
 	/**
@@ -272,16 +354,19 @@ public class DecorationScheduler {
 		if (shutdown || awaitingDecoration.isEmpty()) {
 			return null;
 		}
-		Object element = awaitingDecoration.remove(0);
+		Object element = awaitingDecoration.removeFirst();
+		decorating++;
 
 		return (DecorationReference) awaitingDecorationValues.remove(element);
 	}
 
 	/**
-	 * Create the Thread used for running decoration.
+	 * Create a Job used for running decoration.
+	 * 
+	 * @return Job
 	 */
-	private void createDecorationJob() {
-		decorationJob = new Job(
+	private Job createDecorationJob() {
+		Job job = new Job(
 				WorkbenchMessages.DecorationScheduler_CalculationJobName) {
 			/*
 			 * (non-Javadoc)
@@ -326,16 +411,22 @@ public class DecorationScheduler {
 					Object element = reference.getElement();
 					boolean force = reference.shouldForceUpdate();
 					IDecorationContext[] contexts = reference.getContexts();
-					for (int i = 0; i < contexts.length; i++) {
-						IDecorationContext context = contexts[i];
-						ensureResultCached(element, force, context);
-					}
-
-					// Only notify listeners when we have exhausted the
-					// queue of decoration requests.
-					synchronized (DecorationScheduler.this) {
-						if (awaitingDecoration.isEmpty()) {
-							decorated();
+					try {
+						for (int i = 0; i < contexts.length; i++) {
+							IDecorationContext context = contexts[i];
+							ensureResultCached(element, reference
+									.getAdaptedElement(), force, context);
+						}
+					} finally {
+						// Only notify listeners when we have exhausted the
+						// queue of decoration requests and the other
+						// decoration jobs are done with their elements.
+						synchronized (DecorationScheduler.this) {
+							decorating--;
+							if (awaitingDecoration.isEmpty()
+									&& decorating == 0) {
+								decorated();
+							}
 						}
 					}
 				}
@@ -349,31 +440,40 @@ public class DecorationScheduler {
 			 * 
 			 * @param element
 			 *            the elements
+			 * @param adaptedElement
+			 *            the adapted value of element. May be null.
 			 * @param force
 			 *            whether an update should be forced
 			 * @param context
 			 *            the decoration context
 			 */
-			private void ensureResultCached(Object element, boolean force,
+			private void ensureResultCached(Object element,
+					Object adaptedElement, boolean force,
 					IDecorationContext context) {
 				boolean elementIsCached = internalGetResult(element, context) != null;
 				if (elementIsCached) {
-					synchronized (pendingKey) {
-						pendingUpdate.add(element);
-					}
-
+					addPendingUpdate(element);
 				}
 
 				if (!elementIsCached) {
 					DecorationBuilder cacheResult = new DecorationBuilder(
 							context);
 					// Calculate the decoration
-					decoratorManager.getLightweightManager().getDecorations(
-							element, cacheResult);
+					boolean complete = true;
+					if (workers == null) {
+						decoratorManager.getLightweightManager()
+								.getDecorations(element, cacheResult);
+					} else {
+						complete = workers.decorate(element, adaptedElement,
+								cacheResult, decoratorManager
+										.getLightweightManager()
+										.getDecoratorsFor(element));
+					}
 
 					// If we should update regardless then put a result
-					// anyways
-					if (cacheResult.hasValue() || force) {
+					// anyways. Incomplete results are shown until the late
+					// decorations are ready.
+					if (cacheResult.hasValue() || force || !complete) {
 
 						// Synchronize on the result lock as we want to
 						// be sure that we do not try and decorate during
@@ -390,10 +490,7 @@ public class DecorationScheduler {
 						// Add an update for only the original element
 						// to
 						// prevent multiple updates and clear the cache.
-						synchronized (pendingKey) {
-							pendingUpdate.add(element);
-						}
-						
+						addPendingUpdate(element);
 
 					}
 				}
@@ -418,9 +515,9 @@ public class DecorationScheduler {
 			}
 		};
 
-		decorationJob.setSystem(true);
-		decorationJob.setPriority(Job.DECORATE);
-		decorationJob.schedule();
+		job.setSystem(true);
+		job.setPriority(Job.DECORATE);
+		return job;
 	}
 
 	/**
@@ -459,7 +556,7 @@ public class DecorationScheduler {
 			 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
 			 */
 			protected IStatus run(IProgressMonitor monitor) {
-				resultCache.clear();
+				clearResultCache();
 				return Status.OK_STATUS;
 			}
 
@@ -493,6 +590,9 @@ public class DecorationScheduler {
 
 			ILabelProviderListener[] listeners;
 
+			// The elements of the update being delivered, pinned in the cache
+			Object[] updatingElements;
+
 			public IStatus runInUIThread(IProgressMonitor monitor) {
 
 				synchronized (DecorationScheduler.this) {
@@ -560,11 +660,17 @@ public class DecorationScheduler {
             private void resetState() {
                 currentIndex = NEEDS_INIT;// Reset
                 removedListeners.clear();
+                if (updatingElements != null) {
+                    for (int i = 0; i < updatingElements.length; i++) {
+                        resultCache.unpin(updatingElements[i]);
+                    }
+                    updatingElements = null;
+                }
                 // Other decoration requests may have occurred due to
                 // updates or we may have timed out updating listeners.
                 // Only clear the results if there are none pending.
                 if (awaitingDecoration.isEmpty()) {
-                    resultCache.clear();
+                    clearResultCache();
                 }
             }
             
@@ -577,6 +683,7 @@ public class DecorationScheduler {
 					Object[] elements = pendingUpdate
 							.toArray(new Object[pendingUpdate.size()]);
 					pendingUpdate.clear();
+					updatingElements = elements;
 					labelProviderChangedEvent = new LabelProviderChangedEvent(
 							decoratorManager, elements);
 				}
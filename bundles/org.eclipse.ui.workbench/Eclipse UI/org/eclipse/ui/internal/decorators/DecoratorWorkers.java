@@ -0,0 +1,459 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.decorators;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.jface.viewers.IDecorationContext;
+
+/**
+ * The DecoratorWorkers run the lightweight decorators for the parallel mode
+ * of the {@link DecorationScheduler}. The decoration of an element by a
+ * decorator is computed by a job. The jobs of a decorator share a scheduling
+ * rule so a decorator runs on one element at a time, while the decorators of
+ * an element run concurrently.
+ * <p>
+ * An element waits at most {@link #DECORATOR_TIMEOUT} for its decorators. The
+ * decorations of the decorators which did not answer in time are left out,
+ * and the listener is told once they are available so that the element is
+ * decorated again with the late decorations.
+ * </p>
+ * <p>
+ * A decorator which did not answer in time is not given new elements until it
+ * has caught up with its jobs, so a slow decorator does not delay each of the
+ * following elements. The elements it skips are decorated again once it has
+ * caught up. At most {@link #MAX_DEFERRED} of them are remembered per
+ * decorator, the oldest ones keep their decorations without this decorator
+ * until they are decorated again.
+ * </p>
+ * <p>
+ * The class is public for use by the test suites.
+ * </p>
+ */
+public class DecoratorWorkers {
+
+	/**
+	 * Time in milliseconds an element waits for its decorators.
+	 */
+	public static final long DECORATOR_TIMEOUT = 500;
+
+	/**
+	 * The maximum number of elements remembered for a decorator which did not
+	 * answer in time.
+	 */
+	public static final int MAX_DEFERRED = 100;
+
+	/**
+	 * Computes the decoration of one decorator for an element.
+	 */
+	public interface DecoratorRunner {
+		/**
+		 * Decorate the element with the decorator. Called from the job of the
+		 * decorator.
+		 *
+		 * @param element
+		 *            the element to decorate
+		 * @param decorator
+		 *            the decorator to apply
+		 * @param builder
+		 *            the builder receiving the decoration
+		 */
+		public void decorate(Object element, Object decorator,
+				DecorationBuilder builder);
+
+		/**
+		 * Return the name of the jobs of the decorator.
+		 *
+		 * @param decorator
+		 * @return String
+		 */
+		public String getName(Object decorator);
+	}
+
+	/**
+	 * Notified when the decorations left out of an element are available.
+	 */
+	public interface LateDecorationListener {
+		/**
+		 * The element can be decorated again with the decorations it was
+		 * missing.
+		 *
+		 * @param element
+		 * @param adaptedElement
+		 *            the adapted value of element. May be null.
+		 * @param context
+		 *            the decoration context
+		 */
+		public void lateDecorationReady(Object element, Object adaptedElement,
+				IDecorationContext context);
+	}
+
+	private final DecoratorRunner runner;
+
+	private final LateDecorationListener listener;
+
+	// The state of each decorator, guarded by itself
+	private final Map decorators = new HashMap();
+
+	// The decorations which were not ready in time, keyed by LateKey
+	private final Map lateDecorations = new HashMap();
+
+	private boolean shutdown = false;
+
+	/**
+	 * The key of a decoration computed by one decorator for an element in a
+	 * context.
+	 */
+	private static class LateKey {
+		private final Object element;
+
+		private final IDecorationContext context;
+
+		private final Object decorator;
+
+		LateKey(Object element, IDecorationContext context, Object decorator) {
+			this.element = element;
+			this.context = context;
+			this.decorator = decorator;
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof LateKey)) {
+				return false;
+			}
+			LateKey other = (LateKey) obj;
+			return element.equals(other.element) && context == other.context
+					&& decorator == other.decorator;
+		}
+
+		public int hashCode() {
+			return element.hashCode() ^ System.identityHashCode(decorator);
+		}
+	}
+
+	/**
+	 * The rule shared by the jobs of a decorator.
+	 */
+	private static class DecoratorRule implements ISchedulingRule {
+		public boolean contains(ISchedulingRule rule) {
+			return rule == this;
+		}
+
+		public boolean isConflicting(ISchedulingRule rule) {
+			return rule == this;
+		}
+	}
+
+	/**
+	 * The jobs of a decorator.
+	 */
+	private static class DecoratorState {
+		final ISchedulingRule rule = new DecoratorRule();
+
+		// The number of jobs scheduled and not completed
+		int pending = 0;
+
+		// Whether the decorator did not answer in time and has not caught up
+		boolean stalled = false;
+
+		// The elements skipped while stalled, the adapted element of each
+		// LateKey in the order they were skipped
+		final LinkedHashMap deferred = new LinkedHashMap();
+	}
+
+	/**
+	 * The computation of the decoration of one decorator.
+	 */
+	private class DecoratorTask extends Job {
+		private final LateKey key;
+
+		private final Object adaptedElement;
+
+		private final DecoratorState state;
+
+		private DecorationBuilder result;
+
+		private boolean done = false;
+
+		private boolean late = false;
+
+		private boolean notified = false;
+
+		DecoratorTask(LateKey key, Object adaptedElement, DecoratorState state) {
+			super(runner.getName(key.decorator));
+			this.key = key;
+			this.adaptedElement = adaptedElement;
+			this.state = state;
+			setSystem(true);
+			setPriority(Job.DECORATE);
+			setRule(state.rule);
+			addJobChangeListener(new JobChangeAdapter() {
+				public void done(IJobChangeEvent event) {
+					// a task cancelled before it ran did not complete yet
+					completed(null);
+				}
+			});
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			DecorationBuilder builder = null;
+			try {
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				DecorationBuilder decorated = new DecorationBuilder(key.context);
+				runner.decorate(key.element, key.decorator, decorated);
+				builder = decorated;
+			} finally {
+				completed(builder);
+			}
+			return Status.OK_STATUS;
+		}
+
+		public boolean belongsTo(Object family) {
+			return family == DecoratorWorkers.this
+					|| family == DecoratorManager.FAMILY_DECORATE;
+		}
+
+		/**
+		 * Wait for the decoration until the deadline.
+		 *
+		 * @return <code>true</code> if the task completed
+		 */
+		synchronized boolean await(long deadline) throws InterruptedException {
+			long wait;
+			while (!done
+					&& (wait = deadline - System.currentTimeMillis()) > 0) {
+				wait(wait);
+			}
+			return done;
+		}
+
+		synchronized DecorationBuilder getResult() {
+			return result;
+		}
+
+		/**
+		 * The element stopped waiting for this task, notify the listener when
+		 * it completes.
+		 */
+		void markLate() {
+			synchronized (this) {
+				late = true;
+				if (!done || notified) {
+					return;
+				}
+				notified = true;
+			}
+			listener.lateDecorationReady(key.element, adaptedElement,
+					key.context);
+		}
+
+		/**
+		 * The task ran or was cancelled. Only the first call counts.
+		 */
+		private void completed(DecorationBuilder builder) {
+			boolean notify;
+			synchronized (this) {
+				if (done) {
+					return;
+				}
+				result = builder;
+				done = true;
+				notifyAll();
+				notify = late && !notified && builder != null;
+				if (notify) {
+					notified = true;
+				}
+			}
+			taskCompleted(state);
+			if (notify) {
+				listener.lateDecorationReady(key.element, adaptedElement,
+						key.context);
+			}
+		}
+	}
+
+	/**
+	 * Create the workers running the decorators with the given runner.
+	 *
+	 * @param runner
+	 *            computes the decorations
+	 * @param listener
+	 *            notified of the late decorations
+	 */
+	public DecoratorWorkers(DecoratorRunner runner,
+			LateDecorationListener listener) {
+		this.runner = runner;
+		this.listener = listener;
+	}
+
+	/**
+	 * Run the decorators on the element in their jobs and merge their
+	 * decorations into the builder, in the order of the decorators.
+	 *
+	 * @param element
+	 *            the element to decorate
+	 * @param adaptedElement
+	 *            the adapted value of element. May be null.
+	 * @param decoration
+	 *            the builder receiving the decorations
+	 * @param elementDecorators
+	 *            the decorators to apply to the element
+	 * @return <code>true</code> if all the decorators answered in time,
+	 *         <code>false</code> if some decorations are left out
+	 */
+	public boolean decorate(Object element, Object adaptedElement,
+			DecorationBuilder decoration, Object[] elementDecorators) {
+		IDecorationContext context = decoration.getDecorationContext();
+		DecoratorTask[] tasks = new DecoratorTask[elementDecorators.length];
+		boolean complete = true;
+		for (int i = 0; i < elementDecorators.length; i++) {
+			tasks[i] = submit(new LateKey(element, context,
+					elementDecorators[i]), adaptedElement);
+			if (tasks[i] == null) {
+				complete = false;
+			}
+		}
+
+		long deadline = System.currentTimeMillis() + DECORATOR_TIMEOUT;
+		for (int i = 0; i < tasks.length; i++) {
+			DecoratorTask task = tasks[i];
+			if (task == null) {
+				continue;
+			}
+			try {
+				if (task.await(deadline)) {
+					DecorationBuilder result = task.getResult();
+					if (result == null) {
+						// cancelled or failed
+						complete = false;
+					} else {
+						decoration.merge(result);
+					}
+					synchronized (decorators) {
+						if (lateDecorations.get(task.key) == task) {
+							lateDecorations.remove(task.key);
+						}
+					}
+				} else {
+					complete = false;
+					synchronized (decorators) {
+						lateDecorations.put(task.key, task);
+						// unless it caught up in the meantime
+						if (task.state.pending > 0) {
+							task.state.stalled = true;
+						}
+					}
+					task.markLate();
+				}
+			} catch (InterruptedException e) {
+				complete = false;
+				Thread.currentThread().interrupt();
+			}
+		}
+		return complete;
+	}
+
+	/**
+	 * Return the late task for the key if there is one, otherwise schedule a
+	 * new one. Return <code>null</code> if the decorator is stalled or the
+	 * workers are shut down.
+	 */
+	private DecoratorTask submit(LateKey key, Object adaptedElement) {
+		DecoratorTask task;
+		synchronized (decorators) {
+			DecoratorTask late = (DecoratorTask) lateDecorations.get(key);
+			if (late != null) {
+				return late;
+			}
+			if (shutdown) {
+				return null;
+			}
+			DecoratorState state = (DecoratorState) decorators
+					.get(key.decorator);
+			if (state == null) {
+				state = new DecoratorState();
+				decorators.put(key.decorator, state);
+			}
+			if (state.stalled) {
+				// decorate the element again when the decorator caught up
+				state.deferred.remove(key);
+				state.deferred.put(key, adaptedElement);
+				if (state.deferred.size() > MAX_DEFERRED) {
+					Iterator eldest = state.deferred.keySet().iterator();
+					eldest.next();
+					eldest.remove();
+				}
+				return null;
+			}
+			task = new DecoratorTask(key, adaptedElement, state);
+			state.pending++;
+		}
+		task.schedule();
+		return task;
+	}
+
+	/**
+	 * A job of the decorator completed. Once a stalled decorator completed
+	 * all its jobs, decorate the elements it skipped again.
+	 */
+	private void taskCompleted(DecoratorState state) {
+		List skipped = null;
+		synchronized (decorators) {
+			state.pending--;
+			if (state.pending > 0 || !state.stalled) {
+				return;
+			}
+			state.stalled = false;
+			if (!shutdown && !state.deferred.isEmpty()) {
+				skipped = new ArrayList(state.deferred.entrySet());
+			}
+			state.deferred.clear();
+		}
+		if (skipped == null) {
+			return;
+		}
+		for (Iterator iterator = skipped.iterator(); iterator.hasNext();) {
+			Map.Entry entry = (Map.Entry) iterator.next();
+			LateKey key = (LateKey) entry.getKey();
+			listener.lateDecorationReady(key.element, entry.getValue(),
+					key.context);
+		}
+	}
+
+	/**
+	 * Cancel the scheduled decorations and forget the late ones.
+	 */
+	public void shutdown() {
+		synchronized (decorators) {
+			shutdown = true;
+			lateDecorations.clear();
+			for (Iterator iterator = decorators.values().iterator(); iterator
+					.hasNext();) {
+				((DecoratorState) iterator.next()).deferred.clear();
+			}
+		}
+		Job.getJobManager().cancel(this);
+	}
+}
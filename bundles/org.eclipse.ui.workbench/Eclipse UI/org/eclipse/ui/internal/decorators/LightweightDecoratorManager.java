@@ -94,8 +94,6 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 		}
 	}
 
-	private LightweightRunnable runnable = new LightweightRunnable();
-
 	// The lightweight definitions read from the registry
 	private LightweightDecoratorDefinition[] lightweightDefinitions;
 
@@ -264,7 +262,7 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	 * Reset any cached values.
 	 */
 	void reset() {
-		runnable.clearReferences();
+		// Nothing is cached, a runnable is created for each decoration
 	}
 
 	/**
@@ -358,9 +356,11 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	 * @param decorator
 	 *            The decorator being applied.
 	 */
-	private void decorate(Object element, DecorationBuilder decoration,
+	void decorate(Object element, DecorationBuilder decoration,
 			LightweightDecoratorDefinition decorator) {
 
+		// Decorators may run in several threads, use a runnable per call
+		LightweightRunnable runnable = new LightweightRunnable();
 		runnable.setValues(element, decoration, decorator);
 		SafeRunner.run(runnable);
 	}
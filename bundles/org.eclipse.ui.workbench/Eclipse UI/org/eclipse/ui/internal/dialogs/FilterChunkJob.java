@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.dialogs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.internal.WorkbenchMessages;
+
+/**
+ * Matches a chunk of the items of the last completed filter of a
+ * <code>FilteredItemsSelectionDialog</code> against a sub-filter. The chunks
+ * of a filter are matched in parallel by several <code>FilterChunkJob</code>s,
+ * which requires a matcher that can be called from several threads at once.
+ * <p>
+ * The class is public for use by the test suites.
+ * </p>
+ *
+ * @since 3.105
+ */
+public class FilterChunkJob extends Job {
+
+	/**
+	 * Matches the items of a chunk.
+	 */
+	public interface ItemMatcher {
+
+		/**
+		 * Returns whether the item matches the filter.
+		 *
+		 * @param item
+		 *            the item
+		 * @return <code>true</code> if the item matches
+		 */
+		public boolean matchItem(Object item);
+	}
+
+	private final ItemMatcher matcher;
+
+	private final Object[] items;
+
+	private final int from;
+
+	private final int to;
+
+	private final IProgressMonitor parent;
+
+	private final List matches = new ArrayList();
+
+	/**
+	 * Creates the jobs matching the items in consecutive chunks of about the
+	 * same size. The matches of the jobs, in the order of the jobs, are the
+	 * matching items in their order.
+	 *
+	 * @param matcher
+	 *            the matcher of the filter
+	 * @param items
+	 *            the items of the last completed filter
+	 * @param count
+	 *            the number of jobs
+	 * @param parent
+	 *            the monitor of the filter job
+	 * @return the jobs, not scheduled
+	 */
+	public static FilterChunkJob[] createJobs(ItemMatcher matcher,
+			Object[] items, int count, IProgressMonitor parent) {
+		FilterChunkJob[] jobs = new FilterChunkJob[count];
+		int chunkSize = (items.length + count - 1) / count;
+		for (int i = 0; i < count; i++) {
+			int from = Math.min(i * chunkSize, items.length);
+			int to = Math.min(from + chunkSize, items.length);
+			jobs[i] = new FilterChunkJob(matcher, items, from, to, parent);
+		}
+		return jobs;
+	}
+
+	/**
+	 * Creates a new instance of the class.
+	 *
+	 * @param matcher
+	 *            the matcher of the filter
+	 * @param items
+	 *            the items of the last completed filter
+	 * @param from
+	 *            the index of the first item of the chunk
+	 * @param to
+	 *            the index after the last item of the chunk
+	 * @param parent
+	 *            the monitor of the filter job
+	 */
+	public FilterChunkJob(ItemMatcher matcher, Object[] items, int from,
+			int to, IProgressMonitor parent) {
+		super(WorkbenchMessages.FilteredItemsSelectionDialog_jobLabel);
+		this.matcher = matcher;
+		this.items = items;
+		this.from = from;
+		this.to = to;
+		this.parent = parent;
+		setSystem(true);
+	}
+
+	/**
+	 * Returns the matching items of the chunk, in their order. The list is
+	 * complete once the job has run.
+	 *
+	 * @return the matching items
+	 */
+	public List getMatches() {
+		return matches;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	protected IStatus run(IProgressMonitor monitor) {
+		for (int pos = from; pos < to; pos++) {
+			if (((pos - from) % 500) == 0
+					&& (monitor.isCanceled() || parent.isCanceled())) {
+				return Status.CANCEL_STATUS;
+			}
+			if (matcher.matchItem(items[pos])) {
+				matches.add(items[pos]);
+			}
+		}
+		return Status.OK_STATUS;
+	}
+}
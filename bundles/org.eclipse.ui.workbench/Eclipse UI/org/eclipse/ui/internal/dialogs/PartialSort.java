@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.dialogs;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Sorts the first elements of an array without sorting the others, so that
+ * <code>FilteredItemsSelectionDialog</code> can show its first items before
+ * all of them are sorted.
+ * <p>
+ * The class is public for use by the test suites.
+ * </p>
+ *
+ * @since 3.105
+ */
+public class PartialSort {
+
+	private PartialSort() {
+	}
+
+	/**
+	 * Rearranges the array so that its first <code>count</code> elements are
+	 * the smallest ones, in their sorted order, and precede the others, which
+	 * are left unsorted. Sorting the other elements afterwards sorts the whole
+	 * array.
+	 *
+	 * @param array
+	 *            the array to rearrange
+	 * @param count
+	 *            the number of elements to sort, smaller than the array length
+	 * @param comparator
+	 *            the comparator of the elements
+	 */
+	public static void sortFirst(Object[] array, int count,
+			Comparator comparator) {
+		select(array, count, comparator);
+		Arrays.sort(array, 0, count, comparator);
+	}
+
+	/**
+	 * Rearranges the array so that its first <code>count</code> elements are
+	 * the smallest ones, in no particular order, using a quickselect.
+	 *
+	 * @param array
+	 *            the array to rearrange
+	 * @param count
+	 *            the number of elements, smaller than the array length
+	 * @param comparator
+	 *            the comparator of the elements
+	 */
+	public static void select(Object[] array, int count, Comparator comparator) {
+		int left = 0;
+		int right = array.length - 1;
+		while (left < right) {
+			Object pivot = array[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (i < right && comparator.compare(array[i], pivot) < 0)
+					i++;
+				while (j > left && comparator.compare(array[j], pivot) > 0)
+					j--;
+				if (i <= j) {
+					Object swap = array[i];
+					array[i] = array[j];
+					array[j] = swap;
+					i++;
+					j--;
+				}
+			}
+			// array[left..j] <= pivot <= array[i..right]
+			if (count - 1 <= j) {
+				right = j;
+			} else if (count - 1 >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+}
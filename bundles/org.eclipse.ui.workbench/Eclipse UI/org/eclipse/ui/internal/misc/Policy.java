@@ -159,6 +159,14 @@ public class Policy {
      */
     public static boolean DEBUG_WORKING_SETS = DEFAULT;
 
+    /**
+     * Whether to print the hit, miss and eviction statistics of the
+     * decoration result cache.
+     * 
+     * @since 3.105
+     */
+    public static boolean DEBUG_DECORATION_CACHE = DEFAULT;
+
     static {
         if (getDebugOption("/debug")) { //$NON-NLS-1$
             DEBUG_SWT_GRAPHICS = getDebugOption("/trace/graphics"); //$NON-NLS-1$
@@ -191,6 +199,7 @@ public class Policy {
             EXPERIMENTAL_MENU = getDebugOption("/experimental/menus"); //$NON-NLS-1$
             DEBUG_MPE = getDebugOption("/trace/multipageeditor"); //$NON-NLS-1$
             DEBUG_WORKING_SETS = getDebugOption("/debug/workingSets"); //$NON-NLS-1$
+            DEBUG_DECORATION_CACHE = getDebugOption("/trace/decorationCache"); //$NON-NLS-1$
             
             if(DEBUG_SWT_DEBUG_GLOBAL)
             	Device.DEBUG = true;
@@ -13,6 +13,11 @@ package org.eclipse.ui.internal.quickaccess;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.jface.layout.GridDataFactory;
 import org.eclipse.jface.layout.TableColumnLayout;
@@ -43,6 +48,7 @@ import org.eclipse.swt.graphics.TextLayout;
 import org.eclipse.swt.graphics.TextStyle;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Table;
@@ -60,6 +66,11 @@ import org.eclipse.ui.themes.ColorUtil;
  * 
  */
 public abstract class QuickAccessContents {
+	/**
+	 * The family of the jobs matching the filters.
+	 */
+	public static final Object MATCHING_JOB_FAMILY = new Object();
+
 	private static final int INITIAL_COUNT_PER_PROVIDER = 5;
 	private static final int MAX_COUNT_TOTAL = 20;
 
@@ -80,6 +91,9 @@ public abstract class QuickAccessContents {
 	private boolean showAllMatches = false;
 	protected boolean resized = false;
 
+	// the job matching the last filter until its entries are shown
+	private MatchingJob matchingJob;
+
 
 	public QuickAccessContents(QuickAccessProvider[] providers) {
 		this.providers = providers;
@@ -97,7 +111,9 @@ public abstract class QuickAccessContents {
 	}
 
 	/**
-	 * 
+	 * Match the filter in the background and show the matching entries once
+	 * they are computed. A refresh supersedes the refreshes whose entries are
+	 * not shown yet.
 	 */
 	public void refresh(String filter) {
 		int numItems = computeNumberOfItems();
@@ -105,11 +121,43 @@ public abstract class QuickAccessContents {
 		// perfect match, to be selected in the table if not null
 		QuickAccessElement perfectMatch = getPerfectMatch(filter);
 
-		List[] entries = computeMatchingEntries(filter, perfectMatch, numItems);
+		// the elements are indexed in the UI thread, only the providers
+		// contributing entries are asked for their elements
+		QuickAccessIndex[] indices = new QuickAccessIndex[providers.length];
+		for (int i = 0; i < providers.length; i++) {
+			if (filter.length() > 0 || providers[i].isAlwaysPresent()
+					|| showAllMatches) {
+				indices[i] = providers[i].getIndex();
+			}
+		}
 
-		int selectionIndex = refreshTable(perfectMatch, entries);
+		if (matchingJob != null) {
+			matchingJob.cancel();
+		}
+		matchingJob = new MatchingJob(table.getDisplay(), filter, perfectMatch,
+				indices, numItems, showAllMatches);
+		if (filter.length() == 0) {
+			// there is nothing to match
+			matchingJob.showNow();
+		} else {
+			matchingJob.schedule();
+		}
+	}
+
+	/**
+	 * Show the entries computed by the job.
+	 * 
+	 * @param job
+	 * @param entries
+	 */
+	private void showEntries(MatchingJob job, List[] entries) {
+		matchingJob = null;
+		if (table == null || table.isDisposed()) {
+			return;
+		}
+		int selectionIndex = refreshTable(job.perfectMatch, entries);
 
-		boolean filterTextEmpty = filter.length() == 0;
+		boolean filterTextEmpty = job.filter.length() == 0;
 		if (table.getItemCount() > 0) {
 			table.setSelection(selectionIndex);
 		} else if (filterTextEmpty) {
@@ -127,7 +175,7 @@ public abstract class QuickAccessContents {
 			}
 		}
 
-		updateFeedback(filterTextEmpty, showAllMatches);
+		updateFeedback(filterTextEmpty, job.showAllMatches);
 	}
 
 
@@ -195,11 +243,28 @@ public abstract class QuickAccessContents {
 		return selectionIndex;
 	}
 
+	/**
+	 * Compute the matching entries of the providers. This runs outside of the
+	 * UI thread and only uses the indices of the providers and the entry of
+	 * the perfect match, which are created in the UI thread.
+	 * 
+	 * @return the entries of each provider, or <code>null</code> if the
+	 *         monitor was cancelled
+	 */
 	private List[] computeMatchingEntries(String filter,
-			QuickAccessElement perfectMatch, int maxCount) {
+			QuickAccessElement perfectMatch,
+			QuickAccessEntry perfectMatchEntry, QuickAccessIndex[] indices,
+			int maxCount, boolean showAllMatches, IProgressMonitor monitor) {
 		// collect matches in an array of lists
 		List[] entries = new ArrayList[providers.length];
 		int[] indexPerProvider = new int[providers.length];
+		// only the candidates of the filter can match
+		int[][] candidatesPerProvider = new int[providers.length][];
+		for (int i = 0; i < providers.length; i++) {
+			if (indices[i] != null) {
+				candidatesPerProvider[i] = indices[i].getCandidates(filter);
+			}
+		}
 		int countPerProvider = Math.min(maxCount / 4,
 				INITIAL_COUNT_PER_PROVIDER);
 		int countTotal = 0;
@@ -216,21 +281,27 @@ public abstract class QuickAccessContents {
 			done = true;
 			for (int i = 0; i < providers.length
 					&& (showAllMatches || countTotal < maxCount); i++) {
+				if (monitor.isCanceled()) {
+					return null;
+				}
 				if (entries[i] == null) {
 					entries[i] = new ArrayList();
 					indexPerProvider[i] = 0;
 				}
 				int count = 0;
 				QuickAccessProvider provider = providers[i];
-				if (filter.length() > 0
- || provider.isAlwaysPresent()
-						|| showAllMatches) {
-					QuickAccessElement[] elements = provider
-							.getElementsSorted();
+				QuickAccessIndex index = indices[i];
+				if (index != null) {
+					int[] candidates = candidatesPerProvider[i];
+					QuickAccessElement[] elements = index.getElements();
+					int length = candidates == null ? elements.length
+							: candidates.length;
 					int j = indexPerProvider[i];
-					while (j < elements.length
+					while (j < length
 							&& (showAllMatches || (count < countPerProvider && countTotal < maxCount))) {
-						QuickAccessElement element = elements[j];
+						int elementIndex = candidates == null ? j
+								: candidates[j];
+						QuickAccessElement element = elements[elementIndex];
 						QuickAccessEntry entry;
 						if (filter.length() == 0) {
 							if (i == 0 || showAllMatches) {
@@ -240,7 +311,7 @@ public abstract class QuickAccessContents {
 								entry = null;
 							}
 						} else {
-							entry = element.match(filter, provider);
+							entry = index.match(elementIndex, filter);
 						}
 						if (entry != null) {
 							entries[i].add(entry);
@@ -254,7 +325,7 @@ public abstract class QuickAccessContents {
 						j++;
 					}
 					indexPerProvider[i] = j;
-					if (j < elements.length) {
+					if (j < length) {
 						done = false;
 					}
 				}
@@ -262,15 +333,12 @@ public abstract class QuickAccessContents {
 			// from now on, add one element per provider
 			countPerProvider = 1;
 		} while ((showAllMatches || countTotal < maxCount) && !done);
-		if (!perfectMatchAdded) {
-			QuickAccessEntry entry = perfectMatch.match(filter, providers[0]);
-			if (entry != null) {
-				if (entries[0] == null) {
-					entries[0] = new ArrayList();
-					indexPerProvider[0] = 0;
-				}
-				entries[0].add(entry);
+		if (!perfectMatchAdded && perfectMatchEntry != null) {
+			if (entries[0] == null) {
+				entries[0] = new ArrayList();
+				indexPerProvider[0] = 0;
 			}
+			entries[0].add(perfectMatchEntry);
 		}
 		return entries;
 	}
@@ -280,6 +348,10 @@ public abstract class QuickAccessContents {
 	}
 
 	public void doDispose() {
+		if (matchingJob != null) {
+			matchingJob.cancel();
+			matchingJob = null;
+		}
 		if (textLayout != null && !textLayout.isDisposed()) {
 			textLayout.dispose();
 		}
@@ -313,6 +385,11 @@ public abstract class QuickAccessContents {
 	 * 
 	 */
 	private void handleSelection() {
+		if (matchingJob != null) {
+			// select among the entries of the current filter
+			matchingJob.cancel();
+			matchingJob.showNow();
+		}
 		QuickAccessElement selectedElement = null;
 		String text = filterText.getText().toLowerCase();
 		if (table.getSelectionCount() == 1) {
@@ -539,4 +616,62 @@ public abstract class QuickAccessContents {
 		return table;
 	}
 
+	/**
+	 * The job computing the entries matching a filter. It shows them in the
+	 * table unless it was superseded by another refresh.
+	 */
+	private class MatchingJob extends Job {
+		private final Display display;
+		final String filter;
+		final QuickAccessElement perfectMatch;
+		private final QuickAccessEntry perfectMatchEntry;
+		private final QuickAccessIndex[] indices;
+		private final int maxCount;
+		final boolean showAllMatches;
+
+		MatchingJob(Display display, String filter,
+				QuickAccessElement perfectMatch, QuickAccessIndex[] indices,
+				int maxCount, boolean showAllMatches) {
+			super(QuickAccessMessages.QuickAccess_MatchingJob);
+			this.display = display;
+			this.filter = filter;
+			this.perfectMatch = perfectMatch;
+			perfectMatchEntry = perfectMatch == null ? null : perfectMatch
+					.match(filter, providers[0]);
+			this.indices = indices;
+			this.maxCount = maxCount;
+			this.showAllMatches = showAllMatches;
+			setSystem(true);
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			final List[] entries = computeMatchingEntries(filter, perfectMatch,
+					perfectMatchEntry, indices, maxCount, showAllMatches, monitor);
+			if (entries == null || display.isDisposed()) {
+				return Status.CANCEL_STATUS;
+			}
+			display.asyncExec(new Runnable() {
+				public void run() {
+					if (matchingJob == MatchingJob.this) {
+						showEntries(MatchingJob.this, entries);
+					}
+				}
+			});
+			return Status.OK_STATUS;
+		}
+
+		/**
+		 * Compute and show the entries in the UI thread.
+		 */
+		void showNow() {
+			showEntries(this, computeMatchingEntries(filter, perfectMatch,
+					perfectMatchEntry, indices, maxCount, showAllMatches,
+					new NullProgressMonitor()));
+		}
+
+		public boolean belongsTo(Object family) {
+			return family == MATCHING_JOB_FAMILY;
+		}
+	}
+
 }
\ No newline at end of file
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2010 IBM Corporation and others.
+ * Copyright (c) 2007, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,7 +32,12 @@ import org.eclipse.ui.internal.IWorkbenchGraphicConstants;
 import org.eclipse.ui.internal.WorkbenchImages;
 import org.eclipse.ui.internal.WorkbenchPlugin;
 
-class QuickAccessEntry {
+/**
+ * A match of a filter, with the regions of the label of the element and of
+ * the name of the provider that match. The class is public for use by the
+ * test suites.
+ */
+public class QuickAccessEntry {
 	boolean firstInCategory;
 	boolean lastInCategory;
 	QuickAccessElement element;
@@ -48,6 +53,27 @@ class QuickAccessEntry {
 		this.providerMatchRegions = providerMatchRegions;
 	}
 
+	/**
+	 * @return the matched element
+	 */
+	public QuickAccessElement getElement() {
+		return element;
+	}
+
+	/**
+	 * @return the matching regions of the label of the element
+	 */
+	public int[][] getElementMatchRegions() {
+		return elementMatchRegions;
+	}
+
+	/**
+	 * @return the matching regions of the name of the provider
+	 */
+	public int[][] getProviderMatchRegions() {
+		return providerMatchRegions;
+	}
+
 	Image getImage(QuickAccessElement element, ResourceManager resourceManager) {
 		Image image = findOrCreateImage(element.getImageDescriptor(),
 				resourceManager);
@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.internal.quickaccess;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The match labels of the elements of a provider, prepared once so that
+ * matching a filter neither recomputes them nor looks at the elements which
+ * cannot match.
+ * <p>
+ * The index is created in the UI thread, as the elements compute their labels
+ * there. Once created it only reads its own labels and can be used to match
+ * in any thread.
+ * </p>
+ * <p>
+ * The class is public for use by the test suites.
+ * </p>
+ *
+ * @since 3.105
+ */
+public class QuickAccessIndex {
+
+	/**
+	 * The length of the grams the candidates are looked up with. Shorter
+	 * filters are matched against all of the elements.
+	 */
+	static final int GRAM_LENGTH = 3;
+
+	private static final int[][] EMPTY_INDICES = new int[0][0];
+
+	private static final int[] NO_CANDIDATES = new int[0];
+
+	private final QuickAccessProvider provider;
+
+	private final QuickAccessElement[] elements;
+
+	private final String providerName;
+
+	private final String providerCamelCase;
+
+	// the labels of the elements, in the order of the elements
+	private final String[] labels;
+
+	private final String[] lowerLabels;
+
+	private final String[] combinedLabels;
+
+	private final String[] lowerCombinedLabels;
+
+	private final String[] camelCases;
+
+	private final String[] combinedCamelCases;
+
+	// the ascending indices of the elements by gram, created on first use
+	private Map grams;
+
+	// the index of each element, created on first use
+	private Map positions;
+
+	/**
+	 * Index the elements of the provider.
+	 *
+	 * @param provider
+	 * @param elements
+	 *            the elements in the order they are matched
+	 */
+	QuickAccessIndex(QuickAccessProvider provider, QuickAccessElement[] elements) {
+		this.provider = provider;
+		this.elements = elements;
+		providerName = provider.getName();
+		providerCamelCase = CamelUtil.getCamelCase(providerName);
+		int length = elements.length;
+		labels = new String[length];
+		lowerLabels = new String[length];
+		combinedLabels = new String[length];
+		lowerCombinedLabels = new String[length];
+		camelCases = new String[length];
+		combinedCamelCases = new String[length];
+		for (int i = 0; i < length; i++) {
+			String label = elements[i].getLabel();
+			labels[i] = label;
+			lowerLabels[i] = label.toLowerCase();
+			combinedLabels[i] = providerName + " " + label; //$NON-NLS-1$
+			lowerCombinedLabels[i] = combinedLabels[i].toLowerCase();
+			camelCases[i] = CamelUtil.getCamelCase(label);
+			combinedCamelCases[i] = CamelUtil.getCamelCase(combinedLabels[i]);
+		}
+	}
+
+	/**
+	 * @return the provider of the elements
+	 */
+	public QuickAccessProvider getProvider() {
+		return provider;
+	}
+
+	/**
+	 * @return the indexed elements
+	 */
+	public QuickAccessElement[] getElements() {
+		return elements;
+	}
+
+	/**
+	 * Return the indices of the elements that may match the filter. Every
+	 * element matching the filter has all of the grams of the filter in one
+	 * of its labels, so the elements of the least common gram of the filter
+	 * are returned.
+	 *
+	 * @param filter
+	 *            the lower case filter
+	 * @return the ascending indices of the candidates, or <code>null</code>
+	 *         if all of the elements are candidates
+	 */
+	public int[] getCandidates(String filter) {
+		if (filter.length() < GRAM_LENGTH) {
+			return null;
+		}
+		Map grams = getGrams();
+		int[] candidates = null;
+		for (int i = 0; i + GRAM_LENGTH <= filter.length(); i++) {
+			int[] next = (int[]) grams.get(filter.substring(i, i
+					+ GRAM_LENGTH));
+			if (next == null) {
+				return NO_CANDIDATES;
+			}
+			if (candidates == null || next.length < candidates.length) {
+				candidates = next;
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Return the index of the element.
+	 *
+	 * @param element
+	 * @return the index or <code>-1</code> if the element is not indexed
+	 */
+	public synchronized int indexOf(QuickAccessElement element) {
+		if (positions == null) {
+			positions = new IdentityHashMap(elements.length);
+			for (int i = 0; i < elements.length; i++) {
+				positions.put(elements[i], new Integer(i));
+			}
+		}
+		Integer position = (Integer) positions.get(element);
+		return position == null ? -1 : position.intValue();
+	}
+
+	/**
+	 * Match the filter against the element at index. This is the match of
+	 * {@link QuickAccessElement#match(String, QuickAccessProvider)} over the
+	 * prepared labels.
+	 *
+	 * @param index
+	 * @param filter
+	 *            the lower case filter
+	 * @return the entry or <code>null</code> if the element does not match
+	 */
+	public QuickAccessEntry match(int index, String filter) {
+		return match(elements[index], provider, providerName,
+				providerCamelCase, labels[index], lowerLabels[index],
+				lowerCombinedLabels[index], camelCases[index],
+				combinedCamelCases[index], filter);
+	}
+
+	/**
+	 * Match the filter against an element which is not indexed, computing
+	 * its labels.
+	 *
+	 * @param element
+	 * @param provider
+	 *            the provider to match the name of
+	 * @param filter
+	 *            the lower case filter
+	 * @return the entry or <code>null</code> if the element does not match
+	 */
+	static QuickAccessEntry match(QuickAccessElement element,
+			QuickAccessProvider provider, String filter) {
+		String providerName = provider.getName();
+		String label = element.getLabel();
+		String combinedLabel = providerName + " " + label; //$NON-NLS-1$
+		return match(element, provider, providerName, CamelUtil
+				.getCamelCase(providerName), label, label.toLowerCase(),
+				combinedLabel.toLowerCase(), CamelUtil.getCamelCase(label),
+				CamelUtil.getCamelCase(combinedLabel), filter);
+	}
+
+	private static QuickAccessEntry match(QuickAccessElement element,
+			QuickAccessProvider provider, String providerName,
+			String providerCamelCase, String label, String lowerLabel,
+			String lowerCombinedLabel, String camelCase,
+			String combinedCamelCase, String filter) {
+		int matchIndex = lowerLabel.indexOf(filter);
+		if (matchIndex != -1) {
+			return new QuickAccessEntry(element, provider,
+					new int[][] { { matchIndex,
+							matchIndex + filter.length() - 1 } }, EMPTY_INDICES);
+		}
+		matchIndex = lowerCombinedLabel.indexOf(filter);
+		if (matchIndex != -1) {
+			int lengthOfElementMatch = matchIndex + filter.length()
+					- providerName.length() - 1;
+			if (lengthOfElementMatch > 0) {
+				return new QuickAccessEntry(element, provider,
+						new int[][] { { 0, lengthOfElementMatch - 1 } },
+						new int[][] { { matchIndex,
+								matchIndex + filter.length() - 1 } });
+			}
+			return new QuickAccessEntry(element, provider, EMPTY_INDICES,
+					new int[][] { { matchIndex,
+							matchIndex + filter.length() - 1 } });
+		}
+		matchIndex = camelCase.indexOf(filter);
+		if (matchIndex != -1) {
+			int[][] indices = CamelUtil.getCamelCaseIndices(label, matchIndex,
+					filter.length());
+			return new QuickAccessEntry(element, provider, indices,
+					EMPTY_INDICES);
+		}
+		matchIndex = combinedCamelCase.indexOf(filter);
+		if (matchIndex != -1) {
+			int lengthOfElementMatch = matchIndex + filter.length()
+					- providerCamelCase.length();
+			if (lengthOfElementMatch > 0) {
+				return new QuickAccessEntry(element, provider,
+						CamelUtil.getCamelCaseIndices(label, 0,
+								lengthOfElementMatch),
+						CamelUtil.getCamelCaseIndices(providerName, matchIndex,
+								filter.length() - lengthOfElementMatch));
+			}
+			return new QuickAccessEntry(element, provider, EMPTY_INDICES,
+					CamelUtil.getCamelCaseIndices(providerName, matchIndex,
+							filter.length()));
+		}
+		return null;
+	}
+
+	/**
+	 * Return the grams of the labels, creating them if necessary. The lower
+	 * case label is part of the lower case combined label, so the grams of
+	 * the combined label and of both camel cases cover every match.
+	 *
+	 * @return the ascending indices of the elements by gram
+	 */
+	private synchronized Map getGrams() {
+		if (grams != null) {
+			return grams;
+		}
+		Map lists = new HashMap();
+		for (int i = 0; i < elements.length; i++) {
+			addGrams(lists, lowerCombinedLabels[i], i);
+			addGrams(lists, camelCases[i], i);
+			addGrams(lists, combinedCamelCases[i], i);
+		}
+		Map result = new HashMap(lists.size());
+		for (Iterator iterator = lists.entrySet().iterator(); iterator
+				.hasNext();) {
+			Map.Entry next = (Map.Entry) iterator.next();
+			result.put(next.getKey(), ((GramList) next.getValue()).toArray());
+		}
+		grams = result;
+		return grams;
+	}
+
+	private static void addGrams(Map lists, String label, int index) {
+		for (int i = 0; i + GRAM_LENGTH <= label.length(); i++) {
+			String gram = label.substring(i, i + GRAM_LENGTH);
+			GramList list = (GramList) lists.get(gram);
+			if (list == null) {
+				list = new GramList();
+				lists.put(gram, list);
+			}
+			list.add(index);
+		}
+	}
+
+	/**
+	 * The ascending indices of the elements having a gram, without
+	 * duplicates.
+	 */
+	private static class GramList {
+		private int[] indices = new int[4];
+
+		private int size = 0;
+
+		void add(int index) {
+			if (size > 0 && indices[size - 1] == index) {
+				return;
+			}
+			if (size == indices.length) {
+				int[] grown = new int[size * 2];
+				System.arraycopy(indices, 0, grown, 0, size);
+				indices = grown;
+			}
+			indices[size++] = index;
+		}
+
+		int[] toArray() {
+			int[] result = new int[size];
+			System.arraycopy(indices, 0, result, 0, size);
+			return result;
+		}
+	}
+}
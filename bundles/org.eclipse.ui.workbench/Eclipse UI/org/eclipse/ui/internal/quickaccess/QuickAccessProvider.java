@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2007 IBM Corporation and others.
+ * Copyright (c) 2006, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,8 @@ public abstract class QuickAccessProvider {
 
 	private QuickAccessElement[] sortedElements;
 
+	private QuickAccessIndex index;
+
 	/**
 	 * Returns the unique ID of this provider.
 	 * 
@@ -64,6 +66,20 @@ public abstract class QuickAccessProvider {
 		}
 		return sortedElements;
 	}
+
+	/**
+	 * Returns the match index of the sorted elements. It is created again
+	 * when the sorted elements change.
+	 * 
+	 * @return the index
+	 */
+	public QuickAccessIndex getIndex() {
+		QuickAccessElement[] elements = getElementsSorted();
+		if (index == null || index.getElements() != elements) {
+			index = new QuickAccessIndex(this, elements);
+		}
+		return index;
+	}
 	
 	/**
 	 * Returns the element for the given ID if available, or null if no matching
@@ -81,6 +97,7 @@ public abstract class QuickAccessProvider {
 
 	public void reset() {
 		sortedElements = null;
+		index = null;
 		doReset();
 	}
 
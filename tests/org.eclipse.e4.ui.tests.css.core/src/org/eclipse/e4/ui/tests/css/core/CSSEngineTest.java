@@ -1,24 +1,38 @@
 package org.eclipse.e4.ui.tests.css.core;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.util.AbstractCollection;
 import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import junit.framework.TestCase;
 
 import org.eclipse.e4.ui.css.core.dom.ElementAdapter;
 import org.eclipse.e4.ui.css.core.dom.IElementProvider;
+import org.eclipse.e4.ui.css.core.dom.properties.ICSSPropertyHandler;
+import org.eclipse.e4.ui.css.core.dom.properties.ICSSPropertyHandlerProvider;
 import org.eclipse.e4.ui.css.core.engine.CSSEngine;
 import org.eclipse.e4.ui.css.core.impl.engine.CSSEngineImpl;
+import org.eclipse.e4.ui.css.core.impl.engine.ComputedStyleCache;
+import org.eclipse.e4.ui.css.core.impl.engine.StyleSheetCache;
 import org.eclipse.e4.ui.tests.css.core.util.TestElement;
+import org.w3c.css.sac.InputSource;
 import org.w3c.css.sac.SelectorList;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSValue;
 
 public class CSSEngineTest extends TestCase {
 	private static class TestCSSEngine extends CSSEngineImpl {
@@ -28,6 +42,47 @@ public class CSSEngineTest extends TestCase {
 
 		public void reapply() {
 		}
+
+		List<String> appliedProperties = new ArrayList<String>();
+
+		public TestCSSEngine() {
+			final ICSSPropertyHandler handler = new ICSSPropertyHandler() {
+				public boolean applyCSSProperty(Object element,
+						String property, CSSValue value, String pseudo,
+						CSSEngine engine) throws Exception {
+					appliedProperties.add(property);
+					return true;
+				}
+
+				public String retrieveCSSProperty(Object element,
+						String property, String pseudo, CSSEngine engine)
+						throws Exception {
+					return null;
+				}
+			};
+			registerCSSPropertyHandlerProvider(new ICSSPropertyHandlerProvider() {
+				public Collection<ICSSPropertyHandler> getCSSPropertyHandlers(
+						String property) throws Exception {
+					return Collections.singletonList(handler);
+				}
+
+				public Collection<ICSSPropertyHandler> getCSSPropertyHandlers(
+						Object element, String property) throws Exception {
+					return Collections.singletonList(handler);
+				}
+
+				public CSSStyleDeclaration getDefaultCSSStyleDeclaration(
+						CSSEngine engine, Object element,
+						CSSStyleDeclaration newStyle, String pseudoE)
+						throws Exception {
+					return null;
+				}
+
+				public Collection<String> getCSSProperties(Object element) {
+					return Collections.emptyList();
+				}
+			});
+		}
 	}
 
 	public abstract static class BaseElement extends ElementAdapter {
@@ -118,4 +173,233 @@ public class CSSEngineTest extends TestCase {
 		assertTrue(engine.matches(list.item(0), new Date(), null));
 	}
 
+	public void testComputedStyleCache() throws Exception {
+		TestCSSEngine engine = new TestCSSEngine();
+		engine.parseStyleSheet(new StringReader("Date { color: red; }"));
+		engine.setElementProvider(new IElementProvider() {
+			public Element getElement(Object element, CSSEngine engine) {
+				return new TestElement(element.getClass().getSimpleName(),
+						engine);
+			}
+		});
+		ComputedStyleCache cache = engine.getComputedStyleCache();
+
+		engine.applyStyles(new Date(0), false);
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		// same signature, the style is computed once
+		engine.applyStyles(new Date(1), false);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		engine.applyStyles(new StringBuffer(), false);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(2, cache.size());
+
+		// style sheet changes evict the cached styles
+		engine.parseStyleSheet(new StringReader("Date { color: blue; }"));
+		assertEquals(0, cache.size());
+	}
+
+	public void testApplyChangedStyles() throws Exception {
+		TestCSSEngine engine = new TestCSSEngine();
+		engine.parseStyleSheet(new StringReader(
+				"Date { color: red; font-weight: bold; }\n"
+						+ "Date.active { color: blue; }"));
+		engine.setElementProvider(new IElementProvider() {
+			public Element getElement(Object element, CSSEngine engine) {
+				return new TestElement(element.getClass().getSimpleName(),
+						engine);
+			}
+		});
+		Date date = new Date();
+		engine.applyStyles(date, false);
+		assertEquals(2, engine.appliedProperties.size());
+
+		// only the property whose value changed is applied
+		engine.appliedProperties.clear();
+		((TestElement) engine.getElement(date)).setClass("active");
+		engine.applyChangedStyles(date);
+		assertEquals(1, engine.appliedProperties.size());
+		assertEquals("color", engine.appliedProperties.get(0));
+
+		// nothing changed since the last call
+		engine.appliedProperties.clear();
+		engine.applyChangedStyles(date);
+		assertEquals(0, engine.appliedProperties.size());
+
+		// a new style sheet restyles the element completely
+		engine.parseStyleSheet(new StringReader("Date { color: green; }"));
+		engine.applyChangedStyles(date);
+		assertEquals(2, engine.appliedProperties.size());
+	}
+
+	public void testApplyChangedStyles_NewChild() throws Exception {
+		TestCSSEngine engine = new TestCSSEngine();
+		engine.parseStyleSheet(new StringReader("Date { color: red; }\n"
+				+ "Date.active { font-weight: bold; }"));
+		TestElement root = new TestElement("Date", new Object(), engine);
+		TestElement child = new TestElement("Date", new Object(), engine);
+		root.addChild(child);
+		engine.applyStyles(root, true);
+		assertEquals(2, engine.appliedProperties.size());
+
+		// the new child has never been styled and is styled completely,
+		// the existing child is left alone
+		engine.appliedProperties.clear();
+		root.addChild(new TestElement("Date", new Object(), engine));
+		root.setClass("active");
+		engine.applyChangedStyles(root);
+		assertEquals(2, engine.appliedProperties.size());
+		assertEquals("font-weight", engine.appliedProperties.get(0));
+		assertEquals("color", engine.appliedProperties.get(1));
+	}
+
+	public void testUnchangedPropertiesAreNotApplied() throws Exception {
+		TestCSSEngine engine = new TestCSSEngine();
+		engine.parseStyleSheet(new StringReader(
+				"Date { color: red; font-weight: bold; }\n"
+						+ "Date.active { color: blue; }"));
+		engine.setElementProvider(new IElementProvider() {
+			public Element getElement(Object element, CSSEngine engine) {
+				return new TestElement(element.getClass().getSimpleName(),
+						engine);
+			}
+		});
+		Date date = new Date();
+		engine.applyStyles(date, false);
+		assertEquals(2, engine.appliedProperties.size());
+		assertEquals(0, engine.getUnchangedPropertyCount());
+
+		// reapplying the same styles does not call the handlers
+		engine.appliedProperties.clear();
+		engine.applyStyles(date, false);
+		assertEquals(0, engine.appliedProperties.size());
+		assertEquals(2, engine.getUnchangedPropertyCount());
+
+		engine.appliedProperties.clear();
+		engine.resetUnchangedPropertyCount();
+		((TestElement) engine.getElement(date)).setClass("active");
+		engine.applyStyles(date, false);
+		assertEquals(1, engine.appliedProperties.size());
+		assertEquals("color", engine.appliedProperties.get(0));
+		assertEquals(1, engine.getUnchangedPropertyCount());
+	}
+
+	public void testResetForgetsAppliedValues() throws Exception {
+		TestCSSEngine engine = new TestCSSEngine();
+		engine.parseStyleSheet(new StringReader("Date { color: red; }"));
+		engine.setElementProvider(new IElementProvider() {
+			public Element getElement(Object element, CSSEngine engine) {
+				return new TestElement(element.getClass().getSimpleName(),
+						engine);
+			}
+		});
+		Date date = new Date();
+		engine.applyStyles(date, false);
+		assertEquals(1, engine.appliedProperties.size());
+
+		// after a theme switch the widget may no longer show the value
+		engine.appliedProperties.clear();
+		engine.reset();
+		engine.parseStyleSheet(new StringReader("Date { color: red; }"));
+		engine.applyStyles(date, false);
+		assertEquals(1, engine.appliedProperties.size());
+		assertEquals("color", engine.appliedProperties.get(0));
+	}
+
+	public void testStyleSheetCache() throws Exception {
+		File directory = File.createTempFile("cssCache", "");
+		directory.delete();
+		File file = File.createTempFile("test", ".css");
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			out.write("Date { color: red; }\nDate.active:selected { font-weight: bold; }"
+					.getBytes());
+			out.close();
+
+			TestCSSEngine engine = new TestCSSEngine();
+			StyleSheetCache cache = new StyleSheetCache(directory);
+			engine.setStyleSheetCache(cache);
+			parseStyleSheet(engine, file);
+			assertEquals(0, cache.getHitCount());
+			assertEquals(1, cache.getMissCount());
+
+			// the second engine reads the rules from the cache
+			TestCSSEngine cachedEngine = new TestCSSEngine();
+			cachedEngine.setStyleSheetCache(cache);
+			parseStyleSheet(cachedEngine, file);
+			assertEquals(1, cache.getHitCount());
+			TestElement element = new TestElement("Date", cachedEngine);
+			assertEquals("red", cachedEngine.getViewCSS().getComputedStyle(
+					element, null).getPropertyCSSValue("color").getCssText());
+
+			// a modified style sheet is parsed again
+			out = new FileOutputStream(file);
+			out.write("Date { color: blue; }".getBytes());
+			out.close();
+			TestCSSEngine modifiedEngine = new TestCSSEngine();
+			modifiedEngine.setStyleSheetCache(cache);
+			parseStyleSheet(modifiedEngine, file);
+			assertEquals(1, cache.getHitCount());
+			assertEquals(2, cache.getMissCount());
+			element = new TestElement("Date", modifiedEngine);
+			assertEquals("blue", modifiedEngine.getViewCSS().getComputedStyle(
+					element, null).getPropertyCSSValue("color").getCssText());
+		} finally {
+			new StyleSheetCache(directory).clear();
+			directory.delete();
+			file.delete();
+		}
+	}
+
+	public void testParallelStyleComputation() throws Exception {
+		TestCSSEngine engine = new TestCSSEngine();
+		applyStylesToTree(engine);
+		TestCSSEngine parallelEngine = new TestCSSEngine();
+		parallelEngine.setParallelStyleComputation(true);
+		applyStylesToTree(parallelEngine);
+		try {
+			// the same properties are applied in the same order
+			assertEquals(engine.appliedProperties,
+					parallelEngine.appliedProperties);
+			// the sequential engine computes the styles while applying them,
+			// the parallel engine finds them all computed
+			assertTrue(engine.getComputedStyleCache().getMissCount() > 0);
+			assertEquals(0, parallelEngine.getComputedStyleCache()
+					.getMissCount());
+			assertEquals(engine.getComputedStyleCache().getMissCount(),
+					parallelEngine.getComputedStyleCache().getHitCount());
+		} finally {
+			parallelEngine.dispose();
+		}
+	}
+
+	private static void applyStylesToTree(CSSEngine engine) throws Exception {
+		StringBuffer styleSheet = new StringBuffer("Date { font-weight: bold; }\n");
+		TestElement root = new TestElement("Date", new Object(), engine);
+		for (int i = 0; i < 40; i++) {
+			styleSheet.append("Date > Date.c" + i + " { color: red; }\n");
+			TestElement child = new TestElement("Date", new Object(), engine);
+			child.setClass("c" + i);
+			root.addChild(child);
+		}
+		engine.parseStyleSheet(new StringReader(styleSheet.toString()));
+		engine.applyStyles(root, true);
+	}
+
+	private static void parseStyleSheet(CSSEngine engine, File file)
+			throws Exception {
+		InputStream stream = new FileInputStream(file);
+		try {
+			InputSource source = new InputSource();
+			source.setURI(file.toURI().toURL().toString());
+			source.setByteStream(stream);
+			engine.parseStyleSheet(source);
+		} finally {
+			stream.close();
+		}
+	}
 }
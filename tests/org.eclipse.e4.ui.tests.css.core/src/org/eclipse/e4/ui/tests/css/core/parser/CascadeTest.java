@@ -96,6 +96,44 @@ public class CascadeTest extends TestCase {
 		assertEquals("red", style.getPropertyCSSValue("color").getCssText());
 	}
 
+	public void testPositionAcrossSelectorKinds() throws Exception {
+		// Rules matched through the element name, the class, the id and the
+		// universal selector must keep their stylesheet order
+		String css = "Button#myid { color: red; }\n"
+			+ ".special { color: green; font-weight: bold; }\n"
+			+ "Button.special { color: blue; }\n"
+			+ "* { font-weight: normal; }\n"
+			+ "Button { font-style: italic; }\n"
+			+ ".other.special { font-style: normal; }\n";
+		ViewCSS viewCSS = createViewCss(css);
+
+		TestElement button = new TestElement("Button", engine);
+		CSSStyleDeclaration style = viewCSS.getComputedStyle(button, null);
+		assertEquals("normal", style.getPropertyCSSValue("font-weight")
+				.getCssText());
+		assertEquals("italic", style.getPropertyCSSValue("font-style")
+				.getCssText());
+		assertNull(style.getPropertyCSSValue("color"));
+
+		button.setClass("other  special");
+		style = viewCSS.getComputedStyle(button, null);
+		assertEquals("blue", style.getPropertyCSSValue("color").getCssText());
+		assertEquals("bold", style.getPropertyCSSValue("font-weight")
+				.getCssText());
+		assertEquals("normal", style.getPropertyCSSValue("font-style")
+				.getCssText());
+
+		button.setId("myid");
+		style = viewCSS.getComputedStyle(button, null);
+		assertEquals("red", style.getPropertyCSSValue("color").getCssText());
+
+		TestElement label = new TestElement("Label", engine);
+		label.setClass("special");
+		style = viewCSS.getComputedStyle(label, null);
+		assertEquals("green", style.getPropertyCSSValue("color").getCssText());
+		assertNull(style.getPropertyCSSValue("font-style"));
+	}
+
 	private static ViewCSS createViewCss(String css) throws IOException {
 		CSSStyleSheet styleSheet = ParserTestUtil.parseCss(css);
 		DocumentCSSImpl docCss = new DocumentCSSImpl();
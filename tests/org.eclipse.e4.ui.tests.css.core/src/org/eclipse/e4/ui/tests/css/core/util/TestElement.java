@@ -9,7 +9,9 @@
  ******************************************************************************/
 package org.eclipse.e4.ui.tests.css.core.util;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.e4.ui.css.core.dom.ElementAdapter;
@@ -26,12 +28,23 @@ public class TestElement extends ElementAdapter {
 	private String className;
 	private String id;
 	private Map attrs = new HashMap();
+	private TestElement parent;
+	private List children = new ArrayList();
 
 	public TestElement(String type, CSSEngine engine) {
-		super(null, engine);
+		this(type, null, engine);
+	}
+
+	public TestElement(String type, Object nativeWidget, CSSEngine engine) {
+		super(nativeWidget, engine);
 		this.typeName = type;
 	}
 
+	public void addChild(TestElement child) {
+		child.parent = this;
+		children.add(child);
+	}
+
 	public void setClass(String className) {
 		this.className = className;
 	}
@@ -54,7 +67,17 @@ public class TestElement extends ElementAdapter {
 	}
 
 	public NodeList getChildNodes() {
-		return null;
+		if (children.isEmpty())
+			return null;
+		return new NodeList() {
+			public Node item(int index) {
+				return (Node) children.get(index);
+			}
+
+			public int getLength() {
+				return children.size();
+			}
+		};
 	}
 
 	public String getNamespaceURI() {
@@ -62,7 +85,7 @@ public class TestElement extends ElementAdapter {
 	}
 
 	public Node getParentNode() {
-		return null;
+		return parent;
 	}
 
 	public String getCSSClass() {
@@ -14,6 +14,8 @@ import java.util.ArrayList;
 import java.util.List;
 import junit.framework.TestCase;
 import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.ui.internal.workbench.ModelElementIndex;
+import org.eclipse.e4.ui.internal.workbench.UIEventPublisher;
 import org.eclipse.e4.ui.internal.workbench.swt.E4Application;
 import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.e4.ui.model.application.impl.ApplicationFactoryImpl;
@@ -29,6 +31,7 @@ import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
 import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
 import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
 import org.eclipse.e4.ui.workbench.modeling.EModelService;
+import org.eclipse.emf.common.notify.Notifier;
 
 public class EModelServiceFindTest extends TestCase {
 
@@ -277,4 +280,87 @@ public class EModelServiceFindTest extends TestCase {
 		assertEquals(1, elements.size());
 		assertEquals(part, elements.get(0));
 	}
+
+	public void testFindElementsWithIndex() {
+		MApplication application = createApplication();
+		MWindow window = BasicFactoryImpl.eINSTANCE.createWindow();
+		application.getChildren().add(window);
+
+		MPerspectiveStack perspectiveStack = AdvancedFactoryImpl.eINSTANCE
+				.createPerspectiveStack();
+		window.getChildren().add(perspectiveStack);
+		MPerspective perspectiveA = AdvancedFactoryImpl.eINSTANCE
+				.createPerspective();
+		perspectiveStack.getChildren().add(perspectiveA);
+		MPerspective perspectiveB = AdvancedFactoryImpl.eINSTANCE
+				.createPerspective();
+		perspectiveStack.getChildren().add(perspectiveB);
+		perspectiveStack.setSelectedElement(perspectiveB);
+
+		MPartStack partStack = BasicFactoryImpl.eINSTANCE.createPartStack();
+		window.getSharedElements().add(partStack);
+		MPart sharedPart = BasicFactoryImpl.eINSTANCE.createPart();
+		sharedPart.setElementId("twoValidIds");
+		partStack.getChildren().add(sharedPart);
+
+		MPlaceholder placeholderA = AdvancedFactoryImpl.eINSTANCE
+				.createPlaceholder();
+		placeholderA.setRef(partStack);
+		perspectiveA.getChildren().add(placeholderA);
+		MPart partA = BasicFactoryImpl.eINSTANCE.createPart();
+		partA.setElementId("twoValidIds");
+		perspectiveA.getChildren().add(partA);
+		MPart partB = BasicFactoryImpl.eINSTANCE.createPart();
+		partB.setElementId("twoValidIds");
+		perspectiveB.getChildren().add(partB);
+
+		EModelService modelService = (EModelService) application.getContext()
+				.get(EModelService.class.getName());
+		int[] flags = { EModelService.ANYWHERE, EModelService.IN_ACTIVE_PERSPECTIVE,
+				EModelService.OUTSIDE_PERSPECTIVE, EModelService.PRESENTATION,
+				EModelService.GLOBAL };
+		List<List<MPart>> expected = new ArrayList<List<MPart>>();
+		for (int flag : flags) {
+			expected.add(modelService.findElements(application, "twoValidIds",
+					MPart.class, null, flag));
+		}
+
+		UIEventPublisher publisher = new UIEventPublisher(applicationContext);
+		((Notifier) application).eAdapters().add(publisher);
+		applicationContext.set(ModelElementIndex.class,
+				publisher.getElementIndex());
+		assertTrue(publisher.getElementIndex().contains(partB));
+
+		// the index finds the same elements in the same order
+		for (int i = 0; i < flags.length; i++) {
+			assertEquals(expected.get(i), modelService.findElements(
+					application, "twoValidIds", MPart.class, null, flags[i]));
+		}
+
+		// the index follows the changes of the model
+		partB.setElementId("changedId");
+		assertEquals(partB, modelService.find("changedId", application));
+		partB.getTags().add("newTag");
+		List<String> tags = new ArrayList<String>();
+		tags.add("newTag");
+		assertEquals(1, modelService.findElements(application, null, null, tags)
+				.size());
+		perspectiveB.getChildren().remove(partB);
+		assertNull(modelService.find("changedId", application));
+		assertFalse(publisher.getElementIndex().contains(partB));
+
+		// and of the placeholder references
+		ModelElementIndex index = publisher.getElementIndex();
+		assertEquals(1, index.getPlaceholders(partStack).size());
+		placeholderA.setRef(null);
+		assertNull(index.getPlaceholders(partStack));
+		assertEquals(1, modelService.findElements(perspectiveA, "twoValidIds",
+				MPart.class, null).size());
+		placeholderA.setRef(partStack);
+		assertEquals(placeholderA, index.getPlaceholders(partStack).get(0));
+		assertEquals(2, modelService.findElements(perspectiveA, "twoValidIds",
+				MPart.class, null).size());
+		perspectiveA.getChildren().remove(placeholderA);
+		assertNull(index.getPlaceholders(partStack));
+	}
 }
@@ -11,15 +11,26 @@
 
 package org.eclipse.e4.ui.tests.application;
 
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.IJobChangeListener;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.ui.internal.workbench.E4Workbench;
 import org.eclipse.e4.ui.internal.workbench.E4XMIResource;
+import org.eclipse.e4.ui.internal.workbench.E4XMIResourceFactory;
 import org.eclipse.e4.ui.internal.workbench.ResourceHandler;
 import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.osgi.service.datalocation.Location;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Filter;
@@ -162,4 +173,141 @@ public class ResourceHandlerTest extends HeadlessStartupTest {
 				.getChildren().get(0).getChildren().get(7).getElementId());
 	}
 
+	public void testSaveInBackground() throws Exception {
+		URI uri = URI.createPlatformPluginURI(
+				"org.eclipse.e4.ui.tests/xmi/modelprocessor/base.e4xmi", true);
+
+		ResourceHandler handler = createHandler(uri);
+		Resource resource = handler.loadMostRecentModel();
+		MApplication application = (MApplication) resource.getContents().get(0);
+		File file = new File(resource.getURI().toFileString());
+		try {
+			Job job = handler.saveInBackground();
+			assertNotNull(job);
+			// changes made after the snapshot are not part of this save
+			application.getChildren().get(1).setElementId("changedId");
+			job.join();
+			assertTrue(file.exists());
+			assertFalse(new File(file.getParentFile(), file.getName() + ".tmp")
+					.exists());
+
+			ResourceSetImpl resourceSet = new ResourceSetImpl();
+			resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap()
+					.put(Resource.Factory.Registry.DEFAULT_EXTENSION,
+							new E4XMIResourceFactory());
+			Resource saved = resourceSet.getResource(resource.getURI(), true);
+			MApplication savedApplication = (MApplication) saved.getContents()
+					.get(0);
+			assertEquals(application.getChildren().size(), savedApplication
+					.getChildren().size());
+			assertEquals("fragment.contributedWindow", savedApplication
+					.getChildren().get(1).getElementId());
+			assertEquals("_w4fQ8HVHEd-aXt9fFntEtw",
+					((E4XMIResource) saved).getID((EObject) savedApplication
+							.getChildren().get(1)));
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testSaveInBackgroundOffCallingThread() throws Exception {
+		URI uri = URI.createPlatformPluginURI(
+				"org.eclipse.e4.ui.tests/xmi/modelprocessor/base.e4xmi", true);
+
+		ResourceHandler handler = createHandler(uri);
+		Resource resource = handler.loadMostRecentModel();
+		File file = new File(resource.getURI().toFileString());
+		final Map<Job, Thread> runningThreads = Collections
+				.synchronizedMap(new HashMap<Job, Thread>());
+		IJobChangeListener listener = new JobChangeAdapter() {
+			@Override
+			public void running(IJobChangeEvent event) {
+				runningThreads.put(event.getJob(), Thread.currentThread());
+			}
+		};
+		Job.getJobManager().addJobChangeListener(listener);
+		try {
+			Job job = handler.saveInBackground();
+			job.join();
+			assertTrue(file.exists());
+			Thread thread = runningThreads.get(job);
+			assertNotNull(thread);
+			assertNotSame(Thread.currentThread(), thread);
+
+			// the final save waits for the background save
+			handler.saveInBackground();
+			handler.save();
+			assertEquals(Job.NONE, job.getState());
+		} finally {
+			Job.getJobManager().removeJobChangeListener(listener);
+			file.delete();
+		}
+	}
+
+	public void testSaveInBackgroundOnlyWhenChanged() throws Exception {
+		URI uri = URI.createPlatformPluginURI(
+				"org.eclipse.e4.ui.tests/xmi/modelprocessor/base.e4xmi", true);
+
+		ResourceHandler handler = createHandler(uri);
+		Resource resource = handler.loadMostRecentModel();
+		MApplication application = (MApplication) resource.getContents().get(0);
+		File file = new File(resource.getURI().toFileString());
+		try {
+			Job job = handler.saveInBackground();
+			assertNotNull(job);
+			job.join();
+			assertNull("the unchanged model should not be copied again",
+					handler.saveInBackground());
+
+			// the widgets are transient and not saved
+			application.getChildren().get(1).setWidget(new Object());
+			assertNull(handler.saveInBackground());
+
+			application.getChildren().get(1).setElementId("changedId");
+			job = handler.saveInBackground();
+			assertNotNull(job);
+			job.join();
+
+			application.getChildren().get(1).setElementId("savedId");
+			handler.save();
+			assertNull(handler.saveInBackground());
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testBinaryModelFormat() throws Exception {
+		URI uri = URI.createPlatformPluginURI(
+				"org.eclipse.e4.ui.tests/xmi/modelprocessor/base.e4xmi", true);
+		ResourceSetImpl resourceSet = new ResourceSetImpl();
+		resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap()
+				.put(Resource.Factory.Registry.DEFAULT_EXTENSION,
+						new E4XMIResourceFactory(true));
+		// XMI is still read by the binary resources
+		Resource resource = resourceSet.getResource(uri, true);
+		MApplication application = (MApplication) resource.getContents().get(0);
+
+		File file = File.createTempFile("workbench", ".xmi");
+		try {
+			resource.setURI(URI.createFileURI(file.getAbsolutePath()));
+			resource.save(null);
+
+			ResourceSetImpl binaryResourceSet = new ResourceSetImpl();
+			binaryResourceSet.getResourceFactoryRegistry()
+					.getExtensionToFactoryMap()
+					.put(Resource.Factory.Registry.DEFAULT_EXTENSION,
+							new E4XMIResourceFactory());
+			Resource saved = binaryResourceSet.getResource(resource.getURI(),
+					true);
+			MApplication savedApplication = (MApplication) saved.getContents()
+					.get(0);
+			assertTrue(EcoreUtil.equals((EObject) application,
+					(EObject) savedApplication));
+			assertEquals("_w4fQ8HVHEd-aXt9fFntEtw",
+					((E4XMIResource) saved).getID((EObject) savedApplication
+							.getChildren().get(1)));
+		} finally {
+			file.delete();
+		}
+	}
 }
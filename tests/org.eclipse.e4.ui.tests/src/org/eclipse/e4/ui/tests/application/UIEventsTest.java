@@ -20,10 +20,16 @@ import org.eclipse.e4.ui.internal.workbench.UIEventPublisher;
 import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.e4.ui.model.application.MApplicationElement;
 import org.eclipse.e4.ui.model.application.MApplicationFactory;
+import org.eclipse.e4.ui.model.application.ui.MElementContainer;
+import org.eclipse.e4.ui.model.application.ui.MUIElement;
 import org.eclipse.e4.ui.model.application.ui.basic.MBasicFactory;
+import org.eclipse.e4.ui.model.application.ui.basic.MPart;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
 import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
 import org.eclipse.e4.ui.model.application.ui.menu.MMenu;
 import org.eclipse.e4.ui.model.application.ui.menu.MMenuFactory;
+import org.eclipse.e4.ui.services.events.IBatchEventHandler;
+import org.eclipse.e4.ui.services.events.IBatchingEventBroker;
 import org.eclipse.e4.ui.tests.model.test.MTestFactory;
 import org.eclipse.e4.ui.tests.model.test.MTestHarness;
 import org.eclipse.e4.ui.workbench.UIEvents.ApplicationElement;
@@ -38,6 +44,7 @@ import org.eclipse.e4.ui.workbench.UIEvents.Parameter;
 import org.eclipse.e4.ui.workbench.UIEvents.UIElement;
 import org.eclipse.e4.ui.workbench.UIEvents.UILabel;
 import org.eclipse.e4.ui.workbench.UIEvents.Window;
+import org.eclipse.e4.ui.workbench.modeling.EModelService;
 import org.eclipse.emf.common.notify.Notifier;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
@@ -354,6 +361,118 @@ public class UIEventsTest extends HeadlessApplicationElementTest {
 		assertFalse(seen[0]);
 	}
 
+	public void testBatchedEvents() {
+		IBatchingEventBroker eventBroker = (IBatchingEventBroker) applicationContext
+				.get(IEventBroker.class);
+		MWindow window = ((MApplication) applicationElement).getChildren().get(
+				0);
+		window.setElementId("original");
+
+		final List<Event> events = new ArrayList<Event>();
+		EventHandler handler = new EventHandler() {
+			public void handleEvent(Event event) {
+				events.add(event);
+			}
+		};
+		final List<List<Event>> batches = new ArrayList<List<Event>>();
+		final List<Event> batchHandlerEvents = new ArrayList<Event>();
+		IBatchEventHandler batchHandler = new IBatchEventHandler() {
+			public void handleEvent(Event event) {
+				batchHandlerEvents.add(event);
+			}
+
+			public void handleEvents(List<Event> eventList) {
+				batches.add(eventList);
+			}
+		};
+		eventBroker.subscribe(ApplicationElement.TOPIC_ALL, handler);
+		eventBroker.subscribe(ApplicationElement.TOPIC_ALL, batchHandler);
+		try {
+			eventBroker.beginBatch();
+			eventBroker.beginBatch();
+			window.setElementId("first");
+			window.setElementId("second");
+			eventBroker.endBatch();
+			window.getTags().add("tag");
+			window.setElementId("third");
+			assertTrue(eventBroker.isBatching());
+			assertTrue(events.isEmpty());
+			eventBroker.endBatch();
+			assertFalse(eventBroker.isBatching());
+
+			// the id changes are coalesced into the last position
+			assertEquals(2, events.size());
+			assertEquals(ApplicationElement.TAGS,
+					events.get(0).getProperty(EventTags.ATTNAME));
+			Event idEvent = events.get(1);
+			assertEquals(ApplicationElement.ELEMENTID,
+					idEvent.getProperty(EventTags.ATTNAME));
+			assertEquals("original", idEvent.getProperty(EventTags.OLD_VALUE));
+			assertEquals("third", idEvent.getProperty(EventTags.NEW_VALUE));
+
+			// the batch handler receives them in one call
+			assertTrue(batchHandlerEvents.isEmpty());
+			assertEquals(1, batches.size());
+			assertEquals(2, batches.get(0).size());
+
+			// events outside of a batch are delivered one by one
+			window.setElementId("fourth");
+			assertEquals(3, events.size());
+			assertEquals(1, batchHandlerEvents.size());
+			assertEquals(1, batches.size());
+
+			// changes which restore the original value are dropped
+			eventBroker.beginBatch();
+			window.setElementId("fifth");
+			window.setElementId("fourth");
+			eventBroker.endBatch();
+			assertEquals(3, events.size());
+			assertEquals(1, batches.size());
+		} finally {
+			eventBroker.unsubscribe(handler);
+			eventBroker.unsubscribe(batchHandler);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public void testMoveDeliversOneBatch() {
+		EModelService modelService = applicationContext.get(EModelService.class);
+		MWindow window = ((MApplication) applicationElement).getChildren().get(
+				0);
+		MPartStack source = MBasicFactory.INSTANCE.createPartStack();
+		MPartStack target = MBasicFactory.INSTANCE.createPartStack();
+		MPart part = MBasicFactory.INSTANCE.createPart();
+		source.getChildren().add(part);
+		window.getChildren().add(source);
+		window.getChildren().add(target);
+
+		final List<List<Event>> batches = new ArrayList<List<Event>>();
+		IBatchEventHandler batchHandler = new IBatchEventHandler() {
+			public void handleEvent(Event event) {
+				batches.add(null);
+			}
+
+			public void handleEvents(List<Event> eventList) {
+				batches.add(eventList);
+			}
+		};
+		IEventBroker eventBroker = applicationContext.get(IEventBroker.class);
+		eventBroker.subscribe(ElementContainer.TOPIC_CHILDREN, batchHandler);
+		try {
+			modelService.move(part,
+					(MElementContainer<MUIElement>) (MElementContainer<?>) target,
+					0, true);
+			assertSame(target, part.getParent());
+			assertEquals(1, source.getChildren().size());
+
+			// the removal, the addition and the placeholder come in one batch
+			assertEquals(1, batches.size());
+			assertEquals(3, batches.get(0).size());
+		} finally {
+			eventBroker.unsubscribe(batchHandler);
+		}
+	}
+
 	/**
 	 * @param allTesters
 	 * @param tester
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2008 IBM Corporation and others.
+ * Copyright (c) 2007, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,7 +14,9 @@ package org.eclipse.core.tests.databinding.observable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -256,6 +258,51 @@ public class Diffs_ListDiffTests extends TestCase {
 				Arrays.asList(new Object[] { "c", "a", "b" }));
 	}
 
+	public void testComputeListDiff_RepeatedElements() {
+		checkComputedListDiff(Arrays.asList(new Object[] { "a", "b", "a", "b",
+				null, "a" }), Arrays.asList(new Object[] { "b", null, "a", "a",
+				"b", "a", null }));
+	}
+
+	public void testComputeListDiff_LargeShuffle() {
+		Random random = new Random(0);
+		List oldList = new ArrayList();
+		for (int i = 0; i < 10000; i++) {
+			oldList.add(new Integer(random.nextInt(2000)));
+		}
+		List newList = new ArrayList(oldList);
+		Collections.shuffle(newList.subList(100, 300), random);
+		for (int i = 0; i < 200; i++) {
+			newList.remove(random.nextInt(newList.size()));
+			newList.add(random.nextInt(newList.size()), new Integer(-i));
+		}
+		checkComputedListDiff(oldList, newList);
+	}
+
+	public void testComputeListDiff_MoveIsReportedAsMove() {
+		ListDiff diff = diff(new String[] { "a", "b", "c", "d" }, new String[] {
+				"b", "c", "d", "a" });
+
+		assertEquals(2, diff.getDifferences().length);
+		final List moves = new ArrayList();
+		diff.accept(new ListDiffVisitor() {
+			public void handleAdd(int index, Object element) {
+				fail("unexpected add of " + element);
+			}
+
+			public void handleRemove(int index, Object element) {
+				fail("unexpected remove of " + element);
+			}
+
+			public void handleMove(int oldIndex, int newIndex, Object element) {
+				moves.add(element);
+				assertEquals(0, oldIndex);
+				assertEquals(3, newIndex);
+			}
+		});
+		assertEquals(Collections.singletonList("a"), moves);
+	}
+
 	private static void checkComputedListDiff(List oldList, List newList) {
 		ListDiff diff = Diffs.computeListDiff(oldList, newList);
 
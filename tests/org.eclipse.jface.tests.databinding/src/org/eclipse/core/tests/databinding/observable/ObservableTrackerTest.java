@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 Matthew Hall and others.
+ * Copyright (c) 2007, 2012 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,8 @@ import java.util.List;
 import java.util.Set;
 
 import org.eclipse.core.databinding.observable.AbstractObservable;
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.IChangeListener;
 import org.eclipse.core.databinding.observable.IObservable;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
@@ -230,6 +232,75 @@ public class ObservableTrackerTest extends AbstractDefaultRealmTestCase {
 		}
 	}
 
+	public void testRunAndMonitor_Dependencies_SameObservables() {
+		final IObservable[] observables = { new ObservableStub(),
+				new ObservableStub() };
+		IChangeListener listener = new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+			}
+		};
+		Runnable runnable = new Runnable() {
+			public void run() {
+				ObservableTracker.getterCalled(observables[0]);
+				ObservableTracker.getterCalled(observables[1]);
+			}
+		};
+
+		IObservable[] dependencies = ObservableTracker.runAndMonitor(runnable,
+				null, listener, null);
+		assertEquals(2, dependencies.length);
+		assertSame(dependencies, ObservableTracker.runAndMonitor(runnable,
+				dependencies, listener, null));
+	}
+
+	public void testRunAndMonitor_Dependencies_OnlyChangedAreHooked() {
+		final CountingObservableStub[] observables = {
+				new CountingObservableStub(), new CountingObservableStub(),
+				new CountingObservableStub() };
+		IChangeListener listener = new IChangeListener() {
+			public void handleChange(ChangeEvent event) {
+			}
+		};
+
+		IObservable[] dependencies = ObservableTracker.runAndMonitor(
+				new Runnable() {
+					public void run() {
+						ObservableTracker.getterCalled(observables[0]);
+						ObservableTracker.getterCalled(observables[1]);
+					}
+				}, null, listener, null);
+		dependencies = ObservableTracker.runAndMonitor(new Runnable() {
+			public void run() {
+				ObservableTracker.getterCalled(observables[1]);
+				ObservableTracker.getterCalled(observables[2]);
+			}
+		}, dependencies, listener, null);
+
+		assertEquals(2, dependencies.length);
+		assertEquals(1, observables[0].added);
+		assertEquals(1, observables[0].removed);
+		assertEquals(1, observables[1].added);
+		assertEquals(0, observables[1].removed);
+		assertEquals(1, observables[2].added);
+		assertEquals(0, observables[2].removed);
+	}
+
+	public static class CountingObservableStub extends ObservableStub {
+		int added;
+
+		int removed;
+
+		public synchronized void addChangeListener(IChangeListener listener) {
+			added++;
+			super.addChangeListener(listener);
+		}
+
+		public synchronized void removeChangeListener(IChangeListener listener) {
+			removed++;
+			super.removeChangeListener(listener);
+		}
+	}
+
 	public static class ObservableStub extends AbstractObservable {
 		public ObservableStub() {
 			this(Realm.getDefault());
@@ -11,9 +11,22 @@
 
 package org.eclipse.core.tests.databinding.observable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import junit.framework.TestCase;
 
+import org.eclipse.core.databinding.observable.DisposeEvent;
+import org.eclipse.core.databinding.observable.IDisposeListener;
 import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.list.IListChangeListener;
+import org.eclipse.core.databinding.observable.list.ListChangeEvent;
+import org.eclipse.core.databinding.observable.list.WritableList;
+import org.eclipse.core.databinding.observable.value.ComputedValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.databinding.observable.value.WritableValue;
 import org.eclipse.jface.databinding.conformance.util.CurrentRealm;
 import org.eclipse.jface.databinding.conformance.util.RealmTester;
 
@@ -34,4 +47,145 @@ public class RealmTest extends TestCase {
 		
 		assertEquals("old realm should have been restored", oldRealm, Realm.getDefault());
 	}
+
+	public void testRunBatched_ListChangesMerged() throws Exception {
+		Realm realm = new CurrentRealm(true);
+		final WritableList list = new WritableList(realm);
+		final List events = new ArrayList();
+		list.addListChangeListener(new IListChangeListener() {
+			public void handleListChange(ListChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		realm.runBatched(new Runnable() {
+			public void run() {
+				for (int i = 0; i < 100; i++) {
+					list.add(new Integer(i));
+				}
+				list.remove(0);
+				assertEquals("events should be deferred", 0, events.size());
+			}
+		});
+
+		assertEquals(1, events.size());
+		List applied = new ArrayList();
+		((ListChangeEvent) events.get(0)).diff.applyTo(applied);
+		assertEquals(list, applied);
+	}
+
+	public void testRunBatched_ValueChangesMerged() throws Exception {
+		Realm realm = new CurrentRealm(true);
+		final WritableValue value = new WritableValue(realm, "a", null);
+		final List events = new ArrayList();
+		value.addValueChangeListener(new IValueChangeListener() {
+			public void handleValueChange(ValueChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		realm.runBatched(new Runnable() {
+			public void run() {
+				value.setValue("b");
+				value.setValue("c");
+			}
+		});
+
+		assertEquals(1, events.size());
+		ValueChangeEvent event = (ValueChangeEvent) events.get(0);
+		assertEquals("a", event.diff.getOldValue());
+		assertEquals("c", event.diff.getNewValue());
+	}
+
+	public void testRunBatched_DisposeFiresPendingChangesFirst()
+			throws Exception {
+		Realm realm = new CurrentRealm(true);
+		final WritableValue value = new WritableValue(realm, "a", null);
+		final List events = new ArrayList();
+		value.addValueChangeListener(new IValueChangeListener() {
+			public void handleValueChange(ValueChangeEvent event) {
+				events.add("change");
+			}
+		});
+		value.addDisposeListener(new IDisposeListener() {
+			public void handleDispose(DisposeEvent event) {
+				events.add("dispose");
+			}
+		});
+
+		realm.runBatched(new Runnable() {
+			public void run() {
+				value.setValue("b");
+				value.dispose();
+			}
+		});
+
+		assertEquals(Arrays.asList(new String[] { "change", "dispose" }),
+				events);
+	}
+
+	public void testRunBatched_ComputedValueUpToDate() throws Exception {
+		Realm realm = new CurrentRealm(true);
+		final WritableValue value = new WritableValue(realm, "a", null);
+		final ComputedValue computed = new ComputedValue(realm) {
+			protected Object calculate() {
+				return value.getValue() + "!";
+			}
+		};
+		final List events = new ArrayList();
+		computed.addValueChangeListener(new IValueChangeListener() {
+			public void handleValueChange(ValueChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		realm.runBatched(new Runnable() {
+			public void run() {
+				value.setValue("b");
+				assertEquals("b!", computed.getValue());
+				value.setValue("c");
+				assertEquals("c!", computed.getValue());
+				assertEquals("events should be deferred", 0, events.size());
+			}
+		});
+
+		assertEquals(1, events.size());
+		ValueChangeEvent event = (ValueChangeEvent) events.get(0);
+		assertEquals("a!", event.diff.getOldValue());
+		assertEquals("c!", event.diff.getNewValue());
+	}
+
+	public void testRunBatched_ListenerEventsFollowPendingEvents()
+			throws Exception {
+		Realm realm = new CurrentRealm(true);
+		final WritableValue value = new WritableValue(realm, "a", null);
+		final WritableList list = new WritableList(realm);
+		value.addValueChangeListener(new IValueChangeListener() {
+			public void handleValueChange(ValueChangeEvent event) {
+				list.add("added by listener");
+			}
+		});
+		final List events = new ArrayList();
+		list.addListChangeListener(new IListChangeListener() {
+			public void handleListChange(ListChangeEvent event) {
+				events.add(event);
+			}
+		});
+
+		realm.runBatched(new Runnable() {
+			public void run() {
+				value.setValue("b");
+				list.add("added in batch");
+			}
+		});
+
+		assertEquals(2, events.size());
+		List applied = new ArrayList();
+		for (int i = 0; i < events.size(); i++) {
+			((ListChangeEvent) events.get(i)).diff.applyTo(applied);
+		}
+		assertEquals(Arrays.asList(new String[] { "added in batch",
+				"added by listener" }), applied);
+		assertEquals(list, applied);
+	}
 }
@@ -89,6 +89,27 @@ public class ComputedListTest extends AbstractDefaultRealmTestCase {
 				2, tracker.count);
 	}
 
+	public void testDependency_UnhookedWhenDirtyWithoutListeners() {
+		assertTrue(list.dependency.hasListeners());
+
+		list.dependency.fireChange();
+		assertFalse(
+				"ComputedList should stop listening when dirty and nobody listens",
+				list.dependency.hasListeners());
+
+		list.size(); // Force list to recompute.
+		assertTrue(list.dependency.hasListeners());
+	}
+
+	public void testDependency_HookedWhenDirtyWithListeners() {
+		ListChangeEventTracker.observe(list);
+
+		list.dependency.fireChange();
+		assertTrue(
+				"ComputedList should keep listening when dirty and somebody listens",
+				list.dependency.hasListeners());
+	}
+
 	static class ComputedListStub extends ComputedList {
 		List nextComputation = new ArrayList();
 		ObservableStub dependency;
@@ -127,6 +148,10 @@ public class ComputedListTest extends AbstractDefaultRealmTestCase {
 		protected void fireChange() {
 			super.fireChange();
 		}
+
+		protected boolean hasListeners() {
+			return super.hasListeners();
+		}
 	}
 
 	public static Test suite() {
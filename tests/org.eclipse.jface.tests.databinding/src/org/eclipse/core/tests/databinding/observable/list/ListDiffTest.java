@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 Matthew Hall and others.
+ * Copyright (c) 2007, 2012 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -77,6 +77,13 @@ public class ListDiffTest extends TestCase {
 		assertEquals("replace(0,element0,element1)", visitor.log);
 	}
 
+	public void testAccept_Replace_AddAfterRemovedElement() {
+		// Adding at index 2 then removing the element at index 1 replaces it
+		createListDiff(add(2, "element1"), remove(1, "element0")).accept(
+				visitor);
+		assertEquals("replace(1,element0,element1)", visitor.log);
+	}
+
 	public void testAccept_AllPatterns() {
 		createListDiff(new ListDiffEntry[] {
 		// Replace (remove before add)
@@ -87,6 +87,27 @@ public class ComputedSetTest extends AbstractDefaultRealmTestCase {
 				2, tracker.count);
 	}
 
+	public void testDependency_UnhookedWhenDirtyWithoutListeners() {
+		assertTrue(set.dependency.hasListeners());
+
+		set.dependency.fireChange();
+		assertFalse(
+				"ComputedSet should stop listening when dirty and nobody listens",
+				set.dependency.hasListeners());
+
+		set.size(); // Force set to recompute.
+		assertTrue(set.dependency.hasListeners());
+	}
+
+	public void testDependency_HookedWhenDirtyWithListeners() {
+		SetChangeEventTracker.observe(set);
+
+		set.dependency.fireChange();
+		assertTrue(
+				"ComputedSet should keep listening when dirty and somebody listens",
+				set.dependency.hasListeners());
+	}
+
 	static class ComputedSetStub extends ComputedSet {
 		Set nextComputation = new HashSet();
 		ObservableStub dependency;
@@ -125,6 +146,10 @@ public class ComputedSetTest extends AbstractDefaultRealmTestCase {
 		protected void fireChange() {
 			super.fireChange();
 		}
+
+		protected boolean hasListeners() {
+			return super.hasListeners();
+		}
 	}
 
 	public static Test suite() {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2007 IBM Corporation and others.
+ * Copyright (c) 2006, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,8 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.IChangeListener;
 import org.eclipse.core.databinding.observable.value.ComputedValue;
 import org.eclipse.core.databinding.observable.value.WritableValue;
 import org.eclipse.jface.tests.databinding.AbstractDefaultRealmTestCase;
@@ -118,6 +120,45 @@ public class ComputedValueTest extends AbstractDefaultRealmTestCase {
         assertFalse("because value2 is not a part of the calculation the listeners should have been removed", value2.hasListeners());
     }
     
+    public void testUnhookDependenciesWhenDirtyWithoutListeners() throws Exception {
+        final WritableValueExt value = new WritableValueExt(Integer.TYPE, new Integer(1));
+
+        ComputedValue cv = new ComputedValue() {
+            protected Object calculate() {
+                return value.getValue();
+            }
+        };
+
+        cv.getValue();
+        assertTrue(value.hasListeners());
+
+        value.setValue(new Integer(2));
+        assertFalse("nobody listens to the dirty computed value, so it should not keep listening to its dependencies", value.hasListeners());
+
+        assertEquals(new Integer(2), cv.getValue());
+        assertTrue(value.hasListeners());
+    }
+
+    public void testKeepDependenciesHookedWhenDirtyWithListeners() throws Exception {
+        final WritableValueExt value = new WritableValueExt(Integer.TYPE, new Integer(1));
+
+        ComputedValue cv = new ComputedValue() {
+            protected Object calculate() {
+                return value.getValue();
+            }
+        };
+
+        cv.addChangeListener(new IChangeListener() {
+            public void handleChange(ChangeEvent event) {
+            }
+        });
+        assertTrue(value.hasListeners());
+
+        value.setValue(new Integer(2));
+        assertTrue(value.hasListeners());
+        assertEquals(new Integer(2), cv.getValue());
+    }
+    
     public void testSetValueUnsupportedOperationException() throws Exception {
         ComputedValue cv = new ComputedValue() {
             protected Object calculate() {
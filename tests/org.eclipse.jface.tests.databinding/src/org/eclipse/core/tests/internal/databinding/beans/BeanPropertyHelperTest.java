@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 Matthew Hall and others.
+ * Copyright (c) 2009, 2012 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -51,4 +51,20 @@ public class BeanPropertyHelperTest extends TestCase {
 				new Class[] { String.class }), pd.getWriteMethod());
 	}
 
+	public void testGetPropertyDescriptor_Cached() {
+		assertSame(BeanPropertyHelper.getPropertyDescriptor(Bean.class,
+				"value"), BeanPropertyHelper.getPropertyDescriptor(Bean.class,
+				"value"));
+		assertSame(BeanPropertyHelper.getPropertyDescriptor(
+				IBeanExtension.class, "value"), BeanPropertyHelper
+				.getPropertyDescriptor(IBeanExtension.class, "value"));
+	}
+
+	public void testGetPropertyDescriptor_MissingProperty() {
+		try {
+			BeanPropertyHelper.getPropertyDescriptor(Bean.class, "missing");
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
 }
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+package org.eclipse.jface.tests.databinding.viewers;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.eclipse.core.databinding.observable.Observables;
+import org.eclipse.core.databinding.observable.list.WritableList;
+import org.eclipse.core.databinding.observable.set.IObservableSet;
+import org.eclipse.jface.databinding.swt.SWTObservables;
+import org.eclipse.jface.databinding.viewers.ObservableListLazyContentProvider;
+import org.eclipse.jface.tests.databinding.AbstractDefaultRealmTestCase;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+
+public class ObservableListLazyContentProviderTest extends
+		AbstractDefaultRealmTestCase {
+	private Shell shell;
+	private TableViewer viewer;
+	private ObservableListLazyContentProvider contentProvider;
+	private WritableList input;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		shell = new Shell();
+		viewer = new TableViewer(shell, SWT.VIRTUAL);
+
+		contentProvider = new ObservableListLazyContentProvider();
+		viewer.setContentProvider(contentProvider);
+
+		input = new WritableList();
+		input.addAll(Arrays.asList(new String[] { "one", "two", "three" }));
+		viewer.setInput(input);
+	}
+
+	protected void tearDown() throws Exception {
+		shell.dispose();
+		viewer = null;
+		input = null;
+		super.tearDown();
+	}
+
+	public void testKnownElements_Realm() throws Exception {
+		assertSame("realm for the known elements should be the SWT realm",
+				SWTObservables.getRealm(Display.getDefault()), contentProvider
+						.getKnownElements().getRealm());
+	}
+
+	public void testInputChanged_SetsItemCount() {
+		assertEquals(3, viewer.getTable().getItemCount());
+
+		WritableList newInput = new WritableList();
+		for (int i = 0; i < 100000; i++)
+			newInput.add(new Integer(i));
+		viewer.setInput(newInput);
+
+		assertEquals(100000, viewer.getTable().getItemCount());
+		assertEquals(Collections.EMPTY_SET, contentProvider.getKnownElements());
+	}
+
+	public void testUpdateElement_AddsKnownElement() {
+		contentProvider.updateElement(1);
+
+		assertEquals(Collections.singleton("two"), contentProvider
+				.getKnownElements());
+	}
+
+	public void testListChange_AddClearsShiftedRows() {
+		contentProvider.updateElement(0);
+		contentProvider.updateElement(2);
+
+		input.add(1, "four");
+
+		assertEquals(4, viewer.getTable().getItemCount());
+		assertEquals(Collections.singleton("one"), contentProvider
+				.getKnownElements());
+	}
+
+	public void testListChange_RemoveUpdatesItemCount() {
+		contentProvider.updateElement(0);
+		contentProvider.updateElement(2);
+
+		input.remove(2);
+
+		assertEquals(2, viewer.getTable().getItemCount());
+		assertEquals(Collections.singleton("one"), contentProvider
+				.getKnownElements());
+	}
+
+	public void testListChange_ReplaceUpdatesRealizedRow() {
+		contentProvider.updateElement(0);
+		contentProvider.updateElement(1);
+
+		input.set(1, "four");
+
+		assertEquals(3, viewer.getTable().getItemCount());
+		assertEquals(new HashSet(Arrays.asList(new String[] { "one", "four" })),
+				contentProvider.getKnownElements());
+		assertEquals("four", viewer.getTable().getItem(1).getData());
+	}
+
+	public void testKnownElements_DuplicateElementKeptUntilLastRowCleared() {
+		input.add("one");
+		contentProvider.updateElement(0);
+		contentProvider.updateElement(3);
+
+		input.remove(3);
+		assertEquals(Collections.singleton("one"), contentProvider
+				.getKnownElements());
+
+		input.remove(0);
+		assertEquals(Collections.EMPTY_SET, contentProvider.getKnownElements());
+	}
+
+	public void testInputChanged_ClearsKnownElements() {
+		contentProvider.updateElement(0);
+
+		IObservableSet knownElements = contentProvider.getKnownElements();
+		assertEquals(Collections.singleton("one"), knownElements);
+		viewer.setInput(Observables.emptyObservableList());
+		assertEquals(Collections.EMPTY_SET, knownElements);
+		assertEquals(0, viewer.getTable().getItemCount());
+	}
+}
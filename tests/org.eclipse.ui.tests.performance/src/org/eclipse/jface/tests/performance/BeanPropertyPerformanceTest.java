@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.jface.tests.performance;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+
+import org.eclipse.core.databinding.beans.BeanProperties;
+import org.eclipse.core.databinding.beans.IBeanValueProperty;
+import org.eclipse.ui.tests.performance.BasicPerformanceTest;
+
+/**
+ * The BeanPropertyPerformanceTest measures reading a property of many beans
+ * through a bean value property, as label providers do for every row, against
+ * looking the read method up on every read.
+ */
+public class BeanPropertyPerformanceTest extends BasicPerformanceTest {
+
+	private static final int BEAN_COUNT = 1000;
+
+	private static final int READ_COUNT = 200;
+
+	private static final int ITERATIONS = 10;
+
+	private static TestBean[] fBeans;
+
+	/**
+	 * @param testName
+	 */
+	public BeanPropertyPerformanceTest(String testName) {
+		super(testName);
+		generateBeans();
+	}
+
+	/**
+	 * Test the time for reading the property through a bean value property.
+	 */
+	public void testReadValueProperty() {
+		IBeanValueProperty property = BeanProperties.value(TestBean.class,
+				"name"); //$NON-NLS-1$
+		for (int i = 0; i < ITERATIONS; i++) {
+			startMeasuring();
+			for (int j = 0; j < READ_COUNT; j++) {
+				for (int k = 0; k < fBeans.length; k++) {
+					property.getValue(fBeans[k]);
+				}
+			}
+			stopMeasuring();
+		}
+		assertEquals(fBeans[0].getName(), property.getValue(fBeans[0]));
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Test the time for reading the property with the read method looked up
+	 * and made accessible on every read, as the bean properties did before, as
+	 * a reference for {@link #testReadValueProperty()}.
+	 *
+	 * @throws Exception
+	 */
+	public void testReadReflective() throws Exception {
+		PropertyDescriptor descriptor = BeanProperties.value(TestBean.class,
+				"name").getPropertyDescriptor(); //$NON-NLS-1$
+		for (int i = 0; i < ITERATIONS; i++) {
+			startMeasuring();
+			for (int j = 0; j < READ_COUNT; j++) {
+				for (int k = 0; k < fBeans.length; k++) {
+					readReflective(fBeans[k], descriptor);
+				}
+			}
+			stopMeasuring();
+		}
+		assertEquals(fBeans[0].getName(), readReflective(fBeans[0],
+				descriptor));
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private static Object readReflective(Object source,
+			PropertyDescriptor descriptor) throws Exception {
+		Method readMethod = descriptor.getReadMethod();
+		if (!readMethod.isAccessible()) {
+			readMethod.setAccessible(true);
+		}
+		return readMethod.invoke(source, null);
+	}
+
+	private static void generateBeans() {
+		if (fBeans != null) {
+			return;
+		}
+		fBeans = new TestBean[BEAN_COUNT];
+		for (int i = 0; i < BEAN_COUNT; i++) {
+			fBeans[i] = new TestBean("Bean " + i); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * The bean whose property is read.
+	 */
+	public static class TestBean {
+		private String name;
+
+		/**
+		 * @param name
+		 */
+		public TestBean(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @return the name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @param name
+		 */
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.jface.tests.performance;
+
+import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Widget;
+import org.eclipse.ui.tests.performance.TestRunnable;
+
+/**
+ * The ElementMapPerformanceTest measures the element to item map of the
+ * structured viewers, without the cost of creating the items.
+ */
+public class ElementMapPerformanceTest extends ViewerTest {
+
+	static int ELEMENT_COUNT = 200000;
+
+	class MappingTableViewer extends TableViewer {
+
+		public MappingTableViewer(Composite parent) {
+			super(parent);
+		}
+
+		public void testMapElement(Object element, Widget item) {
+			mapElement(element, item);
+		}
+
+		public void testUnmapElement(Object element, Widget item) {
+			unmapElement(element, item);
+		}
+	}
+
+	MappingTableViewer viewer;
+
+	Object[] elements;
+
+	Widget[] items;
+
+	public ElementMapPerformanceTest(String testName, int tagging) {
+		super(testName, tagging);
+	}
+
+	public ElementMapPerformanceTest(String testName) {
+		super(testName);
+	}
+
+	protected StructuredViewer createViewer(Shell shell) {
+		viewer = new MappingTableViewer(shell);
+		viewer.setContentProvider(new RefreshTestContentProvider(0));
+		viewer.setLabelProvider(getLabelProvider());
+		elements = new Object[ELEMENT_COUNT];
+		for (int i = 0; i < ELEMENT_COUNT; i++) {
+			elements[i] = new TestElement(i);
+		}
+		return viewer;
+	}
+
+	/**
+	 * Test the time for mapping, finding and unmapping elements shown by a
+	 * single item.
+	 * 
+	 * @throws Throwable
+	 */
+	public void testMapSingleItem() throws Throwable {
+		openBrowser();
+		createItems();
+
+		exercise(new TestRunnable() {
+			public void run() {
+				startMeasuring();
+				mapFindUnmap(1);
+				stopMeasuring();
+			}
+		}, MIN_ITERATIONS, ITERATIONS, JFacePerformanceSuite.MAX_TIME);
+
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Test the time for mapping, finding and unmapping elements shown by two
+	 * items.
+	 * 
+	 * @throws Throwable
+	 */
+	public void testMapTwoItems() throws Throwable {
+		openBrowser();
+		createItems();
+
+		exercise(new TestRunnable() {
+			public void run() {
+				startMeasuring();
+				mapFindUnmap(2);
+				stopMeasuring();
+			}
+		}, MIN_ITERATIONS, ITERATIONS, JFacePerformanceSuite.MAX_TIME);
+
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	void createItems() {
+		// the items outlive the input of the viewer, which is empty
+		items = new Widget[] { new TableItem(viewer.getTable(), 0),
+				new TableItem(viewer.getTable(), 0) };
+	}
+
+	void mapFindUnmap(int itemCount) {
+		for (int j = 0; j < itemCount; j++) {
+			for (int i = 0; i < elements.length; i++) {
+				viewer.testMapElement(elements[i], items[j]);
+			}
+		}
+		for (int i = 0; i < elements.length; i++) {
+			if (viewer.testFindItems(elements[i]).length != itemCount)
+				fail("Element not mapped: " + elements[i]);
+		}
+		for (int j = 0; j < itemCount; j++) {
+			for (int i = 0; i < elements.length; i++) {
+				viewer.testUnmapElement(elements[i], items[j]);
+			}
+		}
+	}
+}
@@ -48,6 +48,12 @@ public class JFacePerformanceSuite extends FilteredTestSuite {
 		addTest(new ProgressMonitorDialogPerformanceTest("testLongNames"));
 		addTest(new ShrinkingTreeTest("testTreeViewerRefresh"));
 		addTest(new CollatorPerformanceTest("testCollator"));
+		addTest(new ElementMapPerformanceTest("testMapSingleItem"));
+		addTest(new ElementMapPerformanceTest("testMapTwoItems"));
+		addTest(new ListDiffPerformanceTest("testComputeListDiff"));
+		addTest(new ListDiffPerformanceTest("testComputeLegacyListDiff"));
+		addTest(new BeanPropertyPerformanceTest("testReadValueProperty"));
+		addTest(new BeanPropertyPerformanceTest("testReadReflective"));
 
 	}
 }
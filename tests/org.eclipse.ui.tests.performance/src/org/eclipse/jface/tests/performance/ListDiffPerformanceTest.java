@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.jface.tests.performance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.core.databinding.observable.Diffs;
+import org.eclipse.core.databinding.observable.list.ListDiff;
+import org.eclipse.core.databinding.observable.list.ListDiffEntry;
+import org.eclipse.ui.tests.performance.BasicPerformanceTest;
+
+/**
+ * The ListDiffPerformanceTest measures {@link Diffs#computeListDiff(List, List)}
+ * against the algorithm it replaced, on the same lists.
+ */
+public class ListDiffPerformanceTest extends BasicPerformanceTest {
+
+	private static final int ELEMENT_COUNT = 20000;
+
+	private static final int MOVED_COUNT = ELEMENT_COUNT / 2;
+
+	private static final int CHANGE_COUNT = 200;
+
+	private static final int ITERATIONS = 10;
+
+	private static List fOldList;
+
+	private static List fNewList;
+
+	/**
+	 * @param testName
+	 */
+	public ListDiffPerformanceTest(String testName) {
+		super(testName);
+		generateLists();
+	}
+
+	/**
+	 * Test the time for computing the differences.
+	 */
+	public void testComputeListDiff() {
+		ListDiff diff = null;
+		for (int i = 0; i < ITERATIONS; i++) {
+			startMeasuring();
+			diff = Diffs.computeListDiff(fOldList, fNewList);
+			stopMeasuring();
+		}
+		checkDiff(diff);
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Test the time for computing the differences with the previous algorithm,
+	 * as a reference for {@link #testComputeListDiff()}.
+	 */
+	public void testComputeLegacyListDiff() {
+		ListDiff diff = null;
+		for (int i = 0; i < ITERATIONS; i++) {
+			startMeasuring();
+			diff = computeLegacyListDiff(fOldList, fNewList);
+			stopMeasuring();
+		}
+		checkDiff(diff);
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private void checkDiff(ListDiff diff) {
+		List list = new ArrayList(fOldList);
+		diff.applyTo(list);
+		assertEquals(fNewList, list);
+	}
+
+	/**
+	 * Generate the lists: half of the elements are reordered and some elements
+	 * are removed and added in between.
+	 */
+	private static void generateLists() {
+		if (fOldList != null) {
+			return;
+		}
+		Random random = new Random(0);
+		fOldList = new ArrayList(ELEMENT_COUNT);
+		for (int i = 0; i < ELEMENT_COUNT; i++) {
+			fOldList.add("Element " + i); //$NON-NLS-1$
+		}
+		fNewList = new ArrayList(fOldList);
+		Collections.shuffle(fNewList.subList(ELEMENT_COUNT / 4, ELEMENT_COUNT
+				/ 4 + MOVED_COUNT), random);
+		for (int i = 0; i < CHANGE_COUNT; i++) {
+			fNewList.remove(random.nextInt(fNewList.size()));
+			fNewList.add(random.nextInt(fNewList.size()), "Added " + i); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * The previous algorithm of {@link Diffs#computeListDiff(List, List)},
+	 * adapted from EMF's ListDifferenceAnalyzer.
+	 */
+	private static ListDiff computeLegacyListDiff(List oldList, List newList) {
+		List listDiffs = new ArrayList();
+		oldList = new ArrayList(oldList);
+		int index = 0;
+		for (Iterator it = newList.iterator(); it.hasNext();) {
+			Object newValue = it.next();
+			if (oldList.size() <= index) {
+				listDiffs.add(Diffs.createListDiffEntry(index, true, newValue));
+			} else {
+				boolean done;
+				do {
+					done = true;
+					Object oldValue = oldList.get(index);
+					if (oldValue == null ? newValue != null : !oldValue
+							.equals(newValue)) {
+						int oldIndexOfNewValue = listIndexOf(oldList, newValue,
+								index);
+						if (oldIndexOfNewValue != -1) {
+							int newIndexOfOldValue = listIndexOf(newList,
+									oldValue, index);
+							if (newIndexOfOldValue == -1) {
+								listDiffs.add(Diffs.createListDiffEntry(index,
+										false, oldValue));
+								oldList.remove(index);
+								done = false;
+							} else if (newIndexOfOldValue > oldIndexOfNewValue) {
+								if (oldList.size() <= newIndexOfOldValue) {
+									newIndexOfOldValue = oldList.size() - 1;
+								}
+								listDiffs.add(Diffs.createListDiffEntry(index,
+										false, oldValue));
+								oldList.remove(index);
+								listDiffs.add(Diffs.createListDiffEntry(
+										newIndexOfOldValue, true, oldValue));
+								oldList.add(newIndexOfOldValue, oldValue);
+								done = false;
+							} else {
+								listDiffs.add(Diffs.createListDiffEntry(
+										oldIndexOfNewValue, false, newValue));
+								oldList.remove(oldIndexOfNewValue);
+								listDiffs.add(Diffs.createListDiffEntry(index,
+										true, newValue));
+								oldList.add(index, newValue);
+							}
+						} else {
+							oldList.add(index, newValue);
+							listDiffs.add(Diffs.createListDiffEntry(index,
+									true, newValue));
+						}
+					}
+				} while (!done);
+			}
+			++index;
+		}
+		for (int i = oldList.size(); i > index;) {
+			listDiffs.add(Diffs.createListDiffEntry(--i, false, oldList.get(i)));
+		}
+		return Diffs.createListDiff((ListDiffEntry[]) listDiffs
+				.toArray(new ListDiffEntry[listDiffs.size()]));
+	}
+
+	private static int listIndexOf(List list, Object object, int index) {
+		int size = list.size();
+		for (int i = index; i < size; i++) {
+			Object candidate = list.get(i);
+			if (candidate == null ? object == null : candidate.equals(object)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -33,6 +33,7 @@ public class AllTests extends TestSuite {
 		addTestSuite(SimpleTableViewerTest.class);
 		addTestSuite(SimpleVirtualLazyTreeViewerTest.class);
 		addTestSuite(VirtualLazyTreeViewerTest.class);
+		addTestSuite(VirtualItemsTreeViewerTest.class);
 		addTestSuite(TableViewerTest.class);
 		addTestSuite(TreeViewerColumnTest.class);
 		addTestSuite(VirtualTableViewerTest.class);
@@ -19,9 +19,13 @@ import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.jface.viewers.StructuredViewer;
 import org.eclipse.jface.viewers.TableViewer;
 import org.eclipse.jface.viewers.TableViewerColumn;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerComparator;
+import org.eclipse.jface.viewers.ViewerFilter;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Table;
 import org.eclipse.swt.widgets.TableColumn;
 import org.eclipse.ui.tests.harness.util.Mocks;
@@ -160,4 +164,43 @@ public class SimpleTableViewerTest extends ViewerTestCase {
 		tableViewer.getTable().dispose();
 		assertEquals(1, disposeCounter[0]);
 	}
+
+	public void testSortAndFilterInBackground() {
+		final int itemCount = tableViewer.getTable().getItemCount();
+		final TestElement filtered = fRootElement.getFirstChild();
+		final ViewerComparator descending = new ViewerComparator() {
+			public int compare(Viewer viewer, Object e1, Object e2) {
+				return super.compare(viewer, e2, e1);
+			}
+		};
+		tableViewer.setSortAndFilterInBackground(true);
+		tableViewer.setComparator(descending);
+		tableViewer.setFilters(new ViewerFilter[] { new ViewerFilter() {
+			public boolean select(Viewer viewer, Object parentElement,
+					Object element) {
+				return element != filtered;
+			}
+		} });
+		// the refreshes are applied later
+		assertEquals(itemCount, tableViewer.getTable().getItemCount());
+		Display display = tableViewer.getTable().getDisplay();
+		long timeout = System.currentTimeMillis() + 10000;
+		while (tableViewer.getTable().getItemCount() == itemCount
+				&& System.currentTimeMillis() < timeout) {
+			if (!display.readAndDispatch()) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					// keep waiting
+				}
+			}
+		}
+		processEvents();
+		assertEquals(itemCount - 1, tableViewer.getTable().getItemCount());
+		assertNull(fViewer.testFindItem(filtered));
+		for (int i = 0; i < itemCount - 2; i++) {
+			assertTrue(descending.compare(tableViewer, tableViewer
+					.getElementAt(i), tableViewer.getElementAt(i + 1)) <= 0);
+		}
+	}
 }
@@ -153,5 +153,4 @@ public class SimpleTreeViewerTest extends ViewerTestCase {
 
 		assertEquals(4, i); // 4 because the filter doesn't work due to equal nodes
 	}
-
 }
@@ -12,6 +12,9 @@ package org.eclipse.jface.tests.viewers;
 
 import org.eclipse.jface.viewers.AbstractTreeViewer;
 import org.eclipse.jface.viewers.ICheckable;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.jface.viewers.StructuredSelection;
+import org.eclipse.swt.widgets.Item;
 
 public abstract class StructuredItemViewerTest extends StructuredViewerTest {
 
@@ -43,4 +46,68 @@ public abstract class StructuredItemViewerTest extends StructuredViewerTest {
             assertTrue(!ctv.getChecked(first));
         }
     }
+
+    public void testBatch() {
+        final int itemCount = getItemCount();
+        final TestElement[] changed = new TestElement[4];
+        fViewer.batch(new Runnable() {
+            public void run() {
+                changed[0] = fRootElement.addChild(TestModelChange.INSERT);
+                changed[1] = fRootElement.getFirstChild();
+                fRootElement.deleteChild(changed[1]);
+                // added and removed in the same batch
+                changed[2] = fRootElement.addChild(TestModelChange.INSERT);
+                fRootElement.deleteChild(changed[2]);
+                changed[3] = fRootElement.getChildAt(1);
+                changed[3].setLabel("batched");
+                // nothing is applied before the end of the batch
+                assertEquals(itemCount, getItemCount());
+                assertNotNull(fViewer.testFindItem(changed[1]));
+                assertFalse(changed[3].toString().equals(
+                        ((Item) fViewer.testFindItem(changed[3])).getText()));
+            }
+        });
+        assertEquals(itemCount, getItemCount());
+        assertNotNull(fViewer.testFindItem(changed[0]));
+        assertNull(fViewer.testFindItem(changed[1]));
+        assertNull(fViewer.testFindItem(changed[2]));
+        assertEquals(changed[3].toString(), ((Item) fViewer
+                .testFindItem(changed[3])).getText());
+    }
+
+    public void testBatchFlushedBySelection() {
+        final TestElement[] added = new TestElement[1];
+        fViewer.batch(new Runnable() {
+            public void run() {
+                added[0] = fRootElement.addChild(TestModelChange.INSERT);
+                assertNull(fViewer.testFindItem(added[0]));
+                // the selected element is added first
+                fViewer.setSelection(new StructuredSelection(added[0]), true);
+                assertNotNull(fViewer.testFindItem(added[0]));
+                assertEquals(added[0], ((IStructuredSelection) fViewer
+                        .getSelection()).getFirstElement());
+                fViewer.reveal(added[0]);
+            }
+        });
+        assertNotNull(fViewer.testFindItem(added[0]));
+    }
+
+    public void testBatchDiscardedBySetInput() {
+        final TestElement oldInput = fRootElement;
+        final TestElement newInput = TestElement.createModel(3, 5);
+        final TestElement[] added = new TestElement[2];
+        fViewer.batch(new Runnable() {
+            public void run() {
+                added[0] = oldInput.addChild(TestModelChange.INSERT);
+                fRootElement = newInput;
+                setInput();
+                // the changes of the new input are still batched
+                added[1] = newInput.addChild(TestModelChange.INSERT);
+                assertNull(fViewer.testFindItem(added[1]));
+            }
+        });
+        assertNull(fViewer.testFindItem(added[0]));
+        assertNotNull(fViewer.testFindItem(added[1]));
+        assertEquals(6, getItemCount());
+    }
 }
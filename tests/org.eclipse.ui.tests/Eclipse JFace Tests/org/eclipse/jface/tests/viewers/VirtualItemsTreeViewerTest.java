@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.viewers;
+
+import org.eclipse.jface.viewers.StructuredViewer;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerComparator;
+import org.eclipse.jface.viewers.ViewerFilter;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
+
+/**
+ * Tests TreeViewer's virtual items with a normal tree content provider.
+ *
+ * @since 3.9
+ */
+public class VirtualItemsTreeViewerTest extends ViewerTestCase {
+
+	private TreeViewer treeViewer;
+
+	public VirtualItemsTreeViewerTest(String name) {
+		super(name);
+	}
+
+	protected StructuredViewer createViewer(Composite parent) {
+		Tree tree = new Tree(parent, SWT.VIRTUAL | SWT.MULTI);
+		treeViewer = new TreeViewer(tree);
+		treeViewer.setUseVirtualItems(true);
+		treeViewer.setContentProvider(new TestModelContentProvider());
+		return treeViewer;
+	}
+
+	public void testCreation() {
+		processEvents();
+		Tree tree = treeViewer.getTree();
+		assertEquals(fRootElement.getChildCount(), tree.getItemCount());
+		assertEquals(fRootElement.getFirstChild(), getData(tree.getItem(0)));
+		// the children of collapsed elements have no items
+		assertNull(treeViewer.testFindItem(fRootElement.getFirstChild()
+				.getFirstChild()));
+	}
+
+	public void testExpand() {
+		TestElement first = fRootElement.getFirstChild();
+		treeViewer.expandToLevel(first, 1);
+		processEvents();
+		Tree tree = treeViewer.getTree();
+		assertEquals(first.getChildCount(), tree.getItem(0).getItemCount());
+		assertEquals(first.getChildAt(1), getData(tree.getItem(0).getItem(1)));
+	}
+
+	public void testSortAndFilter() {
+		final TestElement filtered = fRootElement.getFirstChild();
+		treeViewer.setFilters(new ViewerFilter[] { new ViewerFilter() {
+			public boolean select(Viewer viewer, Object parentElement,
+					Object element) {
+				return element != filtered;
+			}
+		} });
+		ViewerComparator descending = new ViewerComparator() {
+			public int compare(Viewer viewer, Object e1, Object e2) {
+				return super.compare(viewer, e2, e1);
+			}
+		};
+		treeViewer.setComparator(descending);
+		processEvents();
+		Tree tree = treeViewer.getTree();
+		assertEquals(fRootElement.getChildCount() - 1, tree.getItemCount());
+		for (int i = 0; i < tree.getItemCount() - 1; i++) {
+			assertTrue(descending.compare(treeViewer, getData(tree.getItem(i)),
+					getData(tree.getItem(i + 1))) <= 0);
+		}
+		assertNull(treeViewer.testFindItem(filtered));
+	}
+
+	public void testAddAndRemove() {
+		processEvents();
+		Tree tree = treeViewer.getTree();
+		int count = tree.getItemCount();
+		TestElement added = fRootElement.addChild(TestModelChange.INSERT);
+		processEvents();
+		assertEquals(count + 1, tree.getItemCount());
+		fRootElement.deleteChild(added);
+		fRootElement.deleteChild(fRootElement.getFirstChild());
+		processEvents();
+		assertEquals(count - 1, tree.getItemCount());
+		assertEquals(fRootElement.getFirstChild(), getData(tree.getItem(0)));
+	}
+
+	public void testRemoveNested() {
+		TestElement first = fRootElement.getFirstChild();
+		TestElement second = fRootElement.getChildAt(1);
+		treeViewer.expandToLevel(first, 1);
+		treeViewer.expandToLevel(second, 1);
+		processEvents();
+		Tree tree = treeViewer.getTree();
+		int count = tree.getItemCount();
+		int childCount = first.getChildCount();
+		first.deleteChild(first.getFirstChild());
+		second.deleteChild(second.getFirstChild());
+		processEvents();
+		// the root items are unchanged
+		assertEquals(count, tree.getItemCount());
+		assertEquals(childCount - 1, tree.getItem(0).getItemCount());
+		assertEquals(childCount - 1, tree.getItem(1).getItemCount());
+		assertEquals(first.getFirstChild(), getData(tree.getItem(0).getItem(0)));
+		assertEquals(second.getFirstChild(), getData(tree.getItem(1).getItem(0)));
+	}
+
+	/**
+	 * Returns the element of the item, filling it first if needed.
+	 */
+	private Object getData(TreeItem item) {
+		// getting the text sends SWT.SetData
+		item.getText();
+		return item.getData();
+	}
+}
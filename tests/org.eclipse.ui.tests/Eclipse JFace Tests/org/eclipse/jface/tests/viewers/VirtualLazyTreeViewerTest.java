@@ -117,6 +117,18 @@ public class VirtualLazyTreeViewerTest extends TreeViewerTest {
     	// no need to test since virtual trees do not support sorting
     }
     
+    public void testBatch() {
+    	// no need to test since the items of virtual trees are created lazily
+    }
+    
+    public void testBatchFlushedBySelection() {
+    	// no need to test since the items of virtual trees are created lazily
+    }
+    
+    public void testBatchDiscardedBySetInput() {
+    	// no need to test since the items of virtual trees are created lazily
+    }
+    
     // Temporary overrides for bug 347491:
     public void testRefreshWithAddedChildren() {
 		if (disableTestsBug347491)
@@ -270,6 +270,39 @@ public class VirtualTableViewerTest extends TableViewerTest {
 		// are created so it is not valid.
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.jface.tests.viewers.StructuredItemViewerTest#testBatch()
+	 */
+	public void testBatch() {
+		// This test is no use here as it is
+		// based on the assumption that all items
+		// are created.
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.jface.tests.viewers.StructuredItemViewerTest#testBatchFlushedBySelection()
+	 */
+	public void testBatchFlushedBySelection() {
+		// This test is no use here as it is
+		// based on the assumption that all items
+		// are created.
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.jface.tests.viewers.StructuredItemViewerTest#testBatchDiscardedBySetInput()
+	 */
+	public void testBatchDiscardedBySetInput() {
+		// This test is no use here as it is
+		// based on the assumption that all items
+		// are created.
+	}
+
 	public void testRenameWithSorter() {
 		// Call update to make sure the viewer is in a correct state
 		// At least on MacOSX I get failures without this call
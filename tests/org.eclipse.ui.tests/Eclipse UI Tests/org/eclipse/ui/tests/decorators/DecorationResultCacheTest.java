@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.decorators;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.viewers.DecorationContext;
+import org.eclipse.jface.viewers.IDecorationContext;
+import org.eclipse.ui.internal.decorators.DecorationBuilder;
+import org.eclipse.ui.internal.decorators.DecorationResult;
+import org.eclipse.ui.internal.decorators.DecorationResultCache;
+
+/**
+ * Tests the bounds and the eviction order of the decoration result cache.
+ *
+ * @since 3.5
+ */
+public class DecorationResultCacheTest extends TestCase {
+
+	private static final IDecorationContext CONTEXT = DecorationContext.DEFAULT_CONTEXT;
+
+	public DecorationResultCacheTest(String name) {
+		super(name);
+	}
+
+	public void testLeastRecentlyUsedEvicted() {
+		DecorationResultCache cache = new DecorationResultCache(3,
+				Long.MAX_VALUE);
+		cache.put("a", CONTEXT, result(""));
+		cache.put("b", CONTEXT, result(""));
+		cache.put("c", CONTEXT, result(""));
+		// reading a makes b the least recently used
+		assertNotNull(cache.get("a", CONTEXT));
+		cache.put("d", CONTEXT, result(""));
+
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertNull(cache.get("b", CONTEXT));
+		assertNotNull(cache.get("a", CONTEXT));
+		assertNotNull(cache.get("c", CONTEXT));
+		assertNotNull(cache.get("d", CONTEXT));
+	}
+
+	public void testEvictionByMemory() {
+		long size = sizeOf(result("x"));
+		DecorationResultCache cache = new DecorationResultCache(100, size * 3);
+		cache.put("a", CONTEXT, result("x"));
+		cache.put("b", CONTEXT, result("x"));
+		cache.put("c", CONTEXT, result("x"));
+		assertEquals(3, cache.size());
+		assertEquals(size * 3, cache.getMemory());
+
+		cache.put("d", CONTEXT, result("x"));
+		assertEquals(3, cache.size());
+		assertEquals(size * 3, cache.getMemory());
+		assertNull(cache.get("a", CONTEXT));
+
+		// a larger result evicts as many results as needed
+		cache.put("e", CONTEXT, result("xxxxxxxxxxxxxxxxxxxxxxxxxxxxxx"));
+		assertTrue(cache.getMemory() <= size * 3);
+		assertNull(cache.get("b", CONTEXT));
+		assertNull(cache.get("c", CONTEXT));
+		assertNotNull(cache.get("e", CONTEXT));
+		assertEquals(3, cache.getEvictions());
+	}
+
+	public void testReplaceUpdatesMemory() {
+		DecorationResultCache cache = new DecorationResultCache(100,
+				Long.MAX_VALUE);
+		cache.put("a", CONTEXT, result("x"));
+		cache.put("a", CONTEXT, result("x"));
+		assertEquals(1, cache.size());
+		assertEquals(sizeOf(result("x")), cache.getMemory());
+
+		cache.remove("a", CONTEXT);
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getMemory());
+	}
+
+	public void testContexts() {
+		IDecorationContext other = new DecorationContext();
+		DecorationResultCache cache = new DecorationResultCache(100,
+				Long.MAX_VALUE);
+		DecorationResult result = result("x");
+		cache.put("a", CONTEXT, result);
+		assertSame(result, cache.get("a", CONTEXT));
+		assertNull(cache.get("a", other));
+	}
+
+	public void testPinnedNotEvicted() {
+		DecorationResultCache cache = new DecorationResultCache(2,
+				Long.MAX_VALUE);
+		cache.pin("a");
+		cache.pin("a");
+		cache.put("a", CONTEXT, result(""));
+		cache.put("b", CONTEXT, result(""));
+		cache.put("c", CONTEXT, result(""));
+		assertNotNull(cache.get("a", CONTEXT));
+		assertNull(cache.get("b", CONTEXT));
+
+		// still pinned once
+		cache.unpin("a");
+		cache.put("d", CONTEXT, result(""));
+		assertNotNull(cache.get("a", CONTEXT));
+		assertNull(cache.get("c", CONTEXT));
+
+		cache.unpin("a");
+		cache.get("d", CONTEXT);
+		cache.put("e", CONTEXT, result(""));
+		assertNull(cache.get("a", CONTEXT));
+		assertNotNull(cache.get("d", CONTEXT));
+		assertNotNull(cache.get("e", CONTEXT));
+	}
+
+	public void testPinnedOverBounds() {
+		DecorationResultCache cache = new DecorationResultCache(1,
+				Long.MAX_VALUE);
+		cache.pin("a");
+		cache.pin("b");
+		cache.put("a", CONTEXT, result(""));
+		cache.put("b", CONTEXT, result(""));
+		assertEquals(2, cache.size());
+		assertEquals(0, cache.getEvictions());
+
+		// the pins survive clearing the cache
+		cache.clear();
+		assertEquals(0, cache.getMemory());
+		cache.put("a", CONTEXT, result(""));
+		cache.put("b", CONTEXT, result(""));
+		assertEquals(2, cache.size());
+
+		cache.unpin("a");
+		cache.unpin("b");
+		cache.put("c", CONTEXT, result(""));
+		assertEquals(1, cache.size());
+		assertNotNull(cache.get("c", CONTEXT));
+	}
+
+	private static DecorationResult result(String suffix) {
+		DecorationBuilder builder = new DecorationBuilder(CONTEXT);
+		if (suffix.length() > 0) {
+			builder.addSuffix(suffix);
+		}
+		return builder.createResult();
+	}
+
+	private static long sizeOf(DecorationResult result) {
+		DecorationResultCache cache = new DecorationResultCache(1,
+				Long.MAX_VALUE);
+		cache.put("size", CONTEXT, result);
+		return cache.getMemory();
+	}
+}
@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.decorators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.viewers.DecorationContext;
+import org.eclipse.jface.viewers.IDecorationContext;
+import org.eclipse.ui.internal.decorators.DecorationBuilder;
+import org.eclipse.ui.internal.decorators.DecoratorWorkers;
+
+/**
+ * Tests the workers running the lightweight decorators in parallel mode.
+ *
+ * @since 3.5
+ */
+public class DecoratorWorkersTest extends TestCase {
+
+	private static final String SLOW = "slow";
+
+	private static final Object[] DECORATORS = new Object[] { "a", SLOW };
+
+	private DecoratorWorkers workers;
+
+	// Whether the slow decorator may complete, guarded by itself
+	private final boolean[] released = new boolean[1];
+
+	// The elements the workers asked to decorate again
+	private final List lateElements = Collections
+			.synchronizedList(new ArrayList());
+
+	// The decorators running, and the most of them running at once, guarded
+	// by running
+	private final Map running = new HashMap();
+
+	private final Map maxRunning = new HashMap();
+
+	public DecoratorWorkersTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		workers = new DecoratorWorkers(new DecoratorWorkers.DecoratorRunner() {
+			public void decorate(Object element, Object decorator,
+					DecorationBuilder builder) {
+				started(decorator);
+				try {
+					if (decorator == SLOW) {
+						awaitRelease();
+					} else {
+						Thread.sleep(5);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					stopped(decorator);
+				}
+				builder.addSuffix(" " + decorator);
+			}
+
+			public String getName(Object decorator) {
+				return decorator.toString();
+			}
+		}, new DecoratorWorkers.LateDecorationListener() {
+			public void lateDecorationReady(Object element,
+					Object adaptedElement, IDecorationContext context) {
+				lateElements.add(element);
+			}
+		});
+	}
+
+	protected void tearDown() throws Exception {
+		release();
+		workers.shutdown();
+		super.tearDown();
+	}
+
+	public void testDecorationsInDecoratorOrder() {
+		release();
+		DecorationBuilder builder = new DecorationBuilder(
+				DecorationContext.DEFAULT_CONTEXT);
+		assertTrue(workers.decorate("element", null, builder, DECORATORS));
+		assertEquals("element a slow", builder.createResult()
+				.decorateWithText("element"));
+		assertTrue(lateElements.isEmpty());
+	}
+
+	public void testLateDecoration() throws Exception {
+		DecorationBuilder builder = new DecorationBuilder(
+				DecorationContext.DEFAULT_CONTEXT);
+		long start = System.currentTimeMillis();
+		assertFalse(workers.decorate("first", null, builder, DECORATORS));
+		assertTrue(System.currentTimeMillis() - start >= DecoratorWorkers.DECORATOR_TIMEOUT);
+		assertEquals("first a", builder.createResult().decorateWithText(
+				"first"));
+
+		// the stalled decorator is not waited for again
+		builder = new DecorationBuilder(DecorationContext.DEFAULT_CONTEXT);
+		start = System.currentTimeMillis();
+		assertFalse(workers.decorate("second", null, builder, DECORATORS));
+		assertTrue(System.currentTimeMillis() - start < DecoratorWorkers.DECORATOR_TIMEOUT);
+		assertEquals("second a", builder.createResult().decorateWithText(
+				"second"));
+		assertTrue(lateElements.isEmpty());
+
+		// both elements are decorated again once the decorator answers
+		release();
+		waitForLateElements(2);
+		assertTrue(lateElements.contains("first"));
+		assertTrue(lateElements.contains("second"));
+
+		// the late decoration is used
+		builder = new DecorationBuilder(DecorationContext.DEFAULT_CONTEXT);
+		assertTrue(workers.decorate("first", null, builder, DECORATORS));
+		assertEquals("first a slow", builder.createResult().decorateWithText(
+				"first"));
+	}
+
+	public void testDeferredElementsAreBounded() throws Exception {
+		assertFalse(workers.decorate("stalled", null, new DecorationBuilder(
+				DecorationContext.DEFAULT_CONTEXT), DECORATORS));
+		int deferred = DecoratorWorkers.MAX_DEFERRED + 10;
+		for (int i = 0; i < deferred; i++) {
+			assertFalse(workers.decorate("element" + i, null,
+					new DecorationBuilder(DecorationContext.DEFAULT_CONTEXT),
+					DECORATORS));
+		}
+		release();
+		waitForLateElements(DecoratorWorkers.MAX_DEFERRED + 1);
+		Thread.sleep(100);
+		// the oldest elements were dropped
+		assertEquals(DecoratorWorkers.MAX_DEFERRED + 1, lateElements.size());
+		assertFalse(lateElements.contains("element0"));
+		assertTrue(lateElements.contains("element" + (deferred - 1)));
+	}
+
+	public void testDecoratorRunsOnOneElementAtATime() throws Exception {
+		release();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			final String prefix = "thread" + i;
+			threads[i] = new Thread() {
+				public void run() {
+					for (int j = 0; j < 10; j++) {
+						workers.decorate(prefix + j, null,
+								new DecorationBuilder(
+										DecorationContext.DEFAULT_CONTEXT),
+								DECORATORS);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+		synchronized (running) {
+			assertEquals(new Integer(1), maxRunning.get("a"));
+			assertEquals(new Integer(1), maxRunning.get(SLOW));
+		}
+	}
+
+	public void testShutdown() {
+		release();
+		workers.shutdown();
+		DecorationBuilder builder = new DecorationBuilder(
+				DecorationContext.DEFAULT_CONTEXT);
+		assertFalse(workers.decorate("element", null, builder, DECORATORS));
+		assertEquals("element", builder.createResult().decorateWithText(
+				"element"));
+	}
+
+	public void testCancelledBeforeRunning() throws Exception {
+		Thread first = decorateInThread("first");
+		waitForRunning(SLOW);
+		// queued behind the first element on the slow decorator
+		Thread second = decorateInThread("second");
+		Thread.sleep(100);
+		Job.getJobManager().cancel(workers);
+		first.join();
+		second.join();
+
+		// the decorator catches up once its running job completes
+		release();
+		long deadline = System.currentTimeMillis() + 5000;
+		boolean complete = false;
+		for (int i = 0; !complete
+				&& System.currentTimeMillis() < deadline; i++) {
+			complete = workers.decorate("element" + i, null,
+					new DecorationBuilder(DecorationContext.DEFAULT_CONTEXT),
+					DECORATORS);
+			Thread.sleep(10);
+		}
+		assertTrue(complete);
+	}
+
+	private Thread decorateInThread(final Object element) {
+		Thread thread = new Thread() {
+			public void run() {
+				workers.decorate(element, null, new DecorationBuilder(
+						DecorationContext.DEFAULT_CONTEXT), DECORATORS);
+			}
+		};
+		thread.start();
+		return thread;
+	}
+
+	private void waitForRunning(Object decorator) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < deadline) {
+			synchronized (running) {
+				if (new Integer(1).equals(running.get(decorator))) {
+					return;
+				}
+			}
+			Thread.sleep(10);
+		}
+		fail(decorator + " is not running");
+	}
+
+	private void started(Object decorator) {
+		synchronized (running) {
+			Integer count = (Integer) running.get(decorator);
+			int value = count == null ? 1 : count.intValue() + 1;
+			running.put(decorator, new Integer(value));
+			Integer max = (Integer) maxRunning.get(decorator);
+			if (max == null || max.intValue() < value) {
+				maxRunning.put(decorator, new Integer(value));
+			}
+		}
+	}
+
+	private void stopped(Object decorator) {
+		synchronized (running) {
+			Integer count = (Integer) running.get(decorator);
+			running.put(decorator, new Integer(count.intValue() - 1));
+		}
+	}
+
+	private void awaitRelease() throws InterruptedException {
+		synchronized (released) {
+			while (!released[0]) {
+				released.wait();
+			}
+		}
+	}
+
+	private void release() {
+		synchronized (released) {
+			released[0] = true;
+			released.notifyAll();
+		}
+	}
+
+	private void waitForLateElements(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (lateElements.size() < count
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(lateElements.size() >= count);
+	}
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.tests.dialogs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.ui.internal.dialogs.FilterChunkJob;
+
+/**
+ * Tests that matching the items of FilteredItemsSelectionDialog in parallel
+ * chunks finds the items found by matching them one after the other.
+ *
+ * @since 3.105
+ */
+public class FilterChunkJobAuto extends TestCase {
+
+	private static final FilterChunkJob.ItemMatcher MATCHER = new FilterChunkJob.ItemMatcher() {
+		public boolean matchItem(Object item) {
+			return item.toString().indexOf('7') != -1;
+		}
+	};
+
+	/**
+	 * @param name
+	 */
+	public FilterChunkJobAuto(String name) {
+		super(name);
+	}
+
+	public void testChunksMatchLikeSequentialFiltering() throws Exception {
+		Object[] items = items(25013);
+		List expected = matchSequentially(items);
+		for (int jobs = 1; jobs <= 8; jobs++) {
+			assertEquals("jobs: " + jobs, expected, matchInChunks(items, jobs,
+					new NullProgressMonitor()));
+		}
+	}
+
+	public void testMoreJobsThanItems() throws Exception {
+		for (int length = 0; length < 10; length++) {
+			Object[] items = items(length);
+			assertEquals("items: " + length, matchSequentially(items),
+					matchInChunks(items, 8, new NullProgressMonitor()));
+		}
+	}
+
+	public void testChunksCoverItems() {
+		Object[] items = items(1001);
+		final List matched = new ArrayList();
+		FilterChunkJob[] jobs = FilterChunkJob.createJobs(
+				new FilterChunkJob.ItemMatcher() {
+					public boolean matchItem(Object item) {
+						matched.add(item);
+						return true;
+					}
+				}, items, 7, new NullProgressMonitor());
+		// run the jobs one after the other to record the order of the items
+		List matches = new ArrayList();
+		for (int i = 0; i < jobs.length; i++) {
+			jobs[i].schedule();
+			join(jobs[i]);
+			matches.addAll(jobs[i].getMatches());
+		}
+		assertEquals(items.length, matched.size());
+		for (int i = 0; i < items.length; i++) {
+			assertSame(items[i], matched.get(i));
+			assertSame(items[i], matches.get(i));
+		}
+	}
+
+	public void testCanceledFilterJob() throws Exception {
+		IProgressMonitor parent = new NullProgressMonitor();
+		parent.setCanceled(true);
+		FilterChunkJob[] jobs = FilterChunkJob.createJobs(MATCHER, items(5000),
+				4, parent);
+		for (int i = 0; i < jobs.length; i++) {
+			jobs[i].schedule();
+		}
+		for (int i = 0; i < jobs.length; i++) {
+			join(jobs[i]);
+			assertEquals(IStatus.CANCEL, jobs[i].getResult().getSeverity());
+			assertTrue(jobs[i].getMatches().isEmpty());
+		}
+	}
+
+	private static List matchInChunks(Object[] items, int count,
+			IProgressMonitor parent) {
+		FilterChunkJob[] jobs = FilterChunkJob.createJobs(MATCHER, items,
+				count, parent);
+		for (int i = 0; i < jobs.length; i++) {
+			jobs[i].schedule();
+		}
+		List matches = new ArrayList();
+		for (int i = 0; i < jobs.length; i++) {
+			join(jobs[i]);
+			assertEquals(IStatus.OK, jobs[i].getResult().getSeverity());
+			matches.addAll(jobs[i].getMatches());
+		}
+		return matches;
+	}
+
+	private static List matchSequentially(Object[] items) {
+		List matches = new ArrayList();
+		for (int i = 0; i < items.length; i++) {
+			if (MATCHER.matchItem(items[i])) {
+				matches.add(items[i]);
+			}
+		}
+		return matches;
+	}
+
+	private static void join(FilterChunkJob job) {
+		try {
+			job.join();
+		} catch (InterruptedException e) {
+			fail("Interrupted while waiting for " + job);
+		}
+	}
+
+	private static Object[] items(int length) {
+		Object[] items = new Object[length];
+		for (int i = 0; i < length; i++) {
+			items[i] = "item" + i;
+		}
+		return items;
+	}
+}
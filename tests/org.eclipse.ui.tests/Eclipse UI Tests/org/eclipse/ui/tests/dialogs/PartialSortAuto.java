@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.tests.dialogs;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ui.internal.dialogs.PartialSort;
+
+/**
+ * Tests that the first items shown by FilteredItemsSelectionDialog before all
+ * of them are sorted are the first items of the sorted list.
+ *
+ * @since 3.105
+ */
+public class PartialSortAuto extends TestCase {
+
+	private static final int TOP_ITEMS = 100;
+
+	private static final Comparator COMPARATOR = new Comparator() {
+		public int compare(Object o1, Object o2) {
+			return ((Item) o1).key - ((Item) o2).key;
+		}
+	};
+
+	private final Random random = new Random(42);
+
+	/**
+	 * @param name
+	 */
+	public PartialSortAuto(String name) {
+		super(name);
+	}
+
+	public void testDistinctItems() {
+		checkSortFirst(items(10000, Integer.MAX_VALUE), TOP_ITEMS);
+	}
+
+	public void testTies() {
+		checkSortFirst(items(10000, 10), TOP_ITEMS);
+		checkSortFirst(items(10000, 1000), TOP_ITEMS);
+	}
+
+	public void testEqualItems() {
+		checkSortFirst(items(10000, 1), TOP_ITEMS);
+	}
+
+	public void testSortedItems() {
+		Item[] items = items(10000, 100);
+		Arrays.sort(items, COMPARATOR);
+		checkSortFirst(items, TOP_ITEMS);
+
+		Item[] reversed = new Item[items.length];
+		for (int i = 0; i < items.length; i++) {
+			reversed[i] = items[items.length - 1 - i];
+		}
+		checkSortFirst(reversed, TOP_ITEMS);
+	}
+
+	public void testEveryCount() {
+		for (int length = 2; length < 40; length++) {
+			for (int count = 1; count < length; count++) {
+				checkSortFirst(items(length, 5), count);
+				checkSortFirst(items(length, length * 2), count);
+			}
+		}
+	}
+
+	/**
+	 * Check that sorting the first items, then the others, arranges the items
+	 * like the sequential sort of all of them.
+	 */
+	private void checkSortFirst(Item[] items, int count) {
+		Item[] sorted = (Item[]) items.clone();
+		Arrays.sort(sorted, COMPARATOR);
+
+		Item[] partial = (Item[]) items.clone();
+		PartialSort.sortFirst(partial, count, COMPARATOR);
+		assertEquals(new HashSet(Arrays.asList(items)), new HashSet(Arrays
+				.asList(partial)));
+		for (int i = 0; i < count; i++) {
+			assertEquals("item " + i + " of " + count, sorted[i].key,
+					partial[i].key);
+		}
+		if (hasDistinctKeys(items)) {
+			for (int i = 0; i < count; i++) {
+				assertSame(sorted[i], partial[i]);
+			}
+		}
+
+		// the other items follow once they are sorted
+		Arrays.sort(partial, count, partial.length, COMPARATOR);
+		for (int i = 0; i < partial.length; i++) {
+			assertEquals("item " + i + " of " + count, sorted[i].key,
+					partial[i].key);
+		}
+	}
+
+	private Item[] items(int length, int keys) {
+		Item[] items = new Item[length];
+		for (int i = 0; i < length; i++) {
+			items[i] = new Item(random.nextInt(keys));
+		}
+		return items;
+	}
+
+	private static boolean hasDistinctKeys(Item[] items) {
+		HashSet keys = new HashSet();
+		for (int i = 0; i < items.length; i++) {
+			if (!keys.add(new Integer(items[i].key))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * An item compared on its key only, so that equal items can be told
+	 * apart.
+	 */
+	private static class Item {
+		final int key;
+
+		Item(int key) {
+			this.key = key;
+		}
+
+		public String toString() {
+			return String.valueOf(key);
+		}
+	}
+}
@@ -44,5 +44,7 @@ public class UIAutomatedSuite extends TestSuite {
 		addTest(new TestSuite(UIEditWorkingSetWizardAuto.class));
 		addTest(new TestSuite(SearchPatternAuto.class));
 		addTest(new TestSuite(UIFilteredResourcesSelectionDialogAuto.class));
+		addTest(new TestSuite(PartialSortAuto.class));
+		addTest(new TestSuite(FilterChunkJobAuto.class));
 	}
 }
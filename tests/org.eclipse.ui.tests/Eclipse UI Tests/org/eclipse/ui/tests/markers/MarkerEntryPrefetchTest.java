@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.markers;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.ui.internal.views.markers.MarkerTypeField;
+import org.eclipse.ui.internal.views.markers.MockMarkerEntry;
+import org.eclipse.ui.tests.harness.util.UITestCase;
+import org.eclipse.ui.views.markers.internal.MarkerMessages;
+
+/**
+ * MarkerEntryPrefetchTest checks that the prefetched attributes of the marker
+ * entries match the attributes read from the markers.
+ *
+ * @since 3.5
+ *
+ */
+public class MarkerEntryPrefetchTest extends UITestCase {
+
+	private static final String UNKNOWN_TYPE = "org.eclipse.ui.tests.markers.unknownType";
+
+	private IProject project;
+
+	public MarkerEntryPrefetchTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		project = ResourcesPlugin.getWorkspace().getRoot().getProject(
+				"MarkerEntryPrefetchTest");
+		if (!project.exists())
+			project.create(null);
+
+		if (!project.isOpen())
+			project.open(null);
+	}
+
+	protected void doTearDown() throws Exception {
+		super.doTearDown();
+		if (project.exists())
+			project.delete(true, null);
+	}
+
+	public void testPrefetchedAttributes() throws Exception {
+		IMarker marker = project.createMarker(IMarker.PROBLEM);
+		marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_WARNING);
+		marker.setAttribute(IMarker.PRIORITY, IMarker.PRIORITY_HIGH);
+		marker.setAttribute(IMarker.LINE_NUMBER, 12);
+
+		MockMarkerEntry read = new MockMarkerEntry(marker);
+		MockMarkerEntry prefetched = new MockMarkerEntry(marker);
+		prefetched.prefetch();
+
+		assertAttributes(read, prefetched);
+		assertEquals(IMarker.SEVERITY_WARNING, prefetched.getAttributeValue(
+				IMarker.SEVERITY, -1));
+		assertEquals(12, prefetched.getAttributeValue(IMarker.LINE_NUMBER, -1));
+		assertEquals(-1, prefetched.getAttributeValue(IMarker.DONE, -1));
+
+		marker.setAttribute(IMarker.LOCATION, "location");
+		read = new MockMarkerEntry(marker);
+		prefetched = new MockMarkerEntry(marker);
+		prefetched.prefetch();
+		assertAttributes(read, prefetched);
+		assertEquals("location", prefetched.getLocation());
+	}
+
+	public void testPrefetchUnknownType() throws Exception {
+		IMarker marker = project.createMarker(UNKNOWN_TYPE);
+		String wrongType = NLS.bind(MarkerMessages.FieldMessage_WrongType,
+				marker.toString());
+
+		MockMarkerEntry read = new MockMarkerEntry(marker);
+		assertEquals(wrongType, new MarkerTypeField().getValue(read));
+
+		MockMarkerEntry prefetched = new MockMarkerEntry(marker);
+		prefetched.prefetch();
+		assertEquals(wrongType, new MarkerTypeField().getValue(prefetched));
+	}
+
+	public void testPrefetchStaleMarker() throws Exception {
+		IMarker marker = project.createMarker(IMarker.PROBLEM);
+		String wrongType = NLS.bind(MarkerMessages.FieldMessage_WrongType,
+				marker.toString());
+		marker.delete();
+
+		MockMarkerEntry prefetched = new MockMarkerEntry(marker);
+		prefetched.prefetch();
+		assertEquals(wrongType, new MarkerTypeField().getValue(prefetched));
+		assertEquals(-1, prefetched.getAttributeValue(IMarker.SEVERITY, -1));
+	}
+
+	private void assertAttributes(MockMarkerEntry read,
+			MockMarkerEntry prefetched) {
+		String[] attributes = new String[] { IMarker.SEVERITY,
+				IMarker.PRIORITY, IMarker.LINE_NUMBER };
+		for (int i = 0; i < attributes.length; i++) {
+			assertEquals(attributes[i], read.getAttributeValue(attributes[i],
+					-1), prefetched.getAttributeValue(attributes[i], -1));
+		}
+		assertEquals(read.getLocation(), prefetched.getLocation());
+		assertEquals(read.getPath(), prefetched.getPath());
+		MarkerTypeField typeField = new MarkerTypeField();
+		assertEquals(typeField.getValue(read), typeField.getValue(prefetched));
+	}
+}
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.markers;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.ui.IViewPart;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.internal.views.markers.CachedMarkerBuilder;
+import org.eclipse.ui.internal.views.markers.MarkerContentGenerator;
+import org.eclipse.ui.tests.harness.util.UITestCase;
+import org.eclipse.ui.views.markers.internal.MarkerGroup;
+import org.eclipse.ui.views.markers.internal.MarkerSupportRegistry;
+
+/**
+ * MarkersIncrementalUpdateTest checks that the markers view shows the same
+ * markers, in the same order, after applying marker changes incrementally as
+ * after gathering all of the markers again.
+ *
+ * @since 3.5
+ *
+ */
+public class MarkersIncrementalUpdateTest extends UITestCase {
+
+	private static final String VIEW_ID = "org.eclipse.ui.tests.markerTests";
+
+	private static final String SEVERITY_GROUP = "org.eclipse.ui.ide.severity";
+
+	private static final long TIMEOUT = 30000;
+
+	private IWorkbenchPage page;
+
+	private MarkersTestMarkersView view;
+
+	private IProject project;
+
+	private IFile file;
+
+	private String incrementalProperty;
+
+	private boolean limitsEnabled;
+
+	private int limits;
+
+	/**
+	 * Create a new instance of the receiver.
+	 *
+	 * @param testName
+	 */
+	public MarkersIncrementalUpdateTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		incrementalProperty = System
+				.getProperty(CachedMarkerBuilder.INCREMENTAL_UPDATES);
+		System.setProperty(CachedMarkerBuilder.INCREMENTAL_UPDATES, "true");
+
+		project = ResourcesPlugin.getWorkspace().getRoot().getProject(
+				"MarkersIncrementalUpdateTest");
+		if (!project.exists()) {
+			project.create(null);
+		}
+		project.open(null);
+		file = project.getFile("file.txt");
+		if (!file.exists()) {
+			file.create(new ByteArrayInputStream(new byte[0]), true, null);
+		}
+
+		page = fWorkbench.getActiveWorkbenchWindow().getActivePage();
+		// the property is read when the view is created
+		IViewPart previous = page.findView(VIEW_ID);
+		if (previous != null) {
+			page.hideView(previous);
+		}
+		view = (MarkersTestMarkersView) page.showView(VIEW_ID);
+		MarkerContentGenerator generator = view.getContentGenerator();
+		limitsEnabled = generator.isMarkerLimitsEnabled();
+		limits = generator.getMarkerLimits();
+		waitForUpdates();
+	}
+
+	protected void doTearDown() throws Exception {
+		MarkerContentGenerator generator = view.getContentGenerator();
+		generator.setMarkerLimitsEnabled(limitsEnabled);
+		generator.setMarkerLimits(limits);
+		page.hideView(view);
+		if (incrementalProperty == null) {
+			System.getProperties().remove(
+					CachedMarkerBuilder.INCREMENTAL_UPDATES);
+		} else {
+			System.setProperty(CachedMarkerBuilder.INCREMENTAL_UPDATES,
+					incrementalProperty);
+		}
+		project.delete(true, null);
+		super.doTearDown();
+	}
+
+	public void testIncrementalUpdate() throws CoreException {
+		assertTrue(view.isIncremental());
+		setCategoryGroup(null);
+		setMarkerLimits(0);
+		checkChanges();
+	}
+
+	public void testIncrementalUpdateWithGrouping() throws CoreException {
+		setCategoryGroup(MarkerSupportRegistry.getInstance().getMarkerGroup(
+				SEVERITY_GROUP));
+		setMarkerLimits(0);
+		checkChanges();
+	}
+
+	public void testIncrementalUpdateWithLimits() throws CoreException {
+		setCategoryGroup(null);
+		setMarkerLimits(10);
+		checkChanges();
+	}
+
+	public void testIncrementalUpdateWithGroupingAndLimits()
+			throws CoreException {
+		setCategoryGroup(MarkerSupportRegistry.getInstance().getMarkerGroup(
+				SEVERITY_GROUP));
+		setMarkerLimits(5);
+		checkChanges();
+	}
+
+	/**
+	 * Add, change and remove markers and check the view after each step.
+	 */
+	private void checkChanges() throws CoreException {
+		final IMarker[] markers = new IMarker[30];
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (int i = 0; i < markers.length; i++) {
+					markers[i] = file.createMarker(IMarker.PROBLEM);
+					setAttributes(markers[i], i, i % 3);
+				}
+			}
+		}, null);
+		checkView();
+
+		// change the severity of some markers, which moves them to other
+		// categories, and the message of others, which moves them in their
+		// category
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (int i = 0; i < markers.length; i += 4) {
+					setAttributes(markers[i], i, (i + 1) % 3);
+				}
+				for (int i = 1; i < markers.length; i += 4) {
+					setAttributes(markers[i], markers.length + i, i % 3);
+				}
+			}
+		}, null);
+		checkView();
+
+		// add a marker, change and remove it in changes applied by the same
+		// update
+		IMarker marker = file.createMarker(IMarker.PROBLEM);
+		setAttributes(marker, markers.length * 2, IMarker.SEVERITY_ERROR);
+		marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_WARNING);
+		marker.delete();
+		checkView();
+
+		// remove all of the warnings, which removes their category, and some
+		// other markers
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				IMarker[] current = file.findMarkers(IMarker.PROBLEM, false,
+						IResource.DEPTH_ZERO);
+				for (int i = 0; i < current.length; i++) {
+					int severity = current[i].getAttribute(IMarker.SEVERITY,
+							-1);
+					if (severity == IMarker.SEVERITY_WARNING || i % 5 == 0) {
+						current[i].delete();
+					}
+				}
+			}
+		}, null);
+		checkView();
+
+		file.deleteMarkers(IMarker.PROBLEM, false, IResource.DEPTH_ZERO);
+		checkView();
+	}
+
+	private void setAttributes(IMarker marker, int index, int severity)
+			throws CoreException {
+		marker.setAttribute(IMarker.MESSAGE, "Marker "
+				+ (index < 10 ? "0" : "") + index);
+		marker.setAttribute(IMarker.SEVERITY, severity);
+		marker.setAttribute(IMarker.LINE_NUMBER, index + 1);
+	}
+
+	/**
+	 * Check that the incrementally updated view shows the markers of the file
+	 * and shows the same markers as after gathering all of them again.
+	 */
+	private void checkView() throws CoreException {
+		waitForUpdates();
+		IMarker[] incremental = view.getCurrentMarkers();
+
+		HashSet fileMarkers = new HashSet(Arrays.asList(file.findMarkers(
+				IMarker.PROBLEM, false, IResource.DEPTH_ZERO)));
+		HashSet shownFileMarkers = new HashSet();
+		for (int i = 0; i < incremental.length; i++) {
+			if (file.equals(incremental[i].getResource())) {
+				shownFileMarkers.add(incremental[i]);
+			}
+		}
+		assertEquals(fileMarkers, shownFileMarkers);
+
+		view.scheduleCleanUpdate();
+		waitForUpdates();
+		IMarker[] clean = view.getCurrentMarkers();
+
+		assertEquals(new HashSet(Arrays.asList(clean)), new HashSet(Arrays
+				.asList(incremental)));
+		assertEquals(getShownMarkers(clean), getShownMarkers(incremental));
+	}
+
+	/**
+	 * Return the markers sorted by the view, all of them or the first ones of
+	 * each category when the markers are limited.
+	 */
+	private List getShownMarkers(IMarker[] markers) {
+		MarkerContentGenerator generator = view.getContentGenerator();
+		if (!generator.isMarkerLimitsEnabled()) {
+			return Arrays.asList(markers);
+		}
+		boolean grouped = view.getCategoryGroup() != null;
+		// the markers of each category in the order of the view
+		Map categories = new LinkedHashMap();
+		for (int i = 0; i < markers.length; i++) {
+			Integer key = new Integer(grouped ? markers[i].getAttribute(
+					IMarker.SEVERITY, -1) : 0);
+			List category = (List) categories.get(key);
+			if (category == null) {
+				category = new ArrayList();
+				categories.put(key, category);
+			}
+			if (category.size() < generator.getMarkerLimits()) {
+				category.add(markers[i]);
+			}
+		}
+		return new ArrayList(categories.values());
+	}
+
+	private void setCategoryGroup(MarkerGroup group) {
+		view.setCategoryGroup(group);
+		waitForUpdates();
+		assertEquals(group, view.getCategoryGroup());
+	}
+
+	private void setMarkerLimits(int limit) {
+		MarkerContentGenerator generator = view.getContentGenerator();
+		generator.setMarkerLimitsEnabled(limit > 0);
+		generator.setMarkerLimits(limit);
+		view.scheduleCleanUpdate();
+		waitForUpdates();
+	}
+
+	/**
+	 * Wait until the marker changes are received and the view is updated.
+	 */
+	private void waitForUpdates() {
+		// let the listener schedule the update of the last changes
+		processEventsUntil(null, 500);
+		assertTrue("The markers view was not updated", processEventsUntil(
+				new Condition() {
+					public boolean compute() {
+						return !view.updatesPending();
+					}
+				}, TIMEOUT));
+		processEvents();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2008 IBM Corporation and others.
+ * Copyright (c) 2007, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,7 +22,9 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Tree;
 import org.eclipse.swt.widgets.TreeColumn;
 import org.eclipse.ui.internal.views.markers.ExtendedMarkersView;
+import org.eclipse.ui.internal.views.markers.MarkerContentGenerator;
 import org.eclipse.ui.views.markers.MarkerSupportView;
+import org.eclipse.ui.views.markers.internal.MarkerGroup;
 import org.eclipse.ui.views.markers.internal.MarkerSupportRegistry;
 
 /**
@@ -112,6 +114,89 @@ public class MarkersTestMarkersView extends MarkerSupportView {
 
 	}
 
+	/**
+	 * Return whether the builder applies the marker changes incrementally.
+	 * 
+	 * @return boolean
+	 */
+	public boolean isIncremental() {
+		return Boolean.TRUE.equals(invokeBuilder("isIncremental",
+				new Class[0], new Object[0]));
+	}
+
+	/**
+	 * Return whether marker updates are scheduled and not finished.
+	 * 
+	 * @return boolean
+	 */
+	public boolean updatesPending() {
+		return Boolean.TRUE.equals(invokeBuilder("updatesPending",
+				new Class[0], new Object[0]));
+	}
+
+	/**
+	 * Schedule an update gathering all of the markers again.
+	 */
+	public void scheduleCleanUpdate() {
+		invokeBuilder("scheduleUpdate", new Class[0], new Object[0]);
+	}
+
+	/**
+	 * Group the markers by the group, or do not group them if the group is
+	 * <code>null</code>. The markers are gathered again.
+	 * 
+	 * @param group
+	 */
+	public void setCategoryGroup(MarkerGroup group) {
+		invokeBuilder("setCategoryGroup", new Class[] { MarkerGroup.class },
+				new Object[] { group });
+	}
+
+	/**
+	 * Return the group of the markers.
+	 * 
+	 * @return MarkerGroup or <code>null</code>
+	 */
+	public MarkerGroup getCategoryGroup() {
+		return (MarkerGroup) invokeBuilder("getCategoryGroup", new Class[0],
+				new Object[0]);
+	}
+
+	/**
+	 * Return the content generator of the receiver.
+	 * 
+	 * @return MarkerContentGenerator
+	 */
+	public MarkerContentGenerator getContentGenerator() {
+		return (MarkerContentGenerator) invokeBuilder("getGenerator",
+				new Class[0], new Object[0]);
+	}
+
+	/**
+	 * Invoke the method of the builder.
+	 * 
+	 * @return the result of the method
+	 */
+	private Object invokeBuilder(String name, Class[] types, Object[] args) {
+		try {
+			Field field = ExtendedMarkersView.class.getDeclaredField("builder");
+			field.setAccessible(true);
+			Object builder = field.get(this);
+			Method method = builder.getClass().getDeclaredMethod(name, types);
+			method.setAccessible(true);
+			return method.invoke(builder, args);
+		} catch (NoSuchFieldException e) {
+			e.printStackTrace();
+		} catch (NoSuchMethodException e) {
+			e.printStackTrace();
+		} catch (IllegalAccessException e) {
+			e.printStackTrace();
+		} catch (InvocationTargetException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
 	/**
 	 * Set the width of all of the columns.
 	 * @param width
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2011 IBM Corporation and others.
+ * Copyright (c) 2008, 2012 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,11 +11,13 @@
 
 package org.eclipse.ui.tests.quickaccess;
 
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
 import org.eclipse.e4.ui.model.application.ui.menu.MToolControl;
 import org.eclipse.e4.ui.workbench.modeling.EModelService;
 import org.eclipse.ui.handlers.IHandlerService;
 import org.eclipse.ui.internal.WorkbenchWindow;
+import org.eclipse.ui.internal.quickaccess.QuickAccessContents;
 import org.eclipse.ui.internal.quickaccess.SearchField;
 import org.eclipse.ui.tests.harness.util.UITestCase;
 
@@ -55,11 +57,13 @@ public class QuickAccessDialogTest extends UITestCase {
 			String oldFirstItemText = searchField.getTable().getItem(0)
 					.getText(1);
 			searchField.getFilterText().setText("e");
+			waitForMatching();
 			int count1 = searchField.getTable().getItemCount();
 			assertTrue("expecting matching items", count1 > 0);
 			assertNotSame("expecting different item", oldFirstItemText,
 					searchField.getTable().getItem(0).getText(1));
 			searchField.toggleShowAllMatches();
+			waitForMatching();
 			int count2 = searchField.getTable().getItemCount();
 			assertTrue("still expecting matching items", count2 > 0);
 			assertTrue("expecting more matching items", count2 > count1);
@@ -68,4 +72,12 @@ public class QuickAccessDialogTest extends UITestCase {
 		}
 	}
 
+	/**
+	 * Wait until the entries matching the filter are shown.
+	 */
+	private void waitForMatching() throws InterruptedException {
+		Job.getJobManager().join(QuickAccessContents.MATCHING_JOB_FAMILY, null);
+		processEvents();
+	}
+
 }
@@ -0,0 +1,297 @@
+/*******************************************************************************
+ * Copyright (c) 2012 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.quickaccess;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.ui.internal.quickaccess.CamelUtil;
+import org.eclipse.ui.internal.quickaccess.QuickAccessElement;
+import org.eclipse.ui.internal.quickaccess.QuickAccessEntry;
+import org.eclipse.ui.internal.quickaccess.QuickAccessIndex;
+import org.eclipse.ui.internal.quickaccess.QuickAccessProvider;
+
+/**
+ * Tests that matching the filters with the trigram index of a provider finds
+ * the same entries as matching each element.
+ */
+public class QuickAccessIndexTest extends TestCase {
+
+	private static final String[] LABELS = new String[] { "Problems",
+			"Package Explorer", "Project Explorer", "Progress", "Console",
+			"Call Hierarchy", "SomeJREExample", "SomeJRE - Example",
+			"Error Log", "Outline", "Javadoc", "Task List", "Type Hierarchy",
+			"Synchronize", "a", "ab", "Views", "View Problems",
+			"Editors ApplAction.java - mail/src" };
+
+	private static final String[] FILTERS = new String[] { "", "p", "pr",
+			"pro", "prob", "vie", "views", "views pro", "views p", "ews pa",
+			"s pa", "vpe", "vp", "pe", "ch", "sjree", "sjre", "vsjr", "xyz",
+			"ex", "expl", "xpl", "ll hi", "log", "s - e", "view view",
+			"aaction", "eaj" };
+
+	private static final int[][] EMPTY_INDICES = new int[0][0];
+
+	private TestProvider provider;
+
+	public QuickAccessIndexTest(String name) {
+		super(name);
+	}
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		provider = new TestProvider("Views", LABELS);
+	}
+
+	public void testIndexMatchesLikeElements() {
+		Iterator iterator = getFilters().iterator();
+		while (iterator.hasNext()) {
+			String filter = (String) iterator.next();
+			QuickAccessIndex index = provider.getIndex();
+			QuickAccessElement[] elements = index.getElements();
+			int[] candidates = index.getCandidates(filter);
+			int next = 0;
+			for (int i = 0; i < elements.length; i++) {
+				boolean candidate = candidates == null
+						|| (next < candidates.length && candidates[next] == i);
+				if (candidate && candidates != null) {
+					next++;
+				}
+				QuickAccessEntry entry = candidate ? index.match(i, filter)
+						: null;
+				assertEntry(filter, elements[i], entry);
+			}
+			if (candidates != null) {
+				assertEquals("candidates not ascending for " + filter,
+						candidates.length, next);
+			}
+		}
+	}
+
+	public void testElementMatchUsesIndex() {
+		QuickAccessElement[] elements = provider.getElementsSorted();
+		Iterator iterator = getFilters().iterator();
+		while (iterator.hasNext()) {
+			String filter = (String) iterator.next();
+			for (int i = 0; i < elements.length; i++) {
+				assertEntry(filter, elements[i], elements[i].match(filter,
+						provider));
+			}
+		}
+	}
+
+	public void testElementOfOtherProvider() {
+		TestProvider other = new TestProvider("Previous Choices",
+				new String[] { "Problems View", "Console" });
+		QuickAccessElement[] elements = other.getElementsSorted();
+		assertEquals(-1, provider.getIndex().indexOf(elements[0]));
+		Iterator iterator = getFilters().iterator();
+		while (iterator.hasNext()) {
+			String filter = (String) iterator.next();
+			for (int i = 0; i < elements.length; i++) {
+				assertEntry(filter, elements[i], provider, elements[i].match(
+						filter, provider));
+			}
+		}
+	}
+
+	public void testIndexRecreatedOnReset() {
+		QuickAccessIndex index = provider.getIndex();
+		assertSame(index, provider.getIndex());
+		provider.reset();
+		assertNotSame(index, provider.getIndex());
+	}
+
+	/**
+	 * Return the filters to match, the fixed ones and the grams of the labels.
+	 */
+	private Set getFilters() {
+		Set filters = new LinkedHashSet();
+		for (int i = 0; i < FILTERS.length; i++) {
+			filters.add(FILTERS[i]);
+		}
+		for (int i = 0; i < LABELS.length; i++) {
+			String combined = (provider.getName() + " " + LABELS[i]);
+			addSubstrings(filters, combined.toLowerCase());
+			addSubstrings(filters, CamelUtil.getCamelCase(combined));
+		}
+		return filters;
+	}
+
+	private void addSubstrings(Set filters, String label) {
+		for (int length = 1; length <= 5; length++) {
+			for (int i = 0; i + length <= label.length(); i++) {
+				filters.add(label.substring(i, i + length));
+			}
+		}
+	}
+
+	private void assertEntry(String filter, QuickAccessElement element,
+			QuickAccessEntry entry) {
+		assertEntry(filter, element, provider, entry);
+	}
+
+	private void assertEntry(String filter, QuickAccessElement element,
+			QuickAccessProvider providerForMatching, QuickAccessEntry entry) {
+		int[][][] expected = match(element, providerForMatching, filter);
+		String message = "'" + filter + "' on '" + element.getLabel() + "'";
+		if (expected == null) {
+			assertNull(message, entry);
+			return;
+		}
+		assertNotNull(message, entry);
+		assertSame(message, element, entry.getElement());
+		assertArrayEquals(message, expected[0], entry
+				.getElementMatchRegions());
+		assertArrayEquals(message, expected[1], entry
+				.getProviderMatchRegions());
+	}
+
+	/**
+	 * The matching of each element without an index.
+	 *
+	 * @return the element and provider match regions or <code>null</code>
+	 */
+	private static int[][][] match(QuickAccessElement element,
+			QuickAccessProvider providerForMatching, String filter) {
+		String sortLabel = element.getLabel();
+		int index = sortLabel.toLowerCase().indexOf(filter);
+		if (index != -1) {
+			return new int[][][] {
+					new int[][] { { index, index + filter.length() - 1 } },
+					EMPTY_INDICES };
+		}
+		String combinedLabel = (providerForMatching.getName() + " " + element
+				.getLabel());
+		index = combinedLabel.toLowerCase().indexOf(filter);
+		if (index != -1) {
+			int lengthOfElementMatch = index + filter.length()
+					- providerForMatching.getName().length() - 1;
+			if (lengthOfElementMatch > 0) {
+				return new int[][][] {
+						new int[][] { { 0, lengthOfElementMatch - 1 } },
+						new int[][] { { index, index + filter.length() - 1 } } };
+			}
+			return new int[][][] { EMPTY_INDICES,
+					new int[][] { { index, index + filter.length() - 1 } } };
+		}
+		String camelCase = CamelUtil.getCamelCase(sortLabel);
+		index = camelCase.indexOf(filter);
+		if (index != -1) {
+			return new int[][][] {
+					CamelUtil.getCamelCaseIndices(sortLabel, index, filter
+							.length()), EMPTY_INDICES };
+		}
+		String combinedCamelCase = CamelUtil.getCamelCase(combinedLabel);
+		index = combinedCamelCase.indexOf(filter);
+		if (index != -1) {
+			String providerCamelCase = CamelUtil
+					.getCamelCase(providerForMatching.getName());
+			int lengthOfElementMatch = index + filter.length()
+					- providerCamelCase.length();
+			if (lengthOfElementMatch > 0) {
+				return new int[][][] {
+						CamelUtil.getCamelCaseIndices(sortLabel, 0,
+								lengthOfElementMatch),
+						CamelUtil.getCamelCaseIndices(providerForMatching
+								.getName(), index, filter.length()
+								- lengthOfElementMatch) };
+			}
+			return new int[][][] {
+					EMPTY_INDICES,
+					CamelUtil.getCamelCaseIndices(providerForMatching
+							.getName(), index, filter.length()) };
+		}
+		return null;
+	}
+
+	private void assertArrayEquals(String message, int[][] expected,
+			int[][] actual) {
+		assertEquals(message, expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(message + " i=" + i, expected[i].length,
+					actual[i].length);
+			for (int j = 0; j < expected[i].length; j++) {
+				assertEquals(message + " i=" + i + ", j=" + j, expected[i][j],
+						actual[i][j]);
+			}
+		}
+	}
+
+	private static class TestProvider extends QuickAccessProvider {
+		private final String name;
+
+		private final String[] labels;
+
+		TestProvider(String name, String[] labels) {
+			this.name = name;
+			this.labels = labels;
+		}
+
+		public String getId() {
+			return name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public ImageDescriptor getImageDescriptor() {
+			return null;
+		}
+
+		public QuickAccessElement[] getElements() {
+			List elements = new ArrayList();
+			for (int i = 0; i < labels.length; i++) {
+				elements.add(new TestElement(this, labels[i]));
+			}
+			return (QuickAccessElement[]) elements
+					.toArray(new QuickAccessElement[elements.size()]);
+		}
+
+		public QuickAccessElement getElementForId(String id) {
+			return null;
+		}
+
+		protected void doReset() {
+		}
+	}
+
+	private static class TestElement extends QuickAccessElement {
+		private final String label;
+
+		TestElement(QuickAccessProvider provider, String label) {
+			super(provider);
+			this.label = label;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+
+		public ImageDescriptor getImageDescriptor() {
+			return null;
+		}
+
+		public String getId() {
+			return label;
+		}
+
+		public void execute() {
+		}
+	}
+}